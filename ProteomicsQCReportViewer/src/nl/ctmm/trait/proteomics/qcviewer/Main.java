@@ -1,8 +1,8 @@
 package nl.ctmm.trait.proteomics.qcviewer;
 
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -12,15 +12,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.swing.SwingUtilities;
+
 import nl.ctmm.trait.proteomics.qcviewer.gui.DataEntryForm;
 import nl.ctmm.trait.proteomics.qcviewer.gui.ViewerFrame;
+import nl.ctmm.trait.proteomics.qcviewer.input.FileChangeMonitor;
 import nl.ctmm.trait.proteomics.qcviewer.input.MetricsParser;
-import nl.ctmm.trait.proteomics.qcviewer.input.ProgressLogMonitor;
 import nl.ctmm.trait.proteomics.qcviewer.input.ProgressLogReader;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportChangeListener;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportDirectoryWatcher;
 import nl.ctmm.trait.proteomics.qcviewer.input.ReportReader;
 import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnit;
 import nl.ctmm.trait.proteomics.qcviewer.utils.Constants;
@@ -76,6 +84,14 @@ public class Main {
      */
     private static final String NO_REPORTS_MESSAGE = "No reports found in %s.";
 
+    /**
+     * The minimum time in milliseconds between the starts of two rescans of all reports, which replace the report
+     * directory watcher when watching is not supported. Each change of the pipeline log file (which is polled at most
+     * every {@link Constants#POLL_INTERVAL_PIPELINE_LOG} milliseconds) requests a rescan; the requests that arrive
+     * while a rescan is waiting or running are combined into a single rescan.
+     */
+    private static final long FALLBACK_RESCAN_INTERVAL = 30000;
+
     /**
      * The application properties such as root folder and default metrics to show.
      */
@@ -119,23 +135,73 @@ public class Main {
      */
     private Map<String, ReportUnit> reportUnitsTable = new HashMap<>();
 
+    /**
+     * The reports that were skipped because the QC pipeline was still processing them. They are added when the
+     * pipeline status changes. The msrun names are used as keys in the map.
+     */
+    private final Map<String, ReportUnit> skippedReportUnits = new HashMap<>();
+
+    /**
+     * The watcher that reads new and modified reports or <code>null</code> if watching the report directories is not
+     * supported. Without a watcher, all reports are read again when the pipeline log file changes, at most once every
+     * {@link #FALLBACK_RESCAN_INTERVAL} milliseconds.
+     */
+    private ReportDirectoryWatcher reportDirectoryWatcher;
+
+    /**
+     * The executor that rescans all reports when the report directory watcher is not available. The rescans run on
+     * their own thread, so they do not hold up the file change monitor, and they never overlap.
+     */
+    private final ScheduledExecutorService fallbackRescanExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Report rescanner");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Whether a rescan of all reports has been scheduled and has not started yet.
+     */
+    private boolean fallbackRescanPending;
+
+    /**
+     * The time at which the last rescan of all reports started, or 0 if there has been none.
+     */
+    private long fallbackRescanStartTime;
+
+    /**
+     * The reader that reads the reports in the background or <code>null</code> if no reports are being read.
+     */
+    private ReportReader reportScanReader;
+
+    /**
+     * The number of the latest report scan. Batches of reports from earlier scans are not added to the viewer.
+     */
+    private volatile int reportScanNumber;
+
+    /**
+     * The number of reports that have been read by the latest report scan.
+     */
+    private int scannedReportCount;
+
     /**
      * Reader for the pipeline log file - qc_status.log from the preferredRootDirectory.
      */
     private ProgressLogReader progressLogReader;
 
     /**
-     * Record progressLogFilePath to remove listener in progressLogMonitor.
+     * Record progressLogFilePath to remove listener in fileChangeMonitor.
      */
     private String currentProgressLogFilePath;
 
     /**
-     * Another way to monitor the pipeline log file - qc_status.log from the preferredRootDirectory.
-     * <p/>
-     * TODO: this can probably be removed because ProgressLogReader is sufficient. Check with Sander and Thang first.
+     * The monitor that reports changes of the pipeline log file - qc_status.log from the preferredRootDirectory.
      */
     @SuppressWarnings("FieldCanBeLocal")
-    private ProgressLogMonitor progressLogMonitor;
+    private FileChangeMonitor fileChangeMonitor;
 
     /**
      * The directory to which the QC pipeline writes the QC reports.
@@ -181,21 +247,15 @@ public class Main {
         logger.fine("in Main preferredRootDirectory = " + preferredRootDirectory);
         dataEntryForm = new DataEntryForm(this, applicationProperties);
         dataEntryForm.setRootDirectoryName(preferredRootDirectory);
-        dataEntryForm.displayInitialDialog();
         //Determine fromDate and TillDate range to select the reports
         determineReportDateRange();
         progressLogOperations();
+        //Start main user interface without reports: they are added while they are read
+        startQCReportViewerGui(applicationProperties, new ArrayList<ReportUnit>(), pipelineStatus);
+        frame.setControlChartStatisticsPostponed(true);
+        dataEntryForm.displayInitialDialog();
         //Obtain initial set of reports according to date filter
-        final List<ReportUnit> displayableReportUnits = processInitialReports();
-        logger.fine(String.format(NUMBER_OF_REPORTS_MESSAGE, reportUnitsTable.size()));
-        dataEntryForm.disposeInitialDialog();
-        //Start main user interface
-        startQCReportViewerGui(applicationProperties, displayableReportUnits, pipelineStatus);
-        if (displayableReportUnits.size() == 0) {
-            // There are no reports in the current root directory. Obtain new directory location from the user. 
-            dataEntryForm.displayErrorMessage(String.format(NO_REPORTS_MESSAGE, preferredRootDirectory));
-            dataEntryForm.displayRootDirectoryChooser();
-        } 
+        startReportScan();
     }
     
        /**
@@ -230,7 +290,7 @@ public class Main {
     /**
      * Determine progress log file path.
      * Setup progressLogReader to read current pipeline status.
-     * Setup progressLogMonitor to monitor changes to progress log file.
+     * Setup fileChangeMonitor to monitor changes to progress log file.
      */
     private void progressLogOperations() {
         final String progressLogFilePath = FilenameUtils.normalize(preferredRootDirectory + "\\"
@@ -239,20 +299,14 @@ public class Main {
         progressLogReader = ProgressLogReader.getInstance(); 
         progressLogReader.setProgressLogFile(progressLogFilePath);
         pipelineStatus = progressLogReader.getCurrentStatus();
-        //Start the progress log monitor to monitor qc_status.log file
-        // TODO: keep a reference to this progressLogMonitor (declare as a field)? [Freek]
-        progressLogMonitor = ProgressLogMonitor.getInstance();
-        try {
-            if (currentProgressLogFilePath != null) {
-                progressLogMonitor.removeFileChangeListener(progressLogReader, currentProgressLogFilePath);
-            }
-            progressLogMonitor.addFileChangeListener(progressLogReader, progressLogFilePath,
-                                                     Constants.POLL_INTERVAL_PIPELINE_LOG);
-            currentProgressLogFilePath = progressLogFilePath; 
-        } catch (final FileNotFoundException e1) {
-            e1.printStackTrace();
-            logger.fine("progress log file not found. Configured path: " + progressLogFilePath);
-        } //Refresh period is 5 seconds
+        //Start the file change monitor to monitor qc_status.log file (it is polled at most every 5 seconds)
+        fileChangeMonitor = FileChangeMonitor.getInstance();
+        if (currentProgressLogFilePath != null) {
+            fileChangeMonitor.removeFileChangeListener(progressLogReader, currentProgressLogFilePath);
+        }
+        fileChangeMonitor.addFileChangeListener(progressLogReader, progressLogFilePath,
+                                                Constants.POLL_INTERVAL_PIPELINE_LOG);
+        currentProgressLogFilePath = progressLogFilePath;
     }
 
     /**
@@ -291,52 +345,302 @@ public class Main {
     }
 
     /**
-     * Read initial set of QC Reports from the preferredRootDirectory. The reports are filtered according to date
-     * criteria
-     * @return displayableReportUnits: QC reports to be displayed in the report viewer
-     * TODO: look at similarities between processInitialReports and notifyProgressLogFileChanged.
+     * Start reading the QC reports from the preferredRootDirectory in the background. The reports are filtered
+     * according to the date criteria and are added to the viewer in batches while they are read, newest first. A scan
+     * that is still running is cancelled. When all reports have been read (or the scan is cancelled), the report
+     * directory watcher is started.
      */
-    private List<ReportUnit> processInitialReports() {
-        logger.fine("Main processInitialReports()");
-        final ArrayList<ReportUnit> reportUnits = getReportUnits(preferredRootDirectory, fromDate, tillDate);
-        final String runningMsrunName = progressLogReader.getRunningMsrunName();
-        final ArrayList<ReportUnit> displayableReportUnits = new ArrayList<>();
+    private synchronized void startReportScan() {
+        logger.fine("Main startReportScan()");
+        if (reportScanReader != null) {
+            reportScanReader.cancel();
+        }
+        if (reportDirectoryWatcher != null) {
+            reportDirectoryWatcher.stop();
+            reportDirectoryWatcher = null;
+        }
         //Reinitialize reportUnitsTable
         reportUnitsTable = new HashMap<>();
-        //populate reportUnitsTable
-        logger.fine("All reportUnitsSize = " + reportUnits.size() + " runningMsrunName = " + runningMsrunName);
+        skippedReportUnits.clear();
+        scannedReportCount = 0;
+        reportScanNumber++;
+        final ReportReader scanReader = new ReportReader(metricsParser, true);
+        reportScanReader = scanReader;
+        final String rootDirectoryName = preferredRootDirectory;
+        final Date scanFromDate = fromDate;
+        final Date scanTillDate = tillDate;
+        final Thread scanThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final long scanStartTime = System.currentTimeMillis();
+                try {
+                    scanReader.retrieveReports(rootDirectoryName, scanFromDate, scanTillDate,
+                                               new ReportChangeListener() {
+                        @Override
+                        public void reportsChanged(final List<ReportUnit> reportUnits) {
+                            addScannedReports(scanReader, reportUnits, scanStartTime);
+                        }
+                    });
+                } finally {
+                    finishReportScan(scanReader, scanStartTime);
+                }
+            }
+        }, "Report scanner");
+        scanThread.setDaemon(true);
+        scanThread.start();
+    }
+
+    /**
+     * Cancel reading the reports in the background. The reports that have been read so far remain in the viewer.
+     */
+    public synchronized void cancelReportScan() {
+        if (reportScanReader != null) {
+            logger.fine("Cancelling the report scan after " + scannedReportCount + " reports.");
+            reportScanReader.cancel();
+        }
+    }
+
+    /**
+     * A batch of reports has been read by the report scan. Add the reports to the viewer and show the progress.
+     *
+     * @param scanReader the reader of the scan that read the reports.
+     * @param reportUnits the report units that were read.
+     * @param scanStartTime the time at which the scan started.
+     */
+    private synchronized void addScannedReports(final ReportReader scanReader, final List<ReportUnit> reportUnits,
+                                                final long scanStartTime) {
+        if (scanReader != reportScanReader) {
+            // This scan has been replaced by a newer scan.
+            return;
+        }
+        final List<ReportUnit> newReportUnits = addReportUnits(reportUnits);
+        scannedReportCount += reportUnits.size();
+        final int scanNumber = reportScanNumber;
+        final int reportCount = scannedReportCount;
+        final long elapsedMillis = System.currentTimeMillis() - scanStartTime;
+        final String currentPipelineStatus = progressLogReader.getCurrentStatus();
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (scanNumber == reportScanNumber) {
+                    if (!newReportUnits.isEmpty()) {
+                        frame.updateReportUnits(newReportUnits, currentPipelineStatus, false);
+                    }
+                    dataEntryForm.updateInitialDialog(reportCount, elapsedMillis);
+                }
+            }
+        });
+    }
+
+    /**
+     * The report scan has read all reports or has been cancelled. Start the report directory watcher and close the
+     * progress dialog. If no reports were found, ask the user for another root directory.
+     *
+     * @param scanReader the reader of the scan that has finished.
+     * @param scanStartTime the time at which the scan started: directories modified since then are read again.
+     */
+    private synchronized void finishReportScan(final ReportReader scanReader, final long scanStartTime) {
+        if (scanReader != reportScanReader) {
+            // This scan has been replaced by a newer scan.
+            return;
+        }
+        reportScanReader = null;
+        startReportDirectoryWatcher(scanStartTime);
+        logger.fine(String.format(NUMBER_OF_REPORTS_MESSAGE, reportUnitsTable.size()));
+        final boolean noReports = reportUnitsTable.isEmpty() && skippedReportUnits.isEmpty()
+                                  && !scanReader.isCancelled();
+        final int scanNumber = reportScanNumber;
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (scanNumber == reportScanNumber) {
+                    frame.setControlChartStatisticsPostponed(false);
+                    dataEntryForm.disposeInitialDialog();
+                    if (noReports) {
+                        // There are no reports in the current root directory. Obtain new directory location from the
+                        // user.
+                        dataEntryForm.displayErrorMessage(String.format(NO_REPORTS_MESSAGE, preferredRootDirectory));
+                        dataEntryForm.displayRootDirectoryChooser();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Start watching the report directories for new and modified reports. If watching is not supported, the reports
+     * are read again each time the pipeline log file changes.
+     *
+     * @param scanStartTime the time at which the reports were read: directories modified since then are read again.
+     */
+    private void startReportDirectoryWatcher(final long scanStartTime) {
+        if (reportDirectoryWatcher != null) {
+            reportDirectoryWatcher.stop();
+        }
+        reportDirectoryWatcher = new ReportDirectoryWatcher(Paths.get(FilenameUtils.normalize(preferredRootDirectory)),
+                                                            fromDate, new ReportReader(metricsParser),
+                                                            new ReportChangeListener() {
+            @Override
+            public void reportsChanged(final List<ReportUnit> reportUnits) {
+                notifyReportsChanged(reportUnits);
+            }
+        });
+        if (!reportDirectoryWatcher.start(scanStartTime)) {
+            logger.info("Falling back to reading all reports when the pipeline log file changes (at most every "
+                        + FALLBACK_RESCAN_INTERVAL / 1000 + " seconds).");
+            reportDirectoryWatcher = null;
+        }
+    }
+
+    /**
+     * New or modified reports have been read by the report directory watcher. Add the new reports to the viewer.
+     *
+     * @param reportUnits the report units that were read.
+     */
+    public synchronized void notifyReportsChanged(final List<ReportUnit> reportUnits) {
+        final List<ReportUnit> newReportUnits = addReportUnits(reportUnits);
+        if (frame != null && !newReportUnits.isEmpty()) {
+            final String currentPipelineStatus = progressLogReader.getCurrentStatus();
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    frame.updateReportUnits(newReportUnits, currentPipelineStatus, false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Add report units to the reports table, except the report unit of the msrun the pipeline is currently processing,
+     * which is skipped until the pipeline status changes.
+     *
+     * @param reportUnits the report units that were read.
+     * @return the report units that are new (and not skipped).
+     */
+    private List<ReportUnit> addReportUnits(final List<ReportUnit> reportUnits) {
+        final String runningMsrunName = progressLogReader.getRunningMsrunName();
+        final List<ReportUnit> newReportUnits = new ArrayList<>();
+        int numUpdates = 0;
         for (final ReportUnit thisUnit : reportUnits) {
             final String thisMsrun = thisUnit.getMsrunName();
             if (!thisMsrun.equals(runningMsrunName)) {
-                thisUnit.setReportNum(reportUnitsTable.size() + 1);
-                displayableReportUnits.add(thisUnit);
-                //for identifying duplicate reports
-                if (reportUnitsTable.containsKey(thisMsrun)) {
-                    logger.warning("Alert!! Already exists in ReportUnitsTable " + thisMsrun);
+                skippedReportUnits.remove(thisMsrun);
+                if (addOrUpdateReportUnit(thisUnit, newReportUnits)) {
+                    numUpdates++;
                 }
-                //Update reportUnit in reportUnitsTable
-                reportUnitsTable.put(thisMsrun, thisUnit);
             } else {
-                // Currently processing this msrun. Do not include in the list of reports.
+                // Currently processing this msrun. Add it when the pipeline status changes.
                 logger.fine(String.format(SKIPPED_REPORT_MESSAGE, thisMsrun, runningMsrunName));
+                skippedReportUnits.put(thisMsrun, thisUnit);
             }
         }
-        return displayableReportUnits;
+        logger.fine(String.format(NUMBER_OF_REPORTS_MESSAGE + " " + NEW_NUMBER_OF_REPORTS_MESSAGE,
+                                  reportUnitsTable.size(), numUpdates, newReportUnits.size()));
+        return newReportUnits;
+    }
+
+    /**
+     * Add a report unit to the reports table or replace the existing report unit for the same msrun.
+     *
+     * @param reportUnit the report unit.
+     * @param newReportUnits the list to which the report unit is added if it is new.
+     * @return whether an existing report unit was replaced.
+     */
+    private boolean addOrUpdateReportUnit(final ReportUnit reportUnit, final List<ReportUnit> newReportUnits) {
+        final String msrunName = reportUnit.getMsrunName();
+        final ReportUnit existingUnit = reportUnitsTable.get(msrunName);
+        if (existingUnit != null) {
+            reportUnit.setReportNum(existingUnit.getReportNum());
+            reportUnitsTable.put(msrunName, reportUnit);
+            return true;
+        } else {
+            logger.fine("Does not exist in reportUnitsTable. " + msrunName
+                        + " Adding to new report units with reportNum " + (reportUnitsTable.size() + 1));
+            reportUnit.setReportNum(reportUnitsTable.size() + 1);
+            newReportUnits.add(reportUnit);
+            reportUnitsTable.put(msrunName, reportUnit);
+            return false;
+        }
     }
 
     /**
-     * Progress log file has changed. Refresh the application automatically on this notification.
+     * Progress log file has changed. Refresh the application automatically on this notification. This method is called
+     * on the thread of the file change monitor; if the reports have to be read again, that is done on the thread of
+     * the fallback rescan executor (see {@link #scheduleFallbackRescan()}).
      *
      * @param newPipelineStatus the new status of the QC pipeline.
      */
-    public void notifyProgressLogFileChanged(final String newPipelineStatus) {
+    public synchronized void notifyProgressLogFileChanged(final String newPipelineStatus) {
         /* The tillDate has to be updated as currentTime - since the pipeline status has changed.
         * FromDate could be specified by the user
         */
-        final String runningMsrunName = progressLogReader.getRunningMsrunName();
         tillDate = Calendar.getInstance().getTime();
-        // TODO: can we use the preferredRootDirectory field below? [Freek] Yes & done [Pravin]
-        final List<ReportUnit> reportUnits = getReportUnits(preferredRootDirectory, fromDate, tillDate);
+        if (reportScanReader != null || reportDirectoryWatcher != null && reportDirectoryWatcher.isRunning()) {
+            // The report scan and the watcher read new and modified reports as soon as they are complete. Only the
+            // reports that were skipped because the pipeline was processing them still need to be added.
+            notifyReportsChanged(new ArrayList<>(skippedReportUnits.values()));
+            notifyUpdatePipelineStatus(newPipelineStatus);
+            return;
+        }
+        scheduleFallbackRescan();
+    }
+
+    /**
+     * Schedule a rescan of all reports, unless one is scheduled already. The rescan starts at least
+     * {@link #FALLBACK_RESCAN_INTERVAL} milliseconds after the start of the previous one.
+     */
+    private synchronized void scheduleFallbackRescan() {
+        if (!fallbackRescanPending) {
+            fallbackRescanPending = true;
+            final long delay = Math.max(0, fallbackRescanStartTime + FALLBACK_RESCAN_INTERVAL
+                                           - System.currentTimeMillis());
+            logger.fine("Rescanning all reports in " + delay + " ms");
+            fallbackRescanExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rescanReports();
+                    } catch (final RuntimeException e) {
+                        logger.log(Level.SEVERE, "Something went wrong while reading all reports again", e);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Read all reports again and add the new and updated reports to the viewer. The reports are read without holding
+     * the lock of this object, so the viewer and the pipeline status are not held up while the directories are read.
+     */
+    private void rescanReports() {
+        final String rootDirectoryName;
+        final Date rescanFromDate;
+        final Date rescanTillDate;
+        synchronized (this) {
+            fallbackRescanPending = false;
+            fallbackRescanStartTime = System.currentTimeMillis();
+            rootDirectoryName = preferredRootDirectory;
+            rescanFromDate = fromDate;
+            rescanTillDate = tillDate;
+        }
+        final List<ReportUnit> reportUnits = getReportUnits(rootDirectoryName, rescanFromDate, rescanTillDate);
+        addRescannedReports(rootDirectoryName, reportUnits);
+    }
+
+    /**
+     * Add the reports of a rescan of all reports to the viewer, unless the root directory has changed or the reports
+     * are read by a report scan or the report directory watcher in the meantime.
+     *
+     * @param rootDirectoryName the root directory that was rescanned.
+     * @param reportUnits the report units that were read.
+     */
+    private synchronized void addRescannedReports(final String rootDirectoryName, final List<ReportUnit> reportUnits) {
+        if (!rootDirectoryName.equals(preferredRootDirectory) || reportScanReader != null
+            || reportDirectoryWatcher != null && reportDirectoryWatcher.isRunning()) {
+            return;
+        }
+        final String runningMsrunName = progressLogReader.getRunningMsrunName();
+        final String newPipelineStatus = progressLogReader.getCurrentStatus();
         if (reportUnits.size() == 0) {
             // There exist no reports in current root directory.
             // Get new location to read reports from.
@@ -356,19 +660,8 @@ public class Main {
                      * The QC report is being generated. 
                      * Hence do not add this report yet to the reportUnitsTable.  
                      */
-                    if (reportUnitsTable.containsKey(thisMsrun)) {
-                        final ReportUnit existingUnit = reportUnitsTable.get(thisMsrun);
-                        thisUnit.setReportNum(existingUnit.getReportNum());
-                        reportUnitsTable.remove(thisMsrun);
-                        reportUnitsTable.put(thisMsrun, thisUnit);
+                    if (addOrUpdateReportUnit(thisUnit, newReportUnits)) {
                         numUpdates++;
-                    } else {
-                        logger.fine("Does not exist in reportUnitsTable. " + thisUnit.getMsrunName()
-                                    + " Adding to new report units with reportNum " + (reportUnitsTable.size() + 1));
-                        thisUnit.setReportNum(reportUnitsTable.size() + 1);
-                        newReportUnits.add(thisUnit);
-                        //Add to hashTable
-                        reportUnitsTable.put(thisUnit.getMsrunName(), thisUnit);
                     }
                 } else {
                     // Currently processing this msrun. Do not include in the list of reports.
@@ -377,9 +670,13 @@ public class Main {
             }
             logger.fine(String.format(NUMBER_OF_REPORTS_MESSAGE + " " + NEW_NUMBER_OF_REPORTS_MESSAGE,
                                       reportUnitsTable.size(), numUpdates, newReportUnits.size()));
-            reportUnits.clear();
             //Refresh ViewerFrame with new Report Units
-            frame.updateReportUnits(newReportUnits, newPipelineStatus, false);
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    frame.updateReportUnits(newReportUnits, newPipelineStatus, false);
+                }
+            });
         }
     }
 
@@ -392,7 +689,7 @@ public class Main {
      * @return the list with report units.
      */
     private ArrayList<ReportUnit> getReportUnits(final String rootDirectoryName, final Date fromDate, final Date tillDate) {
-        return new ReportReader(metricsParser).retrieveReports(rootDirectoryName, fromDate, tillDate);
+        return new ReportReader(metricsParser, true).retrieveReports(rootDirectoryName, fromDate, tillDate);
     }
 
     /**
@@ -444,22 +741,18 @@ public class Main {
      * Update all the reports in the QC Report Viewer. It is called in the following two cases:
      * 1) New root directory is chosen.
      * 2) Change in the date range.
+     * The current reports are removed from the viewer and the new reports are added while they are read.
      */
     public void updateReportViewer() {
         logger.fine("Main updateReportViewer");
         preferredRootDirectory = loadProperties().getProperty(Constants.PROPERTY_ROOT_FOLDER);
         determineReportDateRange();
-        final List<ReportUnit> displayableReportUnits = processInitialReports();
-        if (displayableReportUnits.size() == 0) {
-            // There exist no reports in selected root directory conforming date range.
-            // Get new location to read reports from.
-            dataEntryForm.displayErrorMessage(String.format(NO_REPORTS_MESSAGE, preferredRootDirectory));
-            dataEntryForm.displayRootDirectoryChooser();
-        } else {
-            // TODO: why is the call to progressLogOperations needed? [Freek]
-            progressLogOperations();
-            // Refresh ViewerFrame with new Report Units.
-            frame.updateReportUnits(displayableReportUnits, progressLogReader.getCurrentStatus(), true);
-        }
+        // TODO: why is the call to progressLogOperations needed? [Freek]
+        progressLogOperations();
+        frame.updateReportUnits(new ArrayList<ReportUnit>(), progressLogReader.getCurrentStatus(), true);
+        frame.setControlChartStatisticsPostponed(true);
+        dataEntryForm.setRootDirectoryName(preferredRootDirectory);
+        dataEntryForm.displayInitialDialog();
+        startReportScan();
     }
 }
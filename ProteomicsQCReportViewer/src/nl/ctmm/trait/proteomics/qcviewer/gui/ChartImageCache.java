@@ -0,0 +1,286 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+
+/**
+ * The object of this class renders TIC charts into images on a fixed pool of background threads and keeps the images
+ * in a cache, so report rows can show a chart by drawing an image instead of drawing the chart on the event dispatch
+ * thread. The least recently used images are removed when the images together have more pixels than the pixel budget.
+ * <p/>
+ * A chart is rendered from a copy (see {@link ChartUnit#createChartCopy()}) that is made on the event dispatch thread,
+ * so the background threads never touch a chart that is shown. An image is up to date as long as the chart version and
+ * the size have not changed. A chart has at most one pending render: changes that arrive while it is rendered (like
+ * repeated zoom clicks) lead to one new render when the pending one is finished.
+ * <p/>
+ * The methods of this class should be called on the event dispatch thread.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ChartImageCache {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(ChartImageCache.class.getName());
+
+    /**
+     * The default maximum number of pixels of all cached images (about 32 MB, or 75 report rows).
+     */
+    public static final long DEFAULT_PIXEL_BUDGET = 8L * 1024 * 1024;
+
+    /**
+     * The maximum number of pixels of all cached images.
+     */
+    private final long pixelBudget;
+
+    /**
+     * The number of pixels of all cached images.
+     */
+    private long pixelCount;
+
+    /**
+     * The cached images per chart unit, from least to most recently used.
+     */
+    private final Map<ChartUnit, CachedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The pending renders per chart unit.
+     */
+    private final Map<ChartUnit, Future<?>> pendingRenders = new HashMap<>();
+
+    /**
+     * The threads that render the charts.
+     */
+    private final ExecutorService renderers;
+
+    /**
+     * Create an image cache with a pool of rendering threads.
+     *
+     * @param pixelBudget the maximum number of pixels of all cached images.
+     * @param threadCount the number of rendering threads.
+     */
+    public ChartImageCache(final long pixelBudget, final int threadCount) {
+        this.pixelBudget = pixelBudget;
+        renderers = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "TIC chart renderer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the image of a chart. If there is no up to date image with the requested size, the chart is rendered in the
+     * background and <code>whenRendered</code> is called on the event dispatch thread when the new image is available.
+     * In the mean time, the image of an earlier version or size of the chart is returned (if there is one).
+     *
+     * @param chartUnit the chart unit with the chart.
+     * @param width the width of the image.
+     * @param height the height of the image.
+     * @param whenRendered the task to run when a new image has been rendered.
+     * @return the image of the chart (possibly out of date) or <code>null</code> if there is none yet.
+     */
+    public BufferedImage getImage(final ChartUnit chartUnit, final int width, final int height,
+                                  final Runnable whenRendered) {
+        final CachedImage cachedImage = images.get(chartUnit);
+        final int chartVersion = chartUnit.getChartVersion();
+        final boolean upToDate = cachedImage != null && cachedImage.chartVersion == chartVersion
+                                 && cachedImage.image.getWidth() == width && cachedImage.image.getHeight() == height;
+        if (!upToDate && width > 0 && height > 0 && !pendingRenders.containsKey(chartUnit)) {
+            final JFreeChart chartCopy = chartUnit.createChartCopy();
+            pendingRenders.put(chartUnit, renderers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    BufferedImage image = null;
+                    try {
+                        image = renderChart(chartCopy, width, height);
+                    } catch (final RuntimeException e) {
+                        logger.log(Level.SEVERE, "Something went wrong while rendering a TIC chart", e);
+                    }
+                    final BufferedImage renderedImage = image;
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            final boolean removed = pendingRenders.remove(chartUnit) == null;
+                            if (renderedImage != null && !removed) {
+                                putImage(chartUnit, new CachedImage(renderedImage, chartVersion));
+                                whenRendered.run();
+                            }
+                        }
+                    });
+                }
+            }));
+        }
+        return cachedImage != null ? cachedImage.image : null;
+    }
+
+    /**
+     * Cancel the pending render of a chart, for example because it is no longer shown. The render is only cancelled if
+     * it has not started yet.
+     *
+     * @param chartUnit the chart unit with the chart.
+     */
+    public void cancel(final ChartUnit chartUnit) {
+        final Future<?> pendingRender = pendingRenders.get(chartUnit);
+        if (pendingRender != null && pendingRender.cancel(false)) {
+            pendingRenders.remove(chartUnit);
+        }
+    }
+
+    /**
+     * Remove the image of a chart and cancel its pending render, for example because the chart has been released. A
+     * render that has already started is not added to the cache when it finishes.
+     *
+     * @param chartUnit the chart unit with the chart.
+     */
+    public void remove(final ChartUnit chartUnit) {
+        final Future<?> pendingRender = pendingRenders.remove(chartUnit);
+        if (pendingRender != null) {
+            pendingRender.cancel(false);
+        }
+        final CachedImage cachedImage = images.remove(chartUnit);
+        if (cachedImage != null) {
+            pixelCount -= cachedImage.getPixelCount();
+        }
+    }
+
+    /**
+     * Remove all images and cancel the pending renders that have not started yet.
+     */
+    public void clear() {
+        for (final ChartUnit chartUnit : pendingRenders.keySet().toArray(new ChartUnit[pendingRenders.size()])) {
+            cancel(chartUnit);
+        }
+        images.clear();
+        pixelCount = 0;
+    }
+
+    /**
+     * Get the number of cached images.
+     *
+     * @return the number of cached images.
+     */
+    public int getImageCount() {
+        return images.size();
+    }
+
+    /**
+     * Get the number of pixels of all cached images.
+     *
+     * @return the number of pixels.
+     */
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    /**
+     * Check whether there is an image (possibly out of date) of a chart.
+     *
+     * @param chartUnit the chart unit with the chart.
+     * @return whether there is an image of the chart.
+     */
+    public boolean containsImage(final ChartUnit chartUnit) {
+        return images.containsKey(chartUnit);
+    }
+
+    /**
+     * Add an image to the cache and remove the least recently used images while the pixel budget is exceeded. The new
+     * image itself is always kept.
+     *
+     * @param chartUnit the chart unit with the chart.
+     * @param cachedImage the image.
+     */
+    private void putImage(final ChartUnit chartUnit, final CachedImage cachedImage) {
+        final CachedImage oldImage = images.put(chartUnit, cachedImage);
+        if (oldImage != null) {
+            pixelCount -= oldImage.getPixelCount();
+        }
+        pixelCount += cachedImage.getPixelCount();
+        final Iterator<Map.Entry<ChartUnit, CachedImage>> imageIterator = images.entrySet().iterator();
+        while (pixelCount > pixelBudget && images.size() > 1) {
+            final Map.Entry<ChartUnit, CachedImage> eldestEntry = imageIterator.next();
+            pixelCount -= eldestEntry.getValue().getPixelCount();
+            imageIterator.remove();
+        }
+    }
+
+    /**
+     * Render a chart into an image the same way a <code>ChartPanel</code> of that size draws it: charts smaller than
+     * the minimum draw size are drawn at that size and scaled down.
+     *
+     * @param chart the chart, which is not used by other threads.
+     * @param width the width of the image.
+     * @param height the height of the image.
+     * @return the image.
+     */
+    private static BufferedImage renderChart(final JFreeChart chart, final int width, final int height) {
+        final double drawWidth = Math.min(Math.max(width, ChartPanel.DEFAULT_MINIMUM_DRAW_WIDTH),
+                                          ChartPanel.DEFAULT_MAXIMUM_DRAW_WIDTH);
+        final double drawHeight = Math.min(Math.max(height, ChartPanel.DEFAULT_MINIMUM_DRAW_HEIGHT),
+                                           ChartPanel.DEFAULT_MAXIMUM_DRAW_HEIGHT);
+        // An opaque image is drawn faster on the screen; the chart background fills the whole image.
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.scale(width / drawWidth, height / drawHeight);
+            chart.draw(graphics, new Rectangle2D.Double(0, 0, drawWidth, drawHeight));
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * A rendered image of a chart with the chart version it was rendered from.
+     */
+    private static class CachedImage {
+        /**
+         * The image.
+         */
+        private final BufferedImage image;
+
+        /**
+         * The version of the chart when it was copied for rendering.
+         */
+        private final int chartVersion;
+
+        /**
+         * Create a cached image.
+         *
+         * @param image the image.
+         * @param chartVersion the version of the chart when it was copied for rendering.
+         */
+        private CachedImage(final BufferedImage image, final int chartVersion) {
+            this.image = image;
+            this.chartVersion = chartVersion;
+        }
+
+        /**
+         * Get the number of pixels of the image.
+         *
+         * @return the number of pixels.
+         */
+        private long getPixelCount() {
+            return (long) image.getWidth() * image.getHeight();
+        }
+    }
+}
@@ -6,19 +6,32 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrix;
 import nl.ctmm.trait.proteomics.qcviewer.utils.Constants;
+import nl.ctmm.trait.proteomics.qcviewer.utils.SeriesDownsampler;
 
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
+import org.jfree.chart.event.ChartChangeEvent;
+import org.jfree.chart.event.ChartChangeListener;
 import org.jfree.chart.labels.StandardXYToolTipGenerator;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StandardXYBarPainter;
 import org.jfree.chart.renderer.xy.XYBarRenderer;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.data.Range;
 
 /**
  * The object of this class represents a tic chart (including maximum intensity) of a single msrun.
+ * <p/>
+ * The chart does not draw the full TIC graph, but about one point per pixel column (see {@link SeriesDownsampler}). The
+ * displayed points are sampled again whenever the range of the domain axis changes, for example when zooming, so the
+ * time to draw a chart depends on its width instead of on the number of scans. The chart data set
+ * ({@link TicDataset}) shares the primitive arrays of the {@link TicMatrix}, so no objects are created per point.
+ * <p/>
+ * The chart is changed on the event dispatch thread. To draw it on another thread (see {@link ChartImageCache}), a copy
+ * of the chart is made with {@link #createChartCopy()}; the chart version tells whether such a drawing is up to date.
  *
  * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
  * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
@@ -41,6 +54,11 @@ public class ChartUnit {
      */
     private static final double TRIM_PERCENTAGE_BARS = 0.98;
 
+    /**
+     * The default width in pixels for which the display series is sampled.
+     */
+    private static final int DEFAULT_DISPLAY_WIDTH = 800;
+
     /**
      * The JFreeChart object used to draw this tic chart.
      */
@@ -52,31 +70,321 @@ public class ChartUnit {
     private double maxIntensity;
 
     /**
-     * Create a chart unit with the specified msrun name, report number and data series.
+     * The name of the msrun, which is shown in the chart title.
+     */
+    private final String msrunName;
+
+    /**
+     * The formatted maximum intensity, which is shown in the chart title.
+     */
+    private String maxIntensityString = "N/A";
+
+    /**
+     * The index of the msrun report, which is shown in the chart title.
+     */
+    private int reportIndex;
+
+    /**
+     * The data set of the chart, which contains the TIC graph once it has been loaded.
+     */
+    private final TicDataset ticDataset;
+
+    /**
+     * The downsampler for the TIC graph or <code>null</code> if the graph has not been loaded yet.
+     */
+    private SeriesDownsampler downsampler;
+
+    /**
+     * The width in pixels for which the displayed points are sampled.
+     */
+    private int displayWidth = DEFAULT_DISPLAY_WIDTH;
+
+    /**
+     * The domain range for which the displayed points were sampled or <code>null</code> if they have not been sampled
+     * yet.
+     */
+    private Range sampledRange;
+
+    /**
+     * Whether the displayed points are being replaced, during which changes of the domain axis are ignored.
+     */
+    private boolean replacingDisplayPoints;
+
+    /**
+     * The number of times the chart has changed.
+     */
+    private int chartVersion;
+
+    /**
+     * The version of the shared domain zoom that was applied to the chart or -1 if it has to be applied (again).
+     */
+    private int appliedZoomVersion = -1;
+
+    /**
+     * Create a chart unit with the specified msrun name, report number and TIC graph.
      *
      * @param msrunName the name of the msrun.
      * @param reportIndex the index of msrun report.
-     * @param series the data series.
+     * @param ticMatrix the TIC graph or <code>null</code> if it has not been loaded yet.
      */
-    public ChartUnit(final String msrunName, final int reportIndex, final XYSeries series) {
+    public ChartUnit(final String msrunName, final int reportIndex, final TicMatrix ticMatrix) {
         logger.fine("In ChartUnit: reportIndex = " + reportIndex + " msrunName = " + msrunName);
-        String maxIntensityString = "N/A";
-        if (series != null) {
-            maxIntensity = series.getMaxY();
-            maxIntensityString = new DecimalFormat("0.0000E0").format(maxIntensity);
-        }
-        final XYBarRenderer renderer = createBarRenderer(reportIndex);
-        final XYSeriesCollection xyDataset = new XYSeriesCollection(series);
+        this.msrunName = msrunName;
+        this.reportIndex = reportIndex;
+        ticDataset = new TicDataset(msrunName);
+        setTicData(ticMatrix, null);
         //Prepare chart using plot - this is the best option to control domain and range axes
         final NumberAxis domainAxis = new NumberAxis(null);
-        final NumberAxis rangeAxis = new NumberAxis(null);
-        final XYPlot plot = new XYPlot(xyDataset, domainAxis, rangeAxis, renderer);
+        domainAxis.addChangeListener(new AxisChangeListener() {
+            @Override
+            public void axisChanged(final AxisChangeEvent event) {
+                updateDisplayPoints();
+            }
+        });
+        ticChart = createChart(ticDataset, domainAxis, new NumberAxis(null), createTitle(reportIndex));
+        ticChart.addChangeListener(new ChartChangeListener() {
+            @Override
+            public void chartChanged(final ChartChangeEvent event) {
+                chartVersion++;
+            }
+        });
+    }
+
+    /**
+     * Create a chart for a TIC data set.
+     *
+     * @param dataset the data set.
+     * @param domainAxis the domain axis.
+     * @param rangeAxis the range axis.
+     * @param title the chart title.
+     * @return the chart.
+     */
+    private JFreeChart createChart(final TicDataset dataset, final NumberAxis domainAxis, final NumberAxis rangeAxis,
+                                   final String title) {
+        final XYPlot plot = new XYPlot(dataset, domainAxis, rangeAxis, createBarRenderer(reportIndex));
         rangeAxis.setNumberFormatOverride(new DecimalFormat("0E00"));
-        final String title = "Index = " + reportIndex + "     msrun = " + msrunName + "     MaxIntensity = "
-                             + maxIntensityString;
-        ticChart = new JFreeChart(title, Constants.CHART_TITLE_FONT, plot, false);
+        final JFreeChart chart = new JFreeChart(title, Constants.CHART_TITLE_FONT, plot, false);
         // performance
-        ticChart.setAntiAlias(false);
+        chart.setAntiAlias(false);
+        return chart;
+    }
+
+    /**
+     * Create a copy of the chart as it is now, with the same displayed points, axis ranges and title. The copy shares
+     * no mutable objects with the chart, so it can be drawn on another thread while the chart changes.
+     *
+     * @return the copy of the chart.
+     */
+    public JFreeChart createChartCopy() {
+        final XYPlot plot = ticChart.getXYPlot();
+        final NumberAxis domainAxis = copyAxis((NumberAxis) plot.getDomainAxis());
+        final NumberAxis rangeAxis = copyAxis((NumberAxis) plot.getRangeAxis());
+        return createChart(ticDataset.copy(), domainAxis, rangeAxis, ticChart.getTitle().getText());
+    }
+
+    /**
+     * Create an axis without listeners with the same range as an existing axis.
+     *
+     * @param axis the existing axis.
+     * @return the new axis.
+     */
+    private NumberAxis copyAxis(final NumberAxis axis) {
+        final NumberAxis copy = new NumberAxis(axis.getLabel());
+        if (axis.isAutoRange()) {
+            copy.setAutoRange(true);
+        } else {
+            copy.setRange(axis.getRange(), true, false);
+        }
+        return copy;
+    }
+
+    /**
+     * Get the version of the chart: a number that changes whenever the chart changes (for example its title, points or
+     * axis ranges).
+     *
+     * @return the version of the chart.
+     */
+    public int getChartVersion() {
+        return chartVersion;
+    }
+
+    /**
+     * Change the report index of this chart unit, which is shown in the title and determines the color of the graph.
+     *
+     * @param reportIndex the new index of the msrun report.
+     */
+    public void setReportIndex(final int reportIndex) {
+        this.reportIndex = reportIndex;
+        ticChart.getTitle().setText(createTitle(reportIndex));
+        ticChart.getXYPlot().setRenderer(createBarRenderer(reportIndex));
+    }
+
+    /**
+     * Set the maximum intensity before the TIC series is loaded (for example from a TIC summary), so it can be shown in
+     * the title and used for sorting.
+     *
+     * @param maxIntensity the maximum intensity of the tic graph.
+     */
+    public void setMaxTicIntensity(final double maxIntensity) {
+        updateMaxTicIntensity(maxIntensity);
+        ticChart.getTitle().setText(createTitle(reportIndex));
+    }
+
+    /**
+     * Set the TIC graph that was loaded after this chart unit was created. Charts that are shown already are redrawn
+     * automatically. This method should be called on the event dispatch thread.
+     *
+     * @param ticMatrix the TIC graph.
+     */
+    public void setTicMatrix(final TicMatrix ticMatrix) {
+        final NumberAxis domainAxis = (NumberAxis) ticChart.getXYPlot().getDomainAxis();
+        setTicData(ticMatrix, domainAxis.isAutoRange() ? null : domainAxis.getRange());
+        // A zoom relative to the automatic range is applied again for the new graph.
+        appliedZoomVersion = -1;
+        if (ticMatrix != null) {
+            ticChart.getTitle().setText(createTitle(reportIndex));
+        }
+    }
+
+    /**
+     * Apply the shared domain zoom to the chart, if it has changed since it was applied last time (or since the TIC
+     * graph was loaded). Zooming with the mouse in a chart panel changes only this chart, until the shared zoom changes.
+     * This method should be called on the event dispatch thread.
+     *
+     * @param domainZoom the shared domain zoom.
+     */
+    public void applyDomainZoom(final DomainZoom domainZoom) {
+        if (domainZoom.getVersion() == appliedZoomVersion) {
+            return;
+        }
+        appliedZoomVersion = domainZoom.getVersion();
+        final NumberAxis domainAxis = (NumberAxis) ticChart.getXYPlot().getDomainAxis();
+        if (domainZoom.isAutoRange()) {
+            // Going back to the original zoom also undoes zooming the range axis with the mouse.
+            domainAxis.setAutoRange(true);
+            ticChart.getXYPlot().getRangeAxis().setAutoRange(true);
+        } else if (domainZoom.isRelativeToAutoRange()) {
+            // The automatic range is only needed to compute the zoomed range, so the points are not sampled for it.
+            replacingDisplayPoints = true;
+            try {
+                domainAxis.setAutoRange(true);
+            } finally {
+                replacingDisplayPoints = false;
+            }
+            domainAxis.setRange(domainZoom.getRange(domainAxis.getRange()));
+        } else {
+            domainAxis.setRange(domainZoom.getRange(null));
+        }
+    }
+
+    /**
+     * Store the TIC graph, prepare its downsampler and fill the data set.
+     *
+     * @param newTicMatrix the TIC graph or <code>null</code> if it has not been loaded yet.
+     * @param domainRange the visible domain range or <code>null</code> for the full range of the graph.
+     */
+    private void setTicData(final TicMatrix newTicMatrix, final Range domainRange) {
+        final TicMatrix ticMatrix = newTicMatrix != null ? newTicMatrix.sortedByRetentionTime() : null;
+        sampledRange = null;
+        if (ticMatrix != null) {
+            downsampler = new SeriesDownsampler(ticMatrix.getRetentionTimes(), ticMatrix.getIntensities(),
+                                                ticMatrix.getPointCount());
+            if (ticMatrix.getPointCount() > 0) {
+                updateMaxTicIntensity(downsampler.getMaxY());
+            }
+            final int[] displayIndices = sampleDisplayPoints(domainRange);
+            // The bar width of the full graph is used, instead of the width derived from the more widely spaced points.
+            replaceDisplayPoints(ticMatrix.getRetentionTimes(), ticMatrix.getIntensities(), displayIndices,
+                                 downsampler.getMinimumInterval());
+        } else {
+            downsampler = null;
+            replaceDisplayPoints(null, null, new int[0], Double.NaN);
+        }
+    }
+
+    /**
+     * Make sure the displayed points are enough for a chart panel of the specified width. The same chart can be shown
+     * in panels of different widths, so the display width is never decreased.
+     *
+     * @param width the width of the chart panel in pixels.
+     */
+    public void requireDisplayWidth(final int width) {
+        if (width > displayWidth) {
+            displayWidth = width;
+            sampledRange = null;
+            updateDisplayPoints();
+        }
+    }
+
+    /**
+     * Sample the displayed points again for the current range of the domain axis, if that range has changed.
+     */
+    private void updateDisplayPoints() {
+        final Range domainRange = ticChart != null ? ticChart.getXYPlot().getDomainAxis().getRange() : null;
+        if (!replacingDisplayPoints && downsampler != null && domainRange != null
+            && !domainRange.equals(sampledRange)) {
+            final int[] displayIndices = sampleDisplayPoints(domainRange);
+            replacingDisplayPoints = true;
+            try {
+                ticDataset.setDisplayIndices(displayIndices);
+            } finally {
+                replacingDisplayPoints = false;
+            }
+        }
+    }
+
+    /**
+     * Replace all points of the data set, ignoring the changes of the domain axis that this causes.
+     *
+     * @param xValues the x values of the TIC graph or <code>null</code> if there is no graph.
+     * @param yValues the y values of the TIC graph or <code>null</code> if there is no graph.
+     * @param displayIndices the indices of the points to display.
+     * @param barWidth the width of the bars or NaN to use the default width.
+     */
+    private void replaceDisplayPoints(final float[] xValues, final float[] yValues, final int[] displayIndices,
+                                      final double barWidth) {
+        replacingDisplayPoints = true;
+        try {
+            ticDataset.setPoints(xValues, yValues, displayIndices, barWidth);
+        } finally {
+            replacingDisplayPoints = false;
+        }
+    }
+
+    /**
+     * Select the points to display for a domain range.
+     *
+     * @param domainRange the visible domain range or <code>null</code> for the full range of the graph.
+     * @return the indices of the points to display.
+     */
+    private int[] sampleDisplayPoints(final Range domainRange) {
+        final double lower = domainRange != null ? domainRange.getLowerBound() : downsampler.getMinX();
+        final double upper = domainRange != null ? domainRange.getUpperBound() : downsampler.getMaxX();
+        sampledRange = domainRange;
+        final int[] displayIndices = downsampler.downsample(lower, upper, displayWidth);
+        logger.fine("Sampled " + displayIndices.length + " of " + downsampler.getItemCount() + " points for "
+                    + msrunName);
+        return displayIndices;
+    }
+
+    /**
+     * Update the maximum intensity and its formatted version.
+     *
+     * @param maxIntensity the maximum intensity of the tic graph.
+     */
+    private void updateMaxTicIntensity(final double maxIntensity) {
+        this.maxIntensity = maxIntensity;
+        maxIntensityString = new DecimalFormat("0.0000E0").format(maxIntensity);
+    }
+
+    /**
+     * Create the chart title.
+     *
+     * @param reportIndex the index of msrun report.
+     * @return the chart title.
+     */
+    private String createTitle(final int reportIndex) {
+        return "Index = " + reportIndex + "     msrun = " + msrunName + "     MaxIntensity = " + maxIntensityString;
     }
 
     /**
@@ -1,5 +1,6 @@
 package nl.ctmm.trait.proteomics.qcviewer.gui;
 
+import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
@@ -102,7 +103,12 @@ public class DataEntryForm extends JFrame implements ActionListener, Runnable{
     /**
      * Height of the initial status dialog.
      */
-    private static final int INITIAL_DIALOG_HEIGHT = 100;    
+    private static final int INITIAL_DIALOG_HEIGHT = 130;
+
+    /**
+     * The number of milliseconds in a second, used to compute the number of reports read per second.
+     */
+    private static final double MILLISECONDS_PER_SECOND = 1000.0;
     
     /**
      * Dimension object for filler areas of 10x0 pixels for GUI layout.
@@ -120,6 +126,7 @@ public class DataEntryForm extends JFrame implements ActionListener, Runnable{
     Properties appProperties = null; 
     JDialog initialDialog = null;
     JLabel message1 = null;
+    JLabel progressLabel = null;
     String rootDirectoryName = "";
     
     /**
@@ -153,13 +160,29 @@ public class DataEntryForm extends JFrame implements ActionListener, Runnable{
     }
     
     /**
-     * Display initial dialog while starting the QC report Viewer
+     * Display initial dialog while the QC report Viewer reads the reports. The dialog does not block the viewer: it
+     * shows the progress of reading the reports (see {@link #updateInitialDialog(int, long)}) and has a button to
+     * cancel reading the remaining reports.
      */
     public void displayInitialDialog() {
+        disposeInitialDialog();
         message1 = new JLabel("<html>Reading reports from " + rootDirectoryName + "</html>");
+        progressLabel = new JLabel("Searching for reports...");
+        final JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent ae) {
+                Main.getInstance().cancelReportScan();
+                disposeInitialDialog();
+            }
+        });
+        final JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(cancelButton);
         initialDialog = new JDialog();
         initialDialog.setTitle("Operation in progress");
-        initialDialog.getContentPane().add(message1);
+        initialDialog.getContentPane().add(message1, BorderLayout.NORTH);
+        initialDialog.getContentPane().add(progressLabel, BorderLayout.CENTER);
+        initialDialog.getContentPane().add(buttonPanel, BorderLayout.SOUTH);
         initialDialog.setPreferredSize(new Dimension(INITIAL_DIALOG_WIDTH,INITIAL_DIALOG_HEIGHT));
         RefineryUtilities.centerFrameOnScreen(initialDialog);
         initialDialog.pack();
@@ -168,6 +191,21 @@ public class DataEntryForm extends JFrame implements ActionListener, Runnable{
         logger.fine("Displaying initial dialog with message " + message1.getText());
     }
     
+    /**
+     * Show the number of reports that have been read so far and the number of reports read per second in the initial
+     * dialog (if it is shown).
+     *
+     * @param reportCount the number of reports that have been read.
+     * @param elapsedMillis the number of milliseconds since reading the reports started.
+     */
+    public void updateInitialDialog(final int reportCount, final long elapsedMillis) {
+        if (progressLabel != null) {
+            final double reportsPerSecond = elapsedMillis > 0 ? reportCount * MILLISECONDS_PER_SECOND / elapsedMillis : 0;
+            progressLabel.setText(String.format("Read %d reports (%.1f reports per second)", reportCount,
+                                                reportsPerSecond));
+        }
+    }
+
     /**
      * Dispose initial dialogue
      */
@@ -175,6 +213,7 @@ public class DataEntryForm extends JFrame implements ActionListener, Runnable{
         if (initialDialog != null) {
             initialDialog.dispose();
             initialDialog = null;
+            progressLabel = null;
         }
     }
     
@@ -0,0 +1,126 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import org.jfree.data.Range;
+
+/**
+ * The object of this class is the zoom state of the domain axes that is shared by all TIC charts. The state is a base
+ * range (a fixed range or the automatic range of each chart) and a zoom factor around the center of that base range.
+ * Changing the zoom is cheap: the charts apply it when they are drawn next (see
+ * {@link ChartUnit#applyDomainZoom(DomainZoom)}) and use the version to find out whether they are up to date.
+ * <p/>
+ * The zoom is changed and read on the event dispatch thread.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class DomainZoom {
+    /**
+     * The factor by which zooming in changes the length of the domain range (as in ChartPanel).
+     */
+    public static final double ZOOM_IN_FACTOR = 0.5;
+
+    /**
+     * The factor by which zooming out changes the length of the domain range (as in ChartPanel).
+     */
+    public static final double ZOOM_OUT_FACTOR = 2.0;
+
+    /**
+     * The fixed base range or <code>null</code> to use the automatic range of each chart.
+     */
+    private Range fixedRange;
+
+    /**
+     * The factor by which the length of the base range is multiplied.
+     */
+    private double factor = 1;
+
+    /**
+     * The version, which is incremented on every change.
+     */
+    private int version;
+
+    /**
+     * Zoom in around the center of the current domain range.
+     */
+    public void zoomIn() {
+        factor *= ZOOM_IN_FACTOR;
+        version++;
+    }
+
+    /**
+     * Zoom out around the center of the current domain range.
+     */
+    public void zoomOut() {
+        factor *= ZOOM_OUT_FACTOR;
+        version++;
+    }
+
+    /**
+     * Go back to the automatic range of each chart.
+     */
+    public void reset() {
+        fixedRange = null;
+        factor = 1;
+        version++;
+    }
+
+    /**
+     * Show the same fixed domain range in all charts.
+     *
+     * @param lower the lower bound of the range.
+     * @param upper the upper bound of the range.
+     */
+    public void setRange(final double lower, final double upper) {
+        fixedRange = new Range(lower, upper);
+        factor = 1;
+        version++;
+    }
+
+    /**
+     * Get the version of the zoom, which changes whenever the zoom changes.
+     *
+     * @return the version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Check whether the charts use their automatic domain range.
+     *
+     * @return whether the charts use their automatic domain range.
+     */
+    public boolean isAutoRange() {
+        return fixedRange == null && factor == 1;
+    }
+
+    /**
+     * Check whether the domain range depends on the automatic range of a chart.
+     *
+     * @return whether the base range is the automatic range of each chart.
+     */
+    public boolean isRelativeToAutoRange() {
+        return fixedRange == null;
+    }
+
+    /**
+     * Get the domain range for a chart.
+     *
+     * @param autoRange the automatic domain range of the chart, which is only used if there is no fixed range.
+     * @return the domain range.
+     */
+    public Range getRange(final Range autoRange) {
+        final Range baseRange = fixedRange != null ? fixedRange : autoRange;
+        if (factor == 1) {
+            return baseRange;
+        }
+        final double center = baseRange.getCentralValue();
+        final double halfLength = baseRange.getLength() * factor / 2;
+        return new Range(center - halfLength, center + halfLength);
+    }
+
+    @Override
+    public String toString() {
+        return (fixedRange != null ? fixedRange.toString() : "auto") + " x " + factor;
+    }
+}
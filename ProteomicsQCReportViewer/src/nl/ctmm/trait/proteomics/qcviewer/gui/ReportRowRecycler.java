@@ -0,0 +1,208 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnit;
+
+/**
+ * The object of this class keeps the rows that show the reports in a range of an ordered report list. Rows whose
+ * report is still in the range keep their components and are only moved if the position of their report changed
+ * (after sorting or filtering, for example). The other rows are released and reused for the reports that have come
+ * into the range, so the number of rows depends on the size of the range instead of the number of reports.
+ *
+ * @param <R> the type of the rows.
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public abstract class ReportRowRecycler<R extends ReportRowRecycler.Row> {
+    /**
+     * The rows that show a report.
+     */
+    private final List<R> displayedRows = new ArrayList<>();
+
+    /**
+     * The rows that are not used at the moment and can be reused.
+     */
+    private final List<R> spareRows = new ArrayList<>();
+
+    /**
+     * Show the reports in a range of an ordered report list: rows of reports that have left the range are released,
+     * rows of reports that are still in the range are moved if needed and the other reports in the range get a spare
+     * row (or a new row if there are no spare rows).
+     *
+     * @param orderedReportUnits the ordered report units.
+     * @param rowRange the range of positions in <code>orderedReportUnits</code> that need a row.
+     */
+    public void update(final List<ReportUnit> orderedReportUnits, final VisibleRowRange rowRange) {
+        for (int rowIndex = displayedRows.size() - 1; rowIndex >= 0; rowIndex--) {
+            final R row = displayedRows.get(rowIndex);
+            final int position = findPosition(orderedReportUnits, row.getReportUnit(), rowRange);
+            if (position == -1) {
+                releaseRow(row);
+                row.setReportUnit(null, -1);
+                displayedRows.remove(rowIndex);
+                spareRows.add(row);
+            } else if (position != row.getPosition()) {
+                row.setReportUnit(row.getReportUnit(), position);
+                moveRow(row);
+            }
+        }
+        for (int position = rowRange.getFirstRow(); position < rowRange.getEndRow(); position++) {
+            if (!isPositionDisplayed(position)) {
+                final R row = spareRows.isEmpty() ? createRow() : spareRows.remove(spareRows.size() - 1);
+                row.setReportUnit(orderedReportUnits.get(position), position);
+                bindRow(row);
+                displayedRows.add(row);
+            }
+        }
+    }
+
+    /**
+     * Forget all rows, for example because their components have been removed.
+     */
+    public void clear() {
+        displayedRows.clear();
+        spareRows.clear();
+    }
+
+    /**
+     * Get the rows that show a report.
+     *
+     * @return the displayed rows.
+     */
+    public List<R> getDisplayedRows() {
+        return Collections.unmodifiableList(displayedRows);
+    }
+
+    /**
+     * Get the number of rows, including the spare rows.
+     *
+     * @return the number of rows.
+     */
+    public int getRowCount() {
+        return displayedRows.size() + spareRows.size();
+    }
+
+    /**
+     * Check whether a report is shown in a row.
+     *
+     * @param reportUnit the report unit.
+     * @return whether the report is shown in a row.
+     */
+    public boolean isDisplayed(final ReportUnit reportUnit) {
+        for (final R row : displayedRows) {
+            if (row.getReportUnit() == reportUnit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a new row, which is not shown until a report is bound to it.
+     *
+     * @return the new row.
+     */
+    protected abstract R createRow();
+
+    /**
+     * Show the report of a row at its position. The report and the position have been set already.
+     *
+     * @param row the row.
+     */
+    protected abstract void bindRow(R row);
+
+    /**
+     * Move a row to its new position, which has been set already. The report of the row is the same.
+     *
+     * @param row the row.
+     */
+    protected abstract void moveRow(R row);
+
+    /**
+     * Hide a row whose report is no longer in the range. The report and the position are cleared afterwards.
+     *
+     * @param row the row.
+     */
+    protected abstract void releaseRow(R row);
+
+    /**
+     * Find the position of a report in a range of an ordered report list. The range only has a few rows, so a linear
+     * search is fast enough.
+     *
+     * @param orderedReportUnits the ordered report units.
+     * @param reportUnit the report unit.
+     * @param rowRange the range of positions to search.
+     * @return the position of the report or -1 if it is not in the range.
+     */
+    private static int findPosition(final List<ReportUnit> orderedReportUnits, final ReportUnit reportUnit,
+                                    final VisibleRowRange rowRange) {
+        for (int position = rowRange.getFirstRow(); position < rowRange.getEndRow(); position++) {
+            if (orderedReportUnits.get(position) == reportUnit) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether a row is shown for a position.
+     *
+     * @param position the position in the ordered report list.
+     * @return whether a row is shown for the position.
+     */
+    private boolean isPositionDisplayed(final int position) {
+        for (final R row : displayedRows) {
+            if (row.getPosition() == position) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A row that shows a report at a position in the ordered report list.
+     */
+    public static class Row {
+        /**
+         * The report that is shown in this row or <code>null</code> if the row is not used.
+         */
+        private ReportUnit reportUnit;
+
+        /**
+         * The position of the report in the ordered report list or -1 if the row is not used.
+         */
+        private int position = -1;
+
+        /**
+         * Get the report that is shown in this row.
+         *
+         * @return the report unit or <code>null</code> if the row is not used.
+         */
+        public ReportUnit getReportUnit() {
+            return reportUnit;
+        }
+
+        /**
+         * Get the position of the report in the ordered report list.
+         *
+         * @return the position or -1 if the row is not used.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Set the report that is shown in this row and its position.
+         *
+         * @param reportUnit the report unit or <code>null</code> if the row is not used.
+         * @param position the position of the report in the ordered report list or -1 if the row is not used.
+         */
+        void setReportUnit(final ReportUnit reportUnit, final int position) {
+            this.reportUnit = reportUnit;
+            this.position = position;
+        }
+    }
+}
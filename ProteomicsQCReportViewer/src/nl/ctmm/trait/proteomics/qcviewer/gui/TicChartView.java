@@ -0,0 +1,229 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+
+import org.jfree.chart.ChartMouseListener;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.event.ChartChangeEvent;
+import org.jfree.chart.event.ChartChangeListener;
+
+/**
+ * The object of this class shows the TIC chart of a report row. Normally it draws an image of the chart from the
+ * {@link ChartImageCache}, which is rendered in the background. When the mouse enters the view, a
+ * <code>ChartPanel</code> is shown instead, so the user can zoom the chart, see tool tips and click the chart; when the
+ * mouse leaves the chart panel, the image is shown again. The chart panel is only created when it is needed first.
+ * <p/>
+ * The shared {@link DomainZoom} is applied to the chart when the view is drawn, so charts that are not shown are not
+ * zoomed until they are shown.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicChartView extends JPanel {
+    /**
+     * The version number for (de)serialization of this class (UID: universal identifier).
+     */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * The mouse buttons that are down while the user drags a zoom rectangle or uses the popup menu.
+     */
+    private static final int BUTTONS_DOWN_MASK = InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON2_DOWN_MASK
+                                                 | InputEvent.BUTTON3_DOWN_MASK;
+
+    /**
+     * The cache with the images of the charts.
+     */
+    private final ChartImageCache imageCache;
+
+    /**
+     * The zoom of the domain axes that is shared by all charts.
+     */
+    private final DomainZoom domainZoom;
+
+    /**
+     * The listeners that are added to the chart panel.
+     */
+    private final List<ChartMouseListener> chartMouseListeners = new ArrayList<>();
+
+    /**
+     * The listener that redraws the view when the chart changes, so the image is rendered again.
+     */
+    private final ChartChangeListener chartChangeListener = new ChartChangeListener() {
+        @Override
+        public void chartChanged(final ChartChangeEvent event) {
+            repaint();
+        }
+    };
+
+    /**
+     * The task that redraws the view when a new image has been rendered.
+     */
+    private final Runnable repaintTask = new Runnable() {
+        @Override
+        public void run() {
+            repaint();
+        }
+    };
+
+    /**
+     * The chart unit with the chart that is shown or <code>null</code> if no chart is shown.
+     */
+    private ChartUnit chartUnit;
+
+    /**
+     * The chart panel that is shown while the mouse is over the view or <code>null</code> if it has not been created.
+     */
+    private ChartPanel chartPanel;
+
+    /**
+     * Create a view for TIC charts.
+     *
+     * @param imageCache the cache with the images of the charts.
+     * @param domainZoom the zoom of the domain axes that is shared by all charts.
+     */
+    public TicChartView(final ChartImageCache imageCache, final DomainZoom domainZoom) {
+        super(new BorderLayout());
+        this.imageCache = imageCache;
+        this.domainZoom = domainZoom;
+        setBackground(Color.WHITE);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseEntered(final MouseEvent mouseEvent) {
+                showChartPanel();
+            }
+        });
+    }
+
+    /**
+     * Change the chart that is shown.
+     *
+     * @param newChartUnit the chart unit with the chart to show or <code>null</code> to show no chart.
+     */
+    public void setChartUnit(final ChartUnit newChartUnit) {
+        if (chartUnit != null) {
+            chartUnit.getTicChart().removeChangeListener(chartChangeListener);
+            imageCache.cancel(chartUnit);
+        }
+        showImage();
+        chartUnit = newChartUnit;
+        if (chartUnit != null) {
+            chartUnit.getTicChart().addChangeListener(chartChangeListener);
+        }
+        repaint();
+    }
+
+    /**
+     * Add a listener for the mouse events of the chart panel.
+     *
+     * @param listener the listener.
+     */
+    public void addChartMouseListener(final ChartMouseListener listener) {
+        chartMouseListeners.add(listener);
+        if (chartPanel != null) {
+            chartPanel.addChartMouseListener(listener);
+        }
+    }
+
+    /**
+     * Get the chart unit with the chart that is shown.
+     *
+     * @return the chart unit or <code>null</code> if no chart is shown.
+     */
+    public ChartUnit getChartUnit() {
+        return chartUnit;
+    }
+
+    /**
+     * Check whether the chart panel is shown instead of the image.
+     *
+     * @return whether the chart panel is shown.
+     */
+    public boolean isChartPanelShown() {
+        return chartPanel != null && chartPanel.getParent() == this;
+    }
+
+    @Override
+    protected void paintComponent(final Graphics graphics) {
+        super.paintComponent(graphics);
+        if (chartUnit != null) {
+            // This is done before the chart panel (if it is shown) draws the chart. A changed zoom changes the chart,
+            // which schedules another repaint of this view.
+            chartUnit.applyDomainZoom(domainZoom);
+        }
+        if (chartUnit != null && !isChartPanelShown()) {
+            final BufferedImage image = imageCache.getImage(chartUnit, getWidth(), getHeight(), repaintTask);
+            if (image != null) {
+                graphics.drawImage(image, 0, 0, null);
+            }
+        }
+    }
+
+    /**
+     * Show the chart in a chart panel, creating the chart panel if needed.
+     */
+    private void showChartPanel() {
+        if (chartUnit != null && !isChartPanelShown()) {
+            if (chartPanel == null) {
+                chartPanel = createChartPanel();
+            }
+            chartPanel.setChart(chartUnit.getTicChart());
+            add(chartPanel, BorderLayout.CENTER);
+            revalidate();
+            repaint();
+        }
+    }
+
+    /**
+     * Show the image of the chart instead of the chart panel. The chart is removed from the chart panel, so the panel
+     * no longer listens to changes of the chart.
+     */
+    private void showImage() {
+        if (isChartPanelShown()) {
+            remove(chartPanel);
+            chartPanel.setChart(null);
+            revalidate();
+            repaint();
+        }
+    }
+
+    /**
+     * Create the chart panel, which switches back to the image when the mouse leaves it (unless a mouse button is down,
+     * for example while the user drags a zoom rectangle).
+     *
+     * @return the chart panel.
+     */
+    private ChartPanel createChartPanel() {
+        final ChartPanel newChartPanel = new ChartPanel(null);
+        for (final ChartMouseListener listener : chartMouseListeners) {
+            newChartPanel.addChartMouseListener(listener);
+        }
+        newChartPanel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseExited(final MouseEvent mouseEvent) {
+                if ((mouseEvent.getModifiersEx() & BUTTONS_DOWN_MASK) == 0) {
+                    showImage();
+                }
+            }
+
+            @Override
+            public void mouseReleased(final MouseEvent mouseEvent) {
+                if (!newChartPanel.contains(mouseEvent.getPoint())
+                    && (mouseEvent.getModifiersEx() & BUTTONS_DOWN_MASK) == 0) {
+                    showImage();
+                }
+            }
+        });
+        return newChartPanel;
+    }
+}
@@ -0,0 +1,240 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+
+/**
+ * The object of this class is a chart data set with (at most) one TIC series, backed by the primitive arrays of the
+ * TIC graph. Only the points with the selected display indices are part of the series (see
+ * {@link nl.ctmm.trait.proteomics.qcviewer.utils.SeriesDownsampler}), so the arrays can be shared with the loaded TIC
+ * graph and changing the displayed points only replaces an index array.
+ * <p/>
+ * Each point is the center of a bar with a fixed width, like in an <code>XYSeriesCollection</code>. The axis bounds are
+ * computed when the points change, so the chart does not have to iterate over the points to find them.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicDataset extends AbstractIntervalXYDataset implements DomainInfo, RangeInfo {
+    /**
+     * The version number for (de)serialization of this class (UID: universal identifier).
+     */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * The bar width that is used when no width is known (the default width of an <code>XYSeriesCollection</code>).
+     */
+    private static final double DEFAULT_BAR_WIDTH = 1.0;
+
+    /**
+     * The key of the series.
+     */
+    private final Comparable<?> seriesKey;
+
+    /**
+     * The x values of the TIC graph (retention times) or <code>null</code> if there is no graph.
+     */
+    private float[] xValues;
+
+    /**
+     * The y values of the TIC graph (intensities) or <code>null</code> if there is no graph.
+     */
+    private float[] yValues;
+
+    /**
+     * The indices of the displayed points, in ascending order.
+     */
+    private int[] displayIndices = new int[0];
+
+    /**
+     * The width of the bars.
+     */
+    private double barWidth = DEFAULT_BAR_WIDTH;
+
+    /**
+     * The bounds of the x values of the displayed points or <code>null</code> if there are no points.
+     */
+    private Range xBounds;
+
+    /**
+     * The bounds of the y values of the displayed points or <code>null</code> if there are no points.
+     */
+    private Range yBounds;
+
+    /**
+     * Create an empty data set.
+     *
+     * @param seriesKey the key of the series.
+     */
+    public TicDataset(final Comparable<?> seriesKey) {
+        this.seriesKey = seriesKey;
+    }
+
+    /**
+     * Set the points of the TIC graph and the ones to display, and notify the listeners (like the chart) once.
+     *
+     * @param xValues the x values of the TIC graph in ascending order or <code>null</code> if there is no graph.
+     * @param yValues the y values of the TIC graph or <code>null</code> if there is no graph.
+     * @param displayIndices the indices of the points to display, in ascending order.
+     * @param barWidth the width of the bars or NaN to use the default width.
+     */
+    public void setPoints(final float[] xValues, final float[] yValues, final int[] displayIndices,
+                          final double barWidth) {
+        this.xValues = xValues;
+        this.yValues = yValues;
+        this.barWidth = Double.isNaN(barWidth) ? DEFAULT_BAR_WIDTH : barWidth;
+        setDisplayIndices(displayIndices);
+    }
+
+    /**
+     * Change the points to display and notify the listeners once.
+     *
+     * @param displayIndices the indices of the points to display, in ascending order.
+     */
+    public void setDisplayIndices(final int[] displayIndices) {
+        this.displayIndices = xValues != null ? displayIndices : new int[0];
+        if (this.displayIndices.length > 0) {
+            xBounds = new Range(xValues[displayIndices[0]], xValues[displayIndices[displayIndices.length - 1]]);
+            double minY = Double.POSITIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (final int index : displayIndices) {
+                minY = Math.min(minY, yValues[index]);
+                maxY = Math.max(maxY, yValues[index]);
+            }
+            yBounds = new Range(minY, maxY);
+        } else {
+            xBounds = null;
+            yBounds = null;
+        }
+        fireDatasetChanged();
+    }
+
+    /**
+     * Create a copy of this data set with the same points and displayed points, but without listeners. The arrays are
+     * shared, which is safe because they are never changed: new points or display indices replace the arrays.
+     *
+     * @return the copy.
+     */
+    public TicDataset copy() {
+        final TicDataset copy = new TicDataset(seriesKey);
+        copy.xValues = xValues;
+        copy.yValues = yValues;
+        copy.displayIndices = displayIndices;
+        copy.barWidth = barWidth;
+        copy.xBounds = xBounds;
+        copy.yBounds = yBounds;
+        return copy;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return xValues != null ? 1 : 0;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Comparable getSeriesKey(final int series) {
+        return seriesKey;
+    }
+
+    @Override
+    public int getItemCount(final int series) {
+        return displayIndices.length;
+    }
+
+    @Override
+    public double getXValue(final int series, final int item) {
+        return xValues[displayIndices[item]];
+    }
+
+    @Override
+    public double getYValue(final int series, final int item) {
+        return yValues[displayIndices[item]];
+    }
+
+    @Override
+    public Number getX(final int series, final int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getY(final int series, final int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getStartXValue(final int series, final int item) {
+        return getXValue(series, item) - barWidth / 2;
+    }
+
+    @Override
+    public double getEndXValue(final int series, final int item) {
+        return getXValue(series, item) + barWidth / 2;
+    }
+
+    @Override
+    public double getStartYValue(final int series, final int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getEndYValue(final int series, final int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public Number getStartX(final int series, final int item) {
+        return getStartXValue(series, item);
+    }
+
+    @Override
+    public Number getEndX(final int series, final int item) {
+        return getEndXValue(series, item);
+    }
+
+    @Override
+    public Number getStartY(final int series, final int item) {
+        return getStartYValue(series, item);
+    }
+
+    @Override
+    public Number getEndY(final int series, final int item) {
+        return getEndYValue(series, item);
+    }
+
+    @Override
+    public double getDomainLowerBound(final boolean includeInterval) {
+        final Range bounds = getDomainBounds(includeInterval);
+        return bounds != null ? bounds.getLowerBound() : Double.NaN;
+    }
+
+    @Override
+    public double getDomainUpperBound(final boolean includeInterval) {
+        final Range bounds = getDomainBounds(includeInterval);
+        return bounds != null ? bounds.getUpperBound() : Double.NaN;
+    }
+
+    @Override
+    public Range getDomainBounds(final boolean includeInterval) {
+        return xBounds != null && includeInterval
+               ? new Range(xBounds.getLowerBound() - barWidth / 2, xBounds.getUpperBound() + barWidth / 2)
+               : xBounds;
+    }
+
+    @Override
+    public double getRangeLowerBound(final boolean includeInterval) {
+        return yBounds != null ? yBounds.getLowerBound() : Double.NaN;
+    }
+
+    @Override
+    public double getRangeUpperBound(final boolean includeInterval) {
+        return yBounds != null ? yBounds.getUpperBound() : Double.NaN;
+    }
+
+    @Override
+    public Range getRangeBounds(final boolean includeInterval) {
+        return yBounds;
+    }
+}
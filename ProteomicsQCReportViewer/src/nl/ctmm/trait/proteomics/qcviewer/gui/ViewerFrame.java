@@ -17,14 +17,23 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.text.NumberFormat;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,19 +59,26 @@ import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTextField;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
 import javax.swing.border.Border;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
+import nl.ctmm.trait.proteomics.qcviewer.input.ControlChartStatistics;
 import nl.ctmm.trait.proteomics.qcviewer.input.MetricsParser;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportFilter;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportSortIndex;
 import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnit;
+import nl.ctmm.trait.proteomics.qcviewer.input.SortCriterion;
+import nl.ctmm.trait.proteomics.qcviewer.input.WestgardRule;
 import nl.ctmm.trait.proteomics.qcviewer.utils.Constants;
+import nl.ctmm.trait.proteomics.qcviewer.utils.PropertyFileWriter;
 import nl.ctmm.trait.proteomics.qcviewer.utils.Utilities;
 
 import org.apache.commons.io.FilenameUtils;
 import org.jfree.chart.ChartMouseEvent;
 import org.jfree.chart.ChartMouseListener;
-import org.jfree.chart.ChartPanel;
-import org.jfree.chart.plot.XYPlot;
 import org.jfree.ui.RefineryUtilities;
 
 /**
@@ -99,6 +115,11 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     private static final List<Color> LABEL_COLORS = Arrays.asList(
             Color.BLUE, Color.DARK_GRAY, Color.BLACK);
 
+    /**
+     * Color used for metrics that violate one or more Westgard rules.
+     */
+    private static final Color VIOLATION_LABEL_COLOR = Color.RED;
+
     /**
      * Height of a row with information from one report in the list.
      */
@@ -236,6 +257,17 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     private static final String SET_FILTER_COMMAND = "SetFilter";
 
+    /**
+     * Text of the set metrics filter menu command.
+     */
+    private static final String SET_METRICS_FILTER_COMMAND = "SetMetricsFilter";
+
+    /**
+     * Example filter query shown in the metrics filter dialog.
+     */
+    private static final String METRICS_FILTER_EXAMPLE = "chrom:c-4a > 20 AND generic:f_size BETWEEN 500 AND 900"
+                                                         + " AND missing(ion:is-2)";
+
     /**
      * Text of the select metrics menu command.
      */
@@ -294,12 +326,12 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     /**
      * The separator used for sort action commands.
      */
-    private static final String SORT_COMMAND_SEPARATOR = "@";
+    private static final String SORT_COMMAND_SEPARATOR = SortCriterion.ORDER_SEPARATOR;
 
     /**
      * The label used for ascending sort radio buttons.
      */
-    private static final String SORT_ORDER_ASCENDING_LABEL = "Asc";
+    private static final String SORT_ORDER_ASCENDING_LABEL = SortCriterion.ORDER_ASCENDING;
 
     /**
      * The suffix used for ascending sort action commands.
@@ -309,7 +341,7 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     /**
      * The label used for ascending sort radio buttons.
      */
-    private static final String SORT_ORDER_DESCENDING_LABEL = "Des";
+    private static final String SORT_ORDER_DESCENDING_LABEL = SortCriterion.ORDER_DESCENDING;
 
     /**
      * The suffix used for descending sort action commands.
@@ -326,6 +358,11 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     private static final String SORT_ORDER_COMPARE = SORT_ORDER_COMPARE_LABEL;
 
+    /**
+     * The title of the sort panel.
+     */
+    private static final String SORT_PANEL_TITLE = "Sort Options";
+
     /**
      * Width of the OPL and CTMM TraIT logos on the top left and top right of the application.
      */
@@ -412,7 +449,36 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     private static final String CHART_FRAME_TITLE_PREFIX = "Chart ";
 
     /**
-     * The main desktop pane with the TIC graphs of all the reports.
+     * The number of threads that load TIC series in the background.
+     */
+    private static final int TIC_SERIES_LOADER_THREADS = 2;
+
+    /**
+     * The number of report rows that are prepared above and below the visible part of the desktop pane.
+     */
+    private static final int REPORT_ROW_OVERSCAN = 2;
+
+    /**
+     * The number of hidden reports that keep their TIC series and chart, so scrolling back and forth does not load
+     * them again. The TIC series of the other hidden reports are released.
+     */
+    private static final int LOADED_HIDDEN_REPORT_LIMIT = 64;
+
+    /**
+     * The delay in milliseconds after a zoom action before the visible charts are redrawn (about one frame), so
+     * repeated zoom actions lead to one redraw.
+     */
+    private static final int ZOOM_REFRESH_DELAY = 16;
+
+    /**
+     * The number of threads that render the TIC charts of the report rows into images: all processors but one, which
+     * is left for the event dispatch thread.
+     */
+    private static final int CHART_RENDERER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * The main desktop pane with the TIC graphs of all the reports. Only the rows around the visible part of this pane
+     * have components; see {@link #updateReportRows()}.
      */
     private final JDesktopPane desktopPane = new ScrollDesktop();
 
@@ -422,9 +488,90 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     private final JDesktopPane ticGraphPane = new ScrollDesktop();
 
     /**
-     * The list with all chart panels to be able to zoom all TIC graphs.
+     * The images of the TIC charts that are shown in the report rows, which are rendered in the background.
+     */
+    private final ChartImageCache chartImageCache = new ChartImageCache(ChartImageCache.DEFAULT_PIXEL_BUDGET,
+                                                                        CHART_RENDERER_THREADS);
+
+    /**
+     * The report rows in the desktop pane: the rows that are shown and the rows that are hidden and can be reused.
+     */
+    private final ReportRowRecycler<ReportRow> reportRows = new ReportRowRecycler<ReportRow>() {
+        @Override
+        protected ReportRow createRow() {
+            return createReportRow();
+        }
+
+        @Override
+        protected void bindRow(final ReportRow reportRow) {
+            bindReportRow(reportRow);
+        }
+
+        @Override
+        protected void moveRow(final ReportRow reportRow) {
+            moveReportRow(reportRow);
+        }
+
+        @Override
+        protected void releaseRow(final ReportRow reportRow) {
+            releaseReportRow(reportRow);
+        }
+    };
+
+    /**
+     * The reports that are not shown in a report row or the TIC graph pane, but may still have their TIC series loaded,
+     * from least to most recently hidden. At most {@link #LOADED_HIDDEN_REPORT_LIMIT} reports are kept here.
+     */
+    private final Set<ReportUnit> recentlyHiddenReports = new LinkedHashSet<>();
+
+    /**
+     * The zoom of the domain axes that is shared by all TIC charts.
+     */
+    private final DomainZoom domainZoom = new DomainZoom();
+
+    /**
+     * The timer that redraws the visible charts after the zoom has changed.
+     */
+    private final Timer zoomRefreshTimer = new Timer(ZOOM_REFRESH_DELAY, new ActionListener() {
+        @Override
+        public void actionPerformed(final ActionEvent actionEvent) {
+            refreshVisibleCharts();
+        }
+    });
+
+    /**
+     * The chart view in the TIC graph pane, which shows the chart of the selected report (<code>null</code> until a
+     * report is selected).
+     */
+    private TicChartView ticGraphChartView;
+
+    /**
+     * The report that is shown in the TIC graph pane or <code>null</code> if there is none.
+     */
+    private ReportUnit ticGraphReportUnit;
+
+    /**
+     * The internal frame with the chart view in the TIC graph pane.
+     */
+    private JInternalFrame ticGraphFrame;
+
+    /**
+     * The executor that loads the TIC series of the reports that become visible.
+     */
+    private final ExecutorService ticSeriesLoader = Executors.newFixedThreadPool(TIC_SERIES_LOADER_THREADS,
+                                                                                 new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "TIC series loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * The reports whose TIC series are queued for loading.
      */
-    private final List<ChartPanel> chartPanelList = new ArrayList<>();
+    private final Set<ReportUnit> queuedTicSeries = Collections.newSetFromMap(new ConcurrentHashMap<ReportUnit, Boolean>());
 
     /**
      * Whether a report is selected for comparison.
@@ -446,6 +593,22 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     private List<ReportUnit> reportUnits = new ArrayList<>();
 
+    /**
+     * The cached sort permutations of the reports.
+     */
+    private final ReportSortIndex reportSortIndex = new ReportSortIndex();
+
+    /**
+     * The running control chart statistics of the metrics, used to flag Westgard rule violations.
+     */
+    private final ControlChartStatistics controlChartStatistics = new ControlChartStatistics();
+
+    /**
+     * Whether updating the control chart statistics is postponed while the reports are read in the background, newest
+     * first. The statistics are computed in date order once all reports have been read.
+     */
+    private boolean controlChartStatisticsPostponed;
+
     //use this list for display and other operations
 
     /**
@@ -454,9 +617,9 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     private List<ReportUnit> orderedReportUnits = new ArrayList<>();
 
     /**
-     * Map from reports to the corresponding metrics panels. This map is used when updating the selected metrics.
+     * The filter on the metrics of the reports or <code>null</code> to show all reports.
      */
-    private final Map<ReportUnit, JPanel> reportUnitToMetricsPanel = new HashMap<>();
+    private ReportFilter reportFilter;
 
     /**
      * Mapping from the keys of the selected metrics to their names.
@@ -475,6 +638,12 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     private String newSortCriteria = "";
 
+    /**
+     * The ordered list of sort keys and orders the reports are sorted on. Shift-clicking a sort button adds a key to
+     * this list instead of replacing it.
+     */
+    private List<SortCriterion> sortCriteria = new ArrayList<>();
+
     /**
      * The application properties.
      */
@@ -511,11 +680,6 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     private final JPanel sortPanel = new JPanel();
 
-    /**
-     * The y coordinate used while laying out the reports in the main table.
-     */
-    private int yCoordinate;
-
     /**
      * Creates a new instance of the main frame of the proteomics QC viewer.
      *
@@ -536,9 +700,12 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         this.metricsParser = metricsParser;
         this.appProperties = appProperties;
         this.pipelineStatus = pipelineStatus;
+        zoomRefreshTimer.setRepeats(false);
         parseSelectedMetricsData(selectedMetricsData);
         setReportUnits(reportUnits);
-        setOrderedReportUnits(reportUnits);
+        sortCriteria = SortCriterion.parseList(appProperties != null
+                                               ? appProperties.getProperty(Constants.PROPERTY_SORT_CRITERIA) : null);
+        setOrderedReportUnits(sortCriteria.isEmpty() ? reportUnits : reportSortIndex.getSortedReportUnits(sortCriteria));
         assembleComponents();
         setVisible(true);
         zoomMinMax();
@@ -564,7 +731,9 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
 
     /**
      * New report units are available (QC log file changed, or a different root folder and/or date filter was selected).
-     * Update the report units in the viewer frame.
+     * Update the report units in the viewer frame. While the reports are read in the background, this method is called
+     * for each batch of reports; the new reports are put in the current sort order and the TIC pane keeps showing the
+     * chart that was selected.
      *
      * @param newReportUnits New QC reports
      * @param newPipelineStatus Updated pipeline status
@@ -573,35 +742,75 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     public void updateReportUnits(final List<ReportUnit> newReportUnits, final String newPipelineStatus,
                                   final Boolean replaceFlag) {
-        logger.fine("In updateReportUnits yCoordinate = " + yCoordinate);
+        logger.fine("In updateReportUnits number of new reports = " + newReportUnits.size());
         if (replaceFlag) {
             //Replace all existing reports by newReportUnits.
             reportUnits.clear();
+            reportSortIndex.clear();
+            controlChartStatistics.clear();
             orderedReportUnits.clear();
             reportIsSelected.clear();
+            reportRows.clear();
+            recentlyHiddenReports.clear();
+            chartImageCache.clear();
+            if (ticGraphChartView != null) {
+                ticGraphChartView.setChartUnit(null);
+            }
+            ticGraphReportUnit = null;
             desktopPane.removeAll();
             ticGraphPane.removeAll();
             pack();
             revalidate();
-            yCoordinate = 0;
         }
         final int reportIndexOffset = reportUnits.size();
         if (newReportUnits.size() > 0) {
+            reportSortIndex.addReportUnits(newReportUnits);
+            if (!controlChartStatisticsPostponed) {
+                controlChartStatistics.addReportUnits(newReportUnits);
+            }
+            // New reports are only shown if they match the metrics filter.
+            final BitSet filterMatches = getFilterMatches();
             for (int reportIndex = 0; reportIndex < newReportUnits.size(); reportIndex++) {
                 final ReportUnit thisUnit = newReportUnits.get(reportIndex);
                 reportUnits.add(thisUnit);
-                orderedReportUnits.add(thisUnit);
                 reportIsSelected.add(false);
-                addChartFrame(thisUnit, reportIndexOffset + reportIndex);
+                if (sortCriteria.isEmpty()
+                    && (filterMatches == null || filterMatches.get(reportIndexOffset + reportIndex))) {
+                    orderedReportUnits.add(thisUnit);
+                }
+            }
+            if (!sortCriteria.isEmpty()) {
+                orderedReportUnits.clear();
+                orderedReportUnits.addAll(reportSortIndex.getSortedReportUnits(sortCriteria, filterMatches));
+            }
+            displayOrderedReports();
+            //Set first report graph in the Tic Pane if no chart is shown yet.
+            if (!orderedReportUnits.isEmpty() && (ticGraphChartView == null || ticGraphChartView.getChartUnit() == null)) {
+                setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
             }
-            desktopPane.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, reportUnits.size() * REPORT_ROW_HEIGHT));
-            //Set first report graph in the Tic Pane. 
-            setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
         }
         updatePipelineStatus(newPipelineStatus);
         revalidate();
     }
 
+    /**
+     * Postpone updating the control chart statistics while the reports are read in the background, or compute them for
+     * all reports when reading has finished. Since the reports are read newest first, updating the statistics for each
+     * batch would compute them again for all reports every time.
+     *
+     * @param postponed whether to postpone updating the control chart statistics.
+     */
+    public void setControlChartStatisticsPostponed(final boolean postponed) {
+        if (controlChartStatisticsPostponed && !postponed) {
+            controlChartStatistics.clear();
+            controlChartStatistics.addReportUnits(reportUnits);
+            for (final ReportRow reportRow : reportRows.getDisplayedRows()) {
+                updateMetricsPanel(reportRow.getReportUnit(), reportRow.metricsPanel);
+            }
+        }
+        controlChartStatisticsPostponed = postponed;
+    }
+
     /**
      * Update the pipeline status in the report viewer.
      *
@@ -622,15 +831,21 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         //We need two split panes to create 3 regions in the main frame
         
         //Add desktopPane for displaying graphs and other QC Control
-        final int totalReports = orderedReportUnits.size();
-        if (totalReports != 0) {
-            desktopPane.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, totalReports * REPORT_ROW_HEIGHT));
-            prepareChartsInOrder(true);
+        if (!orderedReportUnits.isEmpty()) {
+            displayOrderedReports();
             // Set initial tic Graph - specify complete chart in terms of orderedReportUnits.
             setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
         }
         //Display empty desktopPane and ticGraphPane
-        splitPane2.add(new JScrollPane(desktopPane), 0);
+        final JScrollPane desktopScrollPane = new JScrollPane(desktopPane);
+        // Show the report rows that become visible while scrolling or resizing.
+        desktopScrollPane.getViewport().addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent changeEvent) {
+                updateReportRows();
+            }
+        });
+        splitPane2.add(desktopScrollPane, 0);
         ticGraphPane.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, 2 * CHART_HEIGHT));
         splitPane2.add(new JScrollPane(ticGraphPane), 1);
         //hide-show feature
@@ -667,6 +882,10 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         settingsMenu.add(filterAction);
         filterAction.setActionCommand(SET_FILTER_COMMAND);
         filterAction.addActionListener(this);
+        final JMenuItem metricsFilterAction = new JMenuItem("Set Metrics Filter...");
+        settingsMenu.add(metricsFilterAction);
+        metricsFilterAction.setActionCommand(SET_METRICS_FILTER_COMMAND);
+        metricsFilterAction.addActionListener(this);
         final JMenuItem metricsAction = new JMenuItem("Select Metrics...");
         settingsMenu.add(metricsAction);
         metricsAction.setActionCommand(SELECT_METRICS_COMMAND);
@@ -689,6 +908,10 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
             this.reportUnits.clear();
         }
         this.reportUnits = reportUnits;
+        reportSortIndex.clear();
+        reportSortIndex.addReportUnits(reportUnits);
+        controlChartStatistics.clear();
+        controlChartStatistics.addReportUnits(reportUnits);
         //Initialize reportIsSelected to false
         for (final ReportUnit ignored : reportUnits) {
             reportIsSelected.add(false);
@@ -892,24 +1115,52 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     }
 
     /**
-     * Create sort panel displaying sort metrics and sort order buttons.
+     * Create sort panel displaying sort metrics and sort order buttons. The button of the first sort criterion is
+     * selected; if that metric is not shown, the ascending button of the first metric is selected.
      */
     private void createOrUpdateSortPanel() {
         sortPanel.removeAll();
         final ButtonGroup sortOptionsButtonGroup = new ButtonGroup();
         sortPanel.setLayout(new GridLayout(selectedMetrics.size() / 2 + 1, 2));
         sortPanel.setBackground(Color.WHITE);
-        sortPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Sort Options"));
+        sortPanel.setToolTipText("Shift-click a sort order to sort on an additional metric");
+        updateSortPanelTitle();
         sortPanel.setPreferredSize(new Dimension(SORT_PANEL_WIDTH, SORT_PANEL_HEIGHT));
-        boolean firstSortOption = true;
+        final boolean primarySortKeyShown = !sortCriteria.isEmpty()
+                                            && selectedMetrics.containsKey(sortCriteria.get(0).getSortKey());
+        String selectedSortCommand = primarySortKeyShown
+                                     ? SORT_COMMAND_PREFIX + SORT_COMMAND_SEPARATOR + sortCriteria.get(0)
+                                     : null;
         for (Map.Entry<String, String> metricEntry : selectedMetrics.entrySet()) {
+            if (selectedSortCommand == null) {
+                selectedSortCommand = SORT_COMMAND_PREFIX + SORT_COMMAND_SEPARATOR + metricEntry.getKey()
+                                      + SORT_COMMAND_SEPARATOR + SORT_ORDER_ASCENDING;
+            }
             sortPanel.add(createSortOptionPanel(metricEntry.getValue(), metricEntry.getKey(), sortOptionsButtonGroup,
-                                                firstSortOption));
-            firstSortOption = false;
+                                                selectedSortCommand));
         }
         // Add sorting option for comparing selected reports.
         sortPanel.add(createSortOptionPanel(SORT_ORDER_COMPARE_LABEL, SORT_ORDER_COMPARE, sortOptionsButtonGroup,
-                                            false));
+                                            selectedSortCommand));
+    }
+
+    /**
+     * Show the sort criteria in the title of the sort panel when the reports are sorted on more than one metric.
+     */
+    private void updateSortPanelTitle() {
+        String title = SORT_PANEL_TITLE;
+        if (sortCriteria.size() > 1) {
+            final StringBuilder description = new StringBuilder();
+            for (final SortCriterion criterion : sortCriteria) {
+                final String metricName = selectedMetrics.get(criterion.getSortKey());
+                description.append(description.length() > 0 ? ", then " : "");
+                description.append(metricName != null ? metricName : criterion.getSortKey());
+                description.append(' ').append(criterion.isAscending() ? SORT_ORDER_ASCENDING_LABEL
+                                                                         : SORT_ORDER_DESCENDING_LABEL);
+            }
+            title += ": " + description;
+        }
+        sortPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), title));
     }
 
     /**
@@ -918,12 +1169,12 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      * @param sortOptionName the name of the sort option, which is used for the label.
      * @param sortOptionKey the key of the sort option, which is used for the action commands.
      * @param sortOptionsButtonGroup the button group all sort radio buttons should be a part of.
-     * @param firstSortOption whether this is the first option: in that case select the ascending radio button and set
-     *                        the <code>currentSortCriteria</code>.
+     * @param selectedSortCommand the action command of the radio button to select, which also becomes the
+     *                            <code>currentSortCriteria</code>.
      * @return the panel with the controls for a sort option.
      */
     private JPanel createSortOptionPanel(final String sortOptionName, final String sortOptionKey,
-                                         final ButtonGroup sortOptionsButtonGroup, final boolean firstSortOption) {
+                                         final ButtonGroup sortOptionsButtonGroup, final String selectedSortCommand) {
         // Create the label that describes this sort option.
         final JLabel sortOptionLabel = new JLabel(sortOptionName + ':');
         sortOptionLabel.setFont(Constants.DEFAULT_FONT);
@@ -937,16 +1188,18 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         sortAscendingButton.setActionCommand(baseAction + SORT_ORDER_ASCENDING);
         sortAscendingButton.addActionListener(this);
         sortOptionsButtonGroup.add(sortAscendingButton);
-        if (firstSortOption) {
-            sortAscendingButton.setSelected(true);
-            currentSortCriteria = sortAscendingButton.getActionCommand();
-        }
         // Create the sort descending button.
         final JRadioButton sortDescendingButton = new JRadioButton(SORT_ORDER_DESCENDING_LABEL, false);
         sortDescendingButton.setBackground(Color.WHITE);
         sortDescendingButton.setActionCommand(baseAction + SORT_ORDER_DESCENDING);
         sortDescendingButton.addActionListener(this);
         sortOptionsButtonGroup.add(sortDescendingButton);
+        for (final JRadioButton sortButton : Arrays.asList(sortAscendingButton, sortDescendingButton)) {
+            if (sortButton.getActionCommand().equals(selectedSortCommand)) {
+                sortButton.setSelected(true);
+                currentSortCriteria = selectedSortCommand;
+            }
+        }
         // Create the sort option panel.
         final JPanel sortOptionPanel = new JPanel();
         sortOptionPanel.setLayout(new BoxLayout(sortOptionPanel, BoxLayout.X_AXIS));
@@ -967,7 +1220,10 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      * @return the pipeline status extended with the number of report units.
      */
     private String getExtendedPipelineStatus() {
-        return pipelineStatus + " | | | | | Number of report units: " + orderedReportUnits.size();
+        final String filterStatus = reportFilter != null
+                                    ? " of " + reportUnits.size() + " (filter: " + reportFilter + ")"
+                                    : "";
+        return pipelineStatus + " | | | | | Number of report units: " + orderedReportUnits.size() + filterStatus;
     }
 
     /**
@@ -977,22 +1233,58 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
      */
     private void setTicGraphPaneChart(final int reportNum) {
         logger.fine("ViewerFrame setTicGraphPaneChart " + reportNum);
-        ticGraphPane.removeAll();
-        // Create the visible chart panel.
-        final ChartPanel chartPanel = new ChartPanel(reportUnits.get(reportNum).getChartUnit().getTicChart());
-        chartPanel.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, 2 * CHART_HEIGHT));
-        final JInternalFrame chartFrame = new JInternalFrame(CHART_FRAME_TITLE_PREFIX + reportNum, true);
-        final javax.swing.plaf.InternalFrameUI ifu = chartFrame.getUI();
-        ((javax.swing.plaf.basic.BasicInternalFrameUI)ifu).setNorthPane(null);
-        chartFrame.getContentPane().add(chartPanel);
-        chartFrame.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, 2 * CHART_HEIGHT));
-        chartFrame.setBorder(null);
-        chartFrame.pack();
-        chartFrame.setLocation(0, 0);
-        chartFrame.setVisible(true);
-        ticGraphPane.add(chartFrame);
-        // Finally refresh the frame.
-        revalidate();
+        final ReportUnit reportUnit = reportUnits.get(reportNum);
+        if (ticGraphReportUnit != null && ticGraphReportUnit != reportUnit
+            && !reportRows.isDisplayed(ticGraphReportUnit)) {
+            hideReport(ticGraphReportUnit);
+        }
+        ticGraphReportUnit = reportUnit;
+        recentlyHiddenReports.remove(reportUnit);
+        loadTicSeriesInBackground(reportUnit);
+        final ChartUnit chartUnit = reportUnit.getChartUnit();
+        chartUnit.requireDisplayWidth(DESKTOP_PANE_WIDTH);
+        // The chart view and its frame are created once; after that only the chart and the title change.
+        if (ticGraphChartView == null) {
+            ticGraphChartView = new TicChartView(chartImageCache, domainZoom);
+            ticGraphChartView.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, 2 * CHART_HEIGHT));
+            ticGraphFrame = new JInternalFrame("", true);
+            final javax.swing.plaf.InternalFrameUI ifu = ticGraphFrame.getUI();
+            ((javax.swing.plaf.basic.BasicInternalFrameUI)ifu).setNorthPane(null);
+            ticGraphFrame.getContentPane().add(ticGraphChartView);
+            ticGraphFrame.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, 2 * CHART_HEIGHT));
+            ticGraphFrame.setBorder(null);
+            ticGraphFrame.pack();
+            ticGraphFrame.setLocation(0, 0);
+            ticGraphFrame.setVisible(true);
+        }
+        ticGraphChartView.setChartUnit(chartUnit);
+        ticGraphFrame.setTitle(CHART_FRAME_TITLE_PREFIX + reportNum);
+        if (ticGraphFrame.getParent() != ticGraphPane) {
+            ticGraphPane.add(ticGraphFrame);
+            // Finally refresh the frame.
+            revalidate();
+        }
+    }
+
+    /**
+     * Load the TIC series of a report in the background, if it has not been loaded yet. The chart of the report is
+     * redrawn when the series has been loaded.
+     *
+     * @param reportUnit the report unit.
+     */
+    private void loadTicSeriesInBackground(final ReportUnit reportUnit) {
+        if (reportUnit.isTicSeriesPending() && queuedTicSeries.add(reportUnit)) {
+            ticSeriesLoader.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reportUnit.loadTicSeries();
+                    } finally {
+                        queuedTicSeries.remove(reportUnit);
+                    }
+                }
+            });
+        }
     }
 
     /**
@@ -1043,11 +1335,22 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     private void setDomainRangeCharts(final int min, final int max) {
         logger.fine("minValue = " + minText.getText() + " maxValue = " + maxText.getText() + " min = " + min
                     + " max = " + max);
-        for (final ChartPanel chartPanel : chartPanelList) {
-            final XYPlot plot = (XYPlot) chartPanel.getChart().getPlot();
-            plot.getDomainAxis().setRange(min, max);
-            chartPanel.setRefreshBuffer(true);
-            chartPanel.repaint();
+        domainZoom.setRange(min, max);
+        zoomRefreshTimer.start();
+    }
+
+    /**
+     * Redraw the charts that are shown after the zoom has changed. The charts apply the shared zoom when they are
+     * drawn; the other charts apply it when they are shown again.
+     */
+    private void refreshVisibleCharts() {
+        logger.fine("Zoom changed to " + domainZoom + "; redrawing " + reportRows.getDisplayedRows().size()
+                    + " report rows");
+        for (final ReportRow reportRow : reportRows.getDisplayedRows()) {
+            reportRow.chartView.repaint();
+        }
+        if (ticGraphChartView != null) {
+            ticGraphChartView.repaint();
         }
     }
 
@@ -1075,7 +1378,7 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         } else if (actionCommand.startsWith(SORT_COMMAND_PREFIX)) {
             // Sort chart frame list according to chosen Sort criteria.
             newSortCriteria = actionCommand;
-            sortChartFrameList();
+            sortChartFrameList((actionEvent.getModifiers() & ActionEvent.SHIFT_MASK) != 0);
         } else {
             handleMenuActions(actionCommand);
         }
@@ -1090,24 +1393,21 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         if (ZOOM_MIN_MAX_COMMAND.equals(actionCommand)) {
             zoomMinMax();
         } else {
-            logger.fine("Number of chart panels: " + chartPanelList.size());
-            for (final ChartPanel chartPanel : chartPanelList) {
-                switch (actionCommand) {
-                    case ZOOM_IN_COMMAND:
-                        chartPanel.zoomInDomain(0, 0);
-                        break;
-                    case ZOOM_ORIGINAL_COMMAND:
-                        chartPanel.restoreAutoBounds();
-                        break;
-                    case ZOOM_OUT_COMMAND:
-                        chartPanel.zoomOutDomain(0, 0);
-                        break;
-                    default:
-                        logger.warning("Unexpected zoom action: " + actionCommand);
-                }
-                chartPanel.setRefreshBuffer(true);
-                chartPanel.repaint();
+            // Only the shared zoom changes here; the visible charts are redrawn once for a series of zoom actions.
+            switch (actionCommand) {
+                case ZOOM_IN_COMMAND:
+                    domainZoom.zoomIn();
+                    break;
+                case ZOOM_ORIGINAL_COMMAND:
+                    domainZoom.reset();
+                    break;
+                case ZOOM_OUT_COMMAND:
+                    domainZoom.zoomOut();
+                    break;
+                default:
+                    logger.warning("Unexpected zoom action: " + actionCommand);
             }
+            zoomRefreshTimer.start();
         }
     }
 
@@ -1124,6 +1424,9 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
             case SET_FILTER_COMMAND:
                 new DataEntryForm(this, appProperties).displayDateFilterEntryForm();
                 break;
+            case SET_METRICS_FILTER_COMMAND:
+                displayMetricsFilterDialog();
+                break;
             case SELECT_METRICS_COMMAND:
                 // Display ChooseMetricsForm to select metrics to display.
                 final JFrame metricsForm = new ChooseMetricsForm(this, metricsParser, selectedMetrics.keySet());
@@ -1144,8 +1447,11 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
 
     /**
      * Sort displayed report units according to user assigned sort criteria.
+     *
+     * @param addSortKey whether to add the sort key to the current sort criteria (sorting on that key when reports are
+     *                   equal for the earlier keys) instead of sorting on this key only.
      */
-    private void sortChartFrameList() {
+    private void sortChartFrameList(final boolean addSortKey) {
         logger.fine("sortChartFrameList From " + currentSortCriteria + " To " + newSortCriteria);
         final StringTokenizer sortCriteriaTokenizer = new StringTokenizer(newSortCriteria, SORT_COMMAND_SEPARATOR);
         sortCriteriaTokenizer.nextToken();
@@ -1156,29 +1462,38 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         logger.fine("Sort requested according to " + sortKey + " order " + sortOrder);
         //Remove currently ordered report units and recreate them according to sort criteria
         orderedReportUnits.clear();
-        // A new chart frame will be given to every report.
-        desktopPane.removeAll();
+        final BitSet filterMatches = getFilterMatches();
         final boolean ascending = sortOrder.equals(SORT_ORDER_ASCENDING);
         if (!SORT_ORDER_COMPARE.equals(sortKey)) {
-            /* TODO: can we use Collections.sort with a custom comparator here? [Freek]
-               [Pravin] ReportUnit.java now implements Comparable<ReportUnit> interface.
-               Added a comparator in ReportUnit.java to compare report units.
-               Removed compareTo(thisUnit, otherUnit) method from ReportUnit.java. 
-               ViewerFrame.java now uses Collections.sort() method to sort reports. 
-            */
-            //Copy reportUnits to orderedReportUnits
-            orderedReportUnits.addAll(reportUnits);
-            //Sort orderedReportUnits according to sortKey and sort order - ascending/descending
-            Collections.sort(orderedReportUnits, ReportUnit.getReportUnitComparator(sortKey, ascending));
-            //Create chart frames and add them to the desktop pane.
-            prepareChartsInOrder(true);
+            final SortCriterion newCriterion = new SortCriterion(sortKey, ascending);
+            if (!addSortKey) {
+                sortCriteria.clear();
+            }
+            // A key that is already in the list moves to the end with its new order.
+            for (int criterionIndex = sortCriteria.size() - 1; criterionIndex >= 0; criterionIndex--) {
+                if (sortCriteria.get(criterionIndex).getSortKey().equals(sortKey)) {
+                    sortCriteria.remove(criterionIndex);
+                }
+            }
+            sortCriteria.add(newCriterion);
+            PropertyFileWriter.updateSortCriteria(SortCriterion.formatList(sortCriteria));
+            updateSortPanelTitle();
+            //Reorder reportUnits into orderedReportUnits using the cached permutations (each key is sorted only once)
+            orderedReportUnits.addAll(reportSortIndex.getSortedReportUnits(sortCriteria, filterMatches));
+            //Show the report rows in the new order.
+            displayOrderedReports();
             // Set first report graph in the Tic Pane. 
-            setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
+            if (!orderedReportUnits.isEmpty()) {
+                setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
+            }
         } else if (SORT_ORDER_COMPARE.equals(sortKey)) {
             //Check checkbox flag status and group those reports together at the beginning of orderedReportUnits
             //Add all selected reports first i refers to original report number
             final ArrayList<ReportUnit> deselectedReports = new ArrayList<>();
             for (int reportIndex = 0; reportIndex < reportIsSelected.size(); reportIndex++) {
+                if (filterMatches != null && !filterMatches.get(reportIndex)) {
+                    continue;
+                }
                 if (reportIsSelected.get(reportIndex)) {
                     logger.fine("Selected report index = " + reportIndex);
                     orderedReportUnits.add(reportUnits.get(reportIndex));
@@ -1188,112 +1503,222 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
             }
             // Now add all deselected reports.
             orderedReportUnits.addAll(deselectedReports);
-            final int selectedIndex = ascending ? 0 : orderedReportUnits.size() - 1;
-            prepareChartsInOrder(ascending);
-            // Show the TIC graph of the first or last report in the bottom TIC pane.
-            setTicGraphPaneChart(orderedReportUnits.get(selectedIndex).getReportIndex());
+            // In descending order, the selected reports are shown at the end.
+            if (!ascending) {
+                Collections.reverse(orderedReportUnits);
+            }
+            displayOrderedReports();
+            // Show the TIC graph of the first report in the bottom TIC pane.
+            if (!orderedReportUnits.isEmpty()) {
+                setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
+            }
         }
         currentSortCriteria = newSortCriteria;
         newSortCriteria = "";
     }
 
     /**
-     * Create chart frames and add them to the desktop pane.
+     * Let the user enter a filter on the metrics and show the matching reports, in the order of the current sort
+     * criteria. An empty filter shows all reports.
+     */
+    private void displayMetricsFilterDialog() {
+        final String currentQuery = reportFilter != null ? reportFilter.toString() : "";
+        final String message = "Show the reports that match (leave empty to show all reports), for example:\n"
+                               + METRICS_FILTER_EXAMPLE;
+        final Object query = JOptionPane.showInputDialog(this, message, "Metrics Filter", JOptionPane.PLAIN_MESSAGE,
+                                                         null, null, currentQuery);
+        if (query == null) {
+            return;
+        }
+        try {
+            reportFilter = query.toString().trim().isEmpty()
+                           ? null
+                           : ReportFilter.parse(query.toString(), metricsParser.getMetricsListing().keySet());
+        } catch (final ParseException e) {
+            logger.fine("Invalid metrics filter: " + e.getMessage());
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid Metrics Filter", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        logger.fine("Metrics filter changed to " + reportFilter);
+        orderedReportUnits.clear();
+        orderedReportUnits.addAll(reportSortIndex.getSortedReportUnits(sortCriteria, getFilterMatches()));
+        displayOrderedReports();
+        if (!orderedReportUnits.isEmpty()) {
+            setTicGraphPaneChart(orderedReportUnits.get(0).getReportIndex());
+        }
+        updatePipelineStatus(pipelineStatus);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Find the reports that match the metrics filter.
+     *
+     * @return the indices (in <code>reportUnits</code>) of the matching reports or <code>null</code> if there is no
+     *         filter.
+     */
+    private BitSet getFilterMatches() {
+        return reportFilter != null ? reportFilter.evaluate(reportSortIndex) : null;
+    }
+
+    /**
+     * Show the reports in <code>orderedReportUnits</code> in the desktop pane. The desktop pane gets the height of all
+     * report rows, but only the rows around its visible part get components.
+     */
+    private void displayOrderedReports() {
+        logger.fine("ViewerFrame displayOrderedReports No. of orderedReportUnits = " + orderedReportUnits.size());
+        desktopPane.setPreferredSize(new Dimension(DESKTOP_PANE_WIDTH, orderedReportUnits.size() * REPORT_ROW_HEIGHT));
+        desktopPane.revalidate();
+        updateReportRows();
+    }
+
+    /**
+     * Show report rows for the visible part of the desktop pane (plus a few rows of overscan). Rows whose report is
+     * still in that part keep their components and are only moved if the position of their report changed (after
+     * sorting or filtering, for example). The other rows are hidden and reused for the reports that have become
+     * visible, so the number of row components depends on the height of the viewport instead of the number of reports.
+     */
+    private void updateReportRows() {
+        final VisibleRowRange rowRange = VisibleRowRange.forViewport(desktopPane.getVisibleRect(), REPORT_ROW_HEIGHT,
+                                                                     orderedReportUnits.size(), REPORT_ROW_OVERSCAN);
+        reportRows.update(orderedReportUnits, rowRange);
+        logger.fine("Showing " + rowRange + " with " + reportRows.getRowCount() + " report rows");
+    }
+
+    /**
+     * Remember a report that is no longer shown. When more than {@link #LOADED_HIDDEN_REPORT_LIMIT} reports are
+     * hidden, the TIC series, chart and chart image of the report that was hidden first are released.
+     *
+     * @param reportUnit the report unit that is no longer shown.
+     */
+    private void hideReport(final ReportUnit reportUnit) {
+        recentlyHiddenReports.remove(reportUnit);
+        recentlyHiddenReports.add(reportUnit);
+        if (recentlyHiddenReports.size() > LOADED_HIDDEN_REPORT_LIMIT) {
+            final Iterator<ReportUnit> hiddenReportIterator = recentlyHiddenReports.iterator();
+            final ReportUnit releasedReportUnit = hiddenReportIterator.next();
+            hiddenReportIterator.remove();
+            final ChartUnit releasedChartUnit = releasedReportUnit.releaseTicSeries();
+            if (releasedChartUnit != null) {
+                chartImageCache.remove(releasedChartUnit);
+            }
+        }
+    }
+
+    /**
+     * Show a report in a report row: set the report number, selection state, metrics and TIC chart, and move the row
+     * to the position of the report. The TIC series is loaded if that has not been done yet.
      *
-     * @param ascending if <code>true</code>, the charts will be prepared in ascending order; if <code>false</code>, the
-     *                  charts will be prepared in descending order.
-     */
-    private void prepareChartsInOrder(final boolean ascending) {
-        logger.fine("ViewerFrame prepareChartsInOrder");
-        chartPanelList.clear();
-        yCoordinate = 0;
-        logger.fine("No. of orderedReportUnits = " + orderedReportUnits.size());
-        for (int reportIndex = 0; reportIndex < orderedReportUnits.size(); reportIndex++) {
-            final int sortedIndex = ascending ? reportIndex : orderedReportUnits.size() - reportIndex - 1;
-            addChartFrame(orderedReportUnits.get(sortedIndex), reportIndex);
+     * @param reportRow the report row with the report unit to show and its position in <code>orderedReportUnits</code>.
+     */
+    private void bindReportRow(final ReportRow reportRow) {
+        final ReportUnit reportUnit = reportRow.getReportUnit();
+        recentlyHiddenReports.remove(reportUnit);
+        final String reportIndexText = Integer.toString(reportUnit.getReportIndex());
+        reportRow.chartFrame.setName(reportIndexText);
+        reportRow.reportNumberLabel.setText(Integer.toString(reportUnit.getReportNum()));
+        reportRow.detailsButton.setActionCommand(DETAILS_ACTION_PREFIX + reportUnit.getReportNum());
+        // The name is changed first, so the item event of setSelected (if any) refers to the new report. The selection
+        // states are reset when the report list is replaced, so this works after a refresh as well as after sorting.
+        reportRow.selectionCheckBox.setName(reportIndexText);
+        reportRow.selectionCheckBox.setSelected(reportIsSelected.get(reportUnit.getReportIndex()));
+        updateMetricsPanel(reportUnit, reportRow.metricsPanel);
+        reportUnit.getChartUnit().requireDisplayWidth(CHART_PANEL_WIDTH);
+        reportRow.chartView.setChartUnit(reportUnit.getChartUnit());
+        moveReportRow(reportRow);
+        reportRow.chartFrame.setVisible(true);
+        loadTicSeriesInBackground(reportUnit);
+    }
+
+    /**
+     * Move a report row to the position of its report: only the "Chart N" title and the location of its frame change.
+     *
+     * @param reportRow the report row with the new position of its report in <code>orderedReportUnits</code>.
+     */
+    private void moveReportRow(final ReportRow reportRow) {
+        final int position = reportRow.getPosition();
+        reportRow.chartFrame.setTitle(CHART_FRAME_TITLE_PREFIX + position);
+        reportRow.chartFrame.setLocation(0, position * REPORT_ROW_HEIGHT);
+    }
+
+    /**
+     * Hide a report row and keep it for reuse. The chart is removed from the chart view, so the view no longer
+     * listens to changes of the chart and a pending render of the chart image is cancelled. The report is remembered as
+     * hidden (see {@link #hideReport(ReportUnit)}) unless it is shown in the TIC graph pane.
+     *
+     * @param reportRow the report row.
+     */
+    private void releaseReportRow(final ReportRow reportRow) {
+        reportRow.chartFrame.setVisible(false);
+        reportRow.chartView.setChartUnit(null);
+        if (reportRow.getReportUnit() != ticGraphReportUnit) {
+            hideReport(reportRow.getReportUnit());
         }
     }
 
     /**
-     * Add an internal frame for a report showing the report number, selection check box, details button, metrics
+     * Create a report row: an internal frame showing the report number, selection check box, details button, metrics
      * panel and the TIC chart. The controls are created in three panels: 1) reportIdPanel, 2) metricsPanel, and
-     * 3) chartPanel. The frame is added to the desktop pane.
+     * 3) chartView, which shows an image of the chart until the mouse enters it. The frame is added to the desktop
+     * pane; the row is empty until a report is bound to it with {@link #bindReportRow(ReportRow)}.
      *
      * TODO: clarify when we use reportNumber, reportUnit.getReportNum() - 1 and reportUnit.getReportNum(). [Freek]
      * [Pravin] reportUnit.getReportNum() - 1 represents report index. Index is used for array operations. 
      * I have added reportIndex variable and getReportIndex method in ReportUnit to avoid repetitive calls to
      * reportUnit.getReportNum() - 1.
      *
-     * @param reportUnit the report unit.
-     * @param reportNumber the report number.
+     * @return the report row.
      */
-    private void addChartFrame(final ReportUnit reportUnit, final int reportNumber) {
-        logger.fine("ViewerFrame addChartFrame " + reportNumber + " ");
+    private ReportRow createReportRow() {
+        final ReportRow reportRow = new ReportRow();
+        reportRow.chartView = new TicChartView(chartImageCache, domainZoom);
+        reportRow.chartView.addChartMouseListener(this);
+        reportRow.chartView.setPreferredSize(new Dimension(CHART_PANEL_WIDTH, ACTUAL_CHART_HEIGHT));
 
-        final ChartPanel chartPanel = new ChartPanel(reportUnit.getChartUnit().getTicChart());
-        chartPanel.addChartMouseListener(this);
-        chartPanel.setPreferredSize(new Dimension(CHART_PANEL_WIDTH, ACTUAL_CHART_HEIGHT));
-        chartPanelList.add(chartPanel);
-
-        final JPanel reportIdPanel = createReportIdPanel(reportUnit);
+        final JPanel reportIdPanel = createReportIdPanel(reportRow);
         //metricsPanel uses GridLayout
-        final JPanel metricsPanel = createOrUpdateMetricsPanel(reportUnit, null);
-        reportUnitToMetricsPanel.put(reportUnit, metricsPanel);
+        reportRow.metricsPanel = createMetricsPanel();
 
         //displayPanel now uses FlowLayout
         final JPanel displayPanel = new JPanel();
         displayPanel.setLayout(new FlowLayout());
         displayPanel.add(reportIdPanel);
-        displayPanel.add(metricsPanel);
-        displayPanel.add(chartPanel);
+        displayPanel.add(reportRow.metricsPanel);
+        displayPanel.add(reportRow.chartView);
         displayPanel.setBorder(null);
 
-        final JInternalFrame chartFrame = new JInternalFrame(CHART_FRAME_TITLE_PREFIX + reportNumber, true);
-        chartFrame.setName(Integer.toString(reportUnit.getReportIndex()));
-        ((javax.swing.plaf.basic.BasicInternalFrameUI) chartFrame.getUI()).setNorthPane(null);
-        chartFrame.getContentPane().add(displayPanel);
-        chartFrame.setBorder(BorderFactory.createRaisedBevelBorder());
-        chartFrame.pack();
-        chartFrame.setLocation(0, yCoordinate);
-        chartFrame.setVisible(true);
-        chartFrame.addMouseListener(this);
-        desktopPane.add(chartFrame);
-        logger.fine("yCoordinate = " + yCoordinate);
-        yCoordinate += REPORT_ROW_HEIGHT;
+        reportRow.chartFrame = new JInternalFrame("", true);
+        ((javax.swing.plaf.basic.BasicInternalFrameUI) reportRow.chartFrame.getUI()).setNorthPane(null);
+        reportRow.chartFrame.getContentPane().add(displayPanel);
+        reportRow.chartFrame.setBorder(BorderFactory.createRaisedBevelBorder());
+        reportRow.chartFrame.pack();
+        reportRow.chartFrame.addMouseListener(this);
+        desktopPane.add(reportRow.chartFrame);
+        return reportRow;
     }
 
     /**
-     * Create a panel for a report showing the report number, the selection check box and the metrics details button.
+     * Create a panel for a report row with the report number, the selection check box and the metrics details button.
      *
-     * @param reportUnit the report unit to show.
+     * @param reportRow the report row, which gets the controls of the panel.
      * @return the panel with the relevant information.
      */
-    private JPanel createReportIdPanel(final ReportUnit reportUnit) {
-        final JLabel reportNumberLabel = new JLabel(Integer.toString(reportUnit.getReportNum()));
+    private JPanel createReportIdPanel(final ReportRow reportRow) {
+        final JLabel reportNumberLabel = new JLabel();
         reportNumberLabel.setFont(Constants.REPORT_NUMBER_FONT);
+        reportRow.reportNumberLabel = reportNumberLabel;
 
         final JButton detailsButton = new JButton("Details");
         detailsButton.setFont(Constants.DEFAULT_FONT);
-        detailsButton.setActionCommand(DETAILS_ACTION_PREFIX + reportUnit.getReportNum());
         detailsButton.addActionListener(this);
+        reportRow.detailsButton = detailsButton;
 
         final JCheckBox selectionCheckBox = new JCheckBox(SORT_ORDER_COMPARE_LABEL);
         selectionCheckBox.setFont(Constants.DEFAULT_FONT);
         selectionCheckBox.setBackground(Color.WHITE);
-        // TODO: perhaps it's easier to use the report number here as well, since any unique id is ok? [Freek]
-        // [Pravin] Using report index instead of report number
-        selectionCheckBox.setName(Integer.toString(reportUnit.getReportIndex()));
-        // This call to setSelected preserves selection status.
-        /** TODO: this call to setSelected is needed after a refresh of the report list? [Freek]
-         * [Pravin] Call to setSelected preserves selection status set by the user. 
-         * In case of refresh of the report list, we already clear reportIsSelected list using 
-         * reportIsSelected.clear(); [line 411]
-         * For every new report, selection status is set to false reportIsSelected.add(false); [Line 424]
-         * Hence this call setSelected works fine every time (It doesn't need to know difference between 
-         * refresh of the report list and reordering report list) 
-         */
-        selectionCheckBox.setSelected(reportIsSelected.get(reportUnit.getReportIndex()));
+        // The name (the report index) and the selection state are set when a report is bound to the row.
         selectionCheckBox.addItemListener(this);
+        reportRow.selectionCheckBox = selectionCheckBox;
 
         //reportIDPanel now uses BoxLayout //TODO: issues with center alignment
         final JPanel reportIdPanel = new JPanel();
@@ -1323,49 +1748,95 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
         // Update the control frame to display the newly selected metrics.
         logger.fine("In updateSelectedMetrics - refreshing metrics values..");
         parseSelectedMetricsData(selectedMetricsData);
-        for (final ReportUnit reportUnit : reportUnits) {
-            if (reportUnitToMetricsPanel.containsKey(reportUnit)) {
-                createOrUpdateMetricsPanel(reportUnit, reportUnitToMetricsPanel.get(reportUnit));
-            }
+        // Rows that are not shown get the new metrics when a report is bound to them.
+        for (final ReportRow reportRow : reportRows.getDisplayedRows()) {
+            updateMetricsPanel(reportRow.getReportUnit(), reportRow.metricsPanel);
         }
         createOrUpdateSortPanel();
         revalidate();
     }
 
     /**
-     * Create or update a panel with the metrics for the specified report unit.
+     * Create an empty panel for the metrics of a report row.
      *
-     * @param reportUnit the report unit
-     * @param existingMetricsPanel <code>null</code> to create a new panel or an existing panel to replace the labels.
-     * @return the panel with the metrics.
+     * @return the panel for the metrics.
      */
-    private JPanel createOrUpdateMetricsPanel(final ReportUnit reportUnit, final JPanel existingMetricsPanel) {
-        // Create a new metrics panel or remove all labels from the existing panel.
+    private JPanel createMetricsPanel() {
         // metricsPanel already uses GridLayout 
-        final JPanel metricsPanel = existingMetricsPanel == null ? new JPanel() : existingMetricsPanel;
-        if (existingMetricsPanel == null) {
-            metricsPanel.setBackground(Color.WHITE);
-            metricsPanel.setLayout(new GridLayout(selectedMetrics.size(), 1));
-            metricsPanel.setPreferredSize(new Dimension(METRICS_PANEL_WIDTH, CHART_HEIGHT));
-        } else {
-            metricsPanel.removeAll();
-        }
+        final JPanel metricsPanel = new JPanel();
+        metricsPanel.setBackground(Color.WHITE);
+        metricsPanel.setLayout(new GridLayout(selectedMetrics.size(), 1));
+        metricsPanel.setPreferredSize(new Dimension(METRICS_PANEL_WIDTH, CHART_HEIGHT));
+        return metricsPanel;
+    }
+
+    /**
+     * Update a panel with the metrics for the specified report unit: the labels are replaced.
+     *
+     * @param reportUnit the report unit
+     * @param metricsPanel the panel of the metrics.
+     */
+    private void updateMetricsPanel(final ReportUnit reportUnit, final JPanel metricsPanel) {
+        metricsPanel.removeAll();
+        ((GridLayout) metricsPanel.getLayout()).setRows(selectedMetrics.size());
         // Add labels for each of the selected metrics.
         int metricIndex = 0;
         for (Map.Entry<String, String> metricEntry : selectedMetrics.entrySet()) {
-            final String metricValue = reportUnit.getMetricsValueFromKey(metricEntry.getKey());
-            final Color foregroundColor = LABEL_COLORS.get(metricIndex % LABEL_COLORS.size());
-            final JLabel label = new JLabel(metricEntry.getValue() + ": " + metricValue);
+            final String metricKey = metricEntry.getKey();
+            final String metricValue = reportUnit.getMetricsValueFromKey(metricKey);
+            final Set<WestgardRule> violations = controlChartStatistics.getViolations(reportUnit, metricKey);
+            final Color foregroundColor = violations.isEmpty()
+                                          ? LABEL_COLORS.get(metricIndex % LABEL_COLORS.size())
+                                          : VIOLATION_LABEL_COLOR;
+            final JLabel label = new JLabel(metricEntry.getValue() + ": " + metricValue + getViolationsText(violations));
             label.setFont(Constants.DEFAULT_FONT);
             label.setForeground(foregroundColor);
+            label.setToolTipText(getControlChartToolTip(reportUnit, metricKey));
             metricsPanel.add(label);
             metricIndex++;
         }
-        if (existingMetricsPanel != null) {
-            metricsPanel.validate();
-            metricsPanel.repaint();
+        metricsPanel.validate();
+        metricsPanel.repaint();
+    }
+
+    /**
+     * Get the text that is appended to a metric label for the Westgard rules that are violated.
+     *
+     * @param violations the violated rules.
+     * @return the rule names, like " [1-3s, 2-2s]", or an empty string if no rules are violated.
+     */
+    private String getViolationsText(final Set<WestgardRule> violations) {
+        if (violations.isEmpty()) {
+            return "";
+        }
+        final StringBuilder violationsText = new StringBuilder(" [");
+        for (final WestgardRule rule : violations) {
+            if (violationsText.length() > 2) {
+                violationsText.append(", ");
+            }
+            violationsText.append(rule.getLabel());
         }
-        return metricsPanel;
+        return violationsText.append("]").toString();
+    }
+
+    /**
+     * Get the tool tip of a metric label with the control chart statistics of the metric.
+     *
+     * @param reportUnit the report unit.
+     * @param metricKey the "category:code" key of the metric.
+     * @return the tool tip or <code>null</code> if there are no statistics for the metric.
+     */
+    private String getControlChartToolTip(final ReportUnit reportUnit, final String metricKey) {
+        final int count = controlChartStatistics.getCount(metricKey);
+        if (count < 2) {
+            return null;
+        }
+        final double deviation = controlChartStatistics.getDeviation(reportUnit, metricKey);
+        return String.format("mean %.4g, SD %.4g, mean moving range %.4g (%d reports)%s",
+                             controlChartStatistics.getMean(metricKey),
+                             controlChartStatistics.getStandardDeviation(metricKey),
+                             controlChartStatistics.getMeanMovingRange(metricKey), count,
+                             Double.isNaN(deviation) ? "" : String.format("; deviation %+.2f SD", deviation));
     }
 
     @Override
@@ -1432,4 +1903,40 @@ public class ViewerFrame extends JFrame implements ActionListener, ItemListener,
     public void chartMouseMoved(final ChartMouseEvent chartMouseEvent) {
         // This event is not used.
     }
+
+    /**
+     * The components of a row in the desktop pane that shows a report. Rows are reused for other reports while
+     * scrolling, so only the rows around the visible part of the desktop pane exist.
+     */
+    private static class ReportRow extends ReportRowRecycler.Row {
+        /**
+         * The internal frame that contains the other components of the row.
+         */
+        private JInternalFrame chartFrame;
+
+        /**
+         * The label with the report number.
+         */
+        private JLabel reportNumberLabel;
+
+        /**
+         * The check box for selecting the report for comparison.
+         */
+        private JCheckBox selectionCheckBox;
+
+        /**
+         * The button that shows the details of the report.
+         */
+        private JButton detailsButton;
+
+        /**
+         * The panel with the selected metrics of the report.
+         */
+        private JPanel metricsPanel;
+
+        /**
+         * The view with the TIC chart of the report.
+         */
+        private TicChartView chartView;
+    }
 }
@@ -0,0 +1,97 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import java.awt.Rectangle;
+
+/**
+ * The object of this class is the range of rows of a list with fixed row heights that have to be shown for the visible
+ * part of the list, extended with a few rows (the overscan) above and below the visible part, so small scroll steps do
+ * not need new rows immediately.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class VisibleRowRange {
+    /**
+     * The first row of the range.
+     */
+    private final int firstRow;
+
+    /**
+     * The row after the last row of the range.
+     */
+    private final int endRow;
+
+    /**
+     * Create a row range.
+     *
+     * @param firstRow the first row of the range.
+     * @param endRow the row after the last row of the range.
+     */
+    public VisibleRowRange(final int firstRow, final int endRow) {
+        this.firstRow = firstRow;
+        this.endRow = Math.max(firstRow, endRow);
+    }
+
+    /**
+     * Determine the rows to show for the visible part of a list.
+     *
+     * @param visibleRectangle the visible part of the list (in the coordinates of the list).
+     * @param rowHeight the height of each row in pixels.
+     * @param rowCount the number of rows of the list.
+     * @param overscan the number of extra rows to show above and below the visible part.
+     * @return the range of rows to show (empty if nothing is visible).
+     */
+    public static VisibleRowRange forViewport(final Rectangle visibleRectangle, final int rowHeight,
+                                              final int rowCount, final int overscan) {
+        if (visibleRectangle.isEmpty() || rowCount == 0) {
+            return new VisibleRowRange(0, 0);
+        }
+        final int firstVisibleRow = Math.max(0, visibleRectangle.y) / rowHeight;
+        final int endVisibleRow = (Math.max(0, visibleRectangle.y + visibleRectangle.height) + rowHeight - 1)
+                                  / rowHeight;
+        return new VisibleRowRange(Math.min(rowCount, Math.max(0, firstVisibleRow - overscan)),
+                                   Math.min(rowCount, endVisibleRow + overscan));
+    }
+
+    /**
+     * Get the first row of the range.
+     *
+     * @return the first row.
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Get the row after the last row of the range.
+     *
+     * @return the row after the last row.
+     */
+    public int getEndRow() {
+        return endRow;
+    }
+
+    /**
+     * Get the number of rows in the range.
+     *
+     * @return the number of rows.
+     */
+    public int getRowCount() {
+        return endRow - firstRow;
+    }
+
+    /**
+     * Check whether a row is in the range.
+     *
+     * @param row the row.
+     * @return whether the row is in the range.
+     */
+    public boolean contains(final int row) {
+        return row >= firstRow && row < endRow;
+    }
+
+    @Override
+    public String toString() {
+        return "rows " + firstRow + " to " + endRow;
+    }
+}
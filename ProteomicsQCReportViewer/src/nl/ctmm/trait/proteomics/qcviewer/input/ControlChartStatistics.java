@@ -0,0 +1,385 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.ctmm.trait.proteomics.qcviewer.utils.IndexSort;
+
+/**
+ * The object of this class keeps running control chart statistics per metric over the reports in the order of their
+ * measurement dates ("generic:date"): mean and standard deviation (with Welford's algorithm) and the mean moving range.
+ * Each value is compared with the statistics of the values measured earlier (as on a Levey-Jennings chart) and checked
+ * against the Westgard rules (see {@link WestgardRule}).
+ * <p/>
+ * Adding reports that were measured after all earlier reports only updates the statistics with the new values, so the
+ * flags of earlier reports are not recomputed when new reports arrive. When older reports are added, the statistics
+ * are computed again for all reports in date order. Reports without a date are put first, in the order in which they
+ * were added. Missing values are skipped. The rules are evaluated once a metric has
+ * {@link #BASELINE_COUNT} values.
+ * <p/>
+ * The statistics are not thread safe; the viewer uses them on the event dispatch thread.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ControlChartStatistics {
+    /**
+     * The number of values of a metric that form the baseline before values are checked against the rules.
+     */
+    public static final int BASELINE_COUNT = 5;
+
+    /**
+     * The number of consecutive values needed by the longest rule (10x).
+     */
+    private static final int HISTORY_LENGTH = 10;
+
+    /**
+     * The report units in date order.
+     */
+    private final List<ReportUnit> reportUnits = new ArrayList<>();
+
+    /**
+     * The index of each report unit in date order.
+     */
+    private final Map<ReportUnit, Integer> reportIndices = new IdentityHashMap<>();
+
+    /**
+     * The statistics per metric key.
+     */
+    private final Map<String, MetricStatistics> metricStatistics = new HashMap<>();
+
+    /**
+     * Remove all reports and statistics.
+     */
+    public void clear() {
+        reportUnits.clear();
+        reportIndices.clear();
+        metricStatistics.clear();
+    }
+
+    /**
+     * Add report units and update the statistics of all their numeric metrics. If a new report was measured before
+     * the latest existing report, the statistics of all reports are computed again in date order.
+     *
+     * @param newReportUnits the report units to add.
+     */
+    public void addReportUnits(final List<ReportUnit> newReportUnits) {
+        if (newReportUnits.isEmpty()) {
+            return;
+        }
+        final List<ReportUnit> sortedReportUnits = ReportUnit.sortReportUnits(newReportUnits, MetricSchema.DATE_KEY,
+                                                                              true);
+        if (reportUnits.isEmpty() || IndexSort.compare(getDate(reportUnits.get(reportUnits.size() - 1)),
+                                                       getDate(sortedReportUnits.get(0)), true) <= 0) {
+            appendReportUnits(sortedReportUnits);
+        } else {
+            final List<ReportUnit> allReportUnits = new ArrayList<>(reportUnits);
+            allReportUnits.addAll(newReportUnits);
+            clear();
+            appendReportUnits(ReportUnit.sortReportUnits(allReportUnits, MetricSchema.DATE_KEY, true));
+        }
+    }
+
+    /**
+     * Get the measurement date of a report unit.
+     *
+     * @param reportUnit the report unit.
+     * @return the date in milliseconds since the epoch or NaN if the date is not available.
+     */
+    private static double getDate(final ReportUnit reportUnit) {
+        return reportUnit.getSortKey(MetricSchema.DATE_KEY);
+    }
+
+    /**
+     * Add report units, which were measured after the existing ones, and update the statistics.
+     *
+     * @param sortedReportUnits the report units to add, in date order.
+     */
+    private void appendReportUnits(final List<ReportUnit> sortedReportUnits) {
+        for (final ReportUnit reportUnit : sortedReportUnits) {
+            reportUnits.add(reportUnit);
+            final int reportIndex = reportIndices.size();
+            reportIndices.put(reportUnit, reportIndex);
+            final MetricValues metricValues = reportUnit.getMetricValues();
+            if (metricValues != null) {
+                final MetricSchema schema = metricValues.getSchema();
+                for (int metricIndex = 0; metricIndex < schema.size(); metricIndex++) {
+                    final double value = metricValues.getNumber(metricIndex);
+                    if (!Double.isNaN(value) && schema.getValueType(metricIndex) != MetricSchema.ValueType.DATE) {
+                        getMetricStatistics(schema.getKey(metricIndex)).add(reportIndex, value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the Westgard rules that a report violates for a metric.
+     *
+     * @param reportUnit the report unit.
+     * @param metricKey the "category:code" key of the metric.
+     * @return the violated rules (empty if the report or metric is unknown, the value is missing or the value was part
+     *         of the baseline).
+     */
+    public Set<WestgardRule> getViolations(final ReportUnit reportUnit, final String metricKey) {
+        final EnumSet<WestgardRule> violations = EnumSet.noneOf(WestgardRule.class);
+        final Integer reportIndex = reportIndices.get(reportUnit);
+        final MetricStatistics statistics = metricStatistics.get(metricKey);
+        if (reportIndex != null && statistics != null && reportIndex < statistics.violations.length) {
+            final int violationBits = statistics.violations[reportIndex];
+            for (final WestgardRule rule : WestgardRule.values()) {
+                if ((violationBits & rule.getBit()) != 0) {
+                    violations.add(rule);
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Get the deviation of the value of a report from the mean of the earlier values, in standard deviations (the
+     * position on a Levey-Jennings chart).
+     *
+     * @param reportUnit the report unit.
+     * @param metricKey the "category:code" key of the metric.
+     * @return the deviation or NaN if it is not known (for example during the baseline).
+     */
+    public double getDeviation(final ReportUnit reportUnit, final String metricKey) {
+        final Integer reportIndex = reportIndices.get(reportUnit);
+        final MetricStatistics statistics = metricStatistics.get(metricKey);
+        return reportIndex != null && statistics != null && reportIndex < statistics.deviations.length
+               ? statistics.deviations[reportIndex]
+               : Double.NaN;
+    }
+
+    /**
+     * Get the number of values of a metric.
+     *
+     * @param metricKey the "category:code" key of the metric.
+     * @return the number of values.
+     */
+    public int getCount(final String metricKey) {
+        final MetricStatistics statistics = metricStatistics.get(metricKey);
+        return statistics != null ? statistics.count : 0;
+    }
+
+    /**
+     * Get the mean of the values of a metric.
+     *
+     * @param metricKey the "category:code" key of the metric.
+     * @return the mean or NaN if there are no values.
+     */
+    public double getMean(final String metricKey) {
+        final MetricStatistics statistics = metricStatistics.get(metricKey);
+        return statistics != null && statistics.count > 0 ? statistics.mean : Double.NaN;
+    }
+
+    /**
+     * Get the (sample) standard deviation of the values of a metric.
+     *
+     * @param metricKey the "category:code" key of the metric.
+     * @return the standard deviation or NaN if there are less than two values.
+     */
+    public double getStandardDeviation(final String metricKey) {
+        final MetricStatistics statistics = metricStatistics.get(metricKey);
+        return statistics != null ? statistics.getStandardDeviation() : Double.NaN;
+    }
+
+    /**
+     * Get the mean moving range (the mean absolute difference between consecutive values) of a metric.
+     *
+     * @param metricKey the "category:code" key of the metric.
+     * @return the mean moving range or NaN if there are less than two values.
+     */
+    public double getMeanMovingRange(final String metricKey) {
+        final MetricStatistics statistics = metricStatistics.get(metricKey);
+        return statistics != null && statistics.count > 1
+               ? statistics.movingRangeSum / (statistics.count - 1)
+               : Double.NaN;
+    }
+
+    /**
+     * Get the statistics of a metric, creating them if needed.
+     *
+     * @param metricKey the "category:code" key of the metric.
+     * @return the statistics.
+     */
+    private MetricStatistics getMetricStatistics(final String metricKey) {
+        MetricStatistics statistics = metricStatistics.get(metricKey);
+        if (statistics == null) {
+            statistics = new MetricStatistics();
+            metricStatistics.put(metricKey, statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * The running statistics of one metric.
+     */
+    private static class MetricStatistics {
+        /**
+         * The number of values.
+         */
+        private int count;
+
+        /**
+         * The mean of the values.
+         */
+        private double mean;
+
+        /**
+         * The sum of squared differences from the mean (Welford's M2).
+         */
+        private double squaredDifferenceSum;
+
+        /**
+         * The last value.
+         */
+        private double lastValue;
+
+        /**
+         * The sum of the absolute differences between consecutive values.
+         */
+        private double movingRangeSum;
+
+        /**
+         * The most recent deviations in standard deviations, as a ring buffer.
+         */
+        private final double[] recentDeviations = new double[HISTORY_LENGTH];
+
+        /**
+         * The number of deviations in the ring buffer.
+         */
+        private int recentDeviationCount;
+
+        /**
+         * The position in the ring buffer where the next deviation is stored.
+         */
+        private int recentDeviationPosition;
+
+        /**
+         * The violated rules per report index, as bits.
+         */
+        private int[] violations = new int[0];
+
+        /**
+         * The deviation per report index (NaN if not known).
+         */
+        private float[] deviations = new float[0];
+
+        /**
+         * Add a value: check it against the statistics of the earlier values and then update the statistics.
+         *
+         * @param reportIndex the index of the report.
+         * @param value the value.
+         */
+        private void add(final int reportIndex, final double value) {
+            if (reportIndex >= violations.length) {
+                final int newLength = Math.max(reportIndex + 1, violations.length * 2);
+                violations = Arrays.copyOf(violations, newLength);
+                final int oldLength = deviations.length;
+                deviations = Arrays.copyOf(deviations, newLength);
+                Arrays.fill(deviations, oldLength, newLength, Float.NaN);
+            }
+            final double standardDeviation = getStandardDeviation();
+            if (count >= BASELINE_COUNT && standardDeviation > 0) {
+                final double deviation = (value - mean) / standardDeviation;
+                addRecentDeviation(deviation);
+                deviations[reportIndex] = (float) deviation;
+                violations[reportIndex] = evaluateRules();
+            }
+            if (count > 0) {
+                movingRangeSum += Math.abs(value - lastValue);
+            }
+            lastValue = value;
+            count++;
+            final double delta = value - mean;
+            mean += delta / count;
+            squaredDifferenceSum += delta * (value - mean);
+        }
+
+        /**
+         * Get the sample standard deviation.
+         *
+         * @return the standard deviation or NaN if there are less than two values.
+         */
+        private double getStandardDeviation() {
+            return count > 1 ? Math.sqrt(squaredDifferenceSum / (count - 1)) : Double.NaN;
+        }
+
+        /**
+         * Add a deviation to the ring buffer.
+         *
+         * @param deviation the deviation.
+         */
+        private void addRecentDeviation(final double deviation) {
+            recentDeviations[recentDeviationPosition] = deviation;
+            recentDeviationPosition = (recentDeviationPosition + 1) % HISTORY_LENGTH;
+            recentDeviationCount = Math.min(recentDeviationCount + 1, HISTORY_LENGTH);
+        }
+
+        /**
+         * Get a recent deviation.
+         *
+         * @param age 0 for the latest deviation, 1 for the one before, and so on.
+         * @return the deviation.
+         */
+        private double getRecentDeviation(final int age) {
+            return recentDeviations[(recentDeviationPosition - 1 - age + 2 * HISTORY_LENGTH) % HISTORY_LENGTH];
+        }
+
+        /**
+         * Evaluate the Westgard rules for the latest deviation.
+         *
+         * @return the violated rules, as bits.
+         */
+        private int evaluateRules() {
+            final double latest = getRecentDeviation(0);
+            final double previous = recentDeviationCount > 1 ? getRecentDeviation(1) : 0;
+            int violationBits = 0;
+            if (Math.abs(latest) > 3) {
+                violationBits |= WestgardRule.RULE_1_3S.getBit();
+            }
+            if ((latest > 2 && previous > 2) || (latest < -2 && previous < -2)) {
+                violationBits |= WestgardRule.RULE_2_2S.getBit();
+            }
+            if ((latest > 2 && previous < -2) || (latest < -2 && previous > 2)) {
+                violationBits |= WestgardRule.RULE_R_4S.getBit();
+            }
+            if (isSameSide(4, 1)) {
+                violationBits |= WestgardRule.RULE_4_1S.getBit();
+            }
+            if (isSameSide(HISTORY_LENGTH, 0)) {
+                violationBits |= WestgardRule.RULE_10X.getBit();
+            }
+            return violationBits;
+        }
+
+        /**
+         * Check whether a number of recent deviations are all above a limit or all below minus the limit.
+         *
+         * @param length the number of recent deviations.
+         * @param limit the limit in standard deviations.
+         * @return whether the recent deviations are all on the same side beyond the limit.
+         */
+        private boolean isSameSide(final int length, final double limit) {
+            if (recentDeviationCount < length) {
+                return false;
+            }
+            boolean allAbove = true;
+            boolean allBelow = true;
+            for (int age = 0; age < length; age++) {
+                final double deviation = getRecentDeviation(age);
+                allAbove &= deviation > limit;
+                allBelow &= deviation < -limit;
+            }
+            return allAbove || allBelow;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.File;
+
+/**
+ * Listener interested in changes of a file that is monitored by the {@link FileChangeMonitor}.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public interface FileChangeListener {
+    /**
+     * Invoked once for each change of the file (a series of quick writes is reported as one change). The listener is
+     * called on the thread of the file change monitor.
+     *
+     * @param file the file that has changed (or that has been created or deleted).
+     */
+    void fileChanged(File file);
+}
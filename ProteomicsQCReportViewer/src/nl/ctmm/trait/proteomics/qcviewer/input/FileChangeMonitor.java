@@ -0,0 +1,483 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * This class monitors files (like the qc_status.log file of the QC pipeline) for changes and notifies the
+ * {@link FileChangeListener}s of each file. All monitoring runs on one shared scheduled thread, which can also be used
+ * for other periodic tasks (see {@link #scheduleWithFixedDelay(Runnable, long)}).
+ * <p/>
+ * The directories of the monitored files are registered with a <code>WatchService</code>, so changes are noticed
+ * quickly without reading the files. The events that arrive between two checks of the watch service are combined and
+ * a file is only reported as changed when its size, modification time or identity differ from the previous report, so
+ * the listeners receive a single event for each change.
+ * <p/>
+ * The files are also polled as a safety net: the watch service may not be supported or may miss changes that are made
+ * by other computers on a network drive. The poll interval adapts to the activity of the file: it is short after a
+ * change and doubles while the file does not change, up to the maximum poll interval. For files whose changes are
+ * reported by the watch service, polling is rare; when polling finds a change the watch service did not report, the
+ * file is polled with the requested interval from then on.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class FileChangeMonitor {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(FileChangeMonitor.class.getName());
+
+    /**
+     * The interval in milliseconds between checks of the watch service for events.
+     */
+    private static final long WATCH_CHECK_INTERVAL_MILLIS = 250;
+
+    /**
+     * The shortest poll interval in milliseconds, which is used right after a file has changed.
+     */
+    private static final long MIN_POLL_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The longest poll interval in milliseconds for files whose changes are reported by the watch service.
+     */
+    private static final long MAX_WATCHED_POLL_INTERVAL_MILLIS = 60000;
+
+    /**
+     * The singleton instance of this class.
+     */
+    private static final FileChangeMonitor INSTANCE = new FileChangeMonitor();
+
+    /**
+     * The executor that runs the monitoring tasks and the other periodic tasks on one thread.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The monitored files, with absolute paths as keys.
+     */
+    private final Map<Path, MonitoredFile> monitoredFiles = new HashMap<>();
+
+    /**
+     * The directories that are registered with the watch service.
+     */
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * The watch service or <code>null</code> if it has not been created (yet).
+     */
+    private WatchService watchService;
+
+    /**
+     * Whether the file system does not support a watch service, so all files are polled.
+     */
+    private boolean watchServiceUnsupported;
+
+    /**
+     * Create the file change monitor with its monitoring thread.
+     */
+    private FileChangeMonitor() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "File change monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the file change monitor instance.
+     *
+     * @return the file change monitor instance.
+     */
+    public static FileChangeMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start notifying a listener of changes of a file. The file does not have to exist yet: its creation is reported as
+     * a change.
+     *
+     * @param listener the listener to notify when the file has changed.
+     * @param fileName the name of the file to monitor.
+     * @param maxPollInterval the maximum interval in milliseconds between polls of the file when the watch service does
+     *                        not report its changes.
+     */
+    public synchronized void addFileChangeListener(final FileChangeListener listener, final String fileName,
+                                                   final long maxPollInterval) {
+        final Path path = getPath(fileName);
+        MonitoredFile monitoredFile = monitoredFiles.get(path);
+        if (monitoredFile == null) {
+            monitoredFile = new MonitoredFile(path, watchDirectory(path.getParent()),
+                                              Math.max(MIN_POLL_INTERVAL_MILLIS, maxPollInterval));
+            monitoredFiles.put(path, monitoredFile);
+            schedulePoll(monitoredFile);
+            logger.fine("Monitoring " + path + (monitoredFile.watched ? " with the watch service" : " by polling"));
+        }
+        if (!monitoredFile.listeners.contains(listener)) {
+            monitoredFile.listeners.add(listener);
+        }
+    }
+
+    /**
+     * Stop notifying a listener of changes of a file. The file is no longer monitored when it has no listeners left.
+     *
+     * @param listener the listener to remove.
+     * @param fileName the name of the monitored file.
+     */
+    public synchronized void removeFileChangeListener(final FileChangeListener listener, final String fileName) {
+        final Path path = getPath(fileName);
+        final MonitoredFile monitoredFile = monitoredFiles.get(path);
+        if (monitoredFile != null) {
+            monitoredFile.listeners.remove(listener);
+            if (monitoredFile.listeners.isEmpty()) {
+                monitoredFile.pollTask.cancel(false);
+                monitoredFiles.remove(path);
+            }
+        }
+    }
+
+    /**
+     * Run a task periodically on the monitoring thread. An exception thrown by the task is logged and does not stop
+     * later runs.
+     *
+     * @param task the task to run.
+     * @param delayMillis the delay in milliseconds before the first run and between the end of a run and the next run.
+     * @return the future that can be used to cancel the task.
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable task, final long delayMillis) {
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (final RuntimeException e) {
+                    logger.log(Level.SEVERE, "Something went wrong while running a scheduled task", e);
+                }
+            }
+        }, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the absolute path of a file name.
+     *
+     * @param fileName the file name.
+     * @return the absolute path.
+     */
+    private static Path getPath(final String fileName) {
+        return Paths.get(FilenameUtils.normalize(fileName)).toAbsolutePath();
+    }
+
+    /**
+     * Register a directory with the watch service, creating the watch service if needed.
+     *
+     * @param directory the directory.
+     * @return whether changes in the directory are reported by the watch service.
+     */
+    private boolean watchDirectory(final Path directory) {
+        if (directory == null || watchServiceUnsupported) {
+            return false;
+        }
+        if (watchedDirectories.containsValue(directory)) {
+            return true;
+        }
+        try {
+            if (watchService == null) {
+                watchService = directory.getFileSystem().newWatchService();
+                scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        processWatchEvents();
+                    }
+                }, WATCH_CHECK_INTERVAL_MILLIS);
+            }
+            watchedDirectories.put(directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                      StandardWatchEventKinds.ENTRY_MODIFY,
+                                                      StandardWatchEventKinds.ENTRY_DELETE),
+                                   directory);
+            return true;
+        } catch (final UnsupportedOperationException e) {
+            logger.log(Level.INFO, "The watch service is not supported; polling files for changes instead", e);
+            watchServiceUnsupported = true;
+        } catch (final IOException e) {
+            logger.log(Level.INFO, "Watching directory " + directory + " is not possible; polling files instead", e);
+        }
+        return false;
+    }
+
+    /**
+     * Process the events of the watch service that arrived since the previous call and check each monitored file that
+     * was involved once.
+     */
+    private void processWatchEvents() {
+        final Set<MonitoredFile> involvedFiles = new LinkedHashSet<>();
+        synchronized (this) {
+            if (watchService == null) {
+                return;
+            }
+            WatchKey key = watchService.poll();
+            while (key != null) {
+                final Path directory = watchedDirectories.get(key);
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (directory != null) {
+                        addInvolvedFiles(directory, event, involvedFiles);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+                key = watchService.poll();
+            }
+        }
+        for (final MonitoredFile monitoredFile : involvedFiles) {
+            checkFile(monitoredFile, true);
+        }
+    }
+
+    /**
+     * Add the monitored files that are involved in a watch event.
+     *
+     * @param directory the directory in which something happened.
+     * @param event the watch event.
+     * @param involvedFiles the set to which the involved files are added.
+     */
+    private void addInvolvedFiles(final Path directory, final WatchEvent<?> event,
+                                  final Set<MonitoredFile> involvedFiles) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            // Events were lost: check all files in the directory.
+            for (final MonitoredFile monitoredFile : monitoredFiles.values()) {
+                if (directory.equals(monitoredFile.path.getParent())) {
+                    involvedFiles.add(monitoredFile);
+                }
+            }
+        } else {
+            final MonitoredFile monitoredFile = monitoredFiles.get(directory.resolve((Path) event.context()));
+            if (monitoredFile != null) {
+                involvedFiles.add(monitoredFile);
+            }
+        }
+    }
+
+    /**
+     * Schedule the next poll of a file.
+     *
+     * @param monitoredFile the monitored file.
+     */
+    private synchronized void schedulePoll(final MonitoredFile monitoredFile) {
+        monitoredFile.pollTask = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                pollFile(monitoredFile);
+            }
+        }, monitoredFile.pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Poll a file for changes and schedule the next poll, with a short interval if the file has changed and a longer
+     * interval if it has not.
+     *
+     * @param monitoredFile the monitored file.
+     */
+    private void pollFile(final MonitoredFile monitoredFile) {
+        boolean changed = false;
+        try {
+            // Handle the pending events first, so changes that were reported are not mistaken for missed ones.
+            processWatchEvents();
+            changed = checkFile(monitoredFile, false);
+        } finally {
+            synchronized (this) {
+                if (monitoredFiles.get(monitoredFile.path) == monitoredFile) {
+                    final long maxPollInterval = monitoredFile.watched ? MAX_WATCHED_POLL_INTERVAL_MILLIS
+                                                                       : monitoredFile.maxPollInterval;
+                    monitoredFile.pollInterval = changed ? MIN_POLL_INTERVAL_MILLIS
+                                                         : Math.min(2 * monitoredFile.pollInterval, maxPollInterval);
+                    schedulePoll(monitoredFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a file has changed since the previous check and notify its listeners once if it has.
+     *
+     * @param monitoredFile the monitored file.
+     * @param eventReceived whether the check was caused by an event of the watch service.
+     * @return whether the file has changed.
+     */
+    private boolean checkFile(final MonitoredFile monitoredFile, final boolean eventReceived) {
+        final List<FileChangeListener> listeners;
+        synchronized (this) {
+            if (monitoredFiles.get(monitoredFile.path) != monitoredFile) {
+                return false;
+            }
+            final FileState state = FileState.read(monitoredFile.path);
+            if (state.equals(monitoredFile.state)) {
+                return false;
+            }
+            monitoredFile.state = state;
+            if (!eventReceived && monitoredFile.watched) {
+                logger.info("The watch service did not report a change of " + monitoredFile.path
+                            + "; polling it more often from now on.");
+                monitoredFile.watched = false;
+            }
+            listeners = new ArrayList<>(monitoredFile.listeners);
+        }
+        // The listeners are called without holding the lock, so they can add and remove listeners.
+        for (final FileChangeListener listener : listeners) {
+            try {
+                listener.fileChanged(monitoredFile.path.toFile());
+            } catch (final RuntimeException e) {
+                logger.log(Level.SEVERE, "Something went wrong while handling a change of " + monitoredFile.path, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A file that is monitored, with its listeners and the state that was reported last.
+     */
+    private static class MonitoredFile {
+        /**
+         * The absolute path of the file.
+         */
+        private final Path path;
+
+        /**
+         * The maximum interval in milliseconds between polls when the watch service does not report changes.
+         */
+        private final long maxPollInterval;
+
+        /**
+         * The listeners of the file.
+         */
+        private final List<FileChangeListener> listeners = new ArrayList<>();
+
+        /**
+         * Whether the changes of the file are reported by the watch service.
+         */
+        private boolean watched;
+
+        /**
+         * The state of the file when it was checked last.
+         */
+        private FileState state;
+
+        /**
+         * The current interval in milliseconds between polls.
+         */
+        private long pollInterval = MIN_POLL_INTERVAL_MILLIS;
+
+        /**
+         * The next poll of the file.
+         */
+        private ScheduledFuture<?> pollTask;
+
+        /**
+         * Create a monitored file and determine its current state.
+         *
+         * @param path the absolute path of the file.
+         * @param watched whether the changes of the file are reported by the watch service.
+         * @param maxPollInterval the maximum interval in milliseconds between polls when the watch service does not
+         *                        report changes.
+         */
+        private MonitoredFile(final Path path, final boolean watched, final long maxPollInterval) {
+            this.path = path;
+            this.watched = watched;
+            this.maxPollInterval = maxPollInterval;
+            this.state = FileState.read(path);
+        }
+    }
+
+    /**
+     * The state of a file that is compared to find out whether the file has changed: its identity (file key), size and
+     * modification time.
+     */
+    private static class FileState {
+        /**
+         * The state of a file that does not exist.
+         */
+        private static final FileState MISSING = new FileState(null, -1, -1);
+
+        /**
+         * The file key or <code>null</code> if the file system does not provide one.
+         */
+        private final Object fileKey;
+
+        /**
+         * The size of the file in bytes.
+         */
+        private final long size;
+
+        /**
+         * The modification time in milliseconds since the epoch.
+         */
+        private final long lastModified;
+
+        /**
+         * Create a file state.
+         *
+         * @param fileKey the file key or <code>null</code>.
+         * @param size the size of the file in bytes.
+         * @param lastModified the modification time in milliseconds since the epoch.
+         */
+        private FileState(final Object fileKey, final long size, final long lastModified) {
+            this.fileKey = fileKey;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Read the current state of a file.
+         *
+         * @param path the path of the file.
+         * @return the state of the file or {@link #MISSING} if it does not exist or cannot be read.
+         */
+        private static FileState read(final Path path) {
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileState(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (final IOException e) {
+                return MISSING;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof FileState)) {
+                return false;
+            }
+            final FileState otherState = (FileState) other;
+            return size == otherState.size && lastModified == otherState.lastModified
+                   && (fileKey == null ? otherState.fileKey == null : fileKey.equals(otherState.fileKey));
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (size ^ lastModified);
+        }
+    }
+}
@@ -1,36 +1,67 @@
 package nl.ctmm.trait.proteomics.qcviewer.input;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /**
  * The class for reading metrics values from json files.
+ * <p/>
+ * The json files are not turned into a tree of json objects. Instead, the parser streams the tokens to a content
+ * handler, which uses a lookup table from category and code to a slot number (the {@link MetricSchema}) that is built
+ * once from the metrics listing. Only the values of supported metrics are stored, directly into an array with one
+ * slot per metric, and the parsing stops as soon as all slots are filled.
+ * <p/>
+ * The json file contains one object per category, with one entry per metric code. The "generic:date" and
+ * "generic:runtime" values are strings; the other values are arrays with the description and the value.
  *
  * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
  * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
  */
 public class JsonMetricsReader {
+    /**
+     * The value of metrics that are not available in a json file.
+     */
+    public static final String NOT_AVAILABLE = MetricValues.NOT_AVAILABLE;
+
     /**
      * The logger for this class.
      */
     private static final Logger logger = Logger.getLogger(JsonMetricsReader.class.getName());
 
     /**
-     * The map with all metrics supported by the NIST QC pipeline. The keys are "category:code" strings and the values
-     * are descriptions of the metrics.
+     * The index of the value in the json arrays that contain the description and the value of a metric.
      */
-    private final Map<String, String> allMetricsMap;
+    private static final int ARRAY_VALUE_INDEX = 1;
+
+    /**
+     * The json parsers, one per thread. Reusing a parser also reuses the buffer of its lexer.
+     */
+    private static final ThreadLocal<JSONParser> PARSERS = new ThreadLocal<JSONParser>() {
+        @Override
+        protected JSONParser initialValue() {
+            return new JSONParser();
+        }
+    };
+
+    /**
+     * The schema of all metrics supported by the NIST QC pipeline, which gives the slot number of each metric and
+     * serves as lookup table from category and code to slot number.
+     */
+    private final MetricSchema metricSchema;
 
     /**
      * Read all supported metrics.
@@ -38,9 +69,28 @@ public class JsonMetricsReader {
      * @param metricsParser the metrics parser used to read the metrics definition file.
      */
     public JsonMetricsReader(final MetricsParser metricsParser) {
-        allMetricsMap = metricsParser.getMetricsListing();
+        metricSchema = MetricSchema.forKeys(metricsParser.getMetricsListing().keySet());
     }
-    
+
+    /**
+     * Get the schema of the supported metrics.
+     *
+     * @return the metric schema.
+     */
+    public MetricSchema getMetricSchema() {
+        return metricSchema;
+    }
+
+    /**
+     * Get the "category:code" keys of the supported metrics, in the order of the slots used by
+     * {@link #readJsonSlots(File, String[])}.
+     *
+     * @return the metric keys.
+     */
+    public List<String> getMetricKeys() {
+        return metricSchema.getKeys();
+    }
+
     /**
      * Read the QC parameters from the json file.
      *
@@ -49,38 +99,197 @@ public class JsonMetricsReader {
      */
     public Map<String, String> readJsonValues(final File jsonFile) {
         final Map<String, String> metricsValues = new HashMap<>();
-        try {
-            final JSONObject jsonObject = (JSONObject) new JSONParser().parse(new FileReader(jsonFile));
-            /* TODO: can we read the available metrics from the json file instead of using allMetricsMap? [Freek]
-            [Pravin] The json file does not always contain all the metrics and their values.
-            e.g. In case one of the pipeline stages do not work as expected (such as spectral search)
-            then corresponding metrics are not written to the json file. No metrics information 
-            will be written to the json file in case of erroneous RAW data. 
-            Hence I prefer to use allMetricsMap.  
-            */ 
-            for (final String key : allMetricsMap.keySet()) {
-                //Initialize metricsValues to N/A
-                String paramValue = "N/A";
-                //Split the key into jsonObject and parameters
-                final StringTokenizer keyTokenizer = new StringTokenizer(key, ":");
-                final String objectName = keyTokenizer.nextToken();
-                final String paramName = keyTokenizer.nextToken();
-                //Check whether json file contains object name
-                if (jsonObject.containsKey(objectName)) {
-                    final JSONObject jObject = (JSONObject) jsonObject.get(objectName);
-                    if (jObject.containsKey(paramName)) {
-                        if ("date".equals(paramName) || "runtime".equals(paramName)) {
-                            paramValue = (String) jObject.get(paramName);
-                        } else {
-                            paramValue = (String) ((JSONArray) jObject.get(paramName)).get(1);
-                        }
-                    }
-                }
-                metricsValues.put(key, paramValue);
+        final String[] slots = new String[metricSchema.size()];
+        /* The json file does not always contain all the metrics and their values. In case one of the pipeline stages
+           does not work as expected (such as spectral search), the corresponding metrics are not written to the json
+           file. Hence all supported metrics are returned, with "N/A" for the missing ones. */
+        if (readJsonSlots(jsonFile, slots)) {
+            for (int slot = 0; slot < slots.length; slot++) {
+                metricsValues.put(metricSchema.getKey(slot), slots[slot]);
             }
+        }
+        return metricsValues;
+    }
+
+    /**
+     * Read the QC parameters from the json file into the compact form that is kept per report.
+     *
+     * @param jsonFile the json file that contains the QC parameters.
+     * @return the metrics values; all metrics are missing if the file could not be read.
+     */
+    public MetricValues readMetricValues(final File jsonFile) {
+        final String[] slots = new String[metricSchema.size()];
+        if (!readJsonSlots(jsonFile, slots)) {
+            Arrays.fill(slots, NOT_AVAILABLE);
+        }
+        return MetricValues.fromSlots(metricSchema, slots);
+    }
+
+    /**
+     * Read the values of the supported metrics from the json file into an array with one slot per metric (see
+     * {@link #getMetricKeys()}). Slots of metrics that are missing in the json file are set to {@link #NOT_AVAILABLE}.
+     *
+     * @param jsonFile the json file that contains the QC parameters.
+     * @param slots the array to fill, with at least as many slots as there are supported metrics.
+     * @return whether the json file was read successfully.
+     */
+    public boolean readJsonSlots(final File jsonFile, final String[] slots) {
+        Arrays.fill(slots, 0, metricSchema.size(), NOT_AVAILABLE);
+        try (final Reader reader = new InputStreamReader(new FileInputStream(jsonFile), StandardCharsets.UTF_8)) {
+            PARSERS.get().parse(reader, new SlotContentHandler(slots));
+            return true;
         } catch (final IOException | ParseException e) {
             logger.log(Level.SEVERE, "Something went wrong while reading JSON file", e);
+            return false;
+        }
+    }
+
+    /**
+     * The content handler that stores the values of supported metrics in their slots.
+     */
+    private final class SlotContentHandler implements ContentHandler {
+        /**
+         * The depth of the objects and arrays of the value being parsed: 1 for the categories, 2 for the metrics in
+         * a category and 3 for the values in the array of a metric.
+         */
+        private int depth;
+
+        /**
+         * The codes of the current category or <code>null</code> if the category is not supported.
+         */
+        private Map<String, Integer> categoryCodes;
+
+        /**
+         * The slot of the current metric or -1 if the metric is not supported.
+         */
+        private int slot = -1;
+
+        /**
+         * Whether the value of the current metric is an array.
+         */
+        private boolean inValueArray;
+
+        /**
+         * The index of the current element in the array of the current metric.
+         */
+        private int arrayIndex;
+
+        /**
+         * The number of slots that have been filled.
+         */
+        private int filledCount;
+
+        /**
+         * The slots to fill.
+         */
+        private final String[] slots;
+
+        /**
+         * Create a content handler.
+         *
+         * @param slots the slots to fill.
+         */
+        private SlotContentHandler(final String[] slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void startJSON() {
+        }
+
+        @Override
+        public void endJSON() {
+        }
+
+        @Override
+        public boolean startObject() {
+            depth++;
+            return true;
+        }
+
+        @Override
+        public boolean endObject() {
+            endContainer();
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(final String key) {
+            if (depth == 1) {
+                categoryCodes = metricSchema.getCodeIndices(key);
+            } else if (depth == 2) {
+                final Integer codeSlot = categoryCodes != null ? categoryCodes.get(key) : null;
+                slot = codeSlot != null ? codeSlot : -1;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            if (depth == 1) {
+                categoryCodes = null;
+            } else if (depth == 2) {
+                slot = -1;
+            }
+            // Stop parsing when all supported metrics have been found.
+            return filledCount < metricSchema.size();
+        }
+
+        @Override
+        public boolean startArray() {
+            depth++;
+            if (depth == 3) {
+                inValueArray = true;
+                arrayIndex = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean endArray() {
+            if (depth == 3) {
+                inValueArray = false;
+            }
+            endContainer();
+            return true;
+        }
+
+        @Override
+        public boolean primitive(final Object value) {
+            if (slot >= 0) {
+                if (depth == 2) {
+                    setSlot(value);
+                } else if (depth == 3 && inValueArray && arrayIndex == ARRAY_VALUE_INDEX) {
+                    setSlot(value);
+                }
+            }
+            if (depth == 3) {
+                arrayIndex++;
+            }
+            return true;
+        }
+
+        /**
+         * Handle the end of an object or array: a nested value in the array of a metric counts as one element.
+         */
+        private void endContainer() {
+            depth--;
+            if (depth == 3) {
+                arrayIndex++;
+            }
+        }
+
+        /**
+         * Store the value of the current metric.
+         *
+         * @param value the value.
+         */
+        private void setSlot(final Object value) {
+            // A metric that occurs twice in the json file is only counted once.
+            if (slots[slot] == NOT_AVAILABLE) {
+                filledCount++;
+            }
+            slots[slot] = value != null ? value.toString() : null;
         }
-        return metricsValues;
     }
 }
@@ -0,0 +1,270 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.logging.Logger;
+
+/**
+ * The object of this class follows the end of a log file that only grows, like the qc_status.log file of the QC
+ * pipeline, and keeps track of its last non-empty line.
+ * <p/>
+ * The first time the file is read, blocks are read backwards from the end of the file until the last non-empty line
+ * has been found. After that, only the bytes that were appended since the previous read are read, so the cost of a
+ * read does not depend on the size of the file. The file is read from the end again when it has been truncated (it is
+ * smaller than before), rotated (it is a different file with the same name) or when too many bytes were appended to
+ * be worth reading.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class LogFileTail {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(LogFileTail.class.getName());
+
+    /**
+     * The number of bytes that are read at once when reading backwards from the end of the file.
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * The maximum number of appended bytes that are read; if more bytes were appended, the file is read from the end.
+     */
+    private static final int MAX_APPENDED_SIZE = 16 * BLOCK_SIZE;
+
+    /**
+     * The character set of the log file.
+     */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /**
+     * The log file.
+     */
+    private final Path logFile;
+
+    /**
+     * The identity of the file that was read last (its file key or creation time) or <code>null</code> if the file has
+     * not been read yet.
+     */
+    private Object fileIdentity;
+
+    /**
+     * The number of bytes of the file that have been read.
+     */
+    private long position;
+
+    /**
+     * The bytes after the last line separator that has been read: the start of a line that is still being written.
+     */
+    private byte[] partialLine = new byte[0];
+
+    /**
+     * The last non-empty complete line that has been read (trimmed).
+     */
+    private String lastCompleteLine = "";
+
+    /**
+     * Create a tail for a log file. The file is not read until {@link #readLastLine()} is called.
+     *
+     * @param logFile the log file.
+     */
+    public LogFileTail(final Path logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Get the log file.
+     *
+     * @return the log file.
+     */
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Read the bytes that were added to the log file since the previous call and return the last non-empty line.
+     *
+     * @return the last non-empty line of the log file (trimmed) or an empty string if there is none.
+     * @throws IOException if the log file does not exist or cannot be read.
+     */
+    public synchronized String readLastLine() throws IOException {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(logFile, BasicFileAttributes.class);
+            final Object identity = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+            try (final FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                final long size = channel.size();
+                if (fileIdentity == null || !fileIdentity.equals(identity) || size < position
+                    || size - position > MAX_APPENDED_SIZE) {
+                    if (fileIdentity != null) {
+                        logger.fine("Reading log file " + logFile + " from the end (size " + position + " -> " + size
+                                    + ")");
+                    }
+                    readFromEnd(channel, size);
+                } else if (size > position) {
+                    readAppended(channel, size);
+                }
+                fileIdentity = identity;
+                position = size;
+            }
+        } catch (final IOException e) {
+            fileIdentity = null;
+            throw e;
+        }
+        final String partialLineText = new String(partialLine, CHARSET).trim();
+        return partialLineText.length() > 0 ? partialLineText : lastCompleteLine;
+    }
+
+    /**
+     * Read blocks backwards from the end of the file until the last non-empty complete line has been found.
+     *
+     * @param channel the channel of the log file.
+     * @param size the size of the log file.
+     * @throws IOException if the log file cannot be read.
+     */
+    private void readFromEnd(final FileChannel channel, final long size) throws IOException {
+        byte[] data = new byte[0];
+        long start = size;
+        while (true) {
+            final long blockStart = Math.max(0, start - BLOCK_SIZE);
+            final byte[] block = read(channel, blockStart, (int) (start - blockStart));
+            final byte[] newData = new byte[block.length + data.length];
+            System.arraycopy(block, 0, newData, 0, block.length);
+            System.arraycopy(data, 0, newData, block.length, data.length);
+            data = newData;
+            start = blockStart;
+            final int lastSeparator = lastIndexOf(data, data.length, '\n');
+            if (lastSeparator >= 0) {
+                // Unless the start of the file has been reached, the first line of the data may be incomplete.
+                final int firstLineStart = start == 0 ? 0 : indexOf(data, '\n') + 1;
+                final String lastLine = firstLineStart <= lastSeparator
+                                        ? getLastNonEmptyLine(data, firstLineStart, lastSeparator) : "";
+                if (lastLine.length() > 0 || start == 0) {
+                    lastCompleteLine = lastLine;
+                    partialLine = copy(data, lastSeparator + 1, data.length);
+                    return;
+                }
+            } else if (start == 0) {
+                lastCompleteLine = "";
+                partialLine = data;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read the bytes that were appended to the file since the previous read.
+     *
+     * @param channel the channel of the log file.
+     * @param size the size of the log file.
+     * @throws IOException if the log file cannot be read.
+     */
+    private void readAppended(final FileChannel channel, final long size) throws IOException {
+        final ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+        dataStream.write(partialLine);
+        dataStream.write(read(channel, position, (int) (size - position)));
+        final byte[] data = dataStream.toByteArray();
+        final int lastSeparator = lastIndexOf(data, data.length, '\n');
+        if (lastSeparator >= 0) {
+            final String lastLine = getLastNonEmptyLine(data, 0, lastSeparator);
+            if (lastLine.length() > 0) {
+                lastCompleteLine = lastLine;
+            }
+        }
+        partialLine = copy(data, lastSeparator + 1, data.length);
+    }
+
+    /**
+     * Read a range of bytes from a file.
+     *
+     * @param channel the channel of the file.
+     * @param start the position of the first byte.
+     * @param length the number of bytes.
+     * @return the bytes (fewer than requested if the file ends earlier).
+     * @throws IOException if the file cannot be read.
+     */
+    private static byte[] read(final FileChannel channel, final long start, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        int bytesRead = 0;
+        while (buffer.hasRemaining() && bytesRead >= 0) {
+            bytesRead = channel.read(buffer, start + buffer.position());
+        }
+        return copy(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * Get the last line in a range of bytes that is not empty after trimming.
+     *
+     * @param data the bytes.
+     * @param start the start of the range.
+     * @param end the end of the range (exclusive).
+     * @return the last non-empty line (trimmed) or an empty string if all lines are empty.
+     */
+    private static String getLastNonEmptyLine(final byte[] data, final int start, final int end) {
+        int lineEnd = end;
+        while (lineEnd > start) {
+            final int lineStart = lastIndexOf(data, lineEnd, '\n') + 1;
+            final int from = Math.max(start, lineStart);
+            final String line = new String(data, from, lineEnd - from, CHARSET).trim();
+            if (line.length() > 0) {
+                return line;
+            }
+            lineEnd = from - 1;
+        }
+        return "";
+    }
+
+    /**
+     * Find the first occurrence of a byte.
+     *
+     * @param data the bytes to search.
+     * @param value the byte to find.
+     * @return the index of the first occurrence or -1 if the byte does not occur.
+     */
+    private static int indexOf(final byte[] data, final char value) {
+        for (int index = 0; index < data.length; index++) {
+            if (data[index] == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the last occurrence of a byte before an index.
+     *
+     * @param data the bytes to search.
+     * @param end the index after the last byte to search.
+     * @param value the byte to find.
+     * @return the index of the last occurrence or -1 if the byte does not occur.
+     */
+    private static int lastIndexOf(final byte[] data, final int end, final char value) {
+        for (int index = end - 1; index >= 0; index--) {
+            if (data[index] == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy a range of bytes.
+     *
+     * @param data the bytes.
+     * @param start the start of the range.
+     * @param end the end of the range (exclusive).
+     * @return a new array with the bytes in the range.
+     */
+    private static byte[] copy(final byte[] data, final int start, final int end) {
+        final byte[] result = new byte[end - start];
+        System.arraycopy(data, start, result, 0, result.length);
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The object of this class gives each supported metric ("category:code" key) an index, which is used to store the
+ * metrics values of a report in arrays (see {@link MetricValues}).
+ * <p/>
+ * Schemas are not cached here: the {@link JsonMetricsReader} creates one schema for the metrics listing, and all reports
+ * it reads refer to that schema.
+ * <p/>
+ * The schema also knows the type of each metric, which determines how the value is turned into a number that can be
+ * compared (see {@link MetricValues#getNumber(int)}).
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public final class MetricSchema {
+    /**
+     * The key of the date and time at which the QC processing of the RAW data file started.
+     */
+    public static final String DATE_KEY = "generic:date";
+
+    /**
+     * The key of the time taken by the QC processing.
+     */
+    public static final String RUNTIME_KEY = "generic:runtime";
+
+    /**
+     * The key of the number of MS1 spectra.
+     */
+    public static final String MS1_SPECTRA_KEY = "generic:ms1_spectra";
+
+    /**
+     * The key of the number of MS2 spectra.
+     */
+    public static final String MS2_SPECTRA_KEY = "generic:ms2_spectra";
+
+    /**
+     * The type of the values of a metric.
+     */
+    public enum ValueType {
+        /**
+         * A decimal number.
+         */
+        NUMBER,
+
+        /**
+         * A count that may be followed by other text, like "22298 (22298)".
+         */
+        COUNT,
+
+        /**
+         * A date and time like "2013/Jul/07 - 10:00", which is compared as milliseconds since the epoch.
+         */
+        DATE,
+
+        /**
+         * A duration like "0:30:12" (hours, minutes and seconds), which is compared as a number of seconds.
+         */
+        DURATION
+    }
+
+    /**
+     * The separator between the category and the code in a metric key.
+     */
+    private static final char KEY_SEPARATOR = ':';
+
+    /**
+     * The metric keys in index order (sorted).
+     */
+    private final List<String> keys;
+
+    /**
+     * The value type per metric, in index order.
+     */
+    private final ValueType[] valueTypes;
+
+    /**
+     * The index per metric key.
+     */
+    private final Map<String, Integer> keyIndices;
+
+    /**
+     * The index per code, per category.
+     */
+    private final Map<String, Map<String, Integer>> categoryCodeIndices;
+
+    /**
+     * Create a schema.
+     *
+     * @param sortedKeys the metric keys in index order.
+     */
+    private MetricSchema(final Set<String> sortedKeys) {
+        keys = Collections.unmodifiableList(new ArrayList<>(sortedKeys));
+        valueTypes = new ValueType[keys.size()];
+        keyIndices = new HashMap<>();
+        categoryCodeIndices = new HashMap<>();
+        for (int index = 0; index < keys.size(); index++) {
+            final String key = keys.get(index);
+            valueTypes[index] = getValueType(key);
+            keyIndices.put(key, index);
+            final int separatorIndex = key.indexOf(KEY_SEPARATOR);
+            if (separatorIndex >= 0) {
+                final String category = key.substring(0, separatorIndex);
+                if (!categoryCodeIndices.containsKey(category)) {
+                    categoryCodeIndices.put(category, new HashMap<String, Integer>());
+                }
+                categoryCodeIndices.get(category).put(key.substring(separatorIndex + 1), index);
+            }
+        }
+    }
+
+    /**
+     * Create a schema for a set of metric keys.
+     *
+     * @param metricKeys the "category:code" keys of the metrics.
+     * @return the new schema.
+     */
+    public static MetricSchema forKeys(final Collection<String> metricKeys) {
+        return new MetricSchema(new TreeSet<>(metricKeys));
+    }
+
+    /**
+     * Get the number of metrics.
+     *
+     * @return the number of metrics.
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Get the metric keys in index order.
+     *
+     * @return the metric keys.
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Get the metric key with a specific index.
+     *
+     * @param index the index.
+     * @return the metric key.
+     */
+    public String getKey(final int index) {
+        return keys.get(index);
+    }
+
+    /**
+     * Get the index of a metric.
+     *
+     * @param key the "category:code" key of the metric.
+     * @return the index or -1 if the metric is not in this schema.
+     */
+    public int getIndex(final String key) {
+        final Integer index = keyIndices.get(key);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Get the value type of a metric.
+     *
+     * @param index the index of the metric.
+     * @return the value type.
+     */
+    public ValueType getValueType(final int index) {
+        return valueTypes[index];
+    }
+
+    /**
+     * Get the value type of a metric.
+     *
+     * @param key the "category:code" key of the metric.
+     * @return the value type.
+     */
+    public static ValueType getValueType(final String key) {
+        switch (key) {
+            case DATE_KEY:
+                return ValueType.DATE;
+            case RUNTIME_KEY:
+                return ValueType.DURATION;
+            case MS1_SPECTRA_KEY:
+            case MS2_SPECTRA_KEY:
+                return ValueType.COUNT;
+            default:
+                return ValueType.NUMBER;
+        }
+    }
+
+    /**
+     * Get the indices of the metrics in a category.
+     *
+     * @param category the category.
+     * @return the index per code or <code>null</code> if there are no metrics in this category.
+     */
+    public Map<String, Integer> getCodeIndices(final String category) {
+        return categoryCodeIndices.get(category);
+    }
+}
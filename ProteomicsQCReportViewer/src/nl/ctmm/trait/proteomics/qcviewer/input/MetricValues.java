@@ -0,0 +1,338 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The object of this class contains the metrics values of one report in a compact form: a <code>double</code> per metric
+ * of the shared {@link MetricSchema} and a bit set with the metrics that are present. Only values that are not numbers
+ * (like dates and run times), or numbers that would be written differently by {@link #formatNumber(double)}, are kept
+ * as strings.
+ * <p/>
+ * The <code>double</code> per metric is parsed once, according to the value type of the metric, so it can be used as
+ * sort key without parsing strings again: dates become milliseconds since the epoch, run times a number of seconds and
+ * spectra counts like "22298 (22298)" the leading count.
+ * <p/>
+ * {@link #getValue(String)} returns the same strings as the metrics.json file contains, and "N/A" for metrics that are
+ * missing.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public final class MetricValues {
+    /**
+     * The value of metrics that are not available.
+     */
+    public static final String NOT_AVAILABLE = "N/A";
+
+    /**
+     * The largest absolute value that is formatted without a fraction or exponent.
+     */
+    private static final double MAX_INTEGER_VALUE = 1e15;
+
+    /**
+     * The format of the "generic:date" values, one per thread since date formats are not thread safe.
+     */
+    private static final ThreadLocal<DateFormat> DATE_FORMATS = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat("yyyy/MMM/dd - HH:mm", Locale.US);
+        }
+    };
+
+    /**
+     * The number of seconds in a minute and the number of minutes in an hour.
+     */
+    private static final int SIXTY = 60;
+
+    /**
+     * No text values.
+     */
+    private static final int[] NO_TEXT_INDICES = new int[0];
+
+    /**
+     * No text values.
+     */
+    private static final String[] NO_TEXT_VALUES = new String[0];
+
+    /**
+     * The schema that gives the index of each metric.
+     */
+    private final MetricSchema schema;
+
+    /**
+     * The numeric value per metric, or NaN if the value is not a number.
+     */
+    private final double[] numbers;
+
+    /**
+     * The metrics that are present.
+     */
+    private final BitSet present;
+
+    /**
+     * The sorted indices of the metrics with a text value.
+     */
+    private final int[] textIndices;
+
+    /**
+     * The text values, in the same order as <code>textIndices</code>.
+     */
+    private final String[] textValues;
+
+    /**
+     * Create metrics values.
+     *
+     * @param schema the schema that gives the index of each metric.
+     * @param numbers the numeric value per metric.
+     * @param present the metrics that are present.
+     * @param textIndices the sorted indices of the metrics with a text value.
+     * @param textValues the text values.
+     */
+    private MetricValues(final MetricSchema schema, final double[] numbers, final BitSet present,
+                         final int[] textIndices, final String[] textValues) {
+        this.schema = schema;
+        this.numbers = numbers;
+        this.present = present;
+        this.textIndices = textIndices;
+        this.textValues = textValues;
+    }
+
+    /**
+     * Create metrics values from an array with a string value per metric.
+     *
+     * @param schema the schema that gives the index of each metric.
+     * @param slots the string value per metric; <code>null</code> and "N/A" mean that a metric is missing.
+     * @return the metrics values.
+     */
+    public static MetricValues fromSlots(final MetricSchema schema, final String[] slots) {
+        final double[] numbers = new double[schema.size()];
+        final BitSet present = new BitSet(schema.size());
+        int[] textIndices = NO_TEXT_INDICES;
+        String[] textValues = NO_TEXT_VALUES;
+        int textCount = 0;
+        for (int index = 0; index < schema.size(); index++) {
+            final String value = slots[index];
+            numbers[index] = Double.NaN;
+            if (value != null && !NOT_AVAILABLE.equals(value)) {
+                present.set(index);
+                numbers[index] = parseTypedValue(value, schema.getValueType(index));
+                if (Double.isNaN(numbers[index]) || !formatNumber(numbers[index]).equals(value)) {
+                    if (textCount == textIndices.length) {
+                        textIndices = Arrays.copyOf(textIndices, textCount + 4);
+                        textValues = Arrays.copyOf(textValues, textCount + 4);
+                    }
+                    textIndices[textCount] = index;
+                    textValues[textCount] = value;
+                    textCount++;
+                }
+            }
+        }
+        if (textCount < textIndices.length) {
+            textIndices = Arrays.copyOf(textIndices, textCount);
+            textValues = Arrays.copyOf(textValues, textCount);
+        }
+        return new MetricValues(schema, numbers, present, textIndices, textValues);
+    }
+
+    /**
+     * Create metrics values from a map. Keys that are not in the schema are ignored.
+     *
+     * @param schema the schema that gives the index of each metric.
+     * @param metricsValues the map with "category:code" keys and the metrics values.
+     * @return the metrics values.
+     */
+    public static MetricValues fromMap(final MetricSchema schema, final Map<String, String> metricsValues) {
+        final String[] slots = new String[schema.size()];
+        for (final Map.Entry<String, String> entry : metricsValues.entrySet()) {
+            final int index = schema.getIndex(entry.getKey());
+            if (index >= 0) {
+                slots[index] = entry.getValue();
+            }
+        }
+        return fromSlots(schema, slots);
+    }
+
+    /**
+     * Get the schema that gives the index of each metric.
+     *
+     * @return the schema.
+     */
+    public MetricSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Check whether a metric is present.
+     *
+     * @param index the index of the metric.
+     * @return whether the metric is present.
+     */
+    public boolean isPresent(final int index) {
+        return present.get(index);
+    }
+
+    /**
+     * Get the numeric value of a metric, which is parsed according to the value type of the metric.
+     *
+     * @param index the index of the metric.
+     * @return the numeric value or NaN if the metric is missing or could not be parsed.
+     */
+    public double getNumber(final int index) {
+        return numbers[index];
+    }
+
+    /**
+     * Get the value of a metric as it was read.
+     *
+     * @param key the "category:code" key of the metric.
+     * @return the value or "N/A" if the metric is missing.
+     */
+    public String getValue(final String key) {
+        final int index = schema.getIndex(key);
+        return index >= 0 ? getValue(index) : NOT_AVAILABLE;
+    }
+
+    /**
+     * Get the value of a metric as it was read.
+     *
+     * @param index the index of the metric.
+     * @return the value or "N/A" if the metric is missing.
+     */
+    public String getValue(final int index) {
+        if (!present.get(index)) {
+            return NOT_AVAILABLE;
+        }
+        final int textPosition = Arrays.binarySearch(textIndices, index);
+        return textPosition >= 0 ? textValues[textPosition] : formatNumber(numbers[index]);
+    }
+
+    /**
+     * Create a map with all metrics of the schema and their values ("N/A" for missing metrics).
+     *
+     * @return the map with metrics values.
+     */
+    public Map<String, String> toMap() {
+        final Map<String, String> metricsValues = new HashMap<>();
+        for (int index = 0; index < schema.size(); index++) {
+            metricsValues.put(schema.getKey(index), getValue(index));
+        }
+        return metricsValues;
+    }
+
+    /**
+     * Parse a value according to its type.
+     *
+     * @param value the value.
+     * @param valueType the type of the value.
+     * @return the numeric value or NaN if the value could not be parsed.
+     */
+    static double parseTypedValue(final String value, final MetricSchema.ValueType valueType) {
+        switch (valueType) {
+            case COUNT:
+                return parseCount(value);
+            case DATE:
+                return parseDate(value);
+            case DURATION:
+                return parseDuration(value);
+            default:
+                return parseNumber(value);
+        }
+    }
+
+    /**
+     * Parse a count that may be followed by other text, like "22298 (22298)".
+     *
+     * @param value the value.
+     * @return the count or NaN if the value does not start with a number.
+     */
+    private static double parseCount(final String value) {
+        final double number = parseNumber(value);
+        if (!Double.isNaN(number)) {
+            return number;
+        }
+        int digitCount = 0;
+        while (digitCount < value.length() && value.charAt(digitCount) >= '0' && value.charAt(digitCount) <= '9') {
+            digitCount++;
+        }
+        return digitCount > 0 ? parseNumber(value.substring(0, digitCount)) : Double.NaN;
+    }
+
+    /**
+     * Parse a date and time like "2013/Jul/07 - 10:00".
+     *
+     * @param value the value.
+     * @return the milliseconds since the epoch or NaN if the value is not a date.
+     */
+    private static double parseDate(final String value) {
+        final Date date = DATE_FORMATS.get().parse(value, new ParsePosition(0));
+        return date != null ? date.getTime() : Double.NaN;
+    }
+
+    /**
+     * Parse a duration like "0:30:12" (hours, minutes and seconds) or "30:12" (minutes and seconds).
+     *
+     * @param value the value.
+     * @return the number of seconds or NaN if the value is not a duration.
+     */
+    private static double parseDuration(final String value) {
+        double seconds = 0;
+        int partStart = 0;
+        while (partStart <= value.length()) {
+            int partEnd = value.indexOf(':', partStart);
+            if (partEnd < 0) {
+                partEnd = value.length();
+            }
+            final double part = parseNumber(value.substring(partStart, partEnd).trim());
+            if (Double.isNaN(part)) {
+                return Double.NaN;
+            }
+            seconds = seconds * SIXTY + part;
+            partStart = partEnd + 1;
+        }
+        return seconds;
+    }
+
+    /**
+     * Parse a number, without throwing exceptions for values that are clearly not numbers.
+     *
+     * @param value the value.
+     * @return the number or NaN if the value is not a number.
+     */
+    static double parseNumber(final String value) {
+        if (value.isEmpty()) {
+            return Double.NaN;
+        }
+        for (int charIndex = 0; charIndex < value.length(); charIndex++) {
+            final char character = value.charAt(charIndex);
+            if (!(character >= '0' && character <= '9') && character != '.' && character != '-' && character != '+'
+                && character != 'e' && character != 'E') {
+                return Double.NaN;
+            }
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Format a number: integers without fraction and other numbers like {@link Double#toString(double)}.
+     *
+     * @param number the number.
+     * @return the formatted number.
+     */
+    static String formatNumber(final double number) {
+        return number == Math.rint(number) && Math.abs(number) < MAX_INTEGER_VALUE
+               ? Long.toString((long) number)
+               : Double.toString(number);
+    }
+}
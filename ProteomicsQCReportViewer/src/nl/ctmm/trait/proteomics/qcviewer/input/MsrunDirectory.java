@@ -0,0 +1,162 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The object of this class describes one msrun directory found by the {@link ReportDirectoryScanner}: the location of
+ * the directory and of the QC files in it, together with the file attributes that were read while scanning. Since the
+ * attributes are read once during the scan, they can be passed on without asking the file system again.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class MsrunDirectory {
+    /**
+     * The name of the file with the QC metrics.
+     */
+    public static final String METRICS_FILE_NAME = "metrics.json";
+
+    /**
+     * The suffix of the name of the file with the TIC matrix.
+     */
+    public static final String TIC_MATRIX_FILE_SUFFIX = "_ticmatrix.csv";
+
+    /**
+     * The path of the msrun directory.
+     */
+    private final Path path;
+
+    /**
+     * The index of the month directory (0 for January) that contains this msrun directory.
+     */
+    private final int monthIndex;
+
+    /**
+     * The last modification time of the msrun directory in milliseconds since the epoch.
+     */
+    private final long lastModified;
+
+    /**
+     * The metrics.json file or <code>null</code> if it is missing.
+     */
+    private Path metricsFile;
+
+    /**
+     * The attributes of the metrics.json file or <code>null</code> if it is missing.
+     */
+    private BasicFileAttributes metricsFileAttributes;
+
+    /**
+     * The *_ticmatrix.csv file or <code>null</code> if it is missing.
+     */
+    private Path ticMatrixFile;
+
+    /**
+     * The attributes of the *_ticmatrix.csv file or <code>null</code> if it is missing.
+     */
+    private BasicFileAttributes ticMatrixFileAttributes;
+
+    /**
+     * Create an msrun directory description.
+     *
+     * @param path the path of the msrun directory.
+     * @param monthIndex the index of the month directory (0 for January) that contains this msrun directory.
+     * @param attributes the attributes of the msrun directory.
+     */
+    public MsrunDirectory(final Path path, final int monthIndex, final BasicFileAttributes attributes) {
+        this.path = path;
+        this.monthIndex = monthIndex;
+        this.lastModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Register a data file that was found in this msrun directory. Files other than the metrics.json and
+     * *_ticmatrix.csv files are ignored.
+     *
+     * @param file the data file.
+     * @param attributes the attributes of the data file.
+     */
+    void addDataFile(final Path file, final BasicFileAttributes attributes) {
+        final String fileName = file.getFileName().toString();
+        if (METRICS_FILE_NAME.equals(fileName)) {
+            metricsFile = file;
+            metricsFileAttributes = attributes;
+        } else if (fileName.endsWith(TIC_MATRIX_FILE_SUFFIX)) {
+            ticMatrixFile = file;
+            ticMatrixFileAttributes = attributes;
+        }
+    }
+
+    /**
+     * Get the path of the msrun directory.
+     *
+     * @return the path of the msrun directory.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get the msrun name, which is the name of the msrun directory.
+     *
+     * @return the msrun name.
+     */
+    public String getMsrunName() {
+        return path.getFileName().toString();
+    }
+
+    /**
+     * Get the index of the month directory (0 for January) that contains this msrun directory.
+     *
+     * @return the month index.
+     */
+    public int getMonthIndex() {
+        return monthIndex;
+    }
+
+    /**
+     * Get the last modification time of the msrun directory.
+     *
+     * @return the last modification time in milliseconds since the epoch.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get the metrics.json file.
+     *
+     * @return the metrics.json file or <code>null</code> if it is missing.
+     */
+    public Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Get the attributes of the metrics.json file.
+     *
+     * @return the attributes of the metrics.json file or <code>null</code> if it is missing.
+     */
+    public BasicFileAttributes getMetricsFileAttributes() {
+        return metricsFileAttributes;
+    }
+
+    /**
+     * Get the *_ticmatrix.csv file.
+     *
+     * @return the *_ticmatrix.csv file or <code>null</code> if it is missing.
+     */
+    public Path getTicMatrixFile() {
+        return ticMatrixFile;
+    }
+
+    /**
+     * Get the attributes of the *_ticmatrix.csv file.
+     *
+     * @return the attributes of the *_ticmatrix.csv file or <code>null</code> if it is missing.
+     */
+    public BasicFileAttributes getTicMatrixFileAttributes() {
+        return ticMatrixFileAttributes;
+    }
+}
@@ -1,17 +1,13 @@
 package nl.ctmm.trait.proteomics.qcviewer.input;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.StringTokenizer;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +23,10 @@ import org.apache.commons.lang.time.DurationFormatUtils;
  * 2013-06-04 13:40:01.165000    QE2_101109_OPL0004_TSV_mousecelllineL_Q1_2.raw    running
  * 2013-06-04 13:40:01.191000    QE2_101109_OPL0004_TSV_mousecelllineL_Q1_2.raw    completed
  *
+ * The log file grows with every msrun, so only its end is read, by a {@link LogFileTail}. The log file is only read when
+ * the {@link FileChangeMonitor} reports a change; in between, the status is refreshed from the last line that was read
+ * to keep the time since the last log entry up to date.
+ *
  * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
  * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
  */
@@ -62,9 +62,20 @@ public class ProgressLogReader implements FileChangeListener {
     private File logFile;
 
     /**
-     * The timer used for checking the log file at regular intervals.
+     * The tail of the log file, which keeps track of its last line, or <code>null</code> if the log file has not been
+     * read yet.
+     */
+    private LogFileTail logFileTail;
+
+    /**
+     * The last non-empty line that was read from the log file or <code>null</code> if the log file could not be read.
+     */
+    private String lastLine;
+
+    /**
+     * The task that refreshes the pipeline status at regular intervals.
      */
-    private Timer timer; 
+    private ScheduledFuture<?> statusRefreshTask;
 
     /**
      * Constructor.
@@ -73,7 +84,8 @@ public class ProgressLogReader implements FileChangeListener {
     }
     
     /**
-     * Parses the current status from the log file and initiate a timer to monitor changes in the log file.
+     * Parses the current status from the log file and schedules a task on the file change monitor thread that refreshes
+     * the status at regular intervals. Changes of the log file itself are reported via {@link #fileChanged(File)}.
      *
      * @param progressLogFilePath path to the progress log file.
      */
@@ -81,13 +93,15 @@ public class ProgressLogReader implements FileChangeListener {
         logFile = new File(FilenameUtils.normalize(progressLogFilePath));
         parseCurrentStatus(logFile);
         logger.fine("Current QC Pipeline Status: " + currentStatus);
-        if (timer != null) {
-            timer.cancel();
+        if (statusRefreshTask != null) {
+            statusRefreshTask.cancel(false);
         }
-        // Create a timer and run the timer thread as daemon.
-        timer = new Timer(true);
-        final StatusMonitorTask task = new StatusMonitorTask();
-        timer.schedule(task, Constants.POLL_INTERVAL_PIPELINE_LOG, Constants.POLL_INTERVAL_PIPELINE_LOG);
+        statusRefreshTask = FileChangeMonitor.getInstance().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                pushPipelineStatus();
+            }
+        }, Constants.POLL_INTERVAL_PIPELINE_LOG);
     }
 
     /**
@@ -118,24 +132,34 @@ public class ProgressLogReader implements FileChangeListener {
     }
     
     /**
-     * Push the current pipeline status to the Main class.
+     * Push the current pipeline status to the Main class. The status is derived again from the last line that was read,
+     * without reading the log file.
      */
     public void pushPipelineStatus() {
-        parseCurrentStatus(logFile);
+        updateCurrentStatus(logFile);
         Main.getInstance().notifyUpdatePipelineStatus(currentStatus);
     }
 
     /**
      * Parse the current pipeline status from the log file.
      *
+     * @param logFile the log file to parse.
+     */
+    private void parseCurrentStatus(final File logFile) {
+        lastLine = getLastLine(logFile);
+        updateCurrentStatus(logFile);
+    }
+
+    /**
+     * Determine the current pipeline status from the last line that was read from the log file.
+     *
      * Examples of how last lines could look:
      * 2013-05-28 11:11:52.617000    data01QE2_yymmdd_OPLnnnn_DescriptionOfResearchProject.raw    running
      * 2013-05-28 13:04:16.180000    QE1_yymmdd_OPLmmmm_AndYetAnotherResearchProject.raw    completed
      *
-     * @param logFile the log file to parse.
+     * @param logFile the log file the last line was read from.
      */
-    private void parseCurrentStatus(final File logFile) {
-        final String lastLine = getLastLine(logFile);
+    private void updateCurrentStatus(final File logFile) {
         // Hopefully not the Y2K problem!!!!
         if (lastLine != null && lastLine.startsWith("20")) {
             try {
@@ -168,30 +192,23 @@ public class ProgressLogReader implements FileChangeListener {
     }
 
     /**
-     * Retrieve the last line from the log file.
+     * Retrieve the last non-empty line from the log file. Only the bytes that were appended since the previous call are
+     * read.
      *
      * @param logFile the log file to parse.
-     * @return the last line read from the file.
+     * @return the last line read from the file or <code>null</code> if the file could not be read.
      */
-    private String getLastLine(final File logFile) {
-        String lastLine = "";
+    private synchronized String getLastLine(final File logFile) {
+        if (logFileTail == null || !logFileTail.getLogFile().equals(logFile.toPath())) {
+            logFileTail = new LogFileTail(logFile.toPath());
+        }
         try {
-            final InputStreamReader streamReader = new InputStreamReader(new FileInputStream(logFile));
-            final BufferedReader bufferedReader = new BufferedReader(streamReader);
-            //Also check for empty lines and white spaces
-            while (bufferedReader.ready()) {
-                final String thisLine = bufferedReader.readLine().trim();
-                if (thisLine.length() > 0) {
-                    lastLine = thisLine;
-                }
-            }
-            bufferedReader.close();
+            return logFileTail.readLastLine();
         } catch (final IOException e) {
             logger.log(Level.SEVERE, "Something went wrong while reading logfile "
                                      + FilenameUtils.normalize(logFile.getAbsolutePath()));
-            lastLine = null;
+            return null;
         }
-        return lastLine != null ? lastLine.trim() : lastLine;
     }
 
     /**
@@ -221,7 +238,8 @@ public class ProgressLogReader implements FileChangeListener {
     }
 
     /**
-     * TODO: check whether this can be removed (if frequently polling the log file is good enough).
+     * The log file has changed: read the new status and notify the Main class. This is called by the file change
+     * monitor once for each change.
      *
      * @param logFile the log file that has changed.
      */
@@ -232,14 +250,4 @@ public class ProgressLogReader implements FileChangeListener {
         logger.fine("Now current status is " + getCurrentStatus());
         Main.getInstance().notifyProgressLogFileChanged(getCurrentStatus());
     }
-    
-    /**
-     * File monitoring task.
-     */
-    private class StatusMonitorTask extends TimerTask {
-        @Override
-        public void run() {
-            pushPipelineStatus();
-        }
-    }
 }
@@ -0,0 +1,578 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * This class contains the persistent catalog of QC reports that have been read before.
+ * <p/>
+ * The catalog is stored as a json file in the root directory. For every msrun directory it records the sizes and
+ * modification times of the metrics.json and *_ticmatrix.csv files, the metrics values and the TIC summary. When the
+ * directory is scanned again and these attributes are unchanged, the metrics values are taken from the catalog instead
+ * of reading and parsing the metrics.json file again. The modification time of the msrun directory itself is not used,
+ * since it also changes when other files are added to or removed from the directory. Entries for msrun directories
+ * that no longer exist are removed before the catalog is saved, so the catalog does not keep growing. Entries for
+ * msrun directories outside the date range of a scan are kept, so changing the date range does not read them again.
+ * <p/>
+ * A catalog file that cannot be read, that was written by another catalog version or that was written for another set
+ * of supported metrics is ignored and rebuilt from scratch. The catalog file is replaced atomically, so a viewer that is
+ * stopped while saving the catalog cannot leave a half written file behind.
+ * <p/>
+ * The entries can be read and updated by multiple threads at the same time.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportCatalog {
+    /**
+     * The name of the catalog file in the root directory.
+     */
+    public static final String CATALOG_FILE_NAME = "qc_report_catalog.json";
+
+    /**
+     * The version of the catalog file format. Increase this number when the format changes, so old catalog files are
+     * rebuilt.
+     */
+    public static final int CATALOG_VERSION = 2;
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(ReportCatalog.class.getName());
+
+    /**
+     * The character set of the catalog file.
+     */
+    private static final Charset CATALOG_CHARSET = StandardCharsets.UTF_8;
+
+    /**
+     * The value used for the size and modification time of a missing file.
+     */
+    private static final long MISSING_FILE = -1;
+
+    /**
+     * The json key for the catalog version.
+     */
+    private static final String VERSION_KEY = "version";
+
+    /**
+     * The json key for the fingerprint of the supported metrics.
+     */
+    private static final String METRICS_FINGERPRINT_KEY = "metricsFingerprint";
+
+    /**
+     * The json key for the catalog entries.
+     */
+    private static final String ENTRIES_KEY = "entries";
+
+    /**
+     * The json key for the size of a metrics.json file.
+     */
+    private static final String METRICS_SIZE_KEY = "metricsSize";
+
+    /**
+     * The json key for the modification time of a metrics.json file.
+     */
+    private static final String METRICS_MODIFIED_KEY = "metricsModified";
+
+    /**
+     * The json key for the size of a *_ticmatrix.csv file.
+     */
+    private static final String TIC_MATRIX_SIZE_KEY = "ticMatrixSize";
+
+    /**
+     * The json key for the modification time of a *_ticmatrix.csv file.
+     */
+    private static final String TIC_MATRIX_MODIFIED_KEY = "ticMatrixModified";
+
+    /**
+     * The json key for the metrics values.
+     */
+    private static final String METRICS_VALUES_KEY = "metrics";
+
+    /**
+     * The json key for the TIC summary.
+     */
+    private static final String TIC_SUMMARY_KEY = "ticSummary";
+
+    /**
+     * The json key for the number of points in the TIC graph.
+     */
+    private static final String POINT_COUNT_KEY = "pointCount";
+
+    /**
+     * The json key for the lowest retention time in the TIC graph.
+     */
+    private static final String MIN_RETENTION_TIME_KEY = "minRetentionTime";
+
+    /**
+     * The json key for the highest retention time in the TIC graph.
+     */
+    private static final String MAX_RETENTION_TIME_KEY = "maxRetentionTime";
+
+    /**
+     * The json key for the maximum intensity in the TIC graph.
+     */
+    private static final String MAX_INTENSITY_KEY = "maxIntensity";
+
+    /**
+     * The root directory that contains the year directories.
+     */
+    private final Path rootDirectory;
+
+    /**
+     * The fingerprint of the supported metrics: cached metrics values are only valid for the same set of metrics.
+     */
+    private final String metricsFingerprint;
+
+    /**
+     * The catalog entries. The keys are the paths of the msrun directories relative to the root directory.
+     */
+    private final ConcurrentMap<String, CatalogEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the catalog has been changed since it was loaded or saved.
+     */
+    private volatile boolean modified;
+
+    /**
+     * Create an empty catalog.
+     *
+     * @param rootDirectory the root directory that contains the year directories.
+     * @param supportedMetrics the keys of the metrics that are read from the metrics.json files.
+     */
+    ReportCatalog(final Path rootDirectory, final Set<String> supportedMetrics) {
+        this.rootDirectory = rootDirectory;
+        this.metricsFingerprint = createMetricsFingerprint(supportedMetrics);
+    }
+
+    /**
+     * Load the catalog of a root directory. If the catalog file does not exist or cannot be used, an empty catalog is
+     * returned, which will be filled while the reports are read.
+     *
+     * @param rootDirectory the root directory that contains the year directories.
+     * @param supportedMetrics the keys of the metrics that are read from the metrics.json files.
+     * @return the catalog.
+     */
+    public static ReportCatalog load(final Path rootDirectory, final Set<String> supportedMetrics) {
+        final ReportCatalog catalog = new ReportCatalog(rootDirectory, supportedMetrics);
+        final Path catalogFile = catalog.getCatalogFile();
+        if (Files.isRegularFile(catalogFile)) {
+            try (final Reader reader = Files.newBufferedReader(catalogFile, CATALOG_CHARSET)) {
+                catalog.readCatalog((JSONObject) new JSONParser().parse(reader));
+            } catch (final IOException | ParseException | ClassCastException e) {
+                logger.log(Level.WARNING, "Ignoring unreadable report catalog " + catalogFile, e);
+                catalog.entries.clear();
+                catalog.modified = true;
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Get the location of the catalog file.
+     *
+     * @return the catalog file.
+     */
+    public Path getCatalogFile() {
+        return rootDirectory.resolve(CATALOG_FILE_NAME);
+    }
+
+    /**
+     * Get the number of entries in the catalog.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the catalog entry for an msrun directory, if its data files are unchanged since the entry was stored.
+     *
+     * @param msrunDirectory the msrun directory.
+     * @return the catalog entry or <code>null</code> if there is no up to date entry.
+     */
+    public CatalogEntry getEntry(final MsrunDirectory msrunDirectory) {
+        final CatalogEntry entry = entries.get(getKey(msrunDirectory));
+        return entry != null && entry.matches(msrunDirectory) ? entry : null;
+    }
+
+    /**
+     * Store the data read from an msrun directory in the catalog.
+     *
+     * @param msrunDirectory the msrun directory.
+     * @param metricsValues the metrics values or <code>null</code> if the metrics.json file is missing.
+     * @param ticSummary the TIC summary or <code>null</code> if the TIC graph is missing or empty.
+     */
+    public void putEntry(final MsrunDirectory msrunDirectory, final Map<String, String> metricsValues,
+                         final TicSummary ticSummary) {
+        entries.put(getKey(msrunDirectory), new CatalogEntry(msrunDirectory, metricsValues, ticSummary));
+        modified = true;
+    }
+
+    /**
+     * Remove the entries for msrun directories that no longer exist. The msrun directories that were found by the
+     * latest scan exist, so only the directories of the other entries are checked.
+     *
+     * @param visitedDirectories the msrun directories that were found by the latest scan.
+     */
+    public void removeDeletedEntries(final Collection<MsrunDirectory> visitedDirectories) {
+        final Set<String> visitedKeys = new HashSet<>();
+        for (final MsrunDirectory msrunDirectory : visitedDirectories) {
+            visitedKeys.add(getKey(msrunDirectory));
+        }
+        int removedCount = 0;
+        for (final String key : entries.keySet()) {
+            if (!visitedKeys.contains(key) && !Files.isDirectory(rootDirectory.resolve(key))) {
+                entries.remove(key);
+                removedCount++;
+            }
+        }
+        if (removedCount > 0) {
+            modified = true;
+            logger.fine("Removed " + removedCount + " entries from report catalog " + getCatalogFile());
+        }
+    }
+
+    /**
+     * Save the catalog to the catalog file if it has been changed. The catalog is written to a temporary file first,
+     * which then replaces the catalog file.
+     */
+    public void save() {
+        if (!modified) {
+            return;
+        }
+        final Path catalogFile = getCatalogFile();
+        Path temporaryFile = null;
+        try {
+            temporaryFile = Files.createTempFile(rootDirectory, CATALOG_FILE_NAME, ".tmp");
+            try (final Writer writer = Files.newBufferedWriter(temporaryFile, CATALOG_CHARSET)) {
+                writeCatalog().writeJSONString(writer);
+            }
+            try {
+                Files.move(temporaryFile, catalogFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, catalogFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            modified = false;
+            logger.fine("Saved " + entries.size() + " entries in report catalog " + catalogFile);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Saving report catalog " + catalogFile + " failed", e);
+            deleteTemporaryFile(temporaryFile);
+        }
+    }
+
+    /**
+     * Delete the temporary file after saving the catalog failed.
+     *
+     * @param temporaryFile the temporary file or <code>null</code> if it was not created.
+     */
+    private void deleteTemporaryFile(final Path temporaryFile) {
+        if (temporaryFile != null) {
+            try {
+                Files.deleteIfExists(temporaryFile);
+            } catch (final IOException e) {
+                logger.log(Level.FINE, "Deleting temporary file " + temporaryFile + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Get the key of an msrun directory: its path relative to the root directory, with forward slashes.
+     *
+     * @param msrunDirectory the msrun directory.
+     * @return the key.
+     */
+    private String getKey(final MsrunDirectory msrunDirectory) {
+        final StringBuilder key = new StringBuilder();
+        for (final Path name : rootDirectory.relativize(msrunDirectory.getPath())) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(name.toString());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Create a fingerprint of the supported metrics.
+     *
+     * @param supportedMetrics the keys of the supported metrics.
+     * @return the fingerprint.
+     */
+    private static String createMetricsFingerprint(final Set<String> supportedMetrics) {
+        final Set<String> sortedMetrics = new TreeSet<>(supportedMetrics);
+        return sortedMetrics.size() + "-" + Integer.toHexString(sortedMetrics.toString().hashCode());
+    }
+
+    /**
+     * Fill the catalog with the entries from a json object. If the json object was written by another catalog version
+     * or for another set of supported metrics, the catalog stays empty.
+     *
+     * @param catalogObject the json object read from the catalog file.
+     */
+    private void readCatalog(final JSONObject catalogObject) {
+        final Object version = catalogObject.get(VERSION_KEY);
+        if (!(version instanceof Number) || ((Number) version).intValue() != CATALOG_VERSION
+            || !metricsFingerprint.equals(catalogObject.get(METRICS_FINGERPRINT_KEY))) {
+            logger.info("Rebuilding report catalog " + getCatalogFile() + " (version " + version + ")");
+            modified = true;
+            return;
+        }
+        final JSONObject entriesObject = (JSONObject) catalogObject.get(ENTRIES_KEY);
+        if (entriesObject != null) {
+            for (final Object key : entriesObject.keySet()) {
+                try {
+                    entries.put((String) key, CatalogEntry.fromJson((JSONObject) entriesObject.get(key)));
+                } catch (final ClassCastException | NullPointerException e) {
+                    logger.log(Level.FINE, "Ignoring invalid report catalog entry " + key, e);
+                    modified = true;
+                }
+            }
+        }
+        logger.fine("Loaded " + entries.size() + " entries from report catalog " + getCatalogFile());
+    }
+
+    /**
+     * Create a json object with the complete catalog.
+     *
+     * @return the json object.
+     */
+    @SuppressWarnings("unchecked")
+    private JSONObject writeCatalog() {
+        final JSONObject entriesObject = new JSONObject();
+        for (final Map.Entry<String, CatalogEntry> entry : entries.entrySet()) {
+            entriesObject.put(entry.getKey(), entry.getValue().toJson());
+        }
+        final JSONObject catalogObject = new JSONObject();
+        catalogObject.put(VERSION_KEY, CATALOG_VERSION);
+        catalogObject.put(METRICS_FINGERPRINT_KEY, metricsFingerprint);
+        catalogObject.put(ENTRIES_KEY, entriesObject);
+        return catalogObject;
+    }
+
+    /**
+     * Get a long value from a json object.
+     *
+     * @param jsonObject the json object.
+     * @param key the key of the value.
+     * @return the long value.
+     */
+    private static long getLong(final JSONObject jsonObject, final String key) {
+        return ((Number) jsonObject.get(key)).longValue();
+    }
+
+    /**
+     * Get a double value from a json object.
+     *
+     * @param jsonObject the json object.
+     * @param key the key of the value.
+     * @return the double value.
+     */
+    private static double getDouble(final JSONObject jsonObject, final String key) {
+        return ((Number) jsonObject.get(key)).doubleValue();
+    }
+
+    /**
+     * The object of this class contains the data the catalog has for one msrun directory.
+     */
+    public static final class CatalogEntry {
+        /**
+         * The size of the metrics.json file or <code>-1</code>.
+         */
+        private final long metricsSize;
+
+        /**
+         * The modification time of the metrics.json file or <code>-1</code>.
+         */
+        private final long metricsModified;
+
+        /**
+         * The size of the *_ticmatrix.csv file or <code>-1</code>.
+         */
+        private final long ticMatrixSize;
+
+        /**
+         * The modification time of the *_ticmatrix.csv file or <code>-1</code>.
+         */
+        private final long ticMatrixModified;
+
+        /**
+         * The metrics values or <code>null</code> if the metrics.json file is missing.
+         */
+        private final Map<String, String> metricsValues;
+
+        /**
+         * The TIC summary or <code>null</code> if the TIC graph is missing or empty.
+         */
+        private final TicSummary ticSummary;
+
+        /**
+         * Create a catalog entry for an msrun directory.
+         *
+         * @param msrunDirectory the msrun directory.
+         * @param metricsValues the metrics values or <code>null</code> if the metrics.json file is missing.
+         * @param ticSummary the TIC summary or <code>null</code> if the TIC graph is missing or empty.
+         */
+        private CatalogEntry(final MsrunDirectory msrunDirectory, final Map<String, String> metricsValues,
+                             final TicSummary ticSummary) {
+            this(getSize(msrunDirectory.getMetricsFileAttributes()),
+                 getModified(msrunDirectory.getMetricsFileAttributes()),
+                 getSize(msrunDirectory.getTicMatrixFileAttributes()),
+                 getModified(msrunDirectory.getTicMatrixFileAttributes()),
+                 metricsValues != null ? new HashMap<>(metricsValues) : null, ticSummary);
+        }
+
+        /**
+         * Create a catalog entry.
+         *
+         * @param metricsSize the size of the metrics.json file.
+         * @param metricsModified the modification time of the metrics.json file.
+         * @param ticMatrixSize the size of the *_ticmatrix.csv file.
+         * @param ticMatrixModified the modification time of the *_ticmatrix.csv file.
+         * @param metricsValues the metrics values.
+         * @param ticSummary the TIC summary.
+         */
+        private CatalogEntry(final long metricsSize, final long metricsModified, final long ticMatrixSize,
+                             final long ticMatrixModified, final Map<String, String> metricsValues,
+                             final TicSummary ticSummary) {
+            this.metricsSize = metricsSize;
+            this.metricsModified = metricsModified;
+            this.ticMatrixSize = ticMatrixSize;
+            this.ticMatrixModified = ticMatrixModified;
+            this.metricsValues = metricsValues;
+            this.ticSummary = ticSummary;
+        }
+
+        /**
+         * Get the metrics values.
+         *
+         * @return the metrics values or <code>null</code> if the metrics.json file is missing.
+         */
+        public Map<String, String> getMetricsValues() {
+            return metricsValues;
+        }
+
+        /**
+         * Get the TIC summary.
+         *
+         * @return the TIC summary or <code>null</code> if the TIC graph is missing or empty.
+         */
+        public TicSummary getTicSummary() {
+            return ticSummary;
+        }
+
+        /**
+         * Check whether this entry is up to date for an msrun directory.
+         *
+         * @param msrunDirectory the msrun directory.
+         * @return whether the data files of the msrun directory are unchanged.
+         */
+        private boolean matches(final MsrunDirectory msrunDirectory) {
+            final BasicFileAttributes metricsAttributes = msrunDirectory.getMetricsFileAttributes();
+            final BasicFileAttributes ticMatrixAttributes = msrunDirectory.getTicMatrixFileAttributes();
+            return metricsSize == getSize(metricsAttributes) && metricsModified == getModified(metricsAttributes)
+                   && ticMatrixSize == getSize(ticMatrixAttributes)
+                   && ticMatrixModified == getModified(ticMatrixAttributes);
+        }
+
+        /**
+         * Get the size of a file.
+         *
+         * @param attributes the attributes of the file or <code>null</code> if the file is missing.
+         * @return the size or <code>-1</code>.
+         */
+        private static long getSize(final BasicFileAttributes attributes) {
+            return attributes != null ? attributes.size() : MISSING_FILE;
+        }
+
+        /**
+         * Get the modification time of a file.
+         *
+         * @param attributes the attributes of the file or <code>null</code> if the file is missing.
+         * @return the modification time in milliseconds since the epoch or <code>-1</code>.
+         */
+        private static long getModified(final BasicFileAttributes attributes) {
+            return attributes != null ? attributes.lastModifiedTime().toMillis() : MISSING_FILE;
+        }
+
+        /**
+         * Create a catalog entry from a json object.
+         *
+         * @param entryObject the json object.
+         * @return the catalog entry.
+         */
+        private static CatalogEntry fromJson(final JSONObject entryObject) {
+            Map<String, String> metricsValues = null;
+            final JSONObject metricsObject = (JSONObject) entryObject.get(METRICS_VALUES_KEY);
+            if (metricsObject != null) {
+                metricsValues = new HashMap<>();
+                for (final Object key : metricsObject.keySet()) {
+                    metricsValues.put((String) key, (String) metricsObject.get(key));
+                }
+            }
+            TicSummary ticSummary = null;
+            final JSONObject ticSummaryObject = (JSONObject) entryObject.get(TIC_SUMMARY_KEY);
+            if (ticSummaryObject != null) {
+                ticSummary = new TicSummary((int) getLong(ticSummaryObject, POINT_COUNT_KEY),
+                                            getDouble(ticSummaryObject, MIN_RETENTION_TIME_KEY),
+                                            getDouble(ticSummaryObject, MAX_RETENTION_TIME_KEY),
+                                            getDouble(ticSummaryObject, MAX_INTENSITY_KEY));
+            }
+            return new CatalogEntry(getLong(entryObject, METRICS_SIZE_KEY), getLong(entryObject, METRICS_MODIFIED_KEY),
+                                    getLong(entryObject, TIC_MATRIX_SIZE_KEY),
+                                    getLong(entryObject, TIC_MATRIX_MODIFIED_KEY), metricsValues, ticSummary);
+        }
+
+        /**
+         * Create a json object for this catalog entry.
+         *
+         * @return the json object.
+         */
+        @SuppressWarnings("unchecked")
+        private JSONObject toJson() {
+            final JSONObject entryObject = new JSONObject();
+            entryObject.put(METRICS_SIZE_KEY, metricsSize);
+            entryObject.put(METRICS_MODIFIED_KEY, metricsModified);
+            entryObject.put(TIC_MATRIX_SIZE_KEY, ticMatrixSize);
+            entryObject.put(TIC_MATRIX_MODIFIED_KEY, ticMatrixModified);
+            if (metricsValues != null) {
+                final JSONObject metricsObject = new JSONObject();
+                metricsObject.putAll(metricsValues);
+                entryObject.put(METRICS_VALUES_KEY, metricsObject);
+            }
+            if (ticSummary != null) {
+                final JSONObject ticSummaryObject = new JSONObject();
+                ticSummaryObject.put(POINT_COUNT_KEY, ticSummary.getPointCount());
+                ticSummaryObject.put(MIN_RETENTION_TIME_KEY, ticSummary.getMinRetentionTime());
+                ticSummaryObject.put(MAX_RETENTION_TIME_KEY, ticSummary.getMaxRetentionTime());
+                ticSummaryObject.put(MAX_INTENSITY_KEY, ticSummary.getMaxIntensity());
+                entryObject.put(TIC_SUMMARY_KEY, ticSummaryObject);
+            }
+            return entryObject;
+        }
+    }
+}
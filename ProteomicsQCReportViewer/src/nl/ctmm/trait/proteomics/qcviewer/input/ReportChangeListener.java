@@ -0,0 +1,18 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.List;
+
+/**
+ * Listener interested in QC reports that are created or modified while the viewer is running.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public interface ReportChangeListener {
+    /**
+     * Invoked when one or more msrun directories have been created or modified and their reports have been read.
+     *
+     * @param reportUnits the report units that were read, without a meaningful report number.
+     */
+    void reportsChanged(List<ReportUnit> reportUnits);
+}
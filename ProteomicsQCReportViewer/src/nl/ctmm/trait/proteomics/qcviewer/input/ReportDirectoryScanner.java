@@ -0,0 +1,488 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import nl.ctmm.trait.proteomics.qcviewer.utils.Constants;
+
+/**
+ * This class scans the year/month/msrun directory structure written by the QC pipeline.
+ * <p/>
+ * The scanner uses <code>Files.walkFileTree</code>, which reads the attributes of every directory entry once (on
+ * Windows they even come with the directory listing) and passes them to the visitor. The year, month and msrun levels
+ * and the data files in the msrun directories are recognized using these attributes, without separate calls like
+ * <code>isFile</code>, <code>isDirectory</code> and <code>lastModified</code> that each cost a round trip to the
+ * (network) file system.
+ * <p/>
+ * Year and month directories whose names show that they cannot contain msrun directories within the date range are
+ * skipped completely, so the time needed for a scan depends on the size of the date range and not on the size of the
+ * archive. The QC pipeline puts each msrun directory in the year and month directories of the time it processed the
+ * msrun (in UTC) and does not modify the msrun directory afterwards, so the modification time of an msrun directory
+ * falls within the period of its month directory (with a margin of a day for time zone differences).
+ * <p/>
+ * One scanner can be used by multiple threads to scan different year directories at the same time.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportDirectoryScanner {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(ReportDirectoryScanner.class.getName());
+
+    /**
+     * The names of the month directories, in chronological order.
+     */
+    public static final List<String> MONTH_DIRS = Arrays.asList(
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    );
+
+    /**
+     * The pattern for the names of the year directories: four digits.
+     */
+    private static final Pattern YEAR_DIRECTORY_PATTERN = Pattern.compile("[0-9][0-9][0-9][0-9]");
+
+    /**
+     * Follow symbolic links, like the <code>java.io.File</code> methods used to do.
+     */
+    private static final Set<FileVisitOption> VISIT_OPTIONS = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+
+    /**
+     * The depth of the data files below a year directory (year/month/msrun/file).
+     */
+    private static final int DATA_FILE_DEPTH = 3;
+
+    /**
+     * The number of stat calls the old <code>java.io.File</code> based reader made for a year level entry that is a
+     * directory (<code>isFile</code> and <code>isDirectory</code>).
+     */
+    private static final int LEGACY_YEAR_DIRECTORY_STAT_CALLS = 2;
+
+    /**
+     * The number of stat calls the old reader made for an msrun level entry that is a directory
+     * (<code>isDirectory</code> and <code>lastModified</code>).
+     */
+    private static final int LEGACY_MSRUN_DIRECTORY_STAT_CALLS = 2;
+
+    /**
+     * The number of stat calls the old reader made for a data file (<code>isFile</code> while checking the available
+     * files and again while creating the report unit).
+     */
+    private static final int LEGACY_DATA_FILE_STAT_CALLS = 2;
+
+    /**
+     * The number of stat calls the old reader made for a directory inside an msrun directory (two times
+     * <code>isFile</code> and once <code>isDirectory</code>).
+     */
+    private static final int LEGACY_DATA_DIRECTORY_STAT_CALLS = 3;
+
+    /**
+     * The margin in days around the period of a year or month directory. The QC pipeline uses UTC time to name the
+     * directories, while modification times are compared to the date range in the local time zone.
+     */
+    private static final int DIRECTORY_PERIOD_MARGIN_DAYS = 1;
+
+    /**
+     * Comparator that sorts msrun directories on month and name.
+     */
+    private static final Comparator<MsrunDirectory> MSRUN_DIRECTORY_COMPARATOR = new Comparator<MsrunDirectory>() {
+        @Override
+        public int compare(final MsrunDirectory directory1, final MsrunDirectory directory2) {
+            final int monthComparison = Integer.compare(directory1.getMonthIndex(), directory2.getMonthIndex());
+            return monthComparison != 0
+                   ? monthComparison
+                   : directory1.getMsrunName().compareTo(directory2.getMsrunName());
+        }
+    };
+
+    /**
+     * The start of the date range to search.
+     */
+    private final Date fromDate;
+
+    /**
+     * The end of the date range to search.
+     */
+    private final Date tillDate;
+
+    /**
+     * The end of the date range as an exclusive bound: the start of the day after <code>tillDate</code>.
+     */
+    private final long rangeEndExclusive;
+
+    /**
+     * Every thread gets its own copy of {@link Constants#DATE_FORMAT}, since <code>SimpleDateFormat</code> objects are
+     * not thread-safe.
+     */
+    private final ThreadLocal<DateFormat> threadDateFormat = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return (DateFormat) Constants.DATE_FORMAT.clone();
+        }
+    };
+
+    /**
+     * The number of directory entries visited, which is also the maximum number of attribute reads done.
+     */
+    private final AtomicLong visitedEntryCount = new AtomicLong();
+
+    /**
+     * The number of stat calls the old <code>java.io.File</code> based reader would have made for the same entries.
+     */
+    private final AtomicLong legacyStatCallCount = new AtomicLong();
+
+    /**
+     * The number of year and month directories that were skipped because they are outside the date range.
+     */
+    private final AtomicLong prunedDirectoryCount = new AtomicLong();
+
+    /**
+     * Create a scanner for the msrun directories that were modified within a date range.
+     *
+     * @param fromDate the start of the date range to search.
+     * @param tillDate the end of the date range to search.
+     */
+    public ReportDirectoryScanner(final Date fromDate, final Date tillDate) {
+        this.fromDate = fromDate;
+        this.tillDate = tillDate;
+        final Calendar rangeEnd = Calendar.getInstance();
+        rangeEnd.setTime(tillDate);
+        rangeEnd.add(Calendar.DAY_OF_MONTH, 1);
+        rangeEndExclusive = rangeEnd.getTimeInMillis();
+    }
+
+    /**
+     * Find the year directories in the root directory that can contain msrun directories within the date range.
+     *
+     * @param rootDirectory the root directory that contains the year directories.
+     * @return the year directories, sorted on name.
+     */
+    public List<Path> findYearDirectories(final Path rootDirectory) {
+        final List<Path> yearDirectories = new ArrayList<>();
+        if (Files.isDirectory(rootDirectory)) {
+            // With a maximum depth of one, all entries in the root directory are passed to visitFile.
+            walk(rootDirectory, 1, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                    countEntry(attributes.isDirectory() ? LEGACY_YEAR_DIRECTORY_STAT_CALLS : 1);
+                    final String fileName = file.getFileName().toString();
+                    if (attributes.isDirectory() && isYearDirectoryName(fileName)) {
+                        if (overlapsDateRange(Integer.parseInt(fileName), -1)) {
+                            yearDirectories.add(file);
+                        } else {
+                            prunedDirectoryCount.incrementAndGet();
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        Collections.sort(yearDirectories);
+        return yearDirectories;
+    }
+
+    /**
+     * Find the msrun directories in a year directory that were modified within the date range, together with their
+     * data files.
+     *
+     * @param yearDirectory the year directory to search.
+     * @return the msrun directories, sorted on month and msrun name.
+     */
+    public List<MsrunDirectory> scanYearDirectory(final Path yearDirectory) {
+        logger.fine("Year = " + yearDirectory.getFileName());
+        final List<MsrunDirectory> msrunDirectories = new ArrayList<>();
+        walk(yearDirectory, DATA_FILE_DEPTH, new YearDirectoryVisitor(yearDirectory, msrunDirectories));
+        Collections.sort(msrunDirectories, MSRUN_DIRECTORY_COMPARATOR);
+        return msrunDirectories;
+    }
+
+    /**
+     * Read a single msrun directory (year/month/msrun) and its data files, regardless of the date range. This is used
+     * for msrun directories that are created or modified while the viewer is running.
+     *
+     * @param msrunPath the msrun directory.
+     * @return the msrun directory or <code>null</code> if it is not a directory in a month directory.
+     */
+    public MsrunDirectory scanMsrunDirectory(final Path msrunPath) {
+        final Path monthDirectory = msrunPath.getParent();
+        final int monthIndex = monthDirectory != null && monthDirectory.getFileName() != null
+                               ? MONTH_DIRS.indexOf(monthDirectory.getFileName().toString())
+                               : -1;
+        final List<MsrunDirectory> msrunDirectories = new ArrayList<>();
+        if (monthIndex != -1) {
+            walk(msrunPath, 1, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+                    countEntry(LEGACY_MSRUN_DIRECTORY_STAT_CALLS);
+                    msrunDirectories.add(new MsrunDirectory(directory, monthIndex, attributes));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                    if (!msrunDirectories.isEmpty()) {
+                        countEntry(attributes.isDirectory()
+                                   ? LEGACY_DATA_DIRECTORY_STAT_CALLS
+                                   : LEGACY_DATA_FILE_STAT_CALLS);
+                        if (attributes.isRegularFile()) {
+                            msrunDirectories.get(0).addDataFile(file, attributes);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException exception) {
+                    // The directory may have been removed in the meantime.
+                    logger.log(Level.FINE, "Could not read " + file, exception);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return !msrunDirectories.isEmpty() ? msrunDirectories.get(0) : null;
+    }
+
+    /**
+     * Get the number of directory entries visited by this scanner. Each entry costs at most one attribute read.
+     *
+     * @return the number of visited entries.
+     */
+    public long getVisitedEntryCount() {
+        return visitedEntryCount.get();
+    }
+
+    /**
+     * Get the number of stat calls saved compared to the old <code>java.io.File</code> based reader, which made
+     * separate <code>isFile</code>, <code>isDirectory</code> and <code>lastModified</code> calls.
+     *
+     * @return the number of stat calls saved.
+     */
+    public long getStatCallsSaved() {
+        return legacyStatCallCount.get() - visitedEntryCount.get();
+    }
+
+    /**
+     * Get the number of year and month directories that were skipped because they are outside the date range.
+     *
+     * @return the number of skipped year and month directories.
+     */
+    public long getPrunedDirectoryCount() {
+        return prunedDirectoryCount.get();
+    }
+
+    /**
+     * Log how many stat calls were saved by this scanner.
+     *
+     * @param rootDirectory the root directory that was scanned.
+     */
+    public void logStatistics(final Path rootDirectory) {
+        logger.fine(String.format("Scanned %s: visited %d entries with at most one attribute read each, saving %d of "
+                                  + "the %d stat calls the old reader would have made. Skipped %d year and month "
+                                  + "directories outside the date range.", rootDirectory, getVisitedEntryCount(),
+                                  getStatCallsSaved(), legacyStatCallCount.get(), getPrunedDirectoryCount()));
+    }
+
+    /**
+     * Check whether a directory name is a year directory name (four digits).
+     *
+     * @param directoryName the directory name.
+     * @return whether the directory name is a year directory name.
+     */
+    static boolean isYearDirectoryName(final String directoryName) {
+        return YEAR_DIRECTORY_PATTERN.matcher(directoryName).matches();
+    }
+
+    /**
+     * Check whether the period of a year or month directory overlaps with the date range.
+     *
+     * @param year the year.
+     * @param monthIndex the index of the month (0 for January) or -1 to check the whole year.
+     * @return whether the period of the directory overlaps with the date range.
+     */
+    private boolean overlapsDateRange(final int year, final int monthIndex) {
+        final Calendar periodStart = Calendar.getInstance();
+        periodStart.clear();
+        periodStart.set(year, monthIndex != -1 ? monthIndex : Calendar.JANUARY, 1);
+        final Calendar periodEnd = (Calendar) periodStart.clone();
+        periodEnd.add(monthIndex != -1 ? Calendar.MONTH : Calendar.YEAR, 1);
+        periodStart.add(Calendar.DAY_OF_MONTH, -DIRECTORY_PERIOD_MARGIN_DAYS);
+        periodEnd.add(Calendar.DAY_OF_MONTH, DIRECTORY_PERIOD_MARGIN_DAYS);
+        return periodStart.getTimeInMillis() < rangeEndExclusive && periodEnd.getTimeInMillis() > fromDate.getTime();
+    }
+
+    /**
+     * Check whether a modification time falls within the date range. The time of day is ignored.
+     *
+     * @param lastModified the modification time in milliseconds since the epoch.
+     * @return whether the modification time falls within the date range.
+     */
+    private boolean isInDateRange(final long lastModified) {
+        final DateFormat dateFormat = threadDateFormat.get();
+        Date date = new Date(lastModified);
+        try {
+            date = dateFormat.parse(dateFormat.format(date));
+        } catch (final ParseException e) {
+            logger.log(Level.SEVERE, "Something went wrong while parsing dates", e);
+        }
+        return date.compareTo(fromDate) >= 0 && date.compareTo(tillDate) <= 0;
+    }
+
+    /**
+     * Update the statistics for a visited directory entry.
+     *
+     * @param legacyStatCalls the number of stat calls the old reader made for this entry.
+     */
+    private void countEntry(final int legacyStatCalls) {
+        visitedEntryCount.incrementAndGet();
+        legacyStatCallCount.addAndGet(legacyStatCalls);
+    }
+
+    /**
+     * Walk a directory tree and log problems instead of throwing them.
+     *
+     * @param start the directory to start in.
+     * @param maxDepth the maximum number of directory levels to visit.
+     * @param visitor the file visitor to invoke for each entry.
+     */
+    private void walk(final Path start, final int maxDepth, final SimpleFileVisitor<Path> visitor) {
+        try {
+            Files.walkFileTree(start, VISIT_OPTIONS, maxDepth, visitor);
+        } catch (final IOException e) {
+            logger.log(Level.SEVERE, "Something went wrong while scanning directory " + start, e);
+        }
+    }
+
+    /**
+     * The file visitor for a year directory. The month directories are at depth one, the msrun directories at depth
+     * two and the data files at depth three.
+     */
+    private class YearDirectoryVisitor extends SimpleFileVisitor<Path> {
+        /**
+         * The year directory being scanned.
+         */
+        private final Path yearDirectory;
+
+        /**
+         * The year of the directory being scanned.
+         */
+        private final int year;
+
+        /**
+         * The list to which the msrun directories found are added.
+         */
+        private final List<MsrunDirectory> msrunDirectories;
+
+        /**
+         * The index of the month directory being scanned.
+         */
+        private int currentMonthIndex = -1;
+
+        /**
+         * The msrun directory being scanned, or <code>null</code> if the visitor is not inside an msrun directory.
+         */
+        private MsrunDirectory currentMsrunDirectory;
+
+        /**
+         * Create a visitor for a year directory.
+         *
+         * @param yearDirectory the year directory being scanned.
+         * @param msrunDirectories the list to which the msrun directories found are added.
+         */
+        YearDirectoryVisitor(final Path yearDirectory, final List<MsrunDirectory> msrunDirectories) {
+            this.yearDirectory = yearDirectory;
+            this.year = Integer.parseInt(yearDirectory.getFileName().toString());
+            this.msrunDirectories = msrunDirectories;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+            final int depth = getDepth(directory);
+            FileVisitResult result = FileVisitResult.CONTINUE;
+            if (depth == 1) {
+                countEntry(1);
+                currentMonthIndex = MONTH_DIRS.indexOf(directory.getFileName().toString());
+                logger.fine("Month = " + directory.getFileName());
+                if (currentMonthIndex == -1) {
+                    result = FileVisitResult.SKIP_SUBTREE;
+                } else if (!overlapsDateRange(year, currentMonthIndex)) {
+                    prunedDirectoryCount.incrementAndGet();
+                    result = FileVisitResult.SKIP_SUBTREE;
+                }
+            } else if (depth == 2) {
+                countEntry(LEGACY_MSRUN_DIRECTORY_STAT_CALLS);
+                logger.fine("Msrun = " + directory.getFileName());
+                if (isInDateRange(attributes.lastModifiedTime().toMillis())) {
+                    currentMsrunDirectory = new MsrunDirectory(directory, currentMonthIndex, attributes);
+                } else {
+                    result = FileVisitResult.SKIP_SUBTREE;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+            final int depth = getDepth(file);
+            if (depth == DATA_FILE_DEPTH) {
+                countEntry(attributes.isDirectory() ? LEGACY_DATA_DIRECTORY_STAT_CALLS : LEGACY_DATA_FILE_STAT_CALLS);
+                if (attributes.isRegularFile()) {
+                    logger.fine("File " + file.getFileName());
+                    currentMsrunDirectory.addDataFile(file, attributes);
+                }
+            } else {
+                // Files at the month and msrun levels are not used, but the old reader checked them as well.
+                countEntry(1);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exception) {
+            logger.log(Level.WARNING, "Could not read " + file, exception);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(final Path directory, final IOException exception) {
+            if (exception != null) {
+                logger.log(Level.WARNING, "Could not read directory " + directory, exception);
+            }
+            if (currentMsrunDirectory != null && getDepth(directory) == 2) {
+                msrunDirectories.add(currentMsrunDirectory);
+                currentMsrunDirectory = null;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Get the depth of a path below the year directory.
+         *
+         * @param path the path.
+         * @return the depth of the path (0 for the year directory itself).
+         */
+        private int getDepth(final Path path) {
+            return path.equals(yearDirectory) ? 0 : yearDirectory.relativize(path).getNameCount();
+        }
+    }
+}
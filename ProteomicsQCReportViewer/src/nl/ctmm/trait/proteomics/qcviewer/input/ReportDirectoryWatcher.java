@@ -0,0 +1,540 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class watches the year/month/msrun directory structure for msrun directories that are created or modified
+ * while the viewer is running, and reads only those reports.
+ * <p/>
+ * The root directory, the year and month directories and the msrun directories are registered with a
+ * <code>WatchService</code>. New msrun directories and events for the metrics.json and *_ticmatrix.csv files in an
+ * msrun directory mark the msrun directory as pending. Other files in the msrun directories (like files written by the
+ * viewer itself) are ignored, and so are modifications of watched msrun directories, which some platforms report for
+ * every file that is written in them.
+ * A pending msrun directory is read when no events have arrived for a quiet period and both the metrics.json and the
+ * *_ticmatrix.csv files are present with the same sizes as at the previous check, so reports that the QC pipeline is
+ * still writing are not read half way. An msrun directory that stays incomplete is read after a timeout (and marked as
+ * erroneous by the report reader), just like a complete scan would do.
+ * <p/>
+ * The reports that have been read are passed to a {@link ReportChangeListener}. If the file system does not support
+ * watching directories, {@link #start(long)} returns <code>false</code> and the caller should fall back to scanning
+ * the complete directory structure.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportDirectoryWatcher {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(ReportDirectoryWatcher.class.getName());
+
+    /**
+     * The time in milliseconds without events after which a pending msrun directory is checked for completeness.
+     */
+    private static final long QUIET_PERIOD_MILLIS = 2000;
+
+    /**
+     * The interval in milliseconds between checks of the pending msrun directories.
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 500;
+
+    /**
+     * The time in milliseconds after which an incomplete msrun directory is read anyway.
+     */
+    private static final long INCOMPLETE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * The depth of the year directories below the root directory.
+     */
+    private static final int YEAR_DEPTH = 1;
+
+    /**
+     * The depth of the month directories below the root directory.
+     */
+    private static final int MONTH_DEPTH = 2;
+
+    /**
+     * The depth of the msrun directories below the root directory.
+     */
+    private static final int MSRUN_DEPTH = 3;
+
+    /**
+     * The depth of the data files below the root directory.
+     */
+    private static final int DATA_FILE_DEPTH = 4;
+
+    /**
+     * The root directory that contains the year directories.
+     */
+    private final Path rootDirectory;
+
+    /**
+     * The start of the date range: msrun directories that were last modified before this date are not watched.
+     */
+    private final Date fromDate;
+
+    /**
+     * The reader used to read the reports of new and modified msrun directories.
+     */
+    private final ReportReader reportReader;
+
+    /**
+     * The listener that receives the reports that have been read.
+     */
+    private final ReportChangeListener listener;
+
+    /**
+     * The scanner used to read the attributes of the pending msrun directories (the date range is not used).
+     */
+    private final ReportDirectoryScanner scanner;
+
+    /**
+     * The watched directories per watch key.
+     */
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+
+    /**
+     * The last known modification times of the watched msrun directories, which are used to find changes that were
+     * missed when the watch service overflowed.
+     */
+    private final Map<Path, Long> knownModificationTimes = new ConcurrentHashMap<>();
+
+    /**
+     * The pending msrun directories. Access to this map is synchronized on the map itself.
+     */
+    private final Map<Path, PendingDirectory> pendingDirectories = new HashMap<>();
+
+    /**
+     * The watch service or <code>null</code> if the watcher is not running.
+     */
+    private WatchService watchService;
+
+    /**
+     * The thread that processes the watch events.
+     */
+    private Thread watchThread;
+
+    /**
+     * The executor that checks the pending msrun directories at regular intervals.
+     */
+    private ScheduledExecutorService checkExecutor;
+
+    /**
+     * Whether the watcher is running.
+     */
+    private volatile boolean running;
+
+    /**
+     * Create a watcher for the directory structure below a root directory.
+     *
+     * @param rootDirectory the root directory that contains the year directories.
+     * @param fromDate the start of the date range of reports to watch.
+     * @param reportReader the reader used to read the reports of new and modified msrun directories.
+     * @param listener the listener that receives the reports that have been read.
+     */
+    public ReportDirectoryWatcher(final Path rootDirectory, final Date fromDate, final ReportReader reportReader,
+                                  final ReportChangeListener listener) {
+        this.rootDirectory = rootDirectory;
+        this.fromDate = fromDate;
+        this.reportReader = reportReader;
+        this.listener = listener;
+        this.scanner = new ReportDirectoryScanner(fromDate, new Date());
+    }
+
+    /**
+     * Start watching the directory structure.
+     *
+     * @param changedSince the time (in milliseconds since the epoch) the caller started its own scan: msrun directories
+     *                     that were modified since then are read again to make sure no changes are missed.
+     * @return whether the watcher was started; <code>false</code> if watching is not supported.
+     */
+    public synchronized boolean start(final long changedSince) {
+        if (running) {
+            return true;
+        }
+        try {
+            watchService = rootDirectory.getFileSystem().newWatchService();
+            registerDirectoryTree(changedSince);
+        } catch (final IOException | UnsupportedOperationException e) {
+            logger.log(Level.WARNING, "Watching directory " + rootDirectory + " is not supported", e);
+            closeWatchService();
+            return false;
+        }
+        running = true;
+        watchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processEvents();
+            }
+        }, "Report directory watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        checkExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Report directory checker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        checkExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkPendingDirectories();
+            }
+        }, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        logger.fine("Watching " + watchedDirectories.size() + " directories below " + rootDirectory);
+        return true;
+    }
+
+    /**
+     * Stop watching the directory structure.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (checkExecutor != null) {
+            checkExecutor.shutdownNow();
+            checkExecutor = null;
+        }
+        closeWatchService();
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+        watchedDirectories.clear();
+        synchronized (pendingDirectories) {
+            pendingDirectories.clear();
+        }
+    }
+
+    /**
+     * Check whether the watcher is running.
+     *
+     * @return whether the watcher is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Close the watch service, which also ends the event processing thread.
+     */
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (final IOException e) {
+                logger.log(Level.FINE, "Closing the watch service failed", e);
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Register the root directory, the year and month directories and the msrun directories within the date range.
+     *
+     * @param changedSince msrun directories that were modified since this time are marked as pending.
+     * @throws IOException if the root directory cannot be registered.
+     */
+    private void registerDirectoryTree(final long changedSince) throws IOException {
+        watchedDirectories.put(registerDirectory(rootDirectory), rootDirectory);
+        final ReportDirectoryScanner treeScanner = new ReportDirectoryScanner(fromDate, new Date());
+        for (final Path yearDirectory : treeScanner.findYearDirectories(rootDirectory)) {
+            register(yearDirectory);
+            for (final Path monthDirectory : listSubdirectories(yearDirectory)) {
+                if (ReportDirectoryScanner.MONTH_DIRS.contains(monthDirectory.getFileName().toString())) {
+                    register(monthDirectory);
+                }
+            }
+            for (final MsrunDirectory msrunDirectory : treeScanner.scanYearDirectory(yearDirectory)) {
+                register(msrunDirectory.getPath());
+                final Long knownModificationTime = knownModificationTimes.put(msrunDirectory.getPath(),
+                                                                              msrunDirectory.getLastModified());
+                final boolean changed = knownModificationTime == null
+                                        ? msrunDirectory.getLastModified() >= changedSince
+                                        : knownModificationTime != msrunDirectory.getLastModified();
+                if (changed) {
+                    markPending(msrunDirectory.getPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Register a directory with the watch service.
+     *
+     * @param directory the directory to register.
+     * @return the watch key.
+     * @throws IOException if the directory cannot be registered.
+     */
+    private WatchKey registerDirectory(final Path directory) throws IOException {
+        return directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                  StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * Register a directory with the watch service. Failures are logged, since the directory may have been removed.
+     *
+     * @param directory the directory to register.
+     */
+    private void register(final Path directory) {
+        try {
+            watchedDirectories.put(registerDirectory(directory), directory);
+        } catch (final IOException e) {
+            logger.log(Level.FINE, "Could not watch directory " + directory, e);
+        }
+    }
+
+    /**
+     * Register a new directory and the directories in it. New msrun directories are marked as pending.
+     *
+     * @param directory the new directory.
+     * @param depth the depth of the new directory below the root directory.
+     */
+    private void registerNewDirectory(final Path directory, final int depth) {
+        register(directory);
+        if (depth == MSRUN_DEPTH) {
+            markPending(directory);
+        } else {
+            for (final Path subdirectory : listSubdirectories(directory)) {
+                final String name = subdirectory.getFileName().toString();
+                if (depth != YEAR_DEPTH || ReportDirectoryScanner.MONTH_DIRS.contains(name)) {
+                    registerNewDirectory(subdirectory, depth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * List the subdirectories of a directory.
+     *
+     * @param directory the directory.
+     * @return the subdirectories.
+     */
+    private List<Path> listSubdirectories(final Path directory) {
+        final List<Path> subdirectories = new ArrayList<>();
+        try (final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (final Path entry : directoryStream) {
+                if (Files.isDirectory(entry)) {
+                    subdirectories.add(entry);
+                }
+            }
+        } catch (final IOException e) {
+            logger.log(Level.FINE, "Could not list directory " + directory, e);
+        }
+        return subdirectories;
+    }
+
+    /**
+     * Process the watch events until the watcher is stopped.
+     */
+    private void processEvents() {
+        final WatchService service = watchService;
+        while (running) {
+            final WatchKey key;
+            try {
+                key = service.take();
+            } catch (final InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            final Path directory = watchedDirectories.get(key);
+            if (directory != null) {
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    handleEvent(directory, event);
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Handle a watch event for a directory.
+     *
+     * @param directory the directory in which something happened.
+     * @param event the watch event.
+     */
+    private void handleEvent(final Path directory, final WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            logger.warning("Missed events while watching " + rootDirectory + "; looking for changes.");
+            try {
+                // All msrun directories that existed at the start are known, so unknown ones are new.
+                registerDirectoryTree(0);
+            } catch (final IOException e) {
+                logger.log(Level.WARNING, "Could not watch directory " + rootDirectory, e);
+            }
+            return;
+        }
+        final Path path = directory.resolve((Path) event.context());
+        final int depth = rootDirectory.relativize(path).getNameCount();
+        final boolean created = event.kind() == StandardWatchEventKinds.ENTRY_CREATE;
+        final String name = path.getFileName().toString();
+        if (depth == YEAR_DEPTH && created && ReportDirectoryScanner.isYearDirectoryName(name)
+            && Files.isDirectory(path)) {
+            registerNewDirectory(path, depth);
+        } else if (depth == MONTH_DEPTH && created && ReportDirectoryScanner.MONTH_DIRS.contains(name)
+                   && Files.isDirectory(path)) {
+            registerNewDirectory(path, depth);
+        } else if (depth == MSRUN_DEPTH && (created || event.kind() == StandardWatchEventKinds.ENTRY_MODIFY
+                                                    && !watchedDirectories.containsValue(path))) {
+            // Changes in a watched msrun directory are handled with the events for its data files.
+            register(path);
+            markPending(path);
+        } else if (depth == DATA_FILE_DEPTH && isDataFileName(name)) {
+            markPending(path.getParent());
+        }
+    }
+
+    /**
+     * Check whether a file name is the name of one of the data files that are used for a report.
+     *
+     * @param name the file name.
+     * @return whether the file is a metrics.json or *_ticmatrix.csv file.
+     */
+    private static boolean isDataFileName(final String name) {
+        return MsrunDirectory.METRICS_FILE_NAME.equals(name) || name.endsWith(MsrunDirectory.TIC_MATRIX_FILE_SUFFIX);
+    }
+
+    /**
+     * Mark an msrun directory as pending, or postpone the check of an msrun directory that was already pending.
+     *
+     * @param msrunPath the msrun directory.
+     */
+    private void markPending(final Path msrunPath) {
+        final long now = System.currentTimeMillis();
+        synchronized (pendingDirectories) {
+            final PendingDirectory pendingDirectory = pendingDirectories.get(msrunPath);
+            if (pendingDirectory == null) {
+                pendingDirectories.put(msrunPath, new PendingDirectory(now));
+            } else {
+                pendingDirectory.lastEventTime = now;
+            }
+        }
+    }
+
+    /**
+     * Check the pending msrun directories that have been quiet long enough, read the reports of the complete ones and
+     * pass these reports to the listener.
+     */
+    private void checkPendingDirectories() {
+        final long now = System.currentTimeMillis();
+        final Map<Path, PendingDirectory> quietDirectories = new HashMap<>();
+        synchronized (pendingDirectories) {
+            for (final Map.Entry<Path, PendingDirectory> entry : pendingDirectories.entrySet()) {
+                if (now - entry.getValue().lastEventTime >= QUIET_PERIOD_MILLIS) {
+                    quietDirectories.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        final List<MsrunDirectory> readyDirectories = new ArrayList<>();
+        for (final Map.Entry<Path, PendingDirectory> entry : quietDirectories.entrySet()) {
+            final PendingDirectory pendingDirectory = entry.getValue();
+            final MsrunDirectory msrunDirectory = scanner.scanMsrunDirectory(entry.getKey());
+            final boolean ready = msrunDirectory != null
+                                  && (pendingDirectory.isComplete(msrunDirectory)
+                                      || now - pendingDirectory.firstEventTime >= INCOMPLETE_TIMEOUT_MILLIS);
+            if (msrunDirectory == null || ready) {
+                synchronized (pendingDirectories) {
+                    // Keep the directory pending if a new event arrived while it was being checked.
+                    if (pendingDirectories.get(entry.getKey()) == pendingDirectory
+                        && pendingDirectory.lastEventTime < now) {
+                        pendingDirectories.remove(entry.getKey());
+                        if (ready) {
+                            readyDirectories.add(msrunDirectory);
+                        }
+                    }
+                }
+            }
+        }
+        if (!readyDirectories.isEmpty() && running) {
+            final List<ReportUnit> reportUnits = new ArrayList<>();
+            for (final MsrunDirectory msrunDirectory : readyDirectories) {
+                knownModificationTimes.put(msrunDirectory.getPath(), msrunDirectory.getLastModified());
+                reportUnits.add(reportReader.readReport(msrunDirectory, reportUnits.size() + 1));
+            }
+            logger.fine("Read " + reportUnits.size() + " new or modified reports below " + rootDirectory);
+            try {
+                listener.reportsChanged(reportUnits);
+            } catch (final RuntimeException e) {
+                logger.log(Level.SEVERE, "Something went wrong while processing new or modified reports", e);
+            }
+        }
+    }
+
+    /**
+     * The object of this class keeps track of an msrun directory that has changed but has not been read yet.
+     */
+    private static class PendingDirectory {
+        /**
+         * The time of the first event for this msrun directory.
+         */
+        private final long firstEventTime;
+
+        /**
+         * The time of the last event for this msrun directory.
+         */
+        private volatile long lastEventTime;
+
+        /**
+         * The size of the metrics.json file at the previous check or -1 if it was missing.
+         */
+        private long metricsSize = -1;
+
+        /**
+         * The size of the *_ticmatrix.csv file at the previous check or -1 if it was missing.
+         */
+        private long ticMatrixSize = -1;
+
+        /**
+         * Create a pending msrun directory.
+         *
+         * @param eventTime the time of the first event.
+         */
+        PendingDirectory(final long eventTime) {
+            firstEventTime = eventTime;
+            lastEventTime = eventTime;
+        }
+
+        /**
+         * Check whether the msrun directory is complete: the metrics.json and *_ticmatrix.csv files are present, not
+         * empty and have the same sizes as at the previous check.
+         *
+         * @param msrunDirectory the current state of the msrun directory.
+         * @return whether the msrun directory is complete.
+         */
+        boolean isComplete(final MsrunDirectory msrunDirectory) {
+            final long previousMetricsSize = metricsSize;
+            final long previousTicMatrixSize = ticMatrixSize;
+            metricsSize = msrunDirectory.getMetricsFileAttributes() != null
+                          ? msrunDirectory.getMetricsFileAttributes().size()
+                          : -1;
+            ticMatrixSize = msrunDirectory.getTicMatrixFileAttributes() != null
+                            ? msrunDirectory.getTicMatrixFileAttributes().size()
+                            : -1;
+            return metricsSize > 0 && ticMatrixSize > 0
+                   && metricsSize == previousMetricsSize && ticMatrixSize == previousTicMatrixSize;
+        }
+    }
+}
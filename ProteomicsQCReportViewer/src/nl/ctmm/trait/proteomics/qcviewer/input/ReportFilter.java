@@ -0,0 +1,540 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The object of this class contains a parsed filter query on the metrics of the reports, like
+ * <code>chrom:c-4a > 20 AND generic:f_size BETWEEN 500 AND 900 AND missing(ion:is-2)</code>.
+ * <p/>
+ * The query language supports:
+ * <ul>
+ *     <li>comparisons of a metric with a value: <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code>,
+ *     <code>&gt;=</code>, <code>=</code> and <code>!=</code>;</li>
+ *     <li><code>key BETWEEN low AND high</code> (including both bounds);</li>
+ *     <li><code>missing(key)</code> and <code>present(key)</code>;</li>
+ *     <li><code>AND</code>, <code>OR</code>, <code>NOT</code> and parentheses.</li>
+ * </ul>
+ * Keywords are case insensitive. Values are numbers, or quoted strings for dates and run times (like
+ * <code>generic:date &gt;= "2013/Jul/01 - 00:00"</code>), which are parsed like the metric values themselves. Reports
+ * for which a metric is missing never match a comparison on that metric. Only the keys of the supported metrics,
+ * "No." (the report number) and "maxIntensity" (the maximum intensity of the TIC graph) can be used; a query with
+ * another key is rejected, since it would not match any report.
+ * <p/>
+ * A filter is evaluated against the sorted permutations of a {@link ReportSortIndex}: every comparison is a range of
+ * the sorted keys that is found with binary searches, and the results are combined as bit sets.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public final class ReportFilter {
+    /**
+     * The characters that are tokens by themselves or start an operator.
+     */
+    private static final String SPECIAL_CHARACTERS = "()<>=!\"";
+
+    /**
+     * The comparison operators.
+     */
+    private static final List<String> OPERATORS = Arrays.asList("<", "<=", ">", ">=", "=", "==", "!=");
+
+    /**
+     * The query as it was entered.
+     */
+    private final String query;
+
+    /**
+     * The parsed query.
+     */
+    private final Expression expression;
+
+    /**
+     * Create a filter.
+     *
+     * @param query the query as it was entered.
+     * @param expression the parsed query.
+     */
+    private ReportFilter(final String query, final Expression expression) {
+        this.query = query;
+        this.expression = expression;
+    }
+
+    /**
+     * Parse a filter query.
+     *
+     * @param query the query.
+     * @param metricKeys the "category:code" keys of the supported metrics.
+     * @return the filter.
+     * @throws ParseException if the query is not valid or uses an unknown key; the error offset is the position in the
+     *                        query.
+     */
+    public static ReportFilter parse(final String query, final Collection<String> metricKeys) throws ParseException {
+        final Parser parser = new Parser(query, metricKeys);
+        final Expression expression = parser.parseOr();
+        if (parser.hasMoreTokens()) {
+            throw parser.createException("Unexpected \"" + parser.peek() + "\"");
+        }
+        return new ReportFilter(query.trim(), expression);
+    }
+
+    /**
+     * Find the reports that match this filter.
+     *
+     * @param reportSortIndex the sort index with the reports.
+     * @return the indices (in the order in which the report units were added to the sort index) of the matching reports.
+     */
+    public BitSet evaluate(final ReportSortIndex reportSortIndex) {
+        return expression.evaluate(reportSortIndex);
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+
+    /**
+     * A part of a filter query.
+     */
+    private interface Expression {
+        /**
+         * Find the reports that match this part of the query.
+         *
+         * @param reportSortIndex the sort index with the reports.
+         * @return the indices of the matching reports.
+         */
+        BitSet evaluate(ReportSortIndex reportSortIndex);
+    }
+
+    /**
+     * A range of values of a metric: one of the comparisons, a <code>BETWEEN</code> or <code>missing(key)</code>.
+     */
+    private static class RangeExpression implements Expression {
+        /**
+         * The metric key.
+         */
+        private final String key;
+
+        /**
+         * The lower bound of the range.
+         */
+        private final double low;
+
+        /**
+         * Whether the lower bound is part of the range.
+         */
+        private final boolean lowInclusive;
+
+        /**
+         * The upper bound of the range.
+         */
+        private final double high;
+
+        /**
+         * Whether the upper bound is part of the range.
+         */
+        private final boolean highInclusive;
+
+        /**
+         * Whether this range matches the reports for which the metric is missing (and ignores the bounds).
+         */
+        private final boolean missing;
+
+        /**
+         * Create a range expression.
+         *
+         * @param key the metric key.
+         * @param low the lower bound of the range.
+         * @param lowInclusive whether the lower bound is part of the range.
+         * @param high the upper bound of the range.
+         * @param highInclusive whether the upper bound is part of the range.
+         * @param missing whether this range matches the reports for which the metric is missing.
+         */
+        private RangeExpression(final String key, final double low, final boolean lowInclusive, final double high,
+                                final boolean highInclusive, final boolean missing) {
+            this.key = key;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.missing = missing;
+        }
+
+        @Override
+        public BitSet evaluate(final ReportSortIndex reportSortIndex) {
+            return missing
+                   ? reportSortIndex.getMissing(key)
+                   : reportSortIndex.getMatchesInRange(key, low, lowInclusive, high, highInclusive);
+        }
+    }
+
+    /**
+     * The combination of two expressions with <code>AND</code> or <code>OR</code>.
+     */
+    private static class LogicalExpression implements Expression {
+        /**
+         * The first operand.
+         */
+        private final Expression left;
+
+        /**
+         * The second operand.
+         */
+        private final Expression right;
+
+        /**
+         * Whether to combine the operands with <code>AND</code> (or else with <code>OR</code>).
+         */
+        private final boolean and;
+
+        /**
+         * Create a logical expression.
+         *
+         * @param left the first operand.
+         * @param right the second operand.
+         * @param and whether to combine the operands with <code>AND</code> (or else with <code>OR</code>).
+         */
+        private LogicalExpression(final Expression left, final Expression right, final boolean and) {
+            this.left = left;
+            this.right = right;
+            this.and = and;
+        }
+
+        @Override
+        public BitSet evaluate(final ReportSortIndex reportSortIndex) {
+            final BitSet matches = left.evaluate(reportSortIndex);
+            if (and && matches.isEmpty()) {
+                return matches;
+            }
+            if (and) {
+                matches.and(right.evaluate(reportSortIndex));
+            } else {
+                matches.or(right.evaluate(reportSortIndex));
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * The negation of an expression.
+     */
+    private static class NotExpression implements Expression {
+        /**
+         * The negated expression.
+         */
+        private final Expression operand;
+
+        /**
+         * Create a negation.
+         *
+         * @param operand the negated expression.
+         */
+        private NotExpression(final Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public BitSet evaluate(final ReportSortIndex reportSortIndex) {
+            final BitSet matches = operand.evaluate(reportSortIndex);
+            matches.flip(0, reportSortIndex.size());
+            return matches;
+        }
+    }
+
+    /**
+     * A recursive descent parser for filter queries.
+     */
+    private static class Parser {
+        /**
+         * The query.
+         */
+        private final String query;
+
+        /**
+         * The keys that can be used in the query.
+         */
+        private final Set<String> validKeys;
+
+        /**
+         * The tokens of the query.
+         */
+        private final List<String> tokens = new ArrayList<>();
+
+        /**
+         * The position in the query of each token.
+         */
+        private final List<Integer> tokenPositions = new ArrayList<>();
+
+        /**
+         * The index of the next token.
+         */
+        private int tokenIndex;
+
+        /**
+         * Create a parser and split the query into tokens.
+         *
+         * @param query the query.
+         * @param metricKeys the "category:code" keys of the supported metrics.
+         * @throws ParseException if a quoted string is not closed.
+         */
+        private Parser(final String query, final Collection<String> metricKeys) throws ParseException {
+            this.query = query;
+            validKeys = new HashSet<>(metricKeys);
+            validKeys.addAll(Arrays.asList(ReportUnit.REPORT_NUMBER_SORT_KEY, ReportUnit.MAX_INTENSITY_KEY,
+                                           ReportUnit.MAX_INTENSITY_SORT_KEY));
+            int position = 0;
+            while (position < query.length()) {
+                final char character = query.charAt(position);
+                final int start = position;
+                if (Character.isWhitespace(character)) {
+                    position++;
+                    continue;
+                } else if (character == '"') {
+                    final int end = query.indexOf('"', position + 1);
+                    if (end < 0) {
+                        throw new ParseException("Missing closing quote", position);
+                    }
+                    position = end + 1;
+                } else if (SPECIAL_CHARACTERS.indexOf(character) >= 0) {
+                    position++;
+                    if (character != '(' && character != ')' && position < query.length()
+                        && query.charAt(position) == '=') {
+                        position++;
+                    }
+                } else {
+                    while (position < query.length() && !Character.isWhitespace(query.charAt(position))
+                           && SPECIAL_CHARACTERS.indexOf(query.charAt(position)) < 0) {
+                        position++;
+                    }
+                }
+                tokens.add(query.substring(start, position));
+                tokenPositions.add(start);
+            }
+        }
+
+        /**
+         * Parse expressions combined with <code>OR</code>.
+         *
+         * @return the expression.
+         * @throws ParseException if the query is not valid.
+         */
+        private Expression parseOr() throws ParseException {
+            Expression expression = parseAnd();
+            while (acceptKeyword("OR")) {
+                expression = new LogicalExpression(expression, parseAnd(), false);
+            }
+            return expression;
+        }
+
+        /**
+         * Parse expressions combined with <code>AND</code>.
+         *
+         * @return the expression.
+         * @throws ParseException if the query is not valid.
+         */
+        private Expression parseAnd() throws ParseException {
+            Expression expression = parseNot();
+            while (acceptKeyword("AND")) {
+                expression = new LogicalExpression(expression, parseNot(), true);
+            }
+            return expression;
+        }
+
+        /**
+         * Parse an optionally negated expression.
+         *
+         * @return the expression.
+         * @throws ParseException if the query is not valid.
+         */
+        private Expression parseNot() throws ParseException {
+            return acceptKeyword("NOT") ? new NotExpression(parseNot()) : parsePrimary();
+        }
+
+        /**
+         * Parse an expression between parentheses, a <code>missing</code> or <code>present</code> function, a
+         * comparison or a <code>BETWEEN</code>.
+         *
+         * @return the expression.
+         * @throws ParseException if the query is not valid.
+         */
+        private Expression parsePrimary() throws ParseException {
+            if (accept("(")) {
+                final Expression expression = parseOr();
+                expect(")");
+                return expression;
+            }
+            if (isKeyword("missing") || isKeyword("present")) {
+                final boolean missing = isKeyword("missing");
+                next();
+                expect("(");
+                final String key = parseKey();
+                expect(")");
+                final Expression expression = new RangeExpression(key, 0, false, 0, false, true);
+                return missing ? expression : new NotExpression(expression);
+            }
+            final String key = parseKey();
+            if (acceptKeyword("BETWEEN")) {
+                final double low = parseValue(key);
+                if (!acceptKeyword("AND")) {
+                    throw createException("Expected AND in BETWEEN");
+                }
+                return new RangeExpression(key, low, true, parseValue(key), true, false);
+            }
+            final String operator = next();
+            if (!OPERATORS.contains(operator)) {
+                throw new ParseException("Expected an operator instead of \"" + operator + "\" at position "
+                                         + (tokenPositions.get(tokenIndex - 1) + 1), tokenPositions.get(tokenIndex - 1));
+            }
+            final double value = parseValue(key);
+            final double infinity = Double.POSITIVE_INFINITY;
+            // The remaining operator is "!=", which matches the values below and above the value.
+            switch (operator) {
+                case "<":
+                    return new RangeExpression(key, -infinity, true, value, false, false);
+                case "<=":
+                    return new RangeExpression(key, -infinity, true, value, true, false);
+                case ">":
+                    return new RangeExpression(key, value, false, infinity, true, false);
+                case ">=":
+                    return new RangeExpression(key, value, true, infinity, true, false);
+                case "=":
+                case "==":
+                    return new RangeExpression(key, value, true, value, true, false);
+                default:
+                    return new LogicalExpression(new RangeExpression(key, -infinity, true, value, false, false),
+                                                 new RangeExpression(key, value, false, infinity, true, false), false);
+            }
+        }
+
+        /**
+         * Parse the key of a metric.
+         *
+         * @return the key.
+         * @throws ParseException if the key is unknown.
+         */
+        private String parseKey() throws ParseException {
+            if (hasMoreTokens() && !validKeys.contains(peek())) {
+                throw createException("Unknown metric \"" + peek() + "\"");
+            }
+            return next();
+        }
+
+        /**
+         * Parse a value for a metric: a number or a quoted string that is parsed according to the type of the metric.
+         *
+         * @param key the metric key.
+         * @return the value.
+         * @throws ParseException if the value is not valid for the metric.
+         */
+        private double parseValue(final String key) throws ParseException {
+            String text = next();
+            if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+                text = text.substring(1, text.length() - 1);
+            }
+            final double value = MetricValues.parseTypedValue(text, MetricSchema.getValueType(key));
+            if (Double.isNaN(value)) {
+                throw new ParseException("Invalid value \"" + text + "\" for " + key + " at position "
+                                         + (tokenPositions.get(tokenIndex - 1) + 1), tokenPositions.get(tokenIndex - 1));
+            }
+            return value;
+        }
+
+        /**
+         * Check whether there are more tokens.
+         *
+         * @return whether there are more tokens.
+         */
+        private boolean hasMoreTokens() {
+            return tokenIndex < tokens.size();
+        }
+
+        /**
+         * Get the next token without consuming it.
+         *
+         * @return the next token or an empty string at the end of the query.
+         */
+        private String peek() {
+            return hasMoreTokens() ? tokens.get(tokenIndex) : "";
+        }
+
+        /**
+         * Consume the next token.
+         *
+         * @return the token.
+         * @throws ParseException at the end of the query.
+         */
+        private String next() throws ParseException {
+            if (!hasMoreTokens()) {
+                throw createException("Unexpected end of the filter");
+            }
+            return tokens.get(tokenIndex++);
+        }
+
+        /**
+         * Consume the next token if it is equal to a text.
+         *
+         * @param text the text.
+         * @return whether the token was consumed.
+         */
+        private boolean accept(final String text) {
+            if (text.equals(peek())) {
+                tokenIndex++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consume the next token if it is a keyword (case insensitive).
+         *
+         * @param keyword the keyword.
+         * @return whether the token was consumed.
+         */
+        private boolean acceptKeyword(final String keyword) {
+            if (isKeyword(keyword)) {
+                tokenIndex++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Check whether the next token is a keyword (case insensitive).
+         *
+         * @param keyword the keyword.
+         * @return whether the next token is the keyword.
+         */
+        private boolean isKeyword(final String keyword) {
+            return peek().toUpperCase(Locale.US).equals(keyword.toUpperCase(Locale.US));
+        }
+
+        /**
+         * Consume the next token, which should be equal to a text.
+         *
+         * @param text the text.
+         * @throws ParseException if the next token is different.
+         */
+        private void expect(final String text) throws ParseException {
+            if (!accept(text)) {
+                throw createException("Expected \"" + text + "\"");
+            }
+        }
+
+        /**
+         * Create an exception for an error at the next token.
+         *
+         * @param message the error message.
+         * @return the exception.
+         */
+        private ParseException createException(final String message) {
+            final int position = hasMoreTokens() ? tokenPositions.get(tokenIndex) : query.length();
+            return new ParseException(message + " at position " + (position + 1), position);
+        }
+    }
+}
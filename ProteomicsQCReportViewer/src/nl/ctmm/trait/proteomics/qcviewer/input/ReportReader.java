@@ -1,57 +1,104 @@
 package nl.ctmm.trait.proteomics.qcviewer.input;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.StringTokenizer;
-import java.util.logging.ConsoleHandler;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
-
-import javax.swing.JFrame;
-
-import nl.ctmm.trait.proteomics.qcviewer.utils.Constants;
 
 import org.apache.commons.io.FilenameUtils;
-import org.jfree.data.xy.XYSeries;
 
 /**
  * This class contains the logic to read the directory/file structure and prepare data to be displayed.
+ * <p/>
+ * The year directories are scanned in parallel by a {@link ReportDirectoryScanner} and the msrun directories that are
+ * found are read in parallel as well, using a bounded thread pool. The resulting report units are always returned in
+ * the same order: sorted on year, month and msrun name. Alternatively, the report units can be passed to a
+ * {@link ReportChangeListener} in batches while they are read, starting with the newest msrun directories, so the
+ * viewer can show the first reports long before all reports have been read. Such a scan can be cancelled.
+ * <p/>
+ * Optionally, a {@link ReportCatalog} in the root directory is used to remember the metrics and TIC summaries of the
+ * reports. The metrics.json files of msrun directories that have not changed since they were stored in the catalog are
+ * not read again.
+ * <p/>
+ * The TIC graphs are not kept in memory: the report units only get a small {@link TicSummary} and load the TIC graph
+ * when it is needed (see {@link ReportUnit#loadTicSeries()}). With the catalog, the TIC graphs are also stored in
+ * binary {@link TicMatrixSidecar} files, which are much faster to load than the csv files.
  *
  * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
  * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
  */
-public class ReportReader extends JFrame {
+public class ReportReader {
     /**
      * The logger for this class.
      */
     private static final Logger logger = Logger.getLogger(ReportReader.class.getName());
 
     /**
-     * The version number for (de)serialization of this class (UID: universal identifier).
+     * The maximum number of threads used for searching directories and reading reports. Reading reports is mostly
+     * waiting for the (network) file system, so we use more threads than processors, but not too many to avoid
+     * flooding the file server.
      */
-    private static final long serialVersionUID = 1;
+    private static final int MAX_READER_THREADS = 16;
 
-    private static final List<String> MONTH_DIRS = Arrays.asList(
-            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
-    );
+    /**
+     * The maximum number of report units that are passed to the listener in one batch.
+     */
+    private static final int MAX_BATCH_SIZE = 50;
 
-    private int currentReportNum;
-    private JsonMetricsReader jsonMetricsReader;
-    
+    /**
+     * The reader for the metrics.json files.
+     */
+    private final JsonMetricsReader jsonMetricsReader;
+
+    /**
+     * The metrics parser used to read the metrics definition file.
+     */
+    private final MetricsParser metricsParser;
+
+    /**
+     * Whether to use the report catalog in the root directory.
+     */
+    private final boolean useCatalog;
+
+    /**
+     * Whether reading the reports has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Construct a report reader that does not use a report catalog.
+     *
+     * @param metricsParser the metrics parser used to read the metrics definition file.
+     */
     public ReportReader(final MetricsParser metricsParser) {
+        this(metricsParser, false);
+    }
+
+    /**
+     * Construct a report reader.
+     *
+     * @param metricsParser the metrics parser used to read the metrics definition file.
+     * @param useCatalog whether to use (and update) the report catalog in the root directory and the binary sidecar files
+     *                   of the TIC matrix files in the cache directory under the root directory.
+     */
+    public ReportReader(final MetricsParser metricsParser, final boolean useCatalog) {
+        this.metricsParser = metricsParser;
+        this.useCatalog = useCatalog;
         jsonMetricsReader = new JsonMetricsReader(metricsParser);
     }
 
-	/**
+    /**
      * Search through the directories under the root directory for files generated by the QC tool and return the
      * relevant data.
      *
@@ -61,74 +108,252 @@ public class ReportReader extends JFrame {
      * @return a list with report units.
      */
     public ArrayList<ReportUnit> retrieveReports(final String rootDirectoryName, final Date fromDate, final Date tillDate) {
+        final ArrayList<ReportUnit> reportUnits = new ArrayList<>();
+        readReports(rootDirectoryName, fromDate, tillDate, false, new ReportChangeListener() {
+            @Override
+            public void reportsChanged(final List<ReportUnit> batch) {
+                reportUnits.addAll(batch);
+            }
+        });
+        logger.fine("Read " + reportUnits.size() + " report units from " + rootDirectoryName);
+        return reportUnits;
+    }
+
+    /**
+     * Search through the directories under the root directory for files generated by the QC tool and pass the report
+     * units to a listener in batches while they are read, starting with the newest year and month. A batch is passed
+     * as soon as it is full or the next report has not been read yet. The listener is called on the thread that calls
+     * this method. Reading stops early when {@link #cancel()} is called.
+     *
+     * @param rootDirectoryName the root directory that contains the year directories.
+     * @param fromDate the start of the date range to search.
+     * @param tillDate the end of the date range to search.
+     * @param batchListener the listener that receives the batches of report units.
+     * @return the number of report units that were passed to the listener.
+     */
+    public int retrieveReports(final String rootDirectoryName, final Date fromDate, final Date tillDate,
+                               final ReportChangeListener batchListener) {
+        final int reportCount = readReports(rootDirectoryName, fromDate, tillDate, true, batchListener);
+        logger.fine("Read " + reportCount + " report units from " + rootDirectoryName
+                    + (cancelled ? " (cancelled)" : ""));
+        return reportCount;
+    }
+
+    /**
+     * Cancel reading the reports. The reports that are being read are finished, but no more batches are passed to the
+     * listener.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether reading the reports has been cancelled.
+     *
+     * @return whether reading the reports has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Find the msrun directories within the date range, read their reports in parallel and pass the report units to a
+     * listener in batches.
+     *
+     * @param rootDirectoryName the root directory that contains the year directories.
+     * @param fromDate the start of the date range to search.
+     * @param tillDate the end of the date range to search.
+     * @param newestFirst whether to start with the newest msrun directories instead of the oldest.
+     * @param batchListener the listener that receives the batches of report units.
+     * @return the number of report units that were passed to the listener.
+     */
+    private int readReports(final String rootDirectoryName, final Date fromDate, final Date tillDate,
+                            final boolean newestFirst, final ReportChangeListener batchListener) {
         /*The directory has three levels - year, month and msrun.
         The msrun directory may contain following three files of importance:
         1) metrics.json: String file containing values of all QC metrics in json object format 
         2) msrun*_ticmatrix.csv
         */
-//        String allErrorMessages = "";
-        final ArrayList<ReportUnit> reportUnits = new ArrayList<>();
+        int reportCount = 0;
         logger.log(Level.ALL, "Root folder = " + rootDirectoryName);
-        for (final File yearDirectory : getYearDirectories(FilenameUtils.normalize(rootDirectoryName))) {
-            logger.fine("Year = " + yearDirectory.getName());
-            for (final File monthDirectory : getMonthDirectories(yearDirectory)) {
-                logger.fine("Month = " + monthDirectory.getName());
-                for (final File msRunDirectory : getMsRunDirectories(monthDirectory)) {
-                    logger.fine("Msrun = " + msRunDirectory.getName());
-                    long datetime = msRunDirectory.lastModified();
-                    Date d = new Date(datetime);
-                    SimpleDateFormat sdf = Constants.DATE_FORMAT;
-                    String dateString = sdf.format(d);
-                    try {
-                        d = sdf.parse(dateString);
-                    } catch (ParseException e) {
-                    	logger.log(Level.SEVERE, "Something went wrong while parsing dates", e);
+        final Path rootDirectory = Paths.get(FilenameUtils.normalize(rootDirectoryName));
+        final ReportDirectoryScanner scanner = new ReportDirectoryScanner(fromDate, tillDate);
+        final ReportCatalog catalog = loadCatalog(rootDirectory);
+        final TicMatrixReader ticMatrixReader = createTicMatrixReader(rootDirectory);
+        final ExecutorService executor = Executors.newFixedThreadPool(getReaderThreadCount());
+        try {
+            final List<MsrunDirectory> msrunDirectories = findMsrunDirectories(executor, scanner, rootDirectory);
+            scanner.logStatistics(rootDirectory);
+            if (newestFirst) {
+                Collections.reverse(msrunDirectories);
+            }
+            final List<Future<ReportUnit>> reportUnitFutures = new ArrayList<>();
+            for (final MsrunDirectory msrunDirectory : msrunDirectories) {
+                final int reportNum = reportUnitFutures.size() + 1;
+                reportUnitFutures.add(executor.submit(new Callable<ReportUnit>() {
+                    @Override
+                    public ReportUnit call() {
+                        // Reports that have not been started yet are skipped when reading is cancelled.
+                        return !cancelled ? readReportUnit(msrunDirectory, reportNum, catalog, ticMatrixReader) : null;
                     }
-                    if (d.compareTo(fromDate)>=0 && d.compareTo(tillDate)<=0) {
-                        final File[] dataFiles = msRunDirectory.listFiles();
-                        boolean errorFlag = false;
-                        //Check existence of "metrics.json", "_ticmatrix.csv"
-                        String errorMessage = checkDataFilesAvailability(msRunDirectory.getName(), dataFiles);
-                        if (!errorMessage.equals("")) {
-                            errorFlag = true;
-                            //allErrorMessages += errorMessage + "\n";
-                        }
-                        reportUnits.add(createReportUnit(msRunDirectory.getName(), dataFiles, errorFlag));
-                    } 
+                }));
+            }
+            // Collect the results in the order in which the msrun directories were found.
+            List<ReportUnit> batch = new ArrayList<>();
+            for (int reportIndex = 0; reportIndex < reportUnitFutures.size() && !cancelled; reportIndex++) {
+                final String msrunName = msrunDirectories.get(reportIndex).getMsrunName();
+                ReportUnit reportUnit = waitForResult(reportUnitFutures.get(reportIndex), msrunName);
+                if (reportUnit == null && cancelled) {
+                    // The report was skipped because reading was cancelled.
+                    break;
+                } else if (reportUnit == null) {
+                    reportUnit = new ReportUnit(msrunName, reportIndex + 1);
+                    reportUnit.setErrorFlag(true);
+                }
+                batch.add(reportUnit);
+                final int nextIndex = reportIndex + 1;
+                if (batch.size() >= MAX_BATCH_SIZE || nextIndex == reportUnitFutures.size()
+                    || !reportUnitFutures.get(nextIndex).isDone()) {
+                    batchListener.reportsChanged(batch);
+                    reportCount += batch.size();
+                    batch = new ArrayList<>();
                 }
             }
+            if (catalog != null) {
+                catalog.removeDeletedEntries(msrunDirectories);
+                catalog.save();
+            }
+        } finally {
+            // Reports that are being read are finished (instead of interrupting their file channels).
+            executor.shutdown();
         }
-        /*TODO: Check whether errorMessages functionality is required
-         * if (!allErrorMessages.equals("")) {
-            //saveErrorMessages(allErrorMessages);
-            //JOptionPane.showMessageDialog(this, allErrorMessages, "MSQC Check Warning Messages",
-            //                              JOptionPane.ERROR_MESSAGE);
-        }*/
-        return reportUnits;
+        return reportCount;
     }
 
     /**
-     * Check whether the report directory contains "metrics.json", and "_ticmatrix.csv" files
-     * @param msrunName Folder containing QC Report
-     * @param dataFiles list of files in folder msrunName
-     * @return errorMessage if the "metrics.json", and "_ticmatrix.csv" files not found
+     * Read the report unit for a single msrun directory. This is used for msrun directories that are created or
+     * modified while the viewer is running; the report catalog is not used.
+     *
+     * @param msrunDirectory the msrun directory.
+     * @param reportNum the number of the report unit.
+     * @return the new report unit.
      */
-    private String checkDataFilesAvailability(final String msrunName, final File[] dataFiles) {
-        String errorMessage = "";
-        boolean metrics = false, ticMatrix = false;
-        for (final File dataFile : dataFiles) {
-            final String dataFileName = dataFile.getName();
-            if (dataFile.isFile()) {
-                logger.fine("File " + dataFileName);
-                if (dataFileName.equals("metrics.json")) {
-                       metrics = true;
-                } else if (dataFileName.endsWith("_ticmatrix.csv")) {
-                    ticMatrix = true;
+    public ReportUnit readReport(final MsrunDirectory msrunDirectory, final int reportNum) {
+        // The msrun directory is in a month directory, which is in a year directory in the root directory.
+        final Path rootDirectory = msrunDirectory.getPath().getParent().getParent().getParent();
+        return readReportUnit(msrunDirectory, reportNum, null, createTicMatrixReader(rootDirectory));
+    }
+
+    /**
+     * Create the reader for the *_ticmatrix.csv files of the reports under a root directory. The binary sidecar files
+     * are used (and written) when the report catalog is used; otherwise existing sidecar files are only read.
+     *
+     * @param rootDirectory the root directory that contains the year directories and the sidecar cache directory.
+     * @return the TIC matrix reader.
+     */
+    private TicMatrixReader createTicMatrixReader(final Path rootDirectory) {
+        return new TicMatrixReader(rootDirectory, useCatalog);
+    }
+
+    /**
+     * Load the report catalog of the root directory, if the catalog is used and the root directory exists.
+     *
+     * @param rootDirectory the root directory that contains the year directories.
+     * @return the report catalog or <code>null</code> if no catalog is used.
+     */
+    private ReportCatalog loadCatalog(final Path rootDirectory) {
+        return useCatalog && Files.isDirectory(rootDirectory)
+               ? ReportCatalog.load(rootDirectory, metricsParser.getMetricsListing().keySet())
+               : null;
+    }
+
+    /**
+     * Determine the number of threads used for searching directories and reading reports.
+     *
+     * @return the number of reader threads.
+     */
+    private int getReaderThreadCount() {
+        return Math.min(MAX_READER_THREADS, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Find all msrun directories within the date range. Each year directory is scanned by a separate task.
+     *
+     * @param executor the executor used to scan the year directories in parallel.
+     * @param scanner the scanner for the directory structure.
+     * @param rootDirectory the root directory that contains the year directories.
+     * @return the msrun directories, sorted on year, month and msrun name.
+     */
+    private List<MsrunDirectory> findMsrunDirectories(final ExecutorService executor,
+                                                      final ReportDirectoryScanner scanner, final Path rootDirectory) {
+        final List<Future<List<MsrunDirectory>>> yearFutures = new ArrayList<>();
+        final List<Path> yearDirectories = scanner.findYearDirectories(rootDirectory);
+        for (final Path yearDirectory : yearDirectories) {
+            yearFutures.add(executor.submit(new Callable<List<MsrunDirectory>>() {
+                @Override
+                public List<MsrunDirectory> call() {
+                    return scanner.scanYearDirectory(yearDirectory);
                 }
+            }));
+        }
+        final List<MsrunDirectory> msrunDirectories = new ArrayList<>();
+        for (int yearIndex = 0; yearIndex < yearFutures.size(); yearIndex++) {
+            final String yearName = yearDirectories.get(yearIndex).getFileName().toString();
+            final List<MsrunDirectory> yearMsrunDirectories = waitForResult(yearFutures.get(yearIndex), yearName);
+            if (yearMsrunDirectories != null) {
+                msrunDirectories.addAll(yearMsrunDirectories);
             }
         }
+        return msrunDirectories;
+    }
+
+    /**
+     * Read the report unit for an msrun directory. This method is called by the reader threads.
+     *
+     * @param msrunDirectory the msrun directory.
+     * @param reportNum the number of the report unit.
+     * @param catalog the report catalog or <code>null</code> if no catalog is used.
+     * @param ticMatrixReader the reader for the *_ticmatrix.csv files.
+     * @return the new report unit.
+     */
+    private ReportUnit readReportUnit(final MsrunDirectory msrunDirectory, final int reportNum,
+                                      final ReportCatalog catalog, final TicMatrixReader ticMatrixReader) {
+        // Check existence of "metrics.json", "_ticmatrix.csv".
+        final String errorMessage = checkDataFilesAvailability(msrunDirectory);
+        return createReportUnit(msrunDirectory, reportNum, !"".equals(errorMessage), catalog, ticMatrixReader);
+    }
+
+    /**
+     * Wait for a task to complete and return its result.
+     *
+     * @param future the future representing the task.
+     * @param name the name of the directory the task is working on (used for logging).
+     * @param <T> the type of the result.
+     * @return the result of the task or <code>null</code> if the task failed.
+     */
+    private <T> T waitForResult(final Future<T> future, final String name) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while reading " + name, e);
+        } catch (final ExecutionException e) {
+            logger.log(Level.SEVERE, "Something went wrong while reading " + name, e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the report directory contains "metrics.json", and "_ticmatrix.csv" files
+     * @param msrunDirectory the folder containing the QC report.
+     * @return errorMessage if the "metrics.json", and "_ticmatrix.csv" files not found
+     */
+    private String checkDataFilesAvailability(final MsrunDirectory msrunDirectory) {
+        String errorMessage = "";
+        final boolean metrics = msrunDirectory.getMetricsFile() != null;
+        final boolean ticMatrix = msrunDirectory.getTicMatrixFile() != null;
         if (!metrics || !ticMatrix) {
-            errorMessage = "<html>In Folder " + msrunName + " following file types are missing:";
+            errorMessage = "<html>In Folder " + msrunDirectory.getMsrunName() + " following file types are missing:";
             if (!metrics) {
                 errorMessage += "metrics.json ";
             }
@@ -159,88 +384,7 @@ public class ReportReader extends JFrame {
 //    }
 
     /**
-     * Retrieve the year directories in the root directory.
-     *
-     * @param rootDirectoryName the name of the root directory in which to search for year directories.
-     * @return the list of year directories.
-     */
-    private List<File> getYearDirectories(final String rootDirectoryName) {
-        final List<File> yearDirectories = new ArrayList<>();
-        final File rootDirectory = new File(FilenameUtils.normalize(rootDirectoryName));
-        if (rootDirectory.exists()) {
-            final File[] yearFiles = rootDirectory.listFiles();
-            if (yearFiles != null) {
-                for (final File yearFile : yearFiles) {
-                    if (isYearDirectory(yearFile)) {
-                        yearDirectories.add(yearFile);
-                    }
-                }
-            }
-        }
-        return yearDirectories;
-    }
-
-    /**
-     * Check whether a year file object is a directory with a four digit name.
-     *
-     * @param yearFile the year file object.
-     * @return whether a year file object is a year directory.
-     */
-    private boolean isYearDirectory(final File yearFile) {
-        boolean isYearDirectory = false;
-        final String yearFileName = yearFile.getName();
-        if (yearFile.isFile()) {
-            logger.fine("File " + yearFileName);
-        } else if (yearFile.isDirectory()) {
-            logger.fine("Directory " + yearFileName);
-            // Confirm whether yearFileName is a 4 digit number or not.
-            if (Pattern.compile("[0-9][0-9][0-9][0-9]").matcher(yearFileName).matches()) {
-                isYearDirectory = true;
-            }
-        }
-        return isYearDirectory;
-    }
-
-    /**
-     * Retrieve the month directories in the year directory.
-     *
-     * @param yearDirectory the year directory in which to search for month directories.
-     * @return the list of month directories.
-     */
-    private List<File> getMonthDirectories(final File yearDirectory) {
-        final List<File> monthDirectories = new ArrayList<>();
-        final File[] monthFiles = yearDirectory.listFiles();
-        if (monthFiles != null) {
-            for (final File monthFile : monthFiles) {
-                if (monthFile.isDirectory() && MONTH_DIRS.contains(monthFile.getName())) {
-                    monthDirectories.add(monthFile);
-                }
-            }
-        }
-        return monthDirectories;
-    }
-
-    /**
-     * Retrieve the MS run directories in the month directory.
-     *
-     * @param monthDirectory the month directory in which to search for MS run directories.
-     * @return the list of MS run directories.
-     */
-    private List<File> getMsRunDirectories(final File monthDirectory) {
-        final ArrayList<File> msRunDirectories = new ArrayList<>();
-        final File[] msRunFiles = monthDirectory.listFiles();
-        if (msRunFiles != null) {
-            for (final File msRunFile : msRunFiles) {
-                if (msRunFile.isDirectory()) {
-                    msRunDirectories.add(msRunFile);
-                }
-            }
-        }
-        return msRunDirectories;
-    }
-
-    /**
-     * Create a report unit and fill it with data from an array of files.
+     * Create a report unit and fill it with data from the files in an msrun directory.
      *
      * We use two specific files:
      * 1) metrics.json: String file containing values of all QC metrics in json object format
@@ -249,58 +393,50 @@ public class ReportReader extends JFrame {
      * "ms1_spectra": ["MS1 Spectra", "7707 (7707)"]}}
      * 2) msrun*_ticmatrix.csv: CSV file containing x and y axis values for drawing ticGraph
      *
-     * @param msrunName the name of the msrun.
-     * @param dataFiles the files used to initialize the report unit.
+     * If the catalog has an up to date entry for the msrun directory, the metrics and the TIC summary are taken from
+     * the catalog. Otherwise the metrics are read from the metrics.json file, the TIC summary is determined from the
+     * *_ticmatrix.csv file and a new entry is stored in the catalog. The TIC graph itself is loaded later, when it is
+     * needed.
+     *
+     * @param msrunDirectory the msrun directory with the files used to initialize the report unit.
+     * @param reportNum the number of the report unit.
      * @param errorFlag whether an error occurred while reading the files.
+     * @param catalog the report catalog or <code>null</code> if no catalog is used.
+     * @param ticMatrixReader the reader for the *_ticmatrix.csv files.
      * @return the new report unit.
      */
-    private ReportUnit createReportUnit(final String msrunName, final File[] dataFiles, final boolean errorFlag) {
-        currentReportNum++;
-        logger.fine("Creating report unit No. " + currentReportNum + " for msrun " + msrunName);
-        final ReportUnit reportUnit = new ReportUnit(msrunName, currentReportNum);
-        reportUnit.setErrorFlag(errorFlag); 
-        for (final File dataFile : dataFiles) {
-            final String dataFileName = dataFile.getName();
-            if (dataFile.isFile()) {
-                logger.fine("File " + dataFileName);
-                if (dataFileName.equals("metrics.json")) {
-                    reportUnit.setMetricsValues(jsonMetricsReader.readJsonValues(dataFile));
-                } else if (dataFileName.endsWith("_ticmatrix.csv")) {
-                    reportUnit.createChartUnit(readXYSeries(msrunName, dataFile));
-                }
-            } else if (dataFile.isDirectory()) {
-                logger.fine("Directory " + dataFileName);
+    private ReportUnit createReportUnit(final MsrunDirectory msrunDirectory, final int reportNum,
+                                        final boolean errorFlag, final ReportCatalog catalog,
+                                        final TicMatrixReader ticMatrixReader) {
+        final String msrunName = msrunDirectory.getMsrunName();
+        logger.fine("Creating report unit No. " + reportNum + " for msrun " + msrunName);
+        final ReportUnit reportUnit = new ReportUnit(msrunName, reportNum);
+        reportUnit.setErrorFlag(errorFlag);
+        final ReportCatalog.CatalogEntry catalogEntry = catalog != null ? catalog.getEntry(msrunDirectory) : null;
+        MetricValues metricValues = null;
+        if (catalogEntry != null) {
+            if (catalogEntry.getMetricsValues() != null) {
+                metricValues = MetricValues.fromMap(jsonMetricsReader.getMetricSchema(), catalogEntry.getMetricsValues());
             }
+        } else if (msrunDirectory.getMetricsFile() != null) {
+            metricValues = jsonMetricsReader.readMetricValues(msrunDirectory.getMetricsFile().toFile());
         }
-        return reportUnit;
-    }
-
-    /**
-     * Create XYSeries by reading TIC matrix file that contains X & Y axis values representing TIC graph
-     * @param msrunName the name of the msrun
-     * @param ticMatrixFile the tic matrix file to read from
-     * @return XYSeries
-     */
-    private XYSeries readXYSeries(final String msrunName, final File ticMatrixFile) {
-        final XYSeries series = new XYSeries(msrunName);
-        try {
-            final BufferedReader bufferedReader = new BufferedReader(new FileReader(ticMatrixFile));
-            bufferedReader.readLine(); //skip first line e.g. ms1Spectra,9239
-            bufferedReader.readLine(); //skip second line e.g. ms2Spectra,34040
-            bufferedReader.readLine(); //skip third line e.g. maxIntensity,7.8563E9
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                final StringTokenizer lineTokenizer = new StringTokenizer(line, ",");
-                // The first token is the x value.
-                float x = Float.parseFloat(lineTokenizer.nextToken())/60;
-                // The second token is the y value.
-                float y = Float.parseFloat(lineTokenizer.nextToken());
-                series.add(x, y);
+        reportUnit.setMetricValues(metricValues);
+        TicSummary ticSummary = catalogEntry != null ? catalogEntry.getTicSummary() : null;
+        if (msrunDirectory.getTicMatrixFile() != null) {
+            if (ticSummary == null) {
+                // Only the summary is kept; the TIC graph is loaded again when it is needed.
+                try {
+                    ticSummary = TicSummary.fromTicMatrix(ticMatrixReader.readTicMatrix(msrunDirectory.getTicMatrixFile()));
+                } catch (final IOException e) {
+                    logger.log(Level.SEVERE, "Something went wrong while reading graph series data", e);
+                }
             }
-            bufferedReader.close();
-        } catch (NumberFormatException | IOException e) {
-        	logger.log(Level.SEVERE, "Something went wrong while reading graph series data", e);
+            reportUnit.setTicMatrixFile(msrunDirectory.getTicMatrixFile(), ticSummary, ticMatrixReader);
         }
-        return series;
+        if (catalog != null && catalogEntry == null) {
+            catalog.putEntry(msrunDirectory, metricValues != null ? metricValues.toMap() : null, ticSummary);
+        }
+        return reportUnit;
     }
 }
@@ -0,0 +1,349 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import nl.ctmm.trait.proteomics.qcviewer.utils.IndexSort;
+
+/**
+ * The object of this class keeps a sorted permutation of the report units per sort key, so sorting on a key that was
+ * used before only reorders the reports instead of sorting them again.
+ * <p/>
+ * Only the ascending permutation is stored: descending order reads it backwards, keeping reports with equal keys in
+ * their original order. When reports are added, the new reports are sorted and merged into each cached permutation.
+ * The order is the same as the order of {@link ReportUnit#sortReportUnits(List, String, boolean)}.
+ * <p/>
+ * Reports can also be sorted on a list of {@link SortCriterion}s, which compares composite primitive keys taken from
+ * the cached permutations.
+ * <p/>
+ * The permutations also serve as index for filtering (see {@link ReportFilter}): the reports with a key in a range
+ * are found with a binary search in the sorted keys and returned as a bit set of report indices.
+ * <p/>
+ * The sort index is not thread safe; the viewer uses it on the event dispatch thread.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportSortIndex {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(ReportSortIndex.class.getName());
+
+    /**
+     * The indexed report units, in their original order.
+     */
+    private final List<ReportUnit> reportUnits = new ArrayList<>();
+
+    /**
+     * The ascending permutation per sort key.
+     */
+    private final Map<String, Permutation> permutations = new HashMap<>();
+
+    /**
+     * Remove all report units and cached permutations.
+     */
+    public void clear() {
+        reportUnits.clear();
+        permutations.clear();
+    }
+
+    /**
+     * Add report units after the existing ones. The new reports are merged into the cached permutations.
+     *
+     * @param newReportUnits the report units to add.
+     */
+    public void addReportUnits(final List<ReportUnit> newReportUnits) {
+        final int oldCount = reportUnits.size();
+        reportUnits.addAll(newReportUnits);
+        for (final Map.Entry<String, Permutation> entry : permutations.entrySet()) {
+            entry.getValue().merge(entry.getKey(), oldCount);
+        }
+    }
+
+    /**
+     * Get the number of indexed report units.
+     *
+     * @return the number of report units.
+     */
+    public int size() {
+        return reportUnits.size();
+    }
+
+    /**
+     * Get the report units in sorted order.
+     *
+     * @param sortKey the key to sort on (see {@link ReportUnit#getSortKey(String)}).
+     * @param ascending whether to sort in ascending or descending order.
+     * @return a new list with the sorted report units.
+     */
+    public List<ReportUnit> getSortedReportUnits(final String sortKey, final boolean ascending) {
+        return getReportUnits(getSortedIndices(sortKey, ascending));
+    }
+
+    /**
+     * Get the report units sorted on a list of sort criteria.
+     *
+     * @param sortCriteria the sort criteria; later criteria decide the order of reports that are equal for all earlier
+     *                     criteria.
+     * @return a new list with the sorted report units.
+     */
+    public List<ReportUnit> getSortedReportUnits(final List<SortCriterion> sortCriteria) {
+        return getReportUnits(getSortedIndices(sortCriteria));
+    }
+
+    /**
+     * Get the report units sorted on a list of sort criteria, leaving out the reports that are not matched by a filter.
+     *
+     * @param sortCriteria the sort criteria; an empty list keeps the original order.
+     * @param matches the indices of the report units to include or <code>null</code> to include all report units.
+     * @return a new list with the sorted report units.
+     */
+    public List<ReportUnit> getSortedReportUnits(final List<SortCriterion> sortCriteria, final BitSet matches) {
+        final int[] sortedIndices = getSortedIndices(sortCriteria);
+        final List<ReportUnit> sortedReportUnits = new ArrayList<>(matches != null ? matches.cardinality()
+                                                                                   : sortedIndices.length);
+        for (final int index : sortedIndices) {
+            if (matches == null || matches.get(index)) {
+                sortedReportUnits.add(reportUnits.get(index));
+            }
+        }
+        return sortedReportUnits;
+    }
+
+    /**
+     * Find the report units with a key in a range. Report units for which the key is missing are never in a range.
+     *
+     * @param sortKey the key (see {@link ReportUnit#getSortKey(String)}).
+     * @param low the lower bound of the range; use negative infinity for no lower bound.
+     * @param lowInclusive whether the lower bound is part of the range.
+     * @param high the upper bound of the range; use positive infinity for no upper bound.
+     * @param highInclusive whether the upper bound is part of the range.
+     * @return the indices of the report units with a key in the range.
+     */
+    public BitSet getMatchesInRange(final String sortKey, final double low, final boolean lowInclusive,
+                                    final double high, final boolean highInclusive) {
+        final Permutation permutation = getPermutation(sortKey);
+        final int start = permutation.findPosition(low, !lowInclusive);
+        final int end = permutation.findPosition(high, highInclusive);
+        return permutation.getIndices(start, Math.max(start, end));
+    }
+
+    /**
+     * Find the report units for which a key is missing (or not a number).
+     *
+     * @param sortKey the key (see {@link ReportUnit#getSortKey(String)}).
+     * @return the indices of the report units for which the key is missing.
+     */
+    public BitSet getMissing(final String sortKey) {
+        final Permutation permutation = getPermutation(sortKey);
+        return permutation.getIndices(0, permutation.findPosition(Double.NEGATIVE_INFINITY, false));
+    }
+
+    /**
+     * Get the indices of the report units in sorted order.
+     *
+     * @param sortKey the key to sort on (see {@link ReportUnit#getSortKey(String)}).
+     * @param ascending whether to sort in ascending or descending order.
+     * @return the indices (in the order in which the report units were added) in sorted order.
+     */
+    public int[] getSortedIndices(final String sortKey, final boolean ascending) {
+        final Permutation permutation = getPermutation(sortKey);
+        return ascending ? permutation.order.clone() : permutation.getDescendingOrder();
+    }
+
+    /**
+     * Get the indices of the report units sorted on a list of sort criteria. A single criterion uses the cached
+     * permutation; for more criteria, the sort keys per report are taken from the cached permutations and the reports
+     * are sorted on the composite keys.
+     *
+     * @param sortCriteria the sort criteria; later criteria decide the order of reports that are equal for all earlier
+     *                     criteria.
+     * @return the indices (in the order in which the report units were added) in sorted order.
+     */
+    public int[] getSortedIndices(final List<SortCriterion> sortCriteria) {
+        if (sortCriteria.size() == 1) {
+            return getSortedIndices(sortCriteria.get(0).getSortKey(), sortCriteria.get(0).isAscending());
+        }
+        final double[][] keyColumns = new double[sortCriteria.size()][];
+        final boolean[] ascending = new boolean[sortCriteria.size()];
+        for (int column = 0; column < keyColumns.length; column++) {
+            keyColumns[column] = getPermutation(sortCriteria.get(column).getSortKey()).getKeysByIndex();
+            ascending[column] = sortCriteria.get(column).isAscending();
+        }
+        return keyColumns.length > 0 ? IndexSort.sortIndices(keyColumns, ascending) : getOriginalOrder();
+    }
+
+    /**
+     * Get the cached permutation for a sort key, creating it if needed.
+     *
+     * @param sortKey the sort key.
+     * @return the permutation.
+     */
+    private Permutation getPermutation(final String sortKey) {
+        Permutation permutation = permutations.get(sortKey);
+        if (permutation == null) {
+            logger.fine("Creating sort permutation for " + sortKey);
+            permutation = new Permutation();
+            permutation.merge(sortKey, 0);
+            permutations.put(sortKey, permutation);
+        }
+        return permutation;
+    }
+
+    /**
+     * Get the indices of the report units in their original order.
+     *
+     * @return the indices.
+     */
+    private int[] getOriginalOrder() {
+        final int[] indices = new int[reportUnits.size()];
+        for (int index = 0; index < indices.length; index++) {
+            indices[index] = index;
+        }
+        return indices;
+    }
+
+    /**
+     * Get the report units for a list of indices.
+     *
+     * @param indices the indices.
+     * @return a new list with the report units.
+     */
+    private List<ReportUnit> getReportUnits(final int[] indices) {
+        final List<ReportUnit> sortedReportUnits = new ArrayList<>(indices.length);
+        for (final int index : indices) {
+            sortedReportUnits.add(reportUnits.get(index));
+        }
+        return sortedReportUnits;
+    }
+
+    /**
+     * The ascending permutation of the report units for one sort key.
+     */
+    private class Permutation {
+        /**
+         * The indices of the report units in ascending order.
+         */
+        private int[] order = new int[0];
+
+        /**
+         * The sort keys in ascending order (the key of <code>order[i]</code> is <code>keys[i]</code>).
+         */
+        private double[] keys = new double[0];
+
+        /**
+         * Merge the report units from <code>startIndex</code> onward into this permutation.
+         *
+         * @param sortKey the sort key.
+         * @param startIndex the index of the first report unit that is not in the permutation yet.
+         */
+        private void merge(final String sortKey, final int startIndex) {
+            final int newCount = reportUnits.size() - startIndex;
+            if (newCount <= 0) {
+                return;
+            }
+            final double[] newKeys = new double[newCount];
+            for (int index = 0; index < newCount; index++) {
+                newKeys[index] = reportUnits.get(startIndex + index).getSortKey(sortKey);
+            }
+            final int[] newOrder = IndexSort.sortIndices(newKeys, true);
+            final int[] mergedOrder = new int[order.length + newCount];
+            final double[] mergedKeys = new double[mergedOrder.length];
+            int oldPosition = 0;
+            int newPosition = 0;
+            for (int target = 0; target < mergedOrder.length; target++) {
+                // On equal keys the existing report goes first, since it was added before the new reports.
+                if (newPosition >= newCount
+                    || (oldPosition < order.length
+                        && IndexSort.compare(keys[oldPosition], newKeys[newOrder[newPosition]], true) <= 0)) {
+                    mergedOrder[target] = order[oldPosition];
+                    mergedKeys[target] = keys[oldPosition++];
+                } else {
+                    mergedOrder[target] = startIndex + newOrder[newPosition];
+                    mergedKeys[target] = newKeys[newOrder[newPosition++]];
+                }
+            }
+            order = mergedOrder;
+            keys = mergedKeys;
+        }
+
+        /**
+         * Find the position in the sorted keys of the first key that is larger than (or equal to) a value. Missing
+         * keys are at the start of the sorted keys and are skipped.
+         *
+         * @param value the value.
+         * @param afterEqualKeys whether to skip the keys that are equal to the value.
+         * @return the position of the first key that is larger than the value (or larger than or equal to the value
+         *         if <code>afterEqualKeys</code> is <code>false</code>).
+         */
+        private int findPosition(final double value, final boolean afterEqualKeys) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                final double key = keys[middle];
+                if (Double.isNaN(key) || key < value || (afterEqualKeys && key == value)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Get the report indices of a range of positions in the sorted keys.
+         *
+         * @param start the start position (inclusive).
+         * @param end the end position (exclusive).
+         * @return the report indices.
+         */
+        private BitSet getIndices(final int start, final int end) {
+            final BitSet indices = new BitSet(order.length);
+            for (int position = start; position < end; position++) {
+                indices.set(order[position]);
+            }
+            return indices;
+        }
+
+        /**
+         * Get the sort keys in the order of the report units (instead of in sorted order).
+         *
+         * @return the sort key per report unit.
+         */
+        private double[] getKeysByIndex() {
+            final double[] keysByIndex = new double[order.length];
+            for (int position = 0; position < order.length; position++) {
+                keysByIndex[order[position]] = keys[position];
+            }
+            return keysByIndex;
+        }
+
+        /**
+         * Read the permutation backwards, keeping runs of equal keys in ascending index order so the descending order
+         * is stable as well.
+         *
+         * @return the indices of the report units in descending order.
+         */
+        private int[] getDescendingOrder() {
+            final int[] descendingOrder = new int[order.length];
+            int target = 0;
+            int runEnd = order.length;
+            while (runEnd > 0) {
+                int runStart = runEnd - 1;
+                while (runStart > 0 && IndexSort.compare(keys[runStart - 1], keys[runEnd - 1], true) == 0) {
+                    runStart--;
+                }
+                System.arraycopy(order, runStart, descendingOrder, target, runEnd - runStart);
+                target += runEnd - runStart;
+                runEnd = runStart;
+            }
+            return descendingOrder;
+        }
+    }
+}
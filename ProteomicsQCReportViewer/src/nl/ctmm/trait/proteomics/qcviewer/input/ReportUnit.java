@@ -1,16 +1,18 @@
 package nl.ctmm.trait.proteomics.qcviewer.input;
 
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import nl.ctmm.trait.proteomics.qcviewer.gui.ChartUnit;
+import javax.swing.SwingUtilities;
 
-import org.jfree.data.xy.XYSeries;
+import nl.ctmm.trait.proteomics.qcviewer.gui.ChartUnit;
+import nl.ctmm.trait.proteomics.qcviewer.utils.IndexSort;
 
 /**
  * The object of this class represents report of single msrun.
@@ -24,6 +26,21 @@ import org.jfree.data.xy.XYSeries;
 public class ReportUnit implements Comparable<ReportUnit>{
     private static final Logger logger = Logger.getLogger(ReportUnit.class.getName());
 
+    /**
+     * The sort key for sorting on the report number.
+     */
+    public static final String REPORT_NUMBER_SORT_KEY = "No.";
+
+    /**
+     * The metric key for the maximum intensity of the tic graph, which is not read from the metrics.json file.
+     */
+    public static final String MAX_INTENSITY_KEY = "generic:maxIntensity";
+
+    /**
+     * The sort key for sorting on the maximum intensity of the tic graph.
+     */
+    public static final String MAX_INTENSITY_SORT_KEY = "maxIntensity";
+
     private int reportNum = -1;
     private int reportIndex = -1; 
     private String fileSizeString = "N/A";
@@ -36,9 +53,45 @@ public class ReportUnit implements Comparable<ReportUnit>{
 
     private boolean errorFlag = false; //to signify that one or more files belonging to this report are missing
     
-    public Map<String, String> metricsValues;
-    //ChartUnit to hold corresponding chart
-    private ChartUnit ticChartUnit = null;
+    /**
+     * The values of the QC metrics or <code>null</code> if they are not known.
+     */
+    private MetricValues metricValues;
+    /**
+     * The chart unit with the TIC chart, or <code>null</code> if it has not been created yet. The chart unit is created
+     * when it is first needed, so reports that are never shown do not keep a chart in memory.
+     */
+    private ChartUnit ticChartUnit;
+
+    /**
+     * The reader used to load the TIC series on demand.
+     */
+    private TicMatrixReader ticMatrixReader;
+
+    /**
+     * The *_ticmatrix.csv file from which the TIC series still has to be loaded, or <code>null</code> if the series has
+     * been loaded or there is no TIC matrix file. This field is changed while holding the lock of this report unit and
+     * can be read without it.
+     */
+    private volatile Path ticMatrixFile;
+
+    /**
+     * The *_ticmatrix.csv file of this report, which is kept after the TIC series has been loaded so the series can be
+     * released and loaded again (see {@link #releaseTicSeries()}), or <code>null</code> if it is not known.
+     */
+    private Path ticMatrixSourceFile;
+
+    /**
+     * The number of times the TIC series has been released. A series that was being loaded while it was released is
+     * not used, since the report is no longer shown.
+     */
+    private int ticSeriesReleaseCount;
+
+    /**
+     * The summary of the TIC graph, which is available before the TIC series is loaded. This field is changed while
+     * holding the lock of this report unit and can be read without it.
+     */
+    private volatile TicSummary ticSummary;
 
     /**
      * One row in the QC Report Viewer table corresponds to one QC ReportUnit.
@@ -51,8 +104,6 @@ public class ReportUnit implements Comparable<ReportUnit>{
         this.msrunName = msrunName;
         this.reportNum = reportNum;
         reportIndex = reportNum - 1; 
-        //Create default chart unit to handle problems due to missing series data 
-        ticChartUnit = new ChartUnit(msrunName, reportIndex, null);
     }
 
 	/**
@@ -60,16 +111,23 @@ public class ReportUnit implements Comparable<ReportUnit>{
      * @param key metrics key in String format
      */
     public String getMetricsValueFromKey(final String key) {
-        return (metricsValues != null && metricsValues.containsKey(key)) ? metricsValues.get(key) : "N/A";
+        return metricValues != null ? metricValues.getValue(key) : MetricValues.NOT_AVAILABLE;
     }
 
     /**
-     * Get the value of parameter reportNum
+     * Set the value of parameter reportNum. The report index and the chart unit are updated as well, since the viewer
+     * uses the index to look up the report unit.
      *
      * @param reportNum Serial number of current ReportUnit
      */
-    public void setReportNum(final int reportNum) {
+    public synchronized void setReportNum(final int reportNum) {
         this.reportNum = reportNum;
+        if (reportIndex != reportNum - 1) {
+            reportIndex = reportNum - 1;
+            if (ticChartUnit != null) {
+                ticChartUnit.setReportIndex(reportIndex);
+            }
+        }
     }
     
     /**
@@ -138,17 +196,145 @@ public class ReportUnit implements Comparable<ReportUnit>{
 
     /**
      * Create ticChart and corresponding chart data for this report unit
-     * @param series a sequence of (x, y) data items
+     * @param ticMatrix the points of the TIC graph
+     */
+    public synchronized void createChartUnit(final TicMatrix ticMatrix) {
+        ticChartUnit = new ChartUnit(msrunName, reportIndex, ticMatrix);
+        ticSummary = TicSummary.fromTicMatrix(ticMatrix);
+        ticMatrixFile = null;
+        ticMatrixSourceFile = null;
+    }
+
+    /**
+     * Set the TIC matrix file from which the TIC series will be loaded when it is needed, together with the summary of
+     * the TIC graph that is available right away.
+     *
+     * @param ticMatrixFile the *_ticmatrix.csv file.
+     * @param ticSummary the summary of the TIC graph or <code>null</code> if it is not known.
+     * @param ticMatrixReader the reader used to load the TIC series.
+     */
+    public synchronized void setTicMatrixFile(final Path ticMatrixFile, final TicSummary ticSummary,
+                                              final TicMatrixReader ticMatrixReader) {
+        this.ticMatrixFile = ticMatrixFile;
+        this.ticMatrixSourceFile = ticMatrixFile;
+        this.ticMatrixReader = ticMatrixReader;
+        this.ticSummary = ticSummary;
+        if (ticSummary != null && ticChartUnit != null) {
+            ticChartUnit.setMaxTicIntensity(ticSummary.getMaxIntensity());
+        }
+    }
+
+    /**
+     * Check whether the TIC series still has to be loaded. This method does not wait for a TIC series that is being
+     * loaded, so it can be called on the event dispatch thread.
+     *
+     * @return whether the TIC series still has to be loaded.
+     */
+    public boolean isTicSeriesPending() {
+        return ticMatrixFile != null;
+    }
+
+    /**
+     * Load the TIC series if that has not been done yet. The file is read without holding the lock of this report unit;
+     * if another thread loads the same series at the same time, only the first result is used. The series is added to
+     * the chart unit on the event dispatch thread, so charts that are shown already are redrawn with the new data.
+     */
+    public void loadTicSeries() {
+        final Path file;
+        final TicMatrixReader reader;
+        final int releaseCount;
+        synchronized (this) {
+            file = ticMatrixFile;
+            reader = ticMatrixReader;
+            releaseCount = ticSeriesReleaseCount;
+        }
+        if (file == null) {
+            return;
+        }
+        TicMatrix ticMatrix = null;
+        try {
+            ticMatrix = reader.readTicMatrix(file);
+        } catch (final IOException e) {
+            logger.log(Level.SEVERE, "Something went wrong while reading TIC matrix file " + file, e);
+        }
+        final ChartUnit chartUnit;
+        synchronized (this) {
+            if (ticMatrixFile != file || ticSeriesReleaseCount != releaseCount) {
+                // The series has been loaded by another thread, replaced or released in the meantime.
+                return;
+            }
+            ticMatrixFile = null;
+            if (ticSummary == null) {
+                ticSummary = TicSummary.fromTicMatrix(ticMatrix);
+            }
+            chartUnit = getChartUnit();
+        }
+        final TicMatrix loadedTicMatrix = ticMatrix;
+        if (SwingUtilities.isEventDispatchThread()) {
+            chartUnit.setTicMatrix(loadedTicMatrix);
+        } else {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    chartUnit.setTicMatrix(loadedTicMatrix);
+                }
+            });
+        }
+    }
+
+    /**
+     * Release the TIC series and the chart unit of this report, for example when the report has not been shown for a
+     * while. The summary of the TIC graph is kept and the series is loaded again from the TIC matrix file when it is
+     * needed. A series that was not read from a file is never released.
+     *
+     * @return the released chart unit or <code>null</code> if there was nothing to release.
+     */
+    public synchronized ChartUnit releaseTicSeries() {
+        if (ticChartUnit == null || ticMatrixSourceFile == null) {
+            return null;
+        }
+        final ChartUnit releasedChartUnit = ticChartUnit;
+        ticChartUnit = null;
+        ticMatrixFile = ticMatrixSourceFile;
+        ticSeriesReleaseCount++;
+        return releasedChartUnit;
+    }
+
+    /**
+     * Get the summary of the TIC graph.
+     *
+     * @return the summary of the TIC graph or <code>null</code> if it is not known (yet).
      */
-    public void createChartUnit(final XYSeries series) {
-        ticChartUnit = new ChartUnit(msrunName, reportIndex, series);
+    public TicSummary getTicSummary() {
+        return ticSummary;
+    }
+
+    /**
+     * Get the maximum intensity of the TIC graph. If there is no TIC summary, the TIC series is loaded first (without
+     * holding the lock of this report unit).
+     *
+     * @return the maximum intensity of the TIC graph or 0 if there is no TIC graph.
+     */
+    public double getMaxTicIntensity() {
+        if (ticSummary == null) {
+            loadTicSeries();
+        }
+        final TicSummary summary = ticSummary;
+        return summary != null ? summary.getMaxIntensity() : 0;
     }
     
     /**
-     * Get ticChart and corresponding chart data for this report unit 
+     * Get ticChart and corresponding chart data for this report unit. The chart unit is created on the first call; its
+     * TIC series is added when it has been loaded (see {@link #loadTicSeries()}).
      * @return ChartUnit corresponding to this reportUnit
      */
-    public ChartUnit getChartUnit() {
+    public synchronized ChartUnit getChartUnit() {
+        if (ticChartUnit == null) {
+            ticChartUnit = new ChartUnit(msrunName, reportIndex, null);
+            if (ticSummary != null) {
+                ticChartUnit.setMaxTicIntensity(ticSummary.getMaxIntensity());
+            }
+        }
         return ticChartUnit;
     }
     
@@ -248,7 +434,18 @@ public class ReportUnit implements Comparable<ReportUnit>{
      */
     public void setMetricsValues(final Map<String, String> metricsValues) {
         if (metricsValues != null) {
-            this.metricsValues = new HashMap<>(metricsValues);
+            setMetricValues(MetricValues.fromMap(MetricSchema.forKeys(metricsValues.keySet()), metricsValues));
+        }
+    }
+
+    /**
+     * Set values of QC metrics in this report.
+     *
+     * @param metricValues the values of the QC metrics.
+     */
+    public void setMetricValues(final MetricValues metricValues) {
+        if (metricValues != null) {
+            this.metricValues = metricValues;
             //Set values of certain parameters to aid in the comparison
             this.fileSizeString = this.getMetricsValueFromKey("generic:f_size");
             setFileSizeString(fileSizeString);
@@ -260,11 +457,20 @@ public class ReportUnit implements Comparable<ReportUnit>{
     }
     
     /**
-     * Get map with values of QC metrics in this report
+     * Get map with values of QC metrics in this report. The map is created on each call.
      * @return metricsValues map containing QC metrics keys and corresponding values
      */
     public Map<String, String> getMetricsValues() {
-        return metricsValues;
+        return metricValues != null ? metricValues.toMap() : null;
+    }
+
+    /**
+     * Get the values of QC metrics in this report.
+     *
+     * @return the values of the QC metrics or <code>null</code> if they are not known.
+     */
+    public MetricValues getMetricValues() {
+        return metricValues;
     }
 
     @Override
@@ -273,7 +479,27 @@ public class ReportUnit implements Comparable<ReportUnit>{
     }
 
     /**
-     * Get a comparator to compare report units.
+     * Get the numeric sort key of this report for a metric. The metrics values are parsed when they are read, so
+     * getting a sort key does not parse strings.
+     *
+     * @param sortKey the "category:code" key of the metric, "No." for the report number or "maxIntensity" for the
+     *                maximum intensity of the tic graph.
+     * @return the sort key or NaN if the metric is not available.
+     */
+    public double getSortKey(final String sortKey) {
+        if (REPORT_NUMBER_SORT_KEY.equals(sortKey)) {
+            return reportNum;
+        } else if (MAX_INTENSITY_KEY.equals(sortKey) || MAX_INTENSITY_SORT_KEY.equals(sortKey)) {
+            return getMaxTicIntensity();
+        }
+        final MetricValues values = metricValues;
+        final int index = values != null ? values.getSchema().getIndex(sortKey) : -1;
+        return index >= 0 ? values.getNumber(index) : Double.NaN;
+    }
+
+    /**
+     * Get a comparator to compare report units. Reports for which the metric is not available are sorted first in
+     * ascending order and last in descending order.
      * 
      * @param sortKey the key to sort on.
      * @param ascending whether to sort in ascending or descending order.               
@@ -283,82 +509,30 @@ public class ReportUnit implements Comparable<ReportUnit>{
         return new Comparator<ReportUnit>() {
             @Override
             public int compare(final ReportUnit reportUnit1, final ReportUnit reportUnit2) {
-                final String value1 = reportUnit1.getMetricsValueFromKey(sortKey);
-                final String value2 = reportUnit2.getMetricsValueFromKey(sortKey);
-                try {
-                    if (value1.equals(value2)) {
-                        return 0; 
-                    } else if (value2.equals("N/A")) { //thisValue is valid and present
-                        return ascending ? 1 : -1; //if ascending = true, return 1 else return -1
-                    } else if (value1.equals("N/A")) { //otherValue is valid and present
-                        return ascending ? -1 : 1; //if ascending = true, return -1 else return 1
-                    } else if (sortKey.equals("No.")) {
-                        if (reportUnit1.reportNum > reportUnit2.reportNum) {
-                            return ascending ? 1 : -1; 
-                        } else if (reportUnit1.reportNum < reportUnit2.reportNum) {
-                            return ascending ? -1 : 1; 
-                        } else
-                            return 0; //equal reportNum
-                    } else if (sortKey.equals("generic:f_size")) {
-                        if (reportUnit1.fileSize > reportUnit2.fileSize) {
-                            return ascending ? 1 : -1; 
-                        } else if (reportUnit1.fileSize < reportUnit2.fileSize) {
-                            return ascending ? -1 : 1; 
-                        } else
-                            return 0;
-                    } else if (sortKey.equals("generic:ms1_spectra")) {
-                        int thisms1Spectra = Integer.parseInt(value1);
-                        int otherms1Spectra = Integer.parseInt(value2);
-                        if (thisms1Spectra > otherms1Spectra) {
-                            return ascending ? 1 : -1; 
-                        } else if (thisms1Spectra < otherms1Spectra) {
-                            return ascending ? -1 : 1; 
-                        } else return 0;
-                    } else if (sortKey.equals("generic:ms2_spectra")) {
-                        int thisms2Spectra = Integer.parseInt(value1);
-                        int otherms2Spectra = Integer.parseInt(value2);
-                        if (thisms2Spectra > otherms2Spectra) {
-                            return ascending ? 1 : -1; 
-                        } else if (thisms2Spectra < otherms2Spectra) {
-                            return ascending ? -1 : 1; 
-                        } else return 0;
-                    } else if (sortKey.equals("generic:date")) {
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MMM/dd - HH:mm");
-                        Date thisDate = sdf.parse(reportUnit1.measured);
-                        Date otherDate = sdf.parse(reportUnit2.measured);
-                        if (thisDate.compareTo(otherDate) > 0) {
-                            return ascending ? 1 : -1; 
-                        } else if (thisDate.compareTo(otherDate) < 0) {
-                            return ascending ? -1 : 1; 
-                        } else return 0;
-                    } else if (sortKey.equals("generic:runtime")) {
-                        if (reportUnit1.runtime.compareToIgnoreCase(reportUnit2.runtime) > 0) {
-                            return ascending ? 1 : -1; 
-                        } else if (reportUnit1.runtime.compareToIgnoreCase(reportUnit2.runtime) < 0) {
-                            return ascending ? -1 : 1; 
-                        } else return 0; 
-                    } else if (sortKey.equals("maxIntensity")) {
-                        if (reportUnit1.getChartUnit().getMaxTicIntensity() > reportUnit2.getChartUnit().getMaxTicIntensity()) { 
-                            return ascending ? 1 : -1; 
-                        } else if (reportUnit1.getChartUnit().getMaxTicIntensity() < reportUnit2.getChartUnit().getMaxTicIntensity()) { 
-                            return ascending ? -1 : 1; 
-                        } else return 0; 
-                    } else {
-                        double thisDouble = Double.parseDouble(value1);
-                        double otherDouble = Double.parseDouble(value2);
-                        if (thisDouble > otherDouble) { 
-                            return ascending ? 1 : -1; 
-                        } else if (thisDouble < otherDouble) { 
-                            return ascending ? -1 : 1; 
-                        } else return 0; 
-                    }
-                } catch (Exception e) {
-                    logger.warning("Exception type " + e.getClass().toString() + " thisValue = " + value1 +
-                                       " otherValue = " + value2);
-                    e.printStackTrace();
-                }
-                return 0; 
+                return IndexSort.compare(reportUnit1.getSortKey(sortKey), reportUnit2.getSortKey(sortKey), ascending);
             }
         };
-    } 
+    }
+
+    /**
+     * Sort report units. The sort keys are collected once in a primitive array, which is sorted with a stable sort, so
+     * sorting many reports does not call the comparator for every pair of reports that is compared.
+     *
+     * @param reportUnits the report units to sort.
+     * @param sortKey the key to sort on.
+     * @param ascending whether to sort in ascending or descending order.
+     * @return a new list with the sorted report units.
+     */
+    public static List<ReportUnit> sortReportUnits(final List<ReportUnit> reportUnits, final String sortKey,
+                                                   final boolean ascending) {
+        final double[] sortKeys = new double[reportUnits.size()];
+        for (int index = 0; index < sortKeys.length; index++) {
+            sortKeys[index] = reportUnits.get(index).getSortKey(sortKey);
+        }
+        final List<ReportUnit> sortedReportUnits = new ArrayList<>(sortKeys.length);
+        for (final int index : IndexSort.sortIndices(sortKeys, ascending)) {
+            sortedReportUnits.add(reportUnits.get(index));
+        }
+        return sortedReportUnits;
+    }
 }
@@ -0,0 +1,135 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * The object of this class contains one criterion for sorting reports: a sort key (see
+ * {@link ReportUnit#getSortKey(String)}) and a sort order. Reports are sorted on a list of criteria: later criteria
+ * only decide the order of reports that are equal for all earlier criteria.
+ * <p/>
+ * A list of criteria can be written to and read from a string like "generic:date@Des,dyn:ds-1a@Asc", which is how it is
+ * stored in the application properties.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public final class SortCriterion {
+    /**
+     * The text for ascending sort order.
+     */
+    public static final String ORDER_ASCENDING = "Asc";
+
+    /**
+     * The text for descending sort order.
+     */
+    public static final String ORDER_DESCENDING = "Des";
+
+    /**
+     * The separator between the sort key and the sort order.
+     */
+    public static final String ORDER_SEPARATOR = "@";
+
+    /**
+     * The separator between the criteria in a list.
+     */
+    private static final String LIST_SEPARATOR = ",";
+
+    /**
+     * The sort key.
+     */
+    private final String sortKey;
+
+    /**
+     * Whether to sort in ascending or descending order.
+     */
+    private final boolean ascending;
+
+    /**
+     * Create a sort criterion.
+     *
+     * @param sortKey the sort key.
+     * @param ascending whether to sort in ascending or descending order.
+     */
+    public SortCriterion(final String sortKey, final boolean ascending) {
+        this.sortKey = sortKey;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Get the sort key.
+     *
+     * @return the sort key.
+     */
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Whether to sort in ascending or descending order.
+     *
+     * @return <code>true</code> for ascending and <code>false</code> for descending order.
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Parse a list of sort criteria like "generic:date@Des,dyn:ds-1a@Asc". Invalid criteria are skipped.
+     *
+     * @param sortCriteria the sort criteria or <code>null</code>.
+     * @return the list of sort criteria, which is empty if there are no valid criteria.
+     */
+    public static List<SortCriterion> parseList(final String sortCriteria) {
+        final List<SortCriterion> criteria = new ArrayList<>();
+        if (sortCriteria != null) {
+            final StringTokenizer tokenizer = new StringTokenizer(sortCriteria, LIST_SEPARATOR);
+            while (tokenizer.hasMoreTokens()) {
+                final String criterion = tokenizer.nextToken().trim();
+                final int separatorIndex = criterion.lastIndexOf(ORDER_SEPARATOR);
+                final String order = separatorIndex > 0 ? criterion.substring(separatorIndex + 1) : "";
+                if (ORDER_ASCENDING.equals(order) || ORDER_DESCENDING.equals(order)) {
+                    criteria.add(new SortCriterion(criterion.substring(0, separatorIndex), ORDER_ASCENDING.equals(order)));
+                }
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Format a list of sort criteria like "generic:date@Des,dyn:ds-1a@Asc".
+     *
+     * @param sortCriteria the list of sort criteria.
+     * @return the formatted sort criteria.
+     */
+    public static String formatList(final List<SortCriterion> sortCriteria) {
+        final StringBuilder formatted = new StringBuilder();
+        for (final SortCriterion criterion : sortCriteria) {
+            if (formatted.length() > 0) {
+                formatted.append(LIST_SEPARATOR);
+            }
+            formatted.append(criterion);
+        }
+        return formatted.toString();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof SortCriterion)) {
+            return false;
+        }
+        final SortCriterion otherCriterion = (SortCriterion) other;
+        return sortKey.equals(otherCriterion.sortKey) && ascending == otherCriterion.ascending;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * sortKey.hashCode() + (ascending ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return sortKey + ORDER_SEPARATOR + (ascending ? ORDER_ASCENDING : ORDER_DESCENDING);
+    }
+}
@@ -0,0 +1,115 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import nl.ctmm.trait.proteomics.qcviewer.utils.IndexSort;
+
+/**
+ * The object of this class contains the points of a TIC (total ion current) graph in two primitive arrays: the
+ * retention times (in minutes) and the intensities.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicMatrix {
+    /**
+     * The number of points.
+     */
+    private final int pointCount;
+
+    /**
+     * The retention times (in minutes). Only the first <code>pointCount</code> values are used.
+     */
+    private final float[] retentionTimes;
+
+    /**
+     * The intensities. Only the first <code>pointCount</code> values are used.
+     */
+    private final float[] intensities;
+
+    /**
+     * Create a TIC matrix. The arrays are used as they are, not copied.
+     *
+     * @param pointCount the number of points.
+     * @param retentionTimes the retention times (in minutes).
+     * @param intensities the intensities.
+     */
+    public TicMatrix(final int pointCount, final float[] retentionTimes, final float[] intensities) {
+        this.pointCount = pointCount;
+        this.retentionTimes = retentionTimes;
+        this.intensities = intensities;
+    }
+
+    /**
+     * Get the number of points.
+     *
+     * @return the number of points.
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Get the retention time of a point.
+     *
+     * @param index the index of the point.
+     * @return the retention time (in minutes).
+     */
+    public float getRetentionTime(final int index) {
+        return retentionTimes[index];
+    }
+
+    /**
+     * Get the intensity of a point.
+     *
+     * @param index the index of the point.
+     * @return the intensity.
+     */
+    public float getIntensity(final int index) {
+        return intensities[index];
+    }
+
+    /**
+     * Get the array with retention times. The array may be longer than the number of points.
+     *
+     * @return the retention times (in minutes).
+     */
+    public float[] getRetentionTimes() {
+        return retentionTimes;
+    }
+
+    /**
+     * Get the array with intensities. The array may be longer than the number of points.
+     *
+     * @return the intensities.
+     */
+    public float[] getIntensities() {
+        return intensities;
+    }
+
+    /**
+     * Get a TIC matrix with the points in ascending order of retention time, which the charts need. The TIC files are
+     * normally sorted already, in which case this TIC matrix is returned.
+     *
+     * @return this TIC matrix if it is sorted and otherwise a sorted copy.
+     */
+    public TicMatrix sortedByRetentionTime() {
+        boolean sorted = true;
+        for (int index = 1; index < pointCount && sorted; index++) {
+            sorted = retentionTimes[index - 1] <= retentionTimes[index];
+        }
+        if (sorted) {
+            return this;
+        }
+        final double[] keys = new double[pointCount];
+        for (int index = 0; index < pointCount; index++) {
+            keys[index] = retentionTimes[index];
+        }
+        final int[] order = IndexSort.sortIndices(keys, true);
+        final float[] sortedRetentionTimes = new float[pointCount];
+        final float[] sortedIntensities = new float[pointCount];
+        for (int position = 0; position < pointCount; position++) {
+            sortedRetentionTimes[position] = retentionTimes[order[position]];
+            sortedIntensities[position] = intensities[order[position]];
+        }
+        return new TicMatrix(pointCount, sortedRetentionTimes, sortedIntensities);
+    }
+}
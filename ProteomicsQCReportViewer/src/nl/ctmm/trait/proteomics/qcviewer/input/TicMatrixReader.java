@@ -0,0 +1,408 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * The class for reading TIC (total ion current) graphs from *_ticmatrix.csv files.
+ * <p/>
+ * The file is memory mapped and the numbers are parsed directly from the bytes into two primitive float arrays, so
+ * reading a file does not create any objects per line or per number. The file is read twice: once to count the lines
+ * (which gives the exact size of the arrays) and once to parse the numbers.
+ * <p/>
+ * The file starts with one or more header lines: the QC pipeline writes a single <code>"rt","ions"</code> line, while
+ * older versions wrote lines like <code>ms1Spectra,9239</code>. All lines before the first line that starts with a
+ * number are skipped. The retention times in the file are in seconds and are converted to minutes.
+ * <p/>
+ * When a valid {@link TicMatrixSidecar} file exists, the TIC graph is loaded from that binary file instead. The reader
+ * can also be configured to write the sidecar file after parsing a csv file, so the next read is faster.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicMatrixReader {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(TicMatrixReader.class.getName());
+
+    /**
+     * The number of seconds in a minute.
+     */
+    private static final float SECONDS_PER_MINUTE = 60;
+
+    /**
+     * The maximum number of significant digits that fit in the long used for the mantissa.
+     */
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    /**
+     * The powers of ten that can be represented exactly as a double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+        1e20, 1e21, 1e22
+    };
+
+    /**
+     * The binary sidecar files of the *_ticmatrix.csv files or <code>null</code> if sidecar files are not used.
+     */
+    private final TicMatrixSidecar sidecar;
+
+    /**
+     * Whether to write a sidecar file after parsing a csv file.
+     */
+    private final boolean writeSidecars;
+
+    /**
+     * Construct a TIC matrix reader that does not use sidecar files.
+     */
+    public TicMatrixReader() {
+        this.sidecar = null;
+        this.writeSidecars = false;
+    }
+
+    /**
+     * Construct a TIC matrix reader that uses the sidecar files in the cache directory under a root directory.
+     *
+     * @param rootDirectory the root directory that contains the year directories and the cache directory.
+     * @param writeSidecars whether to write a sidecar file after parsing a csv file.
+     */
+    public TicMatrixReader(final Path rootDirectory, final boolean writeSidecars) {
+        this.sidecar = new TicMatrixSidecar(rootDirectory);
+        this.writeSidecars = writeSidecars;
+    }
+
+    /**
+     * Read a TIC matrix into primitive arrays, from the sidecar file if it is up-to-date and from the csv file
+     * otherwise.
+     *
+     * @param ticMatrixFile the tic matrix file to read from.
+     * @return the TIC matrix.
+     * @throws IOException if the file cannot be read.
+     */
+    public TicMatrix readTicMatrix(final Path ticMatrixFile) throws IOException {
+        final TicMatrix sidecarTicMatrix = sidecar != null ? sidecar.read(ticMatrixFile) : null;
+        if (sidecarTicMatrix != null) {
+            return sidecarTicMatrix;
+        }
+        final TicMatrix ticMatrix = parseTicMatrixFile(ticMatrixFile);
+        if (writeSidecars) {
+            sidecar.write(ticMatrixFile, ticMatrix);
+        }
+        return ticMatrix;
+    }
+
+    /**
+     * Parse a TIC matrix csv file into primitive arrays, without using the sidecar file.
+     *
+     * @param ticMatrixFile the tic matrix file to read from.
+     * @return the TIC matrix.
+     * @throws IOException if the file cannot be read.
+     */
+    public TicMatrix parseTicMatrixFile(final Path ticMatrixFile) throws IOException {
+        try (final FileChannel channel = FileChannel.open(ticMatrixFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("TIC matrix file " + ticMatrixFile + " is too large: " + size + " bytes.");
+            }
+            return parseTicMatrix(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), ticMatrixFile);
+        }
+    }
+
+    /**
+     * Parse the contents of a TIC matrix file. Lines that cannot be parsed are skipped.
+     *
+     * @param buffer the contents of the file, from the position to the limit of the buffer.
+     * @param source the source of the contents (used for logging).
+     * @return the TIC matrix.
+     */
+    TicMatrix parseTicMatrix(final ByteBuffer buffer, final Object source) {
+        final Parser parser = new Parser(buffer);
+        parser.skipHeaderLines();
+        final int maxPointCount = parser.countRemainingLines();
+        final float[] retentionTimes = new float[maxPointCount];
+        final float[] intensities = new float[maxPointCount];
+        int pointCount = 0;
+        int invalidLineCount = 0;
+        while (parser.hasMoreLines()) {
+            if (parser.isEmptyLine()) {
+                parser.skipLine();
+            } else if (parser.parseLine()) {
+                retentionTimes[pointCount] = (float) parser.firstValue / SECONDS_PER_MINUTE;
+                intensities[pointCount] = (float) parser.secondValue;
+                pointCount++;
+            } else {
+                invalidLineCount++;
+            }
+        }
+        if (invalidLineCount > 0) {
+            logger.warning("Skipped " + invalidLineCount + " invalid lines in TIC matrix file " + source);
+        }
+        return new TicMatrix(pointCount, retentionTimes, intensities);
+    }
+
+    /**
+     * The parser keeps track of the position in the buffer and of the values parsed from the current line.
+     */
+    private static final class Parser {
+        /**
+         * The buffer with the contents of the file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The end of the contents.
+         */
+        private final int limit;
+
+        /**
+         * The current position.
+         */
+        private int position;
+
+        /**
+         * The first value of the last parsed line.
+         */
+        private double firstValue;
+
+        /**
+         * The second value of the last parsed line.
+         */
+        private double secondValue;
+
+        /**
+         * The value of the last parsed number.
+         */
+        private double number;
+
+        /**
+         * Create a parser for the contents of a buffer.
+         *
+         * @param buffer the buffer with the contents of the file.
+         */
+        private Parser(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.position = buffer.position();
+            this.limit = buffer.limit();
+        }
+
+        /**
+         * Skip the lines before the first line that starts with a number.
+         */
+        private void skipHeaderLines() {
+            while (hasMoreLines() && !startsWithNumber()) {
+                skipLine();
+            }
+        }
+
+        /**
+         * Count the remaining lines (including a last line without line terminator), without changing the position.
+         *
+         * @return the number of remaining lines.
+         */
+        private int countRemainingLines() {
+            int lineCount = 0;
+            for (int index = position; index < limit; index++) {
+                if (buffer.get(index) == '\n') {
+                    lineCount++;
+                }
+            }
+            if (limit > position && buffer.get(limit - 1) != '\n') {
+                lineCount++;
+            }
+            return lineCount;
+        }
+
+        /**
+         * Check whether there are more lines.
+         *
+         * @return whether there are more lines.
+         */
+        private boolean hasMoreLines() {
+            return position < limit;
+        }
+
+        /**
+         * Check whether the current line is empty or contains only white space.
+         *
+         * @return whether the current line is empty.
+         */
+        private boolean isEmptyLine() {
+            int index = position;
+            while (index < limit && isSpace(buffer.get(index))) {
+                index++;
+            }
+            return index >= limit || buffer.get(index) == '\n' || buffer.get(index) == '\r';
+        }
+
+        /**
+         * Check whether the current line starts with a number (after optional white space).
+         *
+         * @return whether the current line starts with a number.
+         */
+        private boolean startsWithNumber() {
+            int index = position;
+            while (index < limit && isSpace(buffer.get(index))) {
+                index++;
+            }
+            if (index < limit && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+                index++;
+            }
+            if (index < limit && buffer.get(index) == '.') {
+                index++;
+            }
+            return index < limit && isDigit(buffer.get(index));
+        }
+
+        /**
+         * Move the position to the start of the next line.
+         */
+        private void skipLine() {
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            if (position < limit) {
+                position++;
+            }
+        }
+
+        /**
+         * Parse a line with two comma separated numbers into <code>firstValue</code> and <code>secondValue</code>.
+         * The position is moved to the start of the next line, also if the line is invalid.
+         *
+         * @return whether the line was valid.
+         */
+        private boolean parseLine() {
+            boolean valid = parseNumber();
+            firstValue = number;
+            skipSpaces();
+            valid = valid && position < limit && buffer.get(position) == ',';
+            if (valid) {
+                position++;
+                valid = parseNumber();
+                secondValue = number;
+                skipSpaces();
+                // Additional columns are ignored.
+                valid = valid && (position >= limit || buffer.get(position) == ',' || buffer.get(position) == '\r'
+                                  || buffer.get(position) == '\n');
+            }
+            skipLine();
+            return valid;
+        }
+
+        /**
+         * Parse a decimal number with an optional sign, fraction and exponent into <code>number</code>.
+         *
+         * @return whether a number was found.
+         */
+        private boolean parseNumber() {
+            skipSpaces();
+            boolean negative = false;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+            long mantissa = 0;
+            int mantissaDigits = 0;
+            int exponent = 0;
+            boolean digitsFound = false;
+            boolean inFraction = false;
+            while (position < limit) {
+                final byte character = buffer.get(position);
+                if (isDigit(character)) {
+                    digitsFound = true;
+                    if (mantissaDigits < MAX_MANTISSA_DIGITS) {
+                        if (mantissa != 0 || character != '0') {
+                            mantissaDigits++;
+                        }
+                        mantissa = mantissa * 10 + (character - '0');
+                        if (inFraction) {
+                            exponent--;
+                        }
+                    } else if (!inFraction) {
+                        // Digits that do not fit in the mantissa only count for the magnitude.
+                        exponent++;
+                    }
+                } else if (character == '.' && !inFraction) {
+                    inFraction = true;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            if (digitsFound && position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+                position++;
+                boolean negativeExponent = false;
+                if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                    negativeExponent = buffer.get(position) == '-';
+                    position++;
+                }
+                int exponentValue = 0;
+                boolean exponentDigitsFound = false;
+                while (position < limit && isDigit(buffer.get(position))) {
+                    exponentValue = Math.min(exponentValue * 10 + (buffer.get(position) - '0'), Short.MAX_VALUE);
+                    exponentDigitsFound = true;
+                    position++;
+                }
+                digitsFound = exponentDigitsFound;
+                exponent += negativeExponent ? -exponentValue : exponentValue;
+            }
+            number = negative ? -scale(mantissa, exponent) : scale(mantissa, exponent);
+            return digitsFound;
+        }
+
+        /**
+         * Compute <code>mantissa * 10^exponent</code>.
+         *
+         * @param mantissa the mantissa.
+         * @param exponent the decimal exponent.
+         * @return the value.
+         */
+        private static double scale(final long mantissa, final int exponent) {
+            final double value = mantissa;
+            if (exponent == 0 || mantissa == 0) {
+                return value;
+            } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+                return value * POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                return value / POWERS_OF_TEN[-exponent];
+            } else {
+                return value * Math.pow(10, exponent);
+            }
+        }
+
+        /**
+         * Skip spaces and tabs.
+         */
+        private void skipSpaces() {
+            while (position < limit && isSpace(buffer.get(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * Check whether a character is a space or a tab.
+         *
+         * @param character the character.
+         * @return whether the character is a space or a tab.
+         */
+        private static boolean isSpace(final byte character) {
+            return character == ' ' || character == '\t';
+        }
+
+        /**
+         * Check whether a character is a digit.
+         *
+         * @param character the character.
+         * @return whether the character is a digit.
+         */
+        private static boolean isDigit(final byte character) {
+            return character >= '0' && character <= '9';
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The binary sidecar file (*_ticmatrix.bin) of a *_ticmatrix.csv file, which contains the same TIC graph in a form that
+ * can be loaded without parsing.
+ * <p/>
+ * The sidecar files are kept in a cache directory under the root directory, with the same year/month/msrun structure
+ * as the reports. Writing them into the msrun directories would change the modification times of those directories,
+ * which are used to select the reports within the date range and to detect changed reports.
+ * <p/>
+ * The sidecar file is little-endian and has the following layout:
+ * <ul>
+ *     <li>header: magic number (int), format version (int), size (long) and last modification time in milliseconds
+ *     (long) of the csv file it was created from, and the number of points (int);</li>
+ *     <li>the retention times in minutes (float column);</li>
+ *     <li>the intensities (float column);</li>
+ *     <li>a checksum of the number of points and both columns (long).</li>
+ * </ul>
+ * A sidecar file is stale when the size or modification time of the csv file differ from the values in its header.
+ * Stale, corrupt and unknown sidecar files are ignored, so the caller falls back to the csv file.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicMatrixSidecar {
+    /**
+     * The suffix of the sidecar file names; it replaces {@link MsrunDirectory#TIC_MATRIX_FILE_SUFFIX}.
+     */
+    public static final String SIDECAR_FILE_SUFFIX = "_ticmatrix.bin";
+
+    /**
+     * The name of the cache directory under the root directory that contains the sidecar files.
+     */
+    public static final String CACHE_DIRECTORY_NAME = "qc_report_cache";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(TicMatrixSidecar.class.getName());
+
+    /**
+     * The magic number at the start of a sidecar file: "QTIC" in ASCII.
+     */
+    private static final int MAGIC_NUMBER = 0x43495451;
+
+    /**
+     * The version of the sidecar file format.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    /**
+     * The size of the checksum in bytes.
+     */
+    private static final int CHECKSUM_SIZE = 8;
+
+    /**
+     * The number of bytes per point: a float retention time and a float intensity.
+     */
+    private static final int BYTES_PER_POINT = 4 + 4;
+
+    /**
+     * The offset basis of the 64-bit FNV-1a hash that is used as checksum.
+     */
+    private static final long CHECKSUM_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * The prime of the 64-bit FNV-1a hash that is used as checksum.
+     */
+    private static final long CHECKSUM_PRIME = 0x100000001b3L;
+
+    /**
+     * The root directory that contains the year directories and the cache directory.
+     */
+    private final Path rootDirectory;
+
+    /**
+     * Create access to the sidecar files of the reports under a root directory.
+     *
+     * @param rootDirectory the root directory that contains the year directories and the cache directory.
+     */
+    public TicMatrixSidecar(final Path rootDirectory) {
+        this.rootDirectory = rootDirectory;
+    }
+
+    /**
+     * Get the sidecar file that belongs to a TIC matrix file: the file with the same relative location in the cache
+     * directory.
+     *
+     * @param ticMatrixFile the *_ticmatrix.csv file.
+     * @return the *_ticmatrix.bin file.
+     */
+    public Path getSidecarFile(final Path ticMatrixFile) {
+        final String fileName = ticMatrixFile.getFileName().toString();
+        final String baseName = fileName.endsWith(MsrunDirectory.TIC_MATRIX_FILE_SUFFIX)
+                                ? fileName.substring(0, fileName.length() - MsrunDirectory.TIC_MATRIX_FILE_SUFFIX.length())
+                                : fileName;
+        final Path directory = ticMatrixFile.getParent();
+        Path relativeDirectory = rootDirectory.relativize(directory);
+        if (relativeDirectory.startsWith("..")) {
+            // The TIC matrix file is not below the root directory: only use the name of its directory.
+            relativeDirectory = directory.getFileName();
+        }
+        return rootDirectory.resolve(CACHE_DIRECTORY_NAME).resolve(relativeDirectory).resolve(baseName
+                                                                                              + SIDECAR_FILE_SUFFIX);
+    }
+
+    /**
+     * Read the sidecar file of a TIC matrix file.
+     *
+     * @param ticMatrixFile the *_ticmatrix.csv file.
+     * @return the TIC matrix or <code>null</code> if there is no valid, up-to-date sidecar file.
+     */
+    public TicMatrix read(final Path ticMatrixFile) {
+        final Path sidecarFile = getSidecarFile(ticMatrixFile);
+        try (final FileChannel channel = FileChannel.open(sidecarFile, StandardOpenOption.READ)) {
+            final BasicFileAttributes csvAttributes = Files.readAttributes(ticMatrixFile, BasicFileAttributes.class);
+            final long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+                logger.fine("Ignoring sidecar file " + sidecarFile + " with invalid size " + size);
+                return null;
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            final int magicNumber = buffer.getInt();
+            final int formatVersion = buffer.getInt();
+            final long csvSize = buffer.getLong();
+            final long csvModificationTime = buffer.getLong();
+            final int pointCount = buffer.getInt();
+            if (magicNumber != MAGIC_NUMBER || formatVersion != FORMAT_VERSION || pointCount < 0
+                || size != HEADER_SIZE + (long) pointCount * BYTES_PER_POINT + CHECKSUM_SIZE) {
+                logger.fine("Ignoring sidecar file " + sidecarFile + " with unknown format");
+                return null;
+            }
+            if (csvSize != csvAttributes.size() || csvModificationTime != csvAttributes.lastModifiedTime().toMillis()) {
+                logger.fine("Ignoring stale sidecar file " + sidecarFile);
+                return null;
+            }
+            final float[] retentionTimes = new float[pointCount];
+            final float[] intensities = new float[pointCount];
+            buffer.asFloatBuffer().get(retentionTimes);
+            buffer.position(HEADER_SIZE + pointCount * 4);
+            buffer.asFloatBuffer().get(intensities);
+            final long checksum = buffer.getLong(HEADER_SIZE + pointCount * BYTES_PER_POINT);
+            if (checksum != computeChecksum(pointCount, retentionTimes, intensities)) {
+                logger.warning("Ignoring sidecar file " + sidecarFile + " with invalid checksum");
+                return null;
+            }
+            return new TicMatrix(pointCount, retentionTimes, intensities);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            logger.log(Level.FINE, "Reading sidecar file " + sidecarFile + " failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the sidecar file of a TIC matrix file. The file is written to a temporary file first and then moved, so
+     * readers never see a partial sidecar file. Failures (for example a read-only archive) are logged and ignored.
+     *
+     * @param ticMatrixFile the *_ticmatrix.csv file.
+     * @param ticMatrix the TIC matrix that was read from the csv file.
+     * @return whether the sidecar file was written.
+     */
+    public boolean write(final Path ticMatrixFile, final TicMatrix ticMatrix) {
+        final Path sidecarFile = getSidecarFile(ticMatrixFile);
+        Path temporaryFile = null;
+        try {
+            final BasicFileAttributes csvAttributes = Files.readAttributes(ticMatrixFile, BasicFileAttributes.class);
+            final int pointCount = ticMatrix.getPointCount();
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + pointCount * BYTES_PER_POINT + CHECKSUM_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION);
+            buffer.putLong(csvAttributes.size()).putLong(csvAttributes.lastModifiedTime().toMillis());
+            buffer.putInt(pointCount);
+            buffer.asFloatBuffer().put(ticMatrix.getRetentionTimes(), 0, pointCount);
+            buffer.position(HEADER_SIZE + pointCount * 4);
+            buffer.asFloatBuffer().put(ticMatrix.getIntensities(), 0, pointCount);
+            buffer.putLong(HEADER_SIZE + pointCount * BYTES_PER_POINT,
+                           computeChecksum(pointCount, ticMatrix.getRetentionTimes(), ticMatrix.getIntensities()));
+            buffer.rewind();
+            Files.createDirectories(sidecarFile.getParent());
+            // Files.createTempFile would make the file readable for the owner only, which does not work for a shared
+            // archive; a new file gets the default permissions.
+            temporaryFile = sidecarFile.resolveSibling(sidecarFile.getFileName() + "." + System.nanoTime() + ".tmp");
+            try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE_NEW,
+                                                              StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temporaryFile, sidecarFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, sidecarFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (final IOException e) {
+            logger.log(Level.FINE, "Writing sidecar file " + sidecarFile + " failed", e);
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (final IOException deleteException) {
+                    logger.log(Level.FINE, "Deleting temporary file " + temporaryFile + " failed", deleteException);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Compute the checksum (64-bit FNV-1a over the values as ints) of a TIC matrix.
+     *
+     * @param pointCount the number of points.
+     * @param retentionTimes the retention times.
+     * @param intensities the intensities.
+     * @return the checksum.
+     */
+    private static long computeChecksum(final int pointCount, final float[] retentionTimes, final float[] intensities) {
+        long checksum = (CHECKSUM_OFFSET_BASIS ^ pointCount) * CHECKSUM_PRIME;
+        for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
+            checksum = (checksum ^ Float.floatToRawIntBits(retentionTimes[pointIndex])) * CHECKSUM_PRIME;
+            checksum = (checksum ^ Float.floatToRawIntBits(intensities[pointIndex])) * CHECKSUM_PRIME;
+        }
+        return checksum;
+    }
+}
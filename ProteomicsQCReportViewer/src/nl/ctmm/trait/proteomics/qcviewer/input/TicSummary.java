@@ -0,0 +1,104 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+/**
+ * The object of this class contains summary statistics of a TIC (total ion current) graph: the number of points, the
+ * retention time range and the maximum intensity. These values are small enough to keep for every report, even when
+ * the TIC graph itself is not in memory.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicSummary {
+    /**
+     * The number of points in the TIC graph.
+     */
+    private final int pointCount;
+
+    /**
+     * The lowest retention time (in minutes).
+     */
+    private final double minRetentionTime;
+
+    /**
+     * The highest retention time (in minutes).
+     */
+    private final double maxRetentionTime;
+
+    /**
+     * The maximum intensity.
+     */
+    private final double maxIntensity;
+
+    /**
+     * Create a TIC summary.
+     *
+     * @param pointCount the number of points in the TIC graph.
+     * @param minRetentionTime the lowest retention time (in minutes).
+     * @param maxRetentionTime the highest retention time (in minutes).
+     * @param maxIntensity the maximum intensity.
+     */
+    public TicSummary(final int pointCount, final double minRetentionTime, final double maxRetentionTime,
+                      final double maxIntensity) {
+        this.pointCount = pointCount;
+        this.minRetentionTime = minRetentionTime;
+        this.maxRetentionTime = maxRetentionTime;
+        this.maxIntensity = maxIntensity;
+    }
+
+    /**
+     * Create a TIC summary for a TIC matrix.
+     *
+     * @param ticMatrix the TIC matrix.
+     * @return the TIC summary or <code>null</code> if the matrix has no points.
+     */
+    public static TicSummary fromTicMatrix(final TicMatrix ticMatrix) {
+        if (ticMatrix == null || ticMatrix.getPointCount() == 0) {
+            return null;
+        }
+        double minRetentionTime = Double.POSITIVE_INFINITY;
+        double maxRetentionTime = Double.NEGATIVE_INFINITY;
+        double maxIntensity = Double.NEGATIVE_INFINITY;
+        for (int pointIndex = 0; pointIndex < ticMatrix.getPointCount(); pointIndex++) {
+            minRetentionTime = Math.min(minRetentionTime, ticMatrix.getRetentionTime(pointIndex));
+            maxRetentionTime = Math.max(maxRetentionTime, ticMatrix.getRetentionTime(pointIndex));
+            maxIntensity = Math.max(maxIntensity, ticMatrix.getIntensity(pointIndex));
+        }
+        return new TicSummary(ticMatrix.getPointCount(), minRetentionTime, maxRetentionTime, maxIntensity);
+    }
+
+    /**
+     * Get the number of points in the TIC graph.
+     *
+     * @return the number of points.
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Get the lowest retention time.
+     *
+     * @return the lowest retention time (in minutes).
+     */
+    public double getMinRetentionTime() {
+        return minRetentionTime;
+    }
+
+    /**
+     * Get the highest retention time.
+     *
+     * @return the highest retention time (in minutes).
+     */
+    public double getMaxRetentionTime() {
+        return maxRetentionTime;
+    }
+
+    /**
+     * Get the maximum intensity.
+     *
+     * @return the maximum intensity.
+     */
+    public double getMaxIntensity() {
+        return maxIntensity;
+    }
+}
@@ -0,0 +1,68 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+/**
+ * The Westgard rules that are evaluated on the control charts of the metrics (see {@link ControlChartStatistics}).
+ * A rule is violated by the report that completes the pattern; the deviations are measured in standard deviations
+ * (s) from the mean of the earlier reports.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public enum WestgardRule {
+    /**
+     * One value deviates more than 3s from the mean.
+     */
+    RULE_1_3S("1-3s"),
+
+    /**
+     * Two consecutive values deviate more than 2s from the mean, on the same side.
+     */
+    RULE_2_2S("2-2s"),
+
+    /**
+     * Two consecutive values deviate more than 2s from the mean, on opposite sides (a range of more than 4s).
+     */
+    RULE_R_4S("R-4s"),
+
+    /**
+     * Four consecutive values deviate more than 1s from the mean, on the same side.
+     */
+    RULE_4_1S("4-1s"),
+
+    /**
+     * Ten consecutive values are on the same side of the mean.
+     */
+    RULE_10X("10x");
+
+    /**
+     * The usual short name of the rule.
+     */
+    private final String label;
+
+    /**
+     * Create a rule.
+     *
+     * @param label the usual short name of the rule.
+     */
+    WestgardRule(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * Get the usual short name of the rule, like "1-3s".
+     *
+     * @return the name of the rule.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the bit of this rule in a set of violated rules that is stored as an integer.
+     *
+     * @return the bit of this rule.
+     */
+    int getBit() {
+        return 1 << ordinal();
+    }
+}
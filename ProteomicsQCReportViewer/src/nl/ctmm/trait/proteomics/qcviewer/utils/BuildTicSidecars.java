@@ -0,0 +1,174 @@
+package nl.ctmm.trait.proteomics.qcviewer.utils;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import nl.ctmm.trait.proteomics.qcviewer.input.MsrunDirectory;
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrix;
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrixReader;
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrixSidecar;
+
+/**
+ * Command-line tool to build the binary sidecar files (*_ticmatrix.bin) for all TIC matrix files in a QC report
+ * archive, so the viewer never has to parse the csv files. Sidecar files that are up-to-date are left alone.
+ * <p/>
+ * Usage: <code>BuildTicSidecars &lt;root directory&gt; [--force]</code>
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class BuildTicSidecars {
+    /**
+     * The command-line option to rebuild sidecar files that are up-to-date.
+     */
+    private static final String FORCE_OPTION = "--force";
+
+    /**
+     * The reader for the csv files.
+     */
+    private final TicMatrixReader ticMatrixReader = new TicMatrixReader();
+
+    /**
+     * Whether to rebuild sidecar files that are up-to-date.
+     */
+    private final boolean force;
+
+    /**
+     * The number of sidecar files that were built.
+     */
+    private int builtCount;
+
+    /**
+     * The number of sidecar files that were up-to-date.
+     */
+    private int upToDateCount;
+
+    /**
+     * The number of TIC matrix files for which building the sidecar file failed.
+     */
+    private int failedCount;
+
+    /**
+     * Construct a sidecar builder.
+     *
+     * @param force whether to rebuild sidecar files that are up-to-date.
+     */
+    public BuildTicSidecars(final boolean force) {
+        this.force = force;
+    }
+
+    /**
+     * Build the sidecar files for the archive in the root directory given as first argument.
+     *
+     * @param arguments the root directory and optionally the --force option.
+     */
+    // CHECKSTYLE_OFF: UncommentedMain
+    public static void main(final String[] arguments) {
+        if (arguments.length < 1 || arguments.length > 2 || (arguments.length == 2 && !FORCE_OPTION.equals(arguments[1]))) {
+            System.err.println("Usage: BuildTicSidecars <root directory> [" + FORCE_OPTION + "]");
+            System.exit(1);
+        }
+        final long startTime = System.currentTimeMillis();
+        final BuildTicSidecars builder = new BuildTicSidecars(arguments.length == 2);
+        try {
+            builder.buildSidecars(Paths.get(arguments[0]));
+        } catch (final IOException e) {
+            System.err.println("Searching " + arguments[0] + " failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Built " + builder.getBuiltCount() + " sidecar files, " + builder.getUpToDateCount()
+                           + " were up-to-date and " + builder.getFailedCount() + " failed ("
+                           + (System.currentTimeMillis() - startTime) + " ms).");
+    }
+    // CHECKSTYLE_ON: UncommentedMain
+
+    /**
+     * Build the sidecar files for all TIC matrix files under a root directory.
+     *
+     * @param rootDirectory the root directory of the archive.
+     * @throws IOException if searching the directories fails.
+     */
+    public void buildSidecars(final Path rootDirectory) throws IOException {
+        final TicMatrixSidecar sidecar = new TicMatrixSidecar(rootDirectory);
+        Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+                // The cache directory only contains sidecar files.
+                return TicMatrixSidecar.CACHE_DIRECTORY_NAME.equals(String.valueOf(directory.getFileName()))
+                       ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                if (attributes.isRegularFile()
+                    && file.getFileName().toString().endsWith(MsrunDirectory.TIC_MATRIX_FILE_SUFFIX)) {
+                    buildSidecar(sidecar, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                System.err.println("Skipping " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Build the sidecar file for one TIC matrix file, unless it is up-to-date.
+     *
+     * @param sidecar the sidecar files of the archive.
+     * @param ticMatrixFile the *_ticmatrix.csv file.
+     */
+    private void buildSidecar(final TicMatrixSidecar sidecar, final Path ticMatrixFile) {
+        if (!force && sidecar.read(ticMatrixFile) != null) {
+            upToDateCount++;
+            return;
+        }
+        try {
+            final TicMatrix ticMatrix = ticMatrixReader.parseTicMatrixFile(ticMatrixFile);
+            if (sidecar.write(ticMatrixFile, ticMatrix)) {
+                builtCount++;
+            } else {
+                System.err.println("Writing the sidecar file for " + ticMatrixFile + " failed.");
+                failedCount++;
+            }
+        } catch (final IOException e) {
+            System.err.println("Reading " + ticMatrixFile + " failed: " + e.getMessage());
+            failedCount++;
+        }
+    }
+
+    /**
+     * Get the number of sidecar files that were built.
+     *
+     * @return the number of sidecar files that were built.
+     */
+    public int getBuiltCount() {
+        return builtCount;
+    }
+
+    /**
+     * Get the number of sidecar files that were up-to-date.
+     *
+     * @return the number of sidecar files that were up-to-date.
+     */
+    public int getUpToDateCount() {
+        return upToDateCount;
+    }
+
+    /**
+     * Get the number of TIC matrix files for which building the sidecar file failed.
+     *
+     * @return the number of failures.
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+}
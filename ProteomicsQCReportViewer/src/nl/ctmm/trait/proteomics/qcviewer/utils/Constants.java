@@ -63,6 +63,11 @@ public interface Constants {
      */
     String PROPERTY_SHOW_REPORTS_TILL_DATE = "ShowReportsTillDate";
 
+    /**
+     * Property name for the sort keys and orders of the QC reports (like "generic:date@Des,dyn:ds-1a@Asc").
+     */
+    String PROPERTY_SORT_CRITERIA = "SortCriteria";
+
 //    String DEFAULT_REPORTS_DISPLAY_PERIOD = "DefaultReportsDisplayPeriod";
 //    String DEFAULT_REPORTS_DISPLAY_PERIOD_VALUE = "14"; //show reports from last two weeks by default
 
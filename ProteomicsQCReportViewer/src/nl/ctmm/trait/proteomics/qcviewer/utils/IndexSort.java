@@ -0,0 +1,151 @@
+package nl.ctmm.trait.proteomics.qcviewer.utils;
+
+/**
+ * This class sorts indices on primitive <code>double</code> keys (or composite keys with a column per sort key),
+ * without boxing the keys or creating comparators.
+ * <p/>
+ * Missing keys are represented by NaN and sort before all other keys in ascending order and after all other keys in
+ * descending order (like "N/A" values in the report viewer). The sort is stable: indices with equal keys keep their
+ * original order.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public final class IndexSort {
+    /**
+     * Runs of at most this length are sorted with insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * Hidden constructor.
+     */
+    private IndexSort() {
+    }
+
+    /**
+     * Compare two keys.
+     *
+     * @param key1 the first key (NaN if missing).
+     * @param key2 the second key (NaN if missing).
+     * @param ascending whether to sort in ascending or descending order.
+     * @return a negative number, zero or a positive number if the first key sorts before, together with or after the
+     *         second key.
+     */
+    public static int compare(final double key1, final double key2, final boolean ascending) {
+        final boolean missing1 = Double.isNaN(key1);
+        final boolean missing2 = Double.isNaN(key2);
+        final int result;
+        if (missing1 || missing2) {
+            result = missing1 == missing2 ? 0 : (missing1 ? -1 : 1);
+        } else {
+            result = key1 < key2 ? -1 : (key1 > key2 ? 1 : 0);
+        }
+        return ascending ? result : -result;
+    }
+
+    /**
+     * Sort the indices 0 up to <code>keys.length</code> on their keys.
+     *
+     * @param keys the key per index (NaN if missing).
+     * @param ascending whether to sort in ascending or descending order.
+     * @return the indices in sorted order.
+     */
+    public static int[] sortIndices(final double[] keys, final boolean ascending) {
+        return sortIndices(new double[][]{keys}, new boolean[]{ascending});
+    }
+
+    /**
+     * Sort indices on composite keys: the indices are sorted on the first key column, indices with equal first keys
+     * on the second column, and so on. Indices that are equal for all columns keep their original order.
+     *
+     * @param keys the key columns, each with a key per index (NaN if missing); all columns have the same length.
+     * @param ascending whether to sort in ascending or descending order, per column.
+     * @return the indices in sorted order.
+     */
+    public static int[] sortIndices(final double[][] keys, final boolean[] ascending) {
+        final int[] indices = new int[keys.length > 0 ? keys[0].length : 0];
+        for (int index = 0; index < indices.length; index++) {
+            indices[index] = index;
+        }
+        mergeSort(indices, indices.clone(), 0, indices.length, keys, ascending);
+        return indices;
+    }
+
+    /**
+     * Compare two indices on composite keys.
+     *
+     * @param index1 the first index.
+     * @param index2 the second index.
+     * @param keys the key columns.
+     * @param ascending the sort order per column.
+     * @return a negative number, zero or a positive number if the first index sorts before, together with or after the
+     *         second index.
+     */
+    private static int compare(final int index1, final int index2, final double[][] keys, final boolean[] ascending) {
+        for (int column = 0; column < keys.length; column++) {
+            final int result = compare(keys[column][index1], keys[column][index2], ascending[column]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sort a range of indices with a stable merge sort.
+     *
+     * @param indices the indices; the range is sorted in place.
+     * @param buffer a copy of the indices, used as work space.
+     * @param start the start of the range (inclusive).
+     * @param end the end of the range (exclusive).
+     * @param keys the key columns.
+     * @param ascending the sort order per column.
+     */
+    private static void mergeSort(final int[] indices, final int[] buffer, final int start, final int end,
+                                  final double[][] keys, final boolean[] ascending) {
+        if (end - start <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(indices, start, end, keys, ascending);
+            return;
+        }
+        final int middle = (start + end) >>> 1;
+        // The buffer holds the same indices as the array, so the halves can be sorted in the buffer and merged back.
+        mergeSort(buffer, indices, start, middle, keys, ascending);
+        mergeSort(buffer, indices, middle, end, keys, ascending);
+        if (compare(buffer[middle - 1], buffer[middle], keys, ascending) <= 0) {
+            System.arraycopy(buffer, start, indices, start, end - start);
+            return;
+        }
+        int left = start;
+        int right = middle;
+        for (int target = start; target < end; target++) {
+            if (right >= end || (left < middle && compare(buffer[left], buffer[right], keys, ascending) <= 0)) {
+                indices[target] = buffer[left++];
+            } else {
+                indices[target] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Sort a small range of indices with a stable insertion sort.
+     *
+     * @param indices the indices; the range is sorted in place.
+     * @param start the start of the range (inclusive).
+     * @param end the end of the range (exclusive).
+     * @param keys the key columns.
+     * @param ascending the sort order per column.
+     */
+    private static void insertionSort(final int[] indices, final int start, final int end, final double[][] keys,
+                                      final boolean[] ascending) {
+        for (int position = start + 1; position < end; position++) {
+            final int index = indices[position];
+            int target = position;
+            while (target > start && compare(indices[target - 1], index, keys, ascending) > 0) {
+                indices[target] = indices[target - 1];
+                target--;
+            }
+            indices[target] = index;
+        }
+    }
+}
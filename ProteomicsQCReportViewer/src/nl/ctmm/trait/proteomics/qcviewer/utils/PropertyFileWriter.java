@@ -85,6 +85,17 @@ public class PropertyFileWriter {
         saveApplicationProperties();
     }
     
+    /**
+     * Save the sort criteria (ordered sort keys with their sort orders) in the application properties file.
+     *
+     * @param sortCriteria the sort criteria, formatted like "generic:date@Des,dyn:ds-1a@Asc".
+     */
+    public static void updateSortCriteria(final String sortCriteria) {
+        logger.fine("Updating sort criteria in the property file to " + sortCriteria);
+        appProperties.setProperty(Constants.PROPERTY_SORT_CRITERIA, sortCriteria);
+        saveApplicationProperties();
+    }
+
     /**
      * Save selected root directory in the application properties file
      * @param newRootDirectory Root directory selected by user
@@ -0,0 +1,355 @@
+package nl.ctmm.trait.proteomics.qcviewer.utils;
+
+import java.util.Arrays;
+
+/**
+ * The object of this class reduces a data series (given as primitive arrays) to the points that are visible at a
+ * given chart width: the visible range of the x axis is divided in a column per pixel and only the highest point of
+ * each column is kept. The TIC graphs are drawn as bars from zero, so the highest point of a column covers all other
+ * points in that column and the peaks stay visible.
+ * <p/>
+ * To make sampling independent of the number of visible points, the downsampler precomputes a pyramid of envelopes:
+ * level <code>k</code> holds the index of the highest point of each bucket of <code>2^k</code> consecutive points.
+ * Sampling picks the coarsest level that still has at least one bucket per column for the visible range and combines
+ * the bucket maxima per column, so a wide overview and a deep zoom both take time in proportion to the chart width.
+ * When the visible points fit in the columns, they are copied as they are. Since the bars start at zero, the lower
+ * envelope is never visible and only the upper envelope is stored.
+ * <p/>
+ * Outside the visible range only the first and last point and the highest point of the series are kept, so the
+ * automatic axis ranges of the chart (and zooming out to them) stay the same as for the full series.
+ * <p/>
+ * The arrays of the series are shared, not copied; the result of sampling is the list of indices of the points to
+ * show.
+ *
+ * @author <a href="mailto:pravin.pawar@nbic.nl">Pravin Pawar</a>
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class SeriesDownsampler {
+    /**
+     * The x values of the series, in ascending order. Only the first <code>itemCount</code> values are used.
+     */
+    private final float[] xValues;
+
+    /**
+     * The y values of the series. Only the first <code>itemCount</code> values are used.
+     */
+    private final float[] yValues;
+
+    /**
+     * The number of points of the series.
+     */
+    private final int itemCount;
+
+    /**
+     * The envelope levels: <code>maximumIndices[k - 1][b]</code> is the index of the highest point in bucket
+     * <code>b</code> of level <code>k</code>, which covers the points <code>b * 2^k</code> up to
+     * <code>(b + 1) * 2^k</code>. Level 0 (the points themselves) is not stored.
+     */
+    private final int[][] maximumIndices;
+
+    /**
+     * The index of the highest point of the series (-1 if the series is empty).
+     */
+    private final int maximumIndex;
+
+    /**
+     * Create a downsampler for a series and precompute its envelope pyramid.
+     *
+     * @param xValues the x values of the series, in ascending order.
+     * @param yValues the y values of the series.
+     * @param itemCount the number of points of the series (the arrays may be longer).
+     */
+    public SeriesDownsampler(final float[] xValues, final float[] yValues, final int itemCount) {
+        this.xValues = xValues;
+        this.yValues = yValues;
+        this.itemCount = itemCount;
+        int levelCount = 0;
+        while ((itemCount - 1) >> levelCount > 0) {
+            levelCount++;
+        }
+        maximumIndices = new int[levelCount][];
+        int previousBucketCount = itemCount;
+        for (int level = 1; level <= levelCount; level++) {
+            final int[] levelIndices = new int[((itemCount - 1) >> level) + 1];
+            for (int bucket = 0; bucket < levelIndices.length; bucket++) {
+                final int first = getBucketMaximum(level - 1, 2 * bucket);
+                final int second = 2 * bucket + 1 < previousBucketCount ? getBucketMaximum(level - 1, 2 * bucket + 1)
+                                                                         : first;
+                levelIndices[bucket] = yValues[second] > yValues[first] ? second : first;
+            }
+            maximumIndices[level - 1] = levelIndices;
+            previousBucketCount = levelIndices.length;
+        }
+        maximumIndex = itemCount > 0 ? getBucketMaximum(levelCount, 0) : -1;
+    }
+
+    /**
+     * Get the number of points of the series.
+     *
+     * @return the number of points.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Get the smallest x value of the series.
+     *
+     * @return the smallest x value or NaN if the series is empty.
+     */
+    public double getMinX() {
+        return itemCount > 0 ? xValues[0] : Double.NaN;
+    }
+
+    /**
+     * Get the largest x value of the series.
+     *
+     * @return the largest x value or NaN if the series is empty.
+     */
+    public double getMaxX() {
+        return itemCount > 0 ? xValues[itemCount - 1] : Double.NaN;
+    }
+
+    /**
+     * Get the largest y value of the series.
+     *
+     * @return the largest y value or NaN if the series is empty.
+     */
+    public double getMaxY() {
+        return itemCount > 0 ? yValues[maximumIndex] : Double.NaN;
+    }
+
+    /**
+     * Get the smallest distance between the x values of consecutive points, which is the bar width that the chart uses
+     * for the full series. The displayed points use the same bar width, so the chart looks the same.
+     *
+     * @return the smallest distance or NaN if there is no positive distance.
+     */
+    public double getMinimumInterval() {
+        double minimumInterval = Double.POSITIVE_INFINITY;
+        for (int index = 1; index < itemCount; index++) {
+            final double interval = xValues[index] - xValues[index - 1];
+            if (interval > 0 && interval < minimumInterval) {
+                minimumInterval = interval;
+            }
+        }
+        return Double.isInfinite(minimumInterval) ? Double.NaN : minimumInterval;
+    }
+
+    /**
+     * Select the points to display: at most one point per pixel column in the visible range (plus the first and last
+     * point and a few points outside the range). All points in the range are selected if they fit in the columns.
+     *
+     * @param lower the lower bound of the visible x range.
+     * @param upper the upper bound of the visible x range.
+     * @param columnCount the number of pixel columns of the chart.
+     * @return the indices of the points to display, in ascending order.
+     */
+    public int[] downsample(final double lower, final double upper, final int columnCount) {
+        final IndexList displayIndices = new IndexList(Math.min(itemCount, columnCount + 8));
+        // Include one point on either side of the visible range, so the bars at the edges are drawn.
+        final int start = Math.max(0, findIndex(lower) - 1);
+        final int end = Math.min(itemCount, findIndex(upper) + 1);
+        if (itemCount <= columnCount || !(upper > lower)) {
+            addRange(displayIndices, 0, itemCount);
+            return displayIndices.toArray();
+        }
+        if (start > 0) {
+            addItem(displayIndices, 0);
+            if (maximumIndex > 0 && maximumIndex < start) {
+                addItem(displayIndices, maximumIndex);
+            }
+        }
+        if (end - start <= columnCount) {
+            addRange(displayIndices, start, end);
+        } else {
+            addColumnMaxima(displayIndices, start, end, lower, upper, columnCount);
+        }
+        if (end < itemCount) {
+            if (maximumIndex >= end && maximumIndex < itemCount - 1) {
+                addItem(displayIndices, maximumIndex);
+            }
+            addItem(displayIndices, itemCount - 1);
+        }
+        return displayIndices.toArray();
+    }
+
+    /**
+     * Add the highest point of each pixel column for a range of points. The bucket maxima of the coarsest pyramid level
+     * with at least one bucket per column are combined per column. The first and last point of the series are always
+     * kept as they are, so the automatic domain range of the chart does not change.
+     *
+     * @param displayIndices the indices of the points to display.
+     * @param start the start index of the range (inclusive).
+     * @param end the end index of the range (exclusive).
+     * @param lower the lower bound of the visible x range.
+     * @param upper the upper bound of the visible x range.
+     * @param columnCount the number of pixel columns of the chart.
+     */
+    private void addColumnMaxima(final IndexList displayIndices, final int start, final int end, final double lower,
+                                 final double upper, final int columnCount) {
+        final int lastIndex = itemCount - 1;
+        int level = 0;
+        while (level < maximumIndices.length && (end - start) >> (level + 1) >= columnCount) {
+            level++;
+        }
+        // The buckets that are partly outside the range are replaced by their points in the range.
+        final int firstBucket = Math.min((start + (1 << level) - 1) >> level, end >> level);
+        final int endBucket = Math.max(end >> level, firstBucket);
+        final int[] candidates = new int[(firstBucket << level) - start + endBucket - firstBucket + end
+                                         - (endBucket << level)];
+        int candidateCount = 0;
+        for (int index = start; index < firstBucket << level; index++) {
+            candidates[candidateCount++] = index;
+        }
+        for (int bucket = firstBucket; bucket < endBucket; bucket++) {
+            candidates[candidateCount++] = getBucketMaximum(level, bucket);
+        }
+        for (int index = endBucket << level; index < end; index++) {
+            candidates[candidateCount++] = index;
+        }
+        if (start == 0) {
+            addItem(displayIndices, 0);
+        }
+        int columnMaximum = -1;
+        int currentColumn = Integer.MIN_VALUE;
+        for (final int index : candidates) {
+            // The first and last point are added separately.
+            if (index == 0 || index == lastIndex) {
+                continue;
+            }
+            final int column = getColumn(xValues[index], lower, upper, columnCount);
+            if (column != currentColumn) {
+                if (columnMaximum >= 0) {
+                    addItem(displayIndices, columnMaximum);
+                }
+                currentColumn = column;
+                columnMaximum = index;
+            } else if (yValues[index] > yValues[columnMaximum]) {
+                columnMaximum = index;
+            }
+        }
+        if (columnMaximum >= 0) {
+            addItem(displayIndices, columnMaximum);
+        }
+        if (end - 1 == lastIndex) {
+            addItem(displayIndices, lastIndex);
+        }
+    }
+
+    /**
+     * Get the index of the highest point in a bucket of a pyramid level.
+     *
+     * @param level the level (0 for the points themselves).
+     * @param bucket the bucket.
+     * @return the index of the highest point.
+     */
+    private int getBucketMaximum(final int level, final int bucket) {
+        return level == 0 ? bucket : maximumIndices[level - 1][bucket];
+    }
+
+    /**
+     * Find the index of the first point with an x value larger than or equal to a value.
+     *
+     * @param x the x value.
+     * @return the index of the first point at or after x (the item count if there is none).
+     */
+    private int findIndex(final double x) {
+        int low = 0;
+        int high = itemCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (xValues[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the pixel column of an x value. Points outside the visible range get their own columns before the first or
+     * after the last visible column; a point at the upper bound belongs to the last visible column.
+     *
+     * @param x the x value.
+     * @param lower the lower bound of the visible x range.
+     * @param upper the upper bound of the visible x range.
+     * @param columnCount the number of pixel columns.
+     * @return the column.
+     */
+    private static int getColumn(final double x, final double lower, final double upper, final int columnCount) {
+        if (x > upper) {
+            return columnCount;
+        }
+        return Math.min((int) Math.floor((x - lower) / (upper - lower) * columnCount), columnCount - 1);
+    }
+
+    /**
+     * Add a range of points to the points to display.
+     *
+     * @param displayIndices the indices of the points to display.
+     * @param start the start index (inclusive).
+     * @param end the end index (exclusive).
+     */
+    private void addRange(final IndexList displayIndices, final int start, final int end) {
+        for (int index = start; index < end; index++) {
+            addItem(displayIndices, index);
+        }
+    }
+
+    /**
+     * Add a point to the points to display.
+     *
+     * @param displayIndices the indices of the points to display.
+     * @param index the index of the point.
+     */
+    private void addItem(final IndexList displayIndices, final int index) {
+        displayIndices.add(index);
+    }
+
+    /**
+     * A growing list of point indices.
+     */
+    private static final class IndexList {
+        /**
+         * The indices; only the first <code>size</code> values are used.
+         */
+        private int[] indices;
+
+        /**
+         * The number of indices.
+         */
+        private int size;
+
+        /**
+         * Create an empty list.
+         *
+         * @param capacity the expected number of indices.
+         */
+        private IndexList(final int capacity) {
+            indices = new int[Math.max(capacity, 1)];
+        }
+
+        /**
+         * Add an index.
+         *
+         * @param index the index.
+         */
+        private void add(final int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, 2 * size);
+            }
+            indices[size++] = index;
+        }
+
+        /**
+         * Get the indices.
+         *
+         * @return a new array with the indices.
+         */
+        private int[] toArray() {
+            return Arrays.copyOf(indices, size);
+        }
+    }
+}
@@ -2,10 +2,26 @@ package nl.ctmm.trait.proteomics.qcviewer;
 
 import junit.framework.JUnit4TestAdapter;
 import junit.textui.TestRunner;
+import nl.ctmm.trait.proteomics.qcviewer.gui.ChartImageCacheTest;
 import nl.ctmm.trait.proteomics.qcviewer.gui.ChartUnitTest;
+import nl.ctmm.trait.proteomics.qcviewer.gui.ReportRowRecyclerTest;
 import nl.ctmm.trait.proteomics.qcviewer.gui.ScrollDesktopTest;
+import nl.ctmm.trait.proteomics.qcviewer.gui.VisibleRowRangeTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.ControlChartStatisticsTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.FileChangeMonitorTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.JsonMetricsReaderTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.LogFileTailTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.MetricValuesTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportCatalogTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportDirectoryScannerTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportDirectoryWatcherTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportFilterTest;
 import nl.ctmm.trait.proteomics.qcviewer.input.ReportReaderTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportSortIndexTest;
 import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnitTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrixReaderTest;
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrixSidecarTest;
+import nl.ctmm.trait.proteomics.qcviewer.utils.SeriesDownsamplerTest;
 import nl.ctmm.trait.proteomics.qcviewer.utils.UtilitiesTest;
 
 import org.junit.runner.RunWith;
@@ -16,7 +32,12 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses(
         {
                 ReportReaderTest.class, ReportUnitTest.class, UtilitiesTest.class,  
-                ScrollDesktopTest.class, ChartUnitTest.class
+                ScrollDesktopTest.class, ChartUnitTest.class, ReportDirectoryScannerTest.class,
+                ReportCatalogTest.class, ReportDirectoryWatcherTest.class, TicMatrixReaderTest.class,
+                TicMatrixSidecarTest.class, JsonMetricsReaderTest.class, MetricValuesTest.class,
+                ReportSortIndexTest.class, ReportFilterTest.class, ControlChartStatisticsTest.class,
+                SeriesDownsamplerTest.class, VisibleRowRangeTest.class, ChartImageCacheTest.class,
+                LogFileTailTest.class, FileChangeMonitorTest.class, ReportRowRecyclerTest.class
         }
 )
 
@@ -0,0 +1,178 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrix;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>ChartImageCache</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ChartImageCacheTest {
+    /**
+     * The width of the images.
+     */
+    private static final int WIDTH = 400;
+
+    /**
+     * The height of the images.
+     */
+    private static final int HEIGHT = 100;
+
+    /**
+     * The cache to test, with room for two images.
+     */
+    private final ChartImageCache imageCache = new ChartImageCache(2 * WIDTH * HEIGHT, 2);
+
+    /**
+     * The number of images that have been rendered, but not yet counted by the test.
+     */
+    private final Semaphore renderedImages = new Semaphore(0);
+
+    /**
+     * Test that images are rendered in the background with the requested size, and that the least recently used images
+     * are removed when the pixel budget is exceeded.
+     *
+     * @throws Exception if waiting for the event dispatch thread fails.
+     */
+    @Test
+    public void testRenderAndEvict() throws Exception {
+        final ChartUnit chartUnit1 = createChartUnit("msrun1", 0);
+        final ChartUnit chartUnit2 = createChartUnit("msrun2", 1);
+        final ChartUnit chartUnit3 = createChartUnit("msrun3", 2);
+        assertNull(getImage(chartUnit1));
+        assertNull(getImage(chartUnit2));
+        waitForImages(2);
+        final BufferedImage image1 = getImage(chartUnit1);
+        assertNotNull(image1);
+        assertEquals(WIDTH, image1.getWidth());
+        assertEquals(HEIGHT, image1.getHeight());
+        assertNotNull(getImage(chartUnit2));
+        // Chart unit 1 is used more recently than chart unit 2, so the image of chart unit 2 is removed.
+        assertSame(image1, getImage(chartUnit1));
+        assertNull(getImage(chartUnit3));
+        waitForImages(1);
+        assertEquals(2, imageCache.getImageCount());
+        assertEquals(2 * WIDTH * HEIGHT, imageCache.getPixelCount());
+        assertTrue(imageCache.containsImage(chartUnit1));
+        assertFalse(imageCache.containsImage(chartUnit2));
+        assertTrue(imageCache.containsImage(chartUnit3));
+    }
+
+    /**
+     * Test that a changed chart is rendered again, while the old image is returned until the new one is available.
+     *
+     * @throws Exception if waiting for the event dispatch thread fails.
+     */
+    @Test
+    public void testChangedChart() throws Exception {
+        final ChartUnit chartUnit = createChartUnit("msrun1", 0);
+        getImage(chartUnit);
+        waitForImages(1);
+        final BufferedImage oldImage = getImage(chartUnit);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                chartUnit.getTicChart().getXYPlot().getDomainAxis().setRange(10, 20);
+            }
+        });
+        assertSame(oldImage, getImage(chartUnit));
+        waitForImages(1);
+        final BufferedImage newImage = getImage(chartUnit);
+        assertNotNull(newImage);
+        assertFalse(oldImage == newImage);
+        assertEquals(WIDTH * HEIGHT, imageCache.getPixelCount());
+    }
+
+    /**
+     * Test that removing a chart removes its image and that a pending render of a removed chart is not cached.
+     *
+     * @throws Exception if waiting for the event dispatch thread fails.
+     */
+    @Test
+    public void testRemove() throws Exception {
+        final ChartUnit chartUnit1 = createChartUnit("msrun1", 0);
+        final ChartUnit chartUnit2 = createChartUnit("msrun2", 1);
+        getImage(chartUnit1);
+        waitForImages(1);
+        assertTrue(imageCache.containsImage(chartUnit1));
+        getImage(chartUnit2);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                imageCache.remove(chartUnit1);
+                imageCache.remove(chartUnit2);
+            }
+        });
+        assertFalse(imageCache.containsImage(chartUnit1));
+        assertEquals(0, imageCache.getPixelCount());
+        assertFalse(renderedImages.tryAcquire(1, TimeUnit.SECONDS));
+        assertEquals(0, imageCache.getImageCount());
+    }
+
+    /**
+     * Create a chart unit with a simple TIC graph.
+     *
+     * @param msrunName the name of the msrun.
+     * @param reportIndex the index of msrun report.
+     * @return the chart unit.
+     */
+    private ChartUnit createChartUnit(final String msrunName, final int reportIndex) {
+        final float[] retentionTimes = new float[1000];
+        final float[] intensities = new float[retentionTimes.length];
+        for (int index = 0; index < retentionTimes.length; index++) {
+            retentionTimes[index] = index / 10f;
+            intensities[index] = (index * 37 + reportIndex) % 101;
+        }
+        return new ChartUnit(msrunName, reportIndex, new TicMatrix(retentionTimes.length, retentionTimes, intensities));
+    }
+
+    /**
+     * Get the image of a chart on the event dispatch thread.
+     *
+     * @param chartUnit the chart unit.
+     * @return the image or <code>null</code> if there is no image yet.
+     * @throws InterruptedException if the thread is interrupted.
+     * @throws InvocationTargetException if getting the image fails.
+     */
+    private BufferedImage getImage(final ChartUnit chartUnit) throws InterruptedException, InvocationTargetException {
+        final BufferedImage[] image = new BufferedImage[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                image[0] = imageCache.getImage(chartUnit, WIDTH, HEIGHT, new Runnable() {
+                    @Override
+                    public void run() {
+                        renderedImages.release();
+                    }
+                });
+            }
+        });
+        return image[0];
+    }
+
+    /**
+     * Wait until a number of images have been rendered.
+     *
+     * @param imageCount the number of images.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    private void waitForImages(final int imageCount) throws InterruptedException {
+        assertTrue(renderedImages.tryAcquire(imageCount, 10, TimeUnit.SECONDS));
+    }
+}
@@ -1,15 +1,24 @@
 package nl.ctmm.trait.proteomics.qcviewer.gui;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.ctmm.trait.proteomics.qcviewer.input.TicMatrix;
 
 import org.apache.commons.io.FilenameUtils;
-import org.jfree.data.xy.XYSeries;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.Range;
+import org.jfree.data.general.DatasetUtilities;
+import org.jfree.data.xy.XYDataset;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -28,7 +37,7 @@ public class ChartUnitTest {
     private ChartUnit chartUnit1, chartUnit2, chartUnit3;
 
     /**
-     * Initialize an <code>XYSeries</code> object and three <code>ChartUnit</code> objects.
+     * Initialize a <code>TicMatrix</code> object and three <code>ChartUnit</code> objects.
      */
     @Before
     public void setUp() {
@@ -37,13 +46,13 @@ public class ChartUnitTest {
         final String msrunName3 = "msrun3";
         final String directory1 = TIC_DIRECTORY + "simulated_tic_130707_a\\";
         final String fileName1 = "simulated_tic_130707_a_ticmatrix.csv";
-        final XYSeries xySeries = readXYSeries(msrunName1, new File(FilenameUtils.normalize(directory1 + fileName1)));
+        final TicMatrix ticMatrix = readTicMatrix(new File(FilenameUtils.normalize(directory1 + fileName1)));
         final String directory2 = TIC_DIRECTORY + "simulated_tic_130707_b\\";
         final File ticFileChartUnit3 = new File(FilenameUtils.normalize(directory2 + "simulated_tic_130707_b_ticmatrix.csv"));
-        // public ChartUnit(final String msrunName, final int reportIndex, final XYSeries series)
-        chartUnit1 = new ChartUnit(msrunName1, 0, xySeries);
+        // public ChartUnit(final String msrunName, final int reportIndex, final TicMatrix ticMatrix)
+        chartUnit1 = new ChartUnit(msrunName1, 0, ticMatrix);
         chartUnit2 = new ChartUnit(msrunName2, 1, null); //initialize with empty series
-        chartUnit3 = new ChartUnit(msrunName3, 2, readXYSeries(msrunName1, ticFileChartUnit3));
+        chartUnit3 = new ChartUnit(msrunName3, 2, readTicMatrix(ticFileChartUnit3));
     }
 
     /**
@@ -55,22 +64,95 @@ public class ChartUnitTest {
         double maxIntensity1 = 9.96046420611126E9;
         double maxIntensity2 = 0.0;
         double maxIntensity3 = 9.9600473163739E9;
+        // The TIC intensities are stored as floats.
         assertEquals(0, chartUnit2.getMaxTicIntensity(), 0);
-        assertEquals(maxIntensity1, chartUnit1.getMaxTicIntensity(), 10);
+        assertEquals((float) maxIntensity1, chartUnit1.getMaxTicIntensity(), Math.ulp((float) maxIntensity1));
         assertEquals(maxIntensity2, chartUnit2.getMaxTicIntensity(), 0);
-        assertEquals(maxIntensity3, chartUnit3.getMaxTicIntensity(), 0);
+        assertEquals((float) maxIntensity3, chartUnit3.getMaxTicIntensity(), 0);
+    }
+
+    /**
+     * Test that the chart shows a display series with about one point per pixel column that keeps the maximum, and that
+     * the display series is sampled again for the visible range when zooming.
+     */
+    @Test
+    public void testDisplaySeries() {
+        final float[] retentionTimes = new float[5000];
+        final float[] intensities = new float[retentionTimes.length];
+        for (int index = 0; index < retentionTimes.length; index++) {
+            retentionTimes[index] = index / 50f;
+            intensities[index] = index == 1234 ? 1e10f : (index * 7919) % 1000;
+        }
+        final ChartUnit chartUnit = new ChartUnit("msrun4", 3, new TicMatrix(5000, retentionTimes, intensities));
+        final XYPlot plot = chartUnit.getTicChart().getXYPlot();
+        final XYDataset dataset = plot.getDataset();
+        assertTrue(dataset.getItemCount(0) <= 800 + 2);
+        assertEquals(1e10, DatasetUtilities.findMaximumRangeValue(dataset).doubleValue(), 0);
+        assertEquals(new Range(0, 4999 / 50f), DatasetUtilities.findDomainBounds(dataset, false));
+        plot.getDomainAxis().setRange(10, 20);
+        final XYDataset zoomedDataset = plot.getDataset();
+        int visibleCount = 0;
+        for (int item = 0; item < zoomedDataset.getItemCount(0); item++) {
+            final double x = zoomedDataset.getXValue(0, item);
+            if (x >= 10 && x <= 20) {
+                visibleCount++;
+            }
+        }
+        // The 501 scans in the visible range fit in the 800 columns, so they are all shown.
+        assertEquals(501, visibleCount);
+        assertEquals(1e10, DatasetUtilities.findMaximumRangeValue(zoomedDataset).doubleValue(), 0);
+        assertTrue(zoomedDataset.getItemCount(0) <= 501 + 2 + 3);
+    }
+
+    /**
+     * Test that the shared domain zoom is applied once per change: fixed ranges, zooming around the center of the
+     * automatic range, and applying the zoom again after the TIC graph is loaded.
+     */
+    @Test
+    public void testApplyDomainZoom() {
+        final DomainZoom domainZoom = new DomainZoom();
+        final ChartUnit chartUnit = new ChartUnit("msrun5", 4, null);
+        final ValueAxis domainAxis = chartUnit.getTicChart().getXYPlot().getDomainAxis();
+        domainZoom.setRange(10, 20);
+        domainZoom.zoomIn();
+        chartUnit.applyDomainZoom(domainZoom);
+        assertEquals(new Range(12.5, 17.5), domainAxis.getRange());
+        // Zooming a single chart with the mouse is kept until the shared zoom changes.
+        domainAxis.setRange(13, 14);
+        chartUnit.applyDomainZoom(domainZoom);
+        assertEquals(new Range(13, 14), domainAxis.getRange());
+        domainZoom.reset();
+        domainZoom.zoomOut();
+        final float[] retentionTimes = new float[1000];
+        final float[] intensities = new float[retentionTimes.length];
+        for (int index = 0; index < retentionTimes.length; index++) {
+            retentionTimes[index] = 30 + index / 10f;
+            intensities[index] = index % 100;
+        }
+        chartUnit.setTicMatrix(new TicMatrix(retentionTimes.length, retentionTimes, intensities));
+        chartUnit.applyDomainZoom(domainZoom);
+        domainAxis.setAutoRange(true);
+        final Range autoRange = domainAxis.getRange();
+        chartUnit.setTicMatrix(new TicMatrix(retentionTimes.length, retentionTimes, intensities));
+        chartUnit.applyDomainZoom(domainZoom);
+        assertEquals(autoRange.getCentralValue(), domainAxis.getRange().getCentralValue(), 1e-6);
+        assertEquals(2 * autoRange.getLength(), domainAxis.getRange().getLength(), 1e-6);
+        domainZoom.reset();
+        chartUnit.applyDomainZoom(domainZoom);
+        assertTrue(domainAxis.isAutoRange());
+        assertEquals(autoRange, domainAxis.getRange());
     }
 
     /**
-     * Create an <code>XYSeries</code> object by reading the TIC matrix file that contains rt and ions values
+     * Create a <code>TicMatrix</code> object by reading the TIC matrix file that contains rt and ions values
      * representing a TIC graph.
      *
-     * @param msrunName the name of the msrun.
      * @param ticMatrixFile the file with the TIC values.
-     * @return The <code>XYSeries</code> object with the TIC graph.
+     * @return The <code>TicMatrix</code> object with the TIC graph.
      */
-    private XYSeries readXYSeries(final String msrunName, final File ticMatrixFile) {
-        final XYSeries xySeries = new XYSeries(msrunName);
+    private TicMatrix readTicMatrix(final File ticMatrixFile) {
+        final List<Float> retentionTimes = new ArrayList<>();
+        final List<Float> intensities = new ArrayList<>();
         try {
             final BufferedReader bufferedReader = new BufferedReader(new FileReader(ticMatrixFile));
             // Skip the header line ("rt","ions").
@@ -78,13 +160,20 @@ public class ChartUnitTest {
             String line;
             while ((line = bufferedReader.readLine()) != null) {
                 final String[] values = line.split(",");
-                xySeries.add(Double.parseDouble(values[0]) / 60.0, Double.parseDouble(values[1]));
+                retentionTimes.add((float) (Double.parseDouble(values[0]) / 60.0));
+                intensities.add((float) Double.parseDouble(values[1]));
             }
             bufferedReader.close();
         } catch (NumberFormatException | IOException e) {
             fail(e.getMessage());
             e.printStackTrace();
         }
-        return xySeries;
+        final float[] retentionTimeArray = new float[retentionTimes.size()];
+        final float[] intensityArray = new float[intensities.size()];
+        for (int index = 0; index < retentionTimeArray.length; index++) {
+            retentionTimeArray[index] = retentionTimes.get(index);
+            intensityArray[index] = intensities.get(index);
+        }
+        return new TicMatrix(retentionTimeArray.length, retentionTimeArray, intensityArray);
     }
 }
@@ -1,9 +1,12 @@
 package nl.ctmm.trait.proteomics.qcviewer.gui;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnit;
 
 /**
- * This class contains a utility method for the unit tests in the gui package.
+ * This class contains utility methods for the unit tests in the gui and input packages.
  *
  * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
  */
@@ -18,4 +21,24 @@ public class GuiTestUtils {
         //    public ReportUnit(String msrunName, int reportNum)
         return new ReportUnit("msrun", reportNumber);
     }
+
+    /**
+     * Create a report unit for testing with metrics values. The msrun name is "msrun" followed by the report number.
+     *
+     * @param reportNumber the unique report number.
+     * @param keysAndValues the metrics keys, each followed by its value (for example "generic:date", "N/A").
+     * @return the new report unit.
+     */
+    public static ReportUnit createReportUnit(final int reportNumber, final String... keysAndValues) {
+        if (keysAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Each metrics key should be followed by a value.");
+        }
+        final Map<String, String> metricsValues = new HashMap<>();
+        for (int keyIndex = 0; keyIndex < keysAndValues.length; keyIndex += 2) {
+            metricsValues.put(keysAndValues[keyIndex], keysAndValues[keyIndex + 1]);
+        }
+        final ReportUnit reportUnit = new ReportUnit("msrun" + reportNumber, reportNumber);
+        reportUnit.setMetricsValues(metricsValues);
+        return reportUnit;
+    }
 }
@@ -0,0 +1,126 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportSortIndex;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnit;
+import nl.ctmm.trait.proteomics.qcviewer.input.SortCriterion;
+
+/**
+ * Benchmark of the re-sort path of the viewer frame: the reports are sorted with the cached permutations of the
+ * <code>ReportSortIndex</code> and the report rows of the visible part are updated with the
+ * <code>ReportRowRecycler</code>, which reuses the rows instead of creating components for every report. It generates
+ * a number of report units with random metrics values and sorts them on each key in both orders.
+ * <p/>
+ * Run it with the test classpath:
+ * <code>java nl.ctmm.trait.proteomics.qcviewer.gui.ReportResortBenchmark [report count]</code>
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportResortBenchmark {
+    /**
+     * The default number of reports.
+     */
+    private static final int DEFAULT_REPORT_COUNT = 100000;
+
+    /**
+     * The number of times all sort keys are sorted; the first rounds warm up the JVM.
+     */
+    private static final int ROUND_COUNT = 5;
+
+    /**
+     * The sort keys that are benchmarked.
+     */
+    private static final String[] SORT_KEYS = {"generic:runtime", "generic:ms1_spectra", "chrom:c-4a"};
+
+    /**
+     * The range of report rows that is shown (about the number of rows that fit in the viewport, plus overscan).
+     */
+    private static final VisibleRowRange ROW_RANGE = new VisibleRowRange(0, 10);
+
+    /**
+     * Hidden constructor.
+     */
+    private ReportResortBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param arguments optionally the number of reports.
+     */
+    // CHECKSTYLE_OFF: UncommentedMain
+    public static void main(final String[] arguments) {
+        final int reportCount = arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_REPORT_COUNT;
+        final ReportSortIndex reportSortIndex = new ReportSortIndex();
+        reportSortIndex.addReportUnits(createReportUnits(reportCount));
+        final int[] bindCount = new int[1];
+        final ReportRowRecycler<ReportRowRecycler.Row> recycler = new ReportRowRecycler<ReportRowRecycler.Row>() {
+            @Override
+            protected ReportRowRecycler.Row createRow() {
+                return new ReportRowRecycler.Row();
+            }
+
+            @Override
+            protected void bindRow(final ReportRowRecycler.Row row) {
+                bindCount[0]++;
+            }
+
+            @Override
+            protected void moveRow(final ReportRowRecycler.Row row) {
+                // The rows of the benchmark have no components.
+            }
+
+            @Override
+            protected void releaseRow(final ReportRowRecycler.Row row) {
+                // The rows of the benchmark have no components.
+            }
+        };
+        for (int round = 1; round <= ROUND_COUNT; round++) {
+            long sortTime = 0;
+            long rowTime = 0;
+            int sortCount = 0;
+            bindCount[0] = 0;
+            for (final String sortKey : SORT_KEYS) {
+                for (final boolean ascending : new boolean[]{true, false}) {
+                    final long startTime = System.nanoTime();
+                    final List<ReportUnit> orderedReportUnits = reportSortIndex.getSortedReportUnits(
+                            Arrays.asList(new SortCriterion(sortKey, ascending)));
+                    final long sortedTime = System.nanoTime();
+                    recycler.update(orderedReportUnits, ROW_RANGE);
+                    rowTime += System.nanoTime() - sortedTime;
+                    sortTime += sortedTime - startTime;
+                    sortCount++;
+                }
+            }
+            System.out.println(String.format("Round %d, %d reports, %d sorts: sort %.2f ms, rows %.3f ms per sort;"
+                                             + " %d report rows, %d bindings", round, reportCount, sortCount,
+                                             sortTime / 1e6 / sortCount, rowTime / 1e6 / sortCount,
+                                             recycler.getRowCount(), bindCount[0]));
+        }
+    }
+    // CHECKSTYLE_ON: UncommentedMain
+
+    /**
+     * Create report units with random metrics values.
+     *
+     * @param reportCount the number of report units.
+     * @return the report units.
+     */
+    private static List<ReportUnit> createReportUnits(final int reportCount) {
+        final Random random = new Random(1234);
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        for (int reportNumber = 1; reportNumber <= reportCount; reportNumber++) {
+            final String runtime = String.format("%d:%02d:%02d", random.nextInt(3), random.nextInt(60),
+                                                 random.nextInt(60));
+            final String ms1Spectra = Integer.toString(random.nextInt(50000));
+            final String c4a = Double.toString(random.nextDouble() * 100);
+            reportUnits.add(GuiTestUtils.createReportUnit(reportNumber, "generic:runtime", runtime,
+                                                          "generic:ms1_spectra", ms1Spectra, "chrom:c-4a", c4a));
+        }
+        return reportUnits;
+    }
+}
@@ -0,0 +1,200 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportSortIndex;
+import nl.ctmm.trait.proteomics.qcviewer.input.ReportUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>ReportRowRecycler</code> class, which the viewer frame uses to show the report rows after
+ * scrolling, sorting and filtering.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportRowRecyclerTest {
+    /**
+     * The metric that is used to sort the reports; its value is the report number.
+     */
+    private static final String SORT_KEY = "chrom:c-4a";
+
+    /**
+     * The number of reports.
+     */
+    private static final int REPORT_COUNT = 100;
+
+    /**
+     * The sort index with the reports.
+     */
+    private final ReportSortIndex reportSortIndex = new ReportSortIndex();
+
+    /**
+     * The recycler to test, which counts the calls of its methods.
+     */
+    private final CountingRecycler recycler = new CountingRecycler();
+
+    /**
+     * Create the reports and add them to the sort index.
+     */
+    @Before
+    public void setUp() {
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        for (int reportNumber = 1; reportNumber <= REPORT_COUNT; reportNumber++) {
+            reportUnits.add(GuiTestUtils.createReportUnit(reportNumber, SORT_KEY, Integer.toString(reportNumber)));
+        }
+        reportSortIndex.addReportUnits(reportUnits);
+    }
+
+    /**
+     * Test that sorting twice reuses the same rows: the rows at the top get other reports, but no rows are created.
+     */
+    @Test
+    public void testResortReusesRows() {
+        final VisibleRowRange rowRange = new VisibleRowRange(0, 8);
+        final List<ReportUnit> ascending = reportSortIndex.getSortedReportUnits(SORT_KEY, true);
+        recycler.update(ascending, rowRange);
+        assertBindings(ascending, rowRange);
+        final Map<CountingRow, Boolean> initialRows = getDisplayedRows();
+        assertEquals(8, recycler.createCount);
+
+        final List<ReportUnit> descending = reportSortIndex.getSortedReportUnits(SORT_KEY, false);
+        recycler.update(descending, rowRange);
+        assertBindings(descending, rowRange);
+        assertEquals(initialRows.keySet(), getDisplayedRows().keySet());
+        assertEquals(8, recycler.createCount);
+        assertEquals(8, recycler.releaseCount);
+        assertEquals(16, recycler.bindCount);
+
+        recycler.update(ascending, rowRange);
+        assertBindings(ascending, rowRange);
+        assertEquals(initialRows.keySet(), getDisplayedRows().keySet());
+        assertEquals(8, recycler.getRowCount());
+        assertEquals(8, recycler.createCount);
+    }
+
+    /**
+     * Test that rows whose report stays in the range keep their report and are only moved: reversing the order of the
+     * reports keeps the middle reports in the middle.
+     */
+    @Test
+    public void testResortMovesRowsInRange() {
+        final VisibleRowRange rowRange = new VisibleRowRange(46, 54);
+        final List<ReportUnit> ascending = reportSortIndex.getSortedReportUnits(SORT_KEY, true);
+        recycler.update(ascending, rowRange);
+        final Map<ReportUnit, CountingRow> initialRows = new IdentityHashMap<>();
+        for (final CountingRow row : recycler.getDisplayedRows()) {
+            initialRows.put(row.getReportUnit(), row);
+        }
+        recycler.update(reportSortIndex.getSortedReportUnits(SORT_KEY, false), rowRange);
+        assertEquals(8, recycler.bindCount);
+        assertEquals(0, recycler.releaseCount);
+        assertEquals(8, recycler.moveCount);
+        for (final CountingRow row : recycler.getDisplayedRows()) {
+            assertSame(initialRows.get(row.getReportUnit()), row);
+            assertEquals(REPORT_COUNT - row.getReportUnit().getReportNum(), row.getPosition());
+        }
+    }
+
+    /**
+     * Test that scrolling releases the rows that have left the range and reuses them for the new positions.
+     */
+    @Test
+    public void testScroll() {
+        final List<ReportUnit> ascending = reportSortIndex.getSortedReportUnits(SORT_KEY, true);
+        recycler.update(ascending, new VisibleRowRange(0, 8));
+        recycler.update(ascending, new VisibleRowRange(3, 11));
+        assertBindings(ascending, new VisibleRowRange(3, 11));
+        assertEquals(3, recycler.releaseCount);
+        assertEquals(0, recycler.moveCount);
+        assertEquals(8, recycler.getRowCount());
+        assertTrue(recycler.isDisplayed(ascending.get(10)));
+        assertFalse(recycler.isDisplayed(ascending.get(0)));
+        recycler.update(ascending, new VisibleRowRange(0, 0));
+        assertEquals(0, recycler.getDisplayedRows().size());
+        assertEquals(8, recycler.getRowCount());
+        assertEquals(-1, recycler.lastReleasedRow.getPosition());
+    }
+
+    /**
+     * Check that each position in a range is shown by exactly one row with the report at that position.
+     *
+     * @param orderedReportUnits the ordered report units.
+     * @param rowRange the range of positions.
+     */
+    private void assertBindings(final List<ReportUnit> orderedReportUnits, final VisibleRowRange rowRange) {
+        final List<Integer> positions = new ArrayList<>();
+        for (final CountingRow row : recycler.getDisplayedRows()) {
+            assertSame(orderedReportUnits.get(row.getPosition()), row.getReportUnit());
+            positions.add(row.getPosition());
+        }
+        Collections.sort(positions);
+        final List<Integer> expectedPositions = new ArrayList<>();
+        for (int position = rowRange.getFirstRow(); position < rowRange.getEndRow(); position++) {
+            expectedPositions.add(position);
+        }
+        assertEquals(expectedPositions, positions);
+    }
+
+    /**
+     * Get the displayed rows as an identity set.
+     *
+     * @return the displayed rows.
+     */
+    private Map<CountingRow, Boolean> getDisplayedRows() {
+        final Map<CountingRow, Boolean> rows = new IdentityHashMap<>();
+        for (final CountingRow row : recycler.getDisplayedRows()) {
+            rows.put(row, true);
+        }
+        return rows;
+    }
+
+    /**
+     * A row without components.
+     */
+    private static class CountingRow extends ReportRowRecycler.Row {
+    }
+
+    /**
+     * A recycler that counts how often rows are created, bound, moved and released.
+     */
+    private static class CountingRecycler extends ReportRowRecycler<CountingRow> {
+        private int createCount;
+        private int bindCount;
+        private int moveCount;
+        private int releaseCount;
+        private CountingRow lastReleasedRow;
+
+        @Override
+        protected CountingRow createRow() {
+            createCount++;
+            return new CountingRow();
+        }
+
+        @Override
+        protected void bindRow(final CountingRow row) {
+            bindCount++;
+        }
+
+        @Override
+        protected void moveRow(final CountingRow row) {
+            moveCount++;
+        }
+
+        @Override
+        protected void releaseRow(final CountingRow row) {
+            releaseCount++;
+            lastReleasedRow = row;
+        }
+    }
+}
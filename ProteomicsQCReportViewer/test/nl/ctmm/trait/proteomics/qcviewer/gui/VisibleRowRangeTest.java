@@ -0,0 +1,54 @@
+package nl.ctmm.trait.proteomics.qcviewer.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>VisibleRowRange</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class VisibleRowRangeTest {
+    /**
+     * The height of the rows in pixels.
+     */
+    private static final int ROW_HEIGHT = 165;
+
+    /**
+     * Test the row ranges for the top, the middle and the end of a large list, including the overscan.
+     */
+    @Test
+    public void testForViewport() {
+        final int rowCount = 100000;
+        final VisibleRowRange topRange = VisibleRowRange.forViewport(new Rectangle(0, 0, 1270, 500), ROW_HEIGHT,
+                                                                     rowCount, 2);
+        assertEquals(0, topRange.getFirstRow());
+        assertEquals(6, topRange.getEndRow());
+        final VisibleRowRange middleRange = VisibleRowRange.forViewport(new Rectangle(0, 50000 * ROW_HEIGHT + 10, 1270,
+                                                                                      500), ROW_HEIGHT, rowCount, 2);
+        assertEquals(49998, middleRange.getFirstRow());
+        assertEquals(50006, middleRange.getEndRow());
+        assertEquals(8, middleRange.getRowCount());
+        assertTrue(middleRange.contains(49998));
+        assertTrue(middleRange.contains(50005));
+        assertFalse(middleRange.contains(50006));
+        final VisibleRowRange endRange = VisibleRowRange.forViewport(new Rectangle(0, rowCount * ROW_HEIGHT - 300, 1270,
+                                                                                   500), ROW_HEIGHT, rowCount, 2);
+        assertEquals(rowCount - 4, endRange.getFirstRow());
+        assertEquals(rowCount, endRange.getEndRow());
+    }
+
+    /**
+     * Test that there are no rows to show if nothing is visible or the list is empty.
+     */
+    @Test
+    public void testEmptyRanges() {
+        assertEquals(0, VisibleRowRange.forViewport(new Rectangle(), ROW_HEIGHT, 10, 2).getRowCount());
+        assertEquals(0, VisibleRowRange.forViewport(new Rectangle(0, 0, 100, 100), ROW_HEIGHT, 0, 2).getRowCount());
+    }
+}
@@ -0,0 +1,189 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static nl.ctmm.trait.proteomics.qcviewer.gui.GuiTestUtils.createReportUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>ControlChartStatistics</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ControlChartStatisticsTest {
+    private static final String METRIC_KEY = "chrom:c-4a";
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Test that the running mean, standard deviation and moving range match a two-pass computation, also when the
+     * reports are added in two batches.
+     */
+    @Test
+    public void testRunningStatistics() {
+        final Random random = new Random(1234);
+        final List<Double> values = new ArrayList<>();
+        for (int valueIndex = 0; valueIndex < 200; valueIndex++) {
+            values.add(1e6 + random.nextGaussian() * 10);
+        }
+        final List<ReportUnit> reportUnits = createReportUnits(values);
+        final ControlChartStatistics allAtOnce = new ControlChartStatistics();
+        allAtOnce.addReportUnits(reportUnits);
+        final ControlChartStatistics inBatches = new ControlChartStatistics();
+        inBatches.addReportUnits(reportUnits.subList(0, 120));
+        inBatches.addReportUnits(reportUnits.subList(120, reportUnits.size()));
+        double sum = 0;
+        double movingRangeSum = 0;
+        for (int valueIndex = 0; valueIndex < values.size(); valueIndex++) {
+            sum += values.get(valueIndex);
+            if (valueIndex > 0) {
+                movingRangeSum += Math.abs(values.get(valueIndex) - values.get(valueIndex - 1));
+            }
+        }
+        final double mean = sum / values.size();
+        double squaredDifferenceSum = 0;
+        for (final double value : values) {
+            squaredDifferenceSum += (value - mean) * (value - mean);
+        }
+        for (final ControlChartStatistics statistics : Arrays.asList(allAtOnce, inBatches)) {
+            assertEquals(values.size(), statistics.getCount(METRIC_KEY));
+            assertEquals(mean, statistics.getMean(METRIC_KEY), 1e-6);
+            assertEquals(Math.sqrt(squaredDifferenceSum / (values.size() - 1)),
+                         statistics.getStandardDeviation(METRIC_KEY), 1e-6);
+            assertEquals(movingRangeSum / (values.size() - 1), statistics.getMeanMovingRange(METRIC_KEY), 1e-6);
+        }
+        for (final ReportUnit reportUnit : reportUnits) {
+            assertEquals(allAtOnce.getViolations(reportUnit, METRIC_KEY), inBatches.getViolations(reportUnit, METRIC_KEY));
+            assertEquals(allAtOnce.getDeviation(reportUnit, METRIC_KEY), inBatches.getDeviation(reportUnit, METRIC_KEY),
+                         DELTA);
+        }
+    }
+
+    /**
+     * Test that reports that are added newest first, in batches, get the same statistics and flags as reports that are
+     * added in date order.
+     */
+    @Test
+    public void testDateOrder() {
+        final Random random = new Random(5678);
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        for (int valueIndex = 0; valueIndex < 100; valueIndex++) {
+            final ReportUnit reportUnit = createReportUnit(valueIndex + 1, METRIC_KEY,
+                                                           Double.toString(10 + random.nextGaussian()));
+            final Map<String, String> metricsValues = reportUnit.getMetricValues().toMap();
+            metricsValues.put(MetricSchema.DATE_KEY, String.format("2013/Jul/%02d - %02d:00", 1 + valueIndex / 24,
+                                                                   valueIndex % 24));
+            reportUnit.setMetricsValues(metricsValues);
+            reportUnits.add(reportUnit);
+        }
+        final ControlChartStatistics inDateOrder = new ControlChartStatistics();
+        inDateOrder.addReportUnits(reportUnits);
+        final List<ReportUnit> newestFirst = new ArrayList<>(reportUnits);
+        Collections.reverse(newestFirst);
+        final ControlChartStatistics inBatches = new ControlChartStatistics();
+        for (int batchStart = 0; batchStart < newestFirst.size(); batchStart += 30) {
+            inBatches.addReportUnits(newestFirst.subList(batchStart, Math.min(batchStart + 30, newestFirst.size())));
+        }
+        assertEquals(inDateOrder.getMeanMovingRange(METRIC_KEY), inBatches.getMeanMovingRange(METRIC_KEY), DELTA);
+        for (final ReportUnit reportUnit : reportUnits) {
+            assertEquals(inDateOrder.getViolations(reportUnit, METRIC_KEY), inBatches.getViolations(reportUnit, METRIC_KEY));
+            assertEquals(inDateOrder.getDeviation(reportUnit, METRIC_KEY), inBatches.getDeviation(reportUnit, METRIC_KEY),
+                         DELTA);
+        }
+        assertTrue(Double.isNaN(inDateOrder.getDeviation(reportUnits.get(0), METRIC_KEY)));
+        assertTrue(Double.isNaN(inBatches.getDeviation(reportUnits.get(0), METRIC_KEY)));
+    }
+
+    /**
+     * Test the Westgard rules on sequences that complete each of the patterns.
+     */
+    @Test
+    public void testWestgardRules() {
+        final List<Double> baseline = Arrays.asList(9.0, 11.0, 9.0, 11.0, 10.0);
+        assertEquals(EnumSet.of(WestgardRule.RULE_1_3S), getLastViolations(concatenate(baseline, 14.0)));
+        assertEquals(EnumSet.noneOf(WestgardRule.class), getLastViolations(concatenate(baseline, 12.5)));
+        assertEquals(EnumSet.of(WestgardRule.RULE_2_2S), getLastViolations(concatenate(baseline, 12.5, 13.5)));
+        assertEquals(EnumSet.of(WestgardRule.RULE_R_4S), getLastViolations(concatenate(baseline, 12.5, 7.0)));
+        final List<Double> longBaseline = new ArrayList<>();
+        for (int valueIndex = 0; valueIndex < 100; valueIndex++) {
+            longBaseline.add(valueIndex % 2 == 0 ? 11.0 : 9.0);
+        }
+        assertEquals(EnumSet.noneOf(WestgardRule.class), getLastViolations(concatenate(longBaseline, 11.5, 11.5, 11.5)));
+        assertEquals(EnumSet.of(WestgardRule.RULE_4_1S),
+                     getLastViolations(concatenate(longBaseline, 11.5, 11.5, 11.5, 11.5)));
+        final List<Double> nineHigh = new ArrayList<>(longBaseline);
+        nineHigh.addAll(Collections.nCopies(9, 10.5));
+        assertEquals(EnumSet.noneOf(WestgardRule.class), getLastViolations(nineHigh));
+        assertEquals(EnumSet.of(WestgardRule.RULE_10X), getLastViolations(concatenate(nineHigh, 10.5)));
+    }
+
+    /**
+     * Test that values are not flagged during the baseline, without variation, or when they are missing.
+     */
+    @Test
+    public void testNoViolations() {
+        final List<ReportUnit> reportUnits = createReportUnits(Arrays.asList(1.0, 100.0, 1.0, 1.0, 1.0, 1.0, 1.0));
+        final ControlChartStatistics statistics = new ControlChartStatistics();
+        statistics.addReportUnits(reportUnits);
+        assertTrue(statistics.getViolations(reportUnits.get(1), METRIC_KEY).isEmpty());
+        assertTrue(Double.isNaN(statistics.getDeviation(reportUnits.get(1), METRIC_KEY)));
+        final List<ReportUnit> constantReportUnits = createReportUnits(Collections.nCopies(20, 5.0));
+        final ReportUnit missingReportUnit = createReportUnit(21, METRIC_KEY, "N/A");
+        constantReportUnits.add(missingReportUnit);
+        statistics.clear();
+        statistics.addReportUnits(constantReportUnits);
+        assertEquals(20, statistics.getCount(METRIC_KEY));
+        for (final ReportUnit reportUnit : constantReportUnits) {
+            assertTrue(statistics.getViolations(reportUnit, METRIC_KEY).isEmpty());
+        }
+        assertTrue(statistics.getViolations(missingReportUnit, "dyn:ds-1a").isEmpty());
+    }
+
+    /**
+     * Get the violations of the last report for a sequence of values.
+     *
+     * @param values the values.
+     * @return the rules violated by the last value.
+     */
+    private EnumSet<WestgardRule> getLastViolations(final List<Double> values) {
+        final List<ReportUnit> reportUnits = createReportUnits(values);
+        final ControlChartStatistics statistics = new ControlChartStatistics();
+        statistics.addReportUnits(reportUnits);
+        return EnumSet.copyOf(statistics.getViolations(reportUnits.get(reportUnits.size() - 1), METRIC_KEY));
+    }
+
+    /**
+     * Append values to a list.
+     *
+     * @param values the list of values.
+     * @param extraValues the values to append.
+     * @return a new list with all values.
+     */
+    private List<Double> concatenate(final List<Double> values, final Double... extraValues) {
+        final List<Double> allValues = new ArrayList<>(values);
+        allValues.addAll(Arrays.asList(extraValues));
+        return allValues;
+    }
+
+    /**
+     * Create report units with a value for the metric.
+     *
+     * @param values the values.
+     * @return the report units.
+     */
+    private List<ReportUnit> createReportUnits(final List<Double> values) {
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        for (int valueIndex = 0; valueIndex < values.size(); valueIndex++) {
+            reportUnits.add(createReportUnit(valueIndex + 1, METRIC_KEY, Double.toString(values.get(valueIndex))));
+        }
+        return reportUnits;
+    }
+}
@@ -0,0 +1,110 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>FileChangeMonitor</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class FileChangeMonitorTest {
+    private static final long MAX_WAIT_MILLIS = 10000;
+
+    private static final long SETTLE_MILLIS = 1500;
+
+    /**
+     * Temporary folder for the monitored file.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final FileChangeMonitor fileChangeMonitor = FileChangeMonitor.getInstance();
+
+    private final CountingListener listener1 = new CountingListener();
+
+    private final CountingListener listener2 = new CountingListener();
+
+    private Path logFile;
+
+    /**
+     * Create a log file and monitor it with two listeners.
+     */
+    @Before
+    public void setUp() throws IOException {
+        logFile = temporaryFolder.getRoot().toPath().resolve("qc_status.log");
+        Files.write(logFile, "first line\n".getBytes(Charset.defaultCharset()));
+        fileChangeMonitor.addFileChangeListener(listener1, logFile.toString(), 1000);
+        fileChangeMonitor.addFileChangeListener(listener2, logFile.toString(), 1000);
+    }
+
+    /**
+     * Stop monitoring the log file.
+     */
+    @After
+    public void tearDown() {
+        fileChangeMonitor.removeFileChangeListener(listener1, logFile.toString());
+        fileChangeMonitor.removeFileChangeListener(listener2, logFile.toString());
+    }
+
+    /**
+     * Test that a change is reported once to every listener, and that nothing is reported while the file is unchanged.
+     */
+    @Test
+    public void testChangeReportedOnceToAllListeners() throws IOException, InterruptedException {
+        Thread.sleep(SETTLE_MILLIS);
+        assertEquals(0, listener1.changeCount.get());
+        append("second line\n");
+        final long waitEnd = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        while (listener2.changeCount.get() == 0 && System.currentTimeMillis() < waitEnd) {
+            Thread.sleep(50);
+        }
+        Thread.sleep(SETTLE_MILLIS);
+        assertEquals(1, listener1.changeCount.get());
+        assertEquals(1, listener2.changeCount.get());
+    }
+
+    /**
+     * Test that a listener that has been removed is not notified anymore.
+     */
+    @Test
+    public void testRemoveFileChangeListener() throws IOException, InterruptedException {
+        fileChangeMonitor.removeFileChangeListener(listener1, logFile.toString());
+        append("second line\n");
+        final long waitEnd = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        while (listener2.changeCount.get() == 0 && System.currentTimeMillis() < waitEnd) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, listener1.changeCount.get());
+        assertEquals(1, listener2.changeCount.get());
+    }
+
+    private void append(final String content) throws IOException {
+        Files.write(logFile, content.getBytes(Charset.defaultCharset()), StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Listener that counts the changes it is notified of.
+     */
+    private static class CountingListener implements FileChangeListener {
+        private final AtomicInteger changeCount = new AtomicInteger();
+
+        @Override
+        public void fileChanged(final File file) {
+            changeCount.incrementAndGet();
+        }
+    }
+}
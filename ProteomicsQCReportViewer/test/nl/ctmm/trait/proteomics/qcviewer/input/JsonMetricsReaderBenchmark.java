@@ -0,0 +1,185 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Benchmark that compares the streaming <code>JsonMetricsReader</code> with reading the json files into a tree of json
+ * objects (the previous implementation). It generates a few thousand metrics.json files in a temporary directory.
+ * <p/>
+ * Run it from the project directory (so MetricsListing.txt is found) with the test classpath:
+ * <code>java nl.ctmm.trait.proteomics.qcviewer.input.JsonMetricsReaderBenchmark [file count]</code>
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class JsonMetricsReaderBenchmark {
+    /**
+     * The default number of json files.
+     */
+    private static final int DEFAULT_FILE_COUNT = 3000;
+
+    /**
+     * The number of times all files are read per implementation; the first rounds warm up the JVM.
+     */
+    private static final int ROUND_COUNT = 5;
+
+    /**
+     * The number of metrics in the generated files that are not in the metrics listing.
+     */
+    private static final int UNSUPPORTED_METRIC_COUNT = 30;
+
+    /**
+     * Hidden constructor.
+     */
+    private JsonMetricsReaderBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param arguments optionally the number of json files.
+     * @throws IOException if the json files cannot be written.
+     */
+    // CHECKSTYLE_OFF: UncommentedMain
+    public static void main(final String[] arguments) throws IOException {
+        final int fileCount = arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_FILE_COUNT;
+        final MetricsParser metricsParser = new MetricsParser();
+        final Map<String, String> metricsListing = metricsParser.getMetricsListing();
+        final Path directory = Files.createTempDirectory("metrics-benchmark");
+        final List<File> jsonFiles = writeJsonFiles(directory, fileCount, metricsListing);
+        final JsonMetricsReader jsonMetricsReader = new JsonMetricsReader(metricsParser);
+        for (final File jsonFile : jsonFiles) {
+            if (!readJsonValuesWithTree(jsonFile, metricsListing).equals(jsonMetricsReader.readJsonValues(jsonFile))) {
+                System.out.println("Different results for " + jsonFile);
+            }
+        }
+        for (int round = 1; round <= ROUND_COUNT; round++) {
+            long startTime = System.nanoTime();
+            for (final File jsonFile : jsonFiles) {
+                readJsonValuesWithTree(jsonFile, metricsListing);
+            }
+            final long treeTime = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (final File jsonFile : jsonFiles) {
+                jsonMetricsReader.readJsonValues(jsonFile);
+            }
+            final long streamingTime = System.nanoTime() - startTime;
+            System.out.println(String.format("Round %d, %d files: tree %d ms, streaming %d ms (%.1fx)", round, fileCount,
+                                             treeTime / 1000000, streamingTime / 1000000,
+                                             (double) treeTime / streamingTime));
+        }
+        for (final File jsonFile : jsonFiles) {
+            Files.delete(jsonFile.toPath());
+        }
+        Files.delete(directory);
+    }
+    // CHECKSTYLE_ON: UncommentedMain
+
+    /**
+     * Write json files with all supported metrics and a number of unsupported metrics.
+     *
+     * @param directory the directory to write the files to.
+     * @param fileCount the number of files.
+     * @param metricsListing the supported metrics.
+     * @return the json files.
+     * @throws IOException if a file cannot be written.
+     */
+    private static List<File> writeJsonFiles(final Path directory, final int fileCount,
+                                             final Map<String, String> metricsListing) throws IOException {
+        final Random random = new Random(1234);
+        final List<File> jsonFiles = new ArrayList<>();
+        for (int fileIndex = 0; fileIndex < fileCount; fileIndex++) {
+            final Map<String, Map<String, Object>> categories = new HashMap<>();
+            for (final Map.Entry<String, String> metric : metricsListing.entrySet()) {
+                final String[] keyParts = metric.getKey().split(":");
+                if (!categories.containsKey(keyParts[0])) {
+                    categories.put(keyParts[0], new HashMap<String, Object>());
+                }
+                final Object value;
+                if ("date".equals(keyParts[1])) {
+                    value = "2013/Jul/" + (1 + random.nextInt(28)) + " - 10:" + (10 + random.nextInt(50));
+                } else if ("runtime".equals(keyParts[1])) {
+                    value = "0:" + (10 + random.nextInt(50)) + ":" + (10 + random.nextInt(50));
+                } else {
+                    value = createArray(metric.getValue(), Double.toString(random.nextDouble() * 1000));
+                }
+                categories.get(keyParts[0]).put(keyParts[1], value);
+            }
+            final Map<String, Object> extraCategory = new HashMap<>();
+            for (int metricIndex = 0; metricIndex < UNSUPPORTED_METRIC_COUNT; metricIndex++) {
+                extraCategory.put("x-" + metricIndex, createArray("Unsupported metric " + metricIndex,
+                                                                   Double.toString(random.nextDouble())));
+            }
+            categories.put("extra", extraCategory);
+            final File jsonFile = directory.resolve("metrics_" + fileIndex + ".json").toFile();
+            Files.write(jsonFile.toPath(), JSONObject.toJSONString(categories).getBytes("UTF-8"));
+            jsonFiles.add(jsonFile);
+        }
+        return jsonFiles;
+    }
+
+    /**
+     * Create a json array with a description and a value.
+     *
+     * @param description the description.
+     * @param value the value.
+     * @return the json array.
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONArray createArray(final String description, final String value) {
+        final JSONArray array = new JSONArray();
+        array.add(description);
+        array.add(value);
+        return array;
+    }
+
+    /**
+     * Read the metrics values by parsing the json file into a tree of json objects, like the previous implementation of
+     * <code>JsonMetricsReader.readJsonValues</code>.
+     *
+     * @param jsonFile the json file.
+     * @param metricsListing the supported metrics.
+     * @return the metrics values.
+     */
+    private static Map<String, String> readJsonValuesWithTree(final File jsonFile,
+                                                              final Map<String, String> metricsListing) {
+        final Map<String, String> metricsValues = new HashMap<>();
+        try (final FileReader reader = new FileReader(jsonFile)) {
+            final JSONObject jsonObject = (JSONObject) new JSONParser().parse(reader);
+            for (final String key : metricsListing.keySet()) {
+                String paramValue = "N/A";
+                final StringTokenizer keyTokenizer = new StringTokenizer(key, ":");
+                final String objectName = keyTokenizer.nextToken();
+                final String paramName = keyTokenizer.nextToken();
+                if (jsonObject.containsKey(objectName)) {
+                    final JSONObject jObject = (JSONObject) jsonObject.get(objectName);
+                    if (jObject.containsKey(paramName)) {
+                        if ("date".equals(paramName) || "runtime".equals(paramName)) {
+                            paramValue = (String) jObject.get(paramName);
+                        } else {
+                            paramValue = (String) ((JSONArray) jObject.get(paramName)).get(1);
+                        }
+                    }
+                }
+                metricsValues.put(key, paramValue);
+            }
+        } catch (final IOException | ParseException e) {
+            e.printStackTrace();
+        }
+        return metricsValues;
+    }
+}
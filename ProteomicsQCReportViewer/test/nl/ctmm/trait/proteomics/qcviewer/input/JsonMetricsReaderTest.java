@@ -0,0 +1,89 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>JsonMetricsReader</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class JsonMetricsReaderTest {
+    /**
+     * Temporary folder for the json files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final JsonMetricsReader jsonMetricsReader = new JsonMetricsReader(new MetricsParser());
+
+    /**
+     * Test reading string values, array values and missing values, while skipping unknown categories and metrics.
+     */
+    @Test
+    public void testReadJsonValues() throws IOException {
+        final File jsonFile = writeJsonFile("{\"unknown\": {\"f_size\": [\"File size\", \"1\"], \"nested\": {\"a\": [1]}},"
+                                            + " \"generic\": {\"date\": \"2013/Jul/07 - 10:00\", \"runtime\": \"0:30:12\","
+                                            + " \"f_size\": [\"File size (MB)\", \"1234.5\"], \"other\": [\"x\", \"9\"],"
+                                            + " \"ms1_spectra\": [\"MS1 Spectra\", \"22298 (22298)\", \"extra\"]},"
+                                            + " \"chrom\": {\"c-4a\": [\"Before\", [0, 1], \"25.3\"],"
+                                            + " \"c-4b\": [{\"a\": \"b\"}, \"12\"]}}");
+        final Map<String, String> metricsValues = jsonMetricsReader.readJsonValues(jsonFile);
+        assertEquals(new MetricsParser().getMetricsListing().size(), metricsValues.size());
+        assertEquals("2013/Jul/07 - 10:00", metricsValues.get("generic:date"));
+        assertEquals("0:30:12", metricsValues.get("generic:runtime"));
+        assertEquals("1234.5", metricsValues.get("generic:f_size"));
+        assertEquals("22298 (22298)", metricsValues.get("generic:ms1_spectra"));
+        // The second element of the array is not a value, so the metric is not available.
+        assertEquals(JsonMetricsReader.NOT_AVAILABLE, metricsValues.get("chrom:c-4a"));
+        assertEquals("12", metricsValues.get("chrom:c-4b"));
+        assertEquals(JsonMetricsReader.NOT_AVAILABLE, metricsValues.get("generic:ms2_spectra"));
+        assertEquals(JsonMetricsReader.NOT_AVAILABLE, metricsValues.get("generic:maxIntensity"));
+        assertFalse(metricsValues.containsKey("generic:other"));
+    }
+
+    /**
+     * Test that the slots follow the order of the metric keys.
+     */
+    @Test
+    public void testReadJsonSlots() throws IOException {
+        final File jsonFile = writeJsonFile("{\"pep\": {\"p-1\": [\"Peptides\", \"42\"]}}");
+        final String[] slots = new String[jsonMetricsReader.getMetricKeys().size()];
+        assertTrue(jsonMetricsReader.readJsonSlots(jsonFile, slots));
+        for (int slot = 0; slot < slots.length; slot++) {
+            final String expectedValue = "pep:p-1".equals(jsonMetricsReader.getMetricKeys().get(slot))
+                                         ? "42" : JsonMetricsReader.NOT_AVAILABLE;
+            assertEquals(expectedValue, slots[slot]);
+        }
+    }
+
+    /**
+     * Test that an invalid json file results in an empty map.
+     */
+    @Test
+    public void testInvalidJsonFile() throws IOException {
+        assertTrue(jsonMetricsReader.readJsonValues(writeJsonFile("{\"generic\": {\"date\": ")).isEmpty());
+    }
+
+    /**
+     * Write a json file in the temporary folder.
+     *
+     * @param contents the contents of the json file.
+     * @return the json file.
+     */
+    private File writeJsonFile(final String contents) throws IOException {
+        final File jsonFile = temporaryFolder.newFile();
+        Files.write(jsonFile.toPath(), contents.getBytes("UTF-8"));
+        return jsonFile;
+    }
+}
@@ -0,0 +1,114 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>LogFileTail</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class LogFileTailTest {
+    private static final String RUNNING_LINE = "2013-06-04 13:40:01.165000    msrun_a.raw    running";
+
+    private static final String COMPLETED_LINE = "2013-06-04 13:40:01.191000    msrun_a.raw    completed";
+
+    /**
+     * Temporary folder for the log files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path logFile;
+
+    private LogFileTail logFileTail;
+
+    /**
+     * Initialize a <code>LogFileTail</code> for a log file in the temporary folder.
+     */
+    @Before
+    public void setUp() {
+        logFile = temporaryFolder.getRoot().toPath().resolve("qc_status.log");
+        logFileTail = new LogFileTail(logFile);
+    }
+
+    /**
+     * Test reading the last line of a log file that is much larger than a block, with trailing empty lines.
+     */
+    @Test
+    public void testReadLastLineFromEnd() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (int lineIndex = 0; lineIndex < 1000; lineIndex++) {
+            content.append(RUNNING_LINE).append("\r\n").append(COMPLETED_LINE).append("\r\n");
+        }
+        content.append(RUNNING_LINE).append("\r\n  \r\n\r\n");
+        write(content.toString());
+        assertEquals(RUNNING_LINE, logFileTail.readLastLine());
+        assertEquals(RUNNING_LINE, logFileTail.readLastLine());
+    }
+
+    /**
+     * Test reading lines that are appended, including a line that is written in two parts.
+     */
+    @Test
+    public void testReadLastLineAppended() throws IOException {
+        write("");
+        assertEquals("", logFileTail.readLastLine());
+        append(RUNNING_LINE + "\n");
+        assertEquals(RUNNING_LINE, logFileTail.readLastLine());
+        append(COMPLETED_LINE.substring(0, 20));
+        assertEquals(COMPLETED_LINE.substring(0, 20).trim(), logFileTail.readLastLine());
+        append(COMPLETED_LINE.substring(20) + "\n\n");
+        assertEquals(COMPLETED_LINE, logFileTail.readLastLine());
+    }
+
+    /**
+     * Test that a truncated or rotated log file is read again from the end.
+     */
+    @Test
+    public void testReadLastLineTruncatedAndRotated() throws IOException {
+        write(RUNNING_LINE + "\n" + COMPLETED_LINE + "\n");
+        assertEquals(COMPLETED_LINE, logFileTail.readLastLine());
+        write(RUNNING_LINE + "\n");
+        assertEquals(RUNNING_LINE, logFileTail.readLastLine());
+        Files.move(logFile, logFile.resolveSibling("qc_status.log.1"));
+        write(COMPLETED_LINE + "\n" + RUNNING_LINE + "\n");
+        assertEquals(RUNNING_LINE, logFileTail.readLastLine());
+        append(COMPLETED_LINE + "\n");
+        assertEquals(COMPLETED_LINE, logFileTail.readLastLine());
+    }
+
+    /**
+     * Test that reading a log file that does not exist throws an exception, and that the file is read when it appears.
+     */
+    @Test
+    public void testReadLastLineMissingFile() throws IOException {
+        try {
+            logFileTail.readLastLine();
+            fail("Reading a missing log file should throw an exception.");
+        } catch (final IOException e) {
+            // Expected.
+        }
+        write(RUNNING_LINE);
+        assertEquals(RUNNING_LINE, logFileTail.readLastLine());
+    }
+
+    private void write(final String content) throws IOException {
+        Files.write(logFile, content.getBytes(Charset.defaultCharset()));
+    }
+
+    private void append(final String content) throws IOException {
+        Files.write(logFile, content.getBytes(Charset.defaultCharset()), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,107 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>MetricValues</code> and <code>MetricSchema</code> classes.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class MetricValuesTest {
+    private final MetricSchema schema = MetricSchema.forKeys(Arrays.asList("generic:f_size", "generic:date",
+                                                                           "generic:ms1_spectra", "ms1:ms1-1",
+                                                                           "ms1:ms1-2a", "ms1:ms1-2b", "pep:p-1"));
+
+    /**
+     * Test that the indices follow the sorted keys, whatever the order in which the keys are passed.
+     */
+    @Test
+    public void testSchema() {
+        assertEquals(schema.getKeys(), MetricSchema.forKeys(Arrays.asList("pep:p-1", "ms1:ms1-2b", "ms1:ms1-2a",
+                                                                          "ms1:ms1-1", "generic:ms1_spectra",
+                                                                          "generic:date", "generic:f_size")).getKeys());
+        assertEquals(7, schema.size());
+        assertEquals(0, schema.getIndex("generic:date"));
+        assertEquals("pep:p-1", schema.getKey(6));
+        assertEquals(-1, schema.getIndex("pep:p-2"));
+        assertEquals(Integer.valueOf(4), schema.getCodeIndices("ms1").get("ms1-2a"));
+    }
+
+    /**
+     * Test that the values are returned exactly as they were read, also when they are stored as numbers.
+     */
+    @Test
+    public void testValues() {
+        final Map<String, String> metricsValues = new HashMap<>();
+        metricsValues.put("generic:f_size", "830.9");
+        metricsValues.put("generic:date", "2013/Jul/07 - 10:00");
+        metricsValues.put("generic:ms1_spectra", "22298 (22298)");
+        metricsValues.put("ms1:ms1-1", "22298");
+        metricsValues.put("ms1:ms1-2a", "0.00032");
+        metricsValues.put("ms1:ms1-2b", "N/A");
+        metricsValues.put("unknown:key", "1");
+        final MetricValues metricValues = MetricValues.fromMap(schema, metricsValues);
+        assertEquals("830.9", metricValues.getValue("generic:f_size"));
+        assertEquals("2013/Jul/07 - 10:00", metricValues.getValue("generic:date"));
+        assertEquals("22298 (22298)", metricValues.getValue("generic:ms1_spectra"));
+        assertEquals("22298", metricValues.getValue("ms1:ms1-1"));
+        assertEquals("0.00032", metricValues.getValue("ms1:ms1-2a"));
+        assertEquals("N/A", metricValues.getValue("ms1:ms1-2b"));
+        assertEquals("N/A", metricValues.getValue("pep:p-1"));
+        assertEquals("N/A", metricValues.getValue("unknown:key"));
+        assertEquals(830.9, metricValues.getNumber(schema.getIndex("generic:f_size")), 0);
+        assertEquals(0.00032, metricValues.getNumber(schema.getIndex("ms1:ms1-2a")), 0);
+        assertEquals(22298, metricValues.getNumber(schema.getIndex("generic:ms1_spectra")), 0);
+        assertTrue(Double.isNaN(metricValues.getNumber(schema.getIndex("ms1:ms1-2b"))));
+        assertTrue(metricValues.isPresent(schema.getIndex("ms1:ms1-1")));
+        assertFalse(metricValues.isPresent(schema.getIndex("ms1:ms1-2b")));
+        metricsValues.remove("unknown:key");
+        metricsValues.put("pep:p-1", "N/A");
+        assertEquals(metricsValues, metricValues.toMap());
+    }
+
+    /**
+     * Test that dates, run times and counts are parsed according to their value type.
+     */
+    @Test
+    public void testTypedValues() {
+        assertEquals(MetricSchema.ValueType.DATE, schema.getValueType(schema.getIndex("generic:date")));
+        final double date1 = MetricValues.parseTypedValue("2013/Jul/07 - 10:00", MetricSchema.ValueType.DATE);
+        final double date2 = MetricValues.parseTypedValue("2013/Aug/01 - 09:00", MetricSchema.ValueType.DATE);
+        assertTrue(date1 < date2);
+        assertEquals(60 * 60 * 1000, MetricValues.parseTypedValue("2013/Jul/07 - 11:00", MetricSchema.ValueType.DATE)
+                                     - date1, 0);
+        assertEquals(30 * 60 + 12, MetricValues.parseTypedValue("0:30:12", MetricSchema.ValueType.DURATION), 0);
+        assertEquals(2 * 3600 + 5, MetricValues.parseTypedValue("2:00:05", MetricSchema.ValueType.DURATION), 0);
+        assertEquals(22298, MetricValues.parseTypedValue("22298 (22298)", MetricSchema.ValueType.COUNT), 0);
+        assertTrue(Double.isNaN(MetricValues.parseTypedValue("Jul 7", MetricSchema.ValueType.DATE)));
+        assertTrue(Double.isNaN(MetricValues.parseTypedValue("0:xx:12", MetricSchema.ValueType.DURATION)));
+        assertTrue(Double.isNaN(MetricValues.parseTypedValue("(22298)", MetricSchema.ValueType.COUNT)));
+    }
+
+    /**
+     * Test that <code>ReportUnit.getMetricsValueFromKey</code> keeps its contract.
+     */
+    @Test
+    public void testReportUnit() {
+        final ReportUnit reportUnit = new ReportUnit("msrun1", 1);
+        assertEquals("N/A", reportUnit.getMetricsValueFromKey("generic:f_size"));
+        final Map<String, String> metricsValues = new HashMap<>();
+        metricsValues.put("generic:f_size", "830.90");
+        metricsValues.put("generic:runtime", "0:30:12");
+        reportUnit.setMetricsValues(metricsValues);
+        assertEquals("830.90", reportUnit.getMetricsValueFromKey("generic:f_size"));
+        assertEquals("830.90", reportUnit.getFileSizeString());
+        assertEquals("0:30:12", reportUnit.getRuntime());
+        assertEquals("N/A", reportUnit.getMetricsValueFromKey("generic:date"));
+        assertEquals(metricsValues, reportUnit.getMetricsValues());
+    }
+}
@@ -0,0 +1,169 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>ReportCatalog</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportCatalogTest {
+    /**
+     * Temporary folder that is used as root directory.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Set<String> supportedMetrics = new HashSet<>(Arrays.asList("generic:date", "generic:f_size"));
+
+    private Path rootDirectory;
+
+    private Path msrunPath;
+
+    /**
+     * Create a root directory with one msrun directory.
+     */
+    @Before
+    public void setUp() throws IOException {
+        rootDirectory = temporaryFolder.getRoot().toPath();
+        msrunPath = Files.createDirectories(rootDirectory.resolve("2013").resolve("Jul").resolve("msrun_a"));
+        Files.write(msrunPath.resolve(MsrunDirectory.METRICS_FILE_NAME), "{}".getBytes("UTF-8"));
+        Files.write(msrunPath.resolve("msrun_a" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX),
+                    "\"rt\",\"ions\"\n300.0,1.0E9\n".getBytes("UTF-8"));
+    }
+
+    /**
+     * Test that a saved entry is found again after loading the catalog.
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final ReportCatalog catalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        assertEquals(0, catalog.size());
+        final Map<String, String> metricsValues = new HashMap<>();
+        metricsValues.put("generic:f_size", "830.9");
+        metricsValues.put("generic:date", "N/A");
+        catalog.putEntry(createMsrunDirectory(), metricsValues, new TicSummary(1, 5.0, 5.0, 1.0E9));
+        catalog.save();
+        assertTrue(Files.isRegularFile(rootDirectory.resolve(ReportCatalog.CATALOG_FILE_NAME)));
+
+        final ReportCatalog loadedCatalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        assertEquals(1, loadedCatalog.size());
+        final ReportCatalog.CatalogEntry entry = loadedCatalog.getEntry(createMsrunDirectory());
+        assertNotNull(entry);
+        assertEquals(metricsValues, entry.getMetricsValues());
+        assertEquals(1, entry.getTicSummary().getPointCount());
+        assertEquals(1.0E9, entry.getTicSummary().getMaxIntensity(), 0.0);
+    }
+
+    /**
+     * Test that an entry is not used after one of the data files has changed.
+     */
+    @Test
+    public void testChangedDirectory() throws IOException {
+        final ReportCatalog catalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        catalog.putEntry(createMsrunDirectory(), new HashMap<String, String>(), null);
+        final Path metricsFile = msrunPath.resolve(MsrunDirectory.METRICS_FILE_NAME);
+        Files.setLastModifiedTime(metricsFile, FileTime.fromMillis(Files.getLastModifiedTime(metricsFile).toMillis()
+                                                                   - 60000));
+        assertNull(catalog.getEntry(createMsrunDirectory()));
+    }
+
+    /**
+     * Test that an entry is still used when only the modification time of the msrun directory has changed, for example
+     * because another file was added to the directory.
+     */
+    @Test
+    public void testChangedDirectoryModificationTime() throws IOException {
+        final ReportCatalog catalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        catalog.putEntry(createMsrunDirectory(), new HashMap<String, String>(), null);
+        Files.setLastModifiedTime(msrunPath, FileTime.fromMillis(Files.getLastModifiedTime(msrunPath).toMillis()
+                                                                 - 60000));
+        assertNotNull(catalog.getEntry(createMsrunDirectory()));
+    }
+
+    /**
+     * Test that entries for msrun directories outside the latest scan are kept, while entries for deleted msrun
+     * directories are removed when saving.
+     */
+    @Test
+    public void testRemoveDeletedEntries() throws IOException {
+        final ReportCatalog catalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        catalog.putEntry(createMsrunDirectory(), new HashMap<String, String>(), null);
+        catalog.save();
+        final ReportCatalog loadedCatalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        loadedCatalog.removeDeletedEntries(Collections.<MsrunDirectory>emptyList());
+        assertEquals(1, loadedCatalog.size());
+        for (final String fileName : msrunPath.toFile().list()) {
+            Files.delete(msrunPath.resolve(fileName));
+        }
+        Files.delete(msrunPath);
+        loadedCatalog.removeDeletedEntries(Collections.<MsrunDirectory>emptyList());
+        assertEquals(0, loadedCatalog.size());
+        loadedCatalog.save();
+        assertEquals(0, ReportCatalog.load(rootDirectory, supportedMetrics).size());
+    }
+
+    /**
+     * Test that a corrupt catalog file and a catalog file for other metrics are ignored.
+     */
+    @Test
+    public void testRebuildCatalog() throws IOException {
+        final ReportCatalog catalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        catalog.putEntry(createMsrunDirectory(), new HashMap<String, String>(), null);
+        catalog.save();
+        final Set<String> otherMetrics = new HashSet<>(supportedMetrics);
+        otherMetrics.add("generic:runtime");
+        assertEquals(0, ReportCatalog.load(rootDirectory, otherMetrics).size());
+
+        Files.write(rootDirectory.resolve(ReportCatalog.CATALOG_FILE_NAME), "{\"version\": 1, \"entr".getBytes("UTF-8"));
+        final ReportCatalog corruptCatalog = ReportCatalog.load(rootDirectory, supportedMetrics);
+        assertEquals(0, corruptCatalog.size());
+        corruptCatalog.putEntry(createMsrunDirectory(), null, null);
+        corruptCatalog.save();
+        assertEquals(1, ReportCatalog.load(rootDirectory, supportedMetrics).size());
+    }
+
+    /**
+     * Create the msrun directory description in the same way as the <code>ReportDirectoryScanner</code> does.
+     *
+     * @return the msrun directory description.
+     */
+    private MsrunDirectory createMsrunDirectory() throws IOException {
+        final MsrunDirectory msrunDirectory = new MsrunDirectory(msrunPath, 6, readAttributes(msrunPath));
+        final Path metricsFile = msrunPath.resolve(MsrunDirectory.METRICS_FILE_NAME);
+        msrunDirectory.addDataFile(metricsFile, readAttributes(metricsFile));
+        final Path ticMatrixFile = msrunPath.resolve("msrun_a" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX);
+        msrunDirectory.addDataFile(ticMatrixFile, readAttributes(ticMatrixFile));
+        return msrunDirectory;
+    }
+
+    /**
+     * Read the attributes of a file.
+     *
+     * @param path the file.
+     * @return the attributes.
+     */
+    private BasicFileAttributes readAttributes(final Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+}
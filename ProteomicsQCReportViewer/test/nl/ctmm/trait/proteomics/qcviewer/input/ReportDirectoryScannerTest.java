@@ -0,0 +1,134 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>ReportDirectoryScanner</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportDirectoryScannerTest {
+    /**
+     * Temporary folder that is used as root directory.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+
+    private Path rootDirectory;
+
+    /**
+     * Create a small directory structure with two msrun directories in July 2013 and one in September 2013.
+     */
+    @Before
+    public void setUp() throws IOException, ParseException {
+        rootDirectory = temporaryFolder.getRoot().toPath();
+        createMsrunDirectory("2013", "Sep", "msrun_c", "15/09/2013", true);
+        createMsrunDirectory("2013", "Jul", "msrun_b", "10/07/2013", true);
+        createMsrunDirectory("2013", "Jul", "msrun_a", "11/07/2013", false);
+        Files.createDirectories(rootDirectory.resolve("notAYear"));
+        Files.createFile(rootDirectory.resolve("qc_status.log"));
+    }
+
+    /**
+     * Test scanning with a date range that includes all msrun directories.
+     */
+    @Test
+    public void testScanAllDirectories() throws ParseException {
+        final ReportDirectoryScanner scanner = new ReportDirectoryScanner(dateFormat.parse("01/01/2013"),
+                                                                          dateFormat.parse("31/12/2013"));
+        final List<Path> yearDirectories = scanner.findYearDirectories(rootDirectory);
+        assertEquals(1, yearDirectories.size());
+        final List<MsrunDirectory> msrunDirectories = scanner.scanYearDirectory(yearDirectories.get(0));
+        assertEquals(3, msrunDirectories.size());
+        assertEquals("msrun_a", msrunDirectories.get(0).getMsrunName());
+        assertEquals("msrun_b", msrunDirectories.get(1).getMsrunName());
+        assertEquals("msrun_c", msrunDirectories.get(2).getMsrunName());
+        assertNull(msrunDirectories.get(0).getMetricsFile());
+        assertNotNull(msrunDirectories.get(0).getTicMatrixFile());
+        assertNotNull(msrunDirectories.get(1).getMetricsFile());
+        assertEquals(2, msrunDirectories.get(1).getMetricsFileAttributes().size());
+        assertTrue("The scanner should save stat calls.", scanner.getStatCallsSaved() > 0);
+    }
+
+    /**
+     * Test scanning with a date range that includes only one msrun directory.
+     */
+    @Test
+    public void testScanDateRange() throws ParseException {
+        final ReportDirectoryScanner scanner = new ReportDirectoryScanner(dateFormat.parse("11/07/2013"),
+                                                                          dateFormat.parse("31/08/2013"));
+        final List<MsrunDirectory> msrunDirectories = scanner.scanYearDirectory(rootDirectory.resolve("2013"));
+        assertEquals(1, msrunDirectories.size());
+        assertEquals("msrun_a", msrunDirectories.get(0).getMsrunName());
+    }
+
+    /**
+     * Test that year and month directories outside the date range are skipped without looking inside them.
+     */
+    @Test
+    public void testPruneDirectoriesOutsideDateRange() throws IOException, ParseException {
+        createMsrunDirectory("2012", "Dec", "msrun_old", "15/07/2013", true);
+        final ReportDirectoryScanner scanner = new ReportDirectoryScanner(dateFormat.parse("01/09/2013"),
+                                                                          dateFormat.parse("30/09/2013"));
+        final List<Path> yearDirectories = scanner.findYearDirectories(rootDirectory);
+        assertEquals(1, yearDirectories.size());
+        assertEquals("2013", yearDirectories.get(0).getFileName().toString());
+        final List<MsrunDirectory> msrunDirectories = scanner.scanYearDirectory(yearDirectories.get(0));
+        assertEquals(1, msrunDirectories.size());
+        assertEquals("msrun_c", msrunDirectories.get(0).getMsrunName());
+        // The 2012 year directory and the Jul month directory are skipped.
+        assertEquals(2, scanner.getPrunedDirectoryCount());
+    }
+
+    /**
+     * Test scanning a root directory that does not exist.
+     */
+    @Test
+    public void testNonExistingRootDirectory() throws ParseException {
+        final ReportDirectoryScanner scanner = new ReportDirectoryScanner(dateFormat.parse("01/01/2013"),
+                                                                          dateFormat.parse("31/12/2013"));
+        assertEquals(0, scanner.findYearDirectories(rootDirectory.resolve("nonExistingDirectory")).size());
+    }
+
+    /**
+     * Create an msrun directory with a TIC matrix file and optionally a metrics file.
+     *
+     * @param year the name of the year directory.
+     * @param month the name of the month directory.
+     * @param msrunName the name of the msrun directory.
+     * @param modified the modification date of the msrun directory.
+     * @param withMetrics whether to create a metrics file.
+     */
+    private void createMsrunDirectory(final String year, final String month, final String msrunName,
+                                      final String modified, final boolean withMetrics)
+            throws IOException, ParseException {
+        final Path msrunDirectory = Files.createDirectories(rootDirectory.resolve(year).resolve(month)
+                                                                    .resolve(msrunName));
+        Files.write(msrunDirectory.resolve(msrunName + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX),
+                    "\"rt\",\"ions\"\n300.0,1.0E9\n".getBytes("UTF-8"));
+        if (withMetrics) {
+            Files.write(msrunDirectory.resolve(MsrunDirectory.METRICS_FILE_NAME), "{}".getBytes("UTF-8"));
+        }
+        final Date modifiedDate = dateFormat.parse(modified);
+        Files.setLastModifiedTime(msrunDirectory, FileTime.fromMillis(modifiedDate.getTime()));
+    }
+}
@@ -0,0 +1,128 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>ReportDirectoryWatcher</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportDirectoryWatcherTest {
+    /**
+     * The maximum time in seconds to wait for the watcher to read a report.
+     */
+    private static final int TIMEOUT_SECONDS = 20;
+
+    /**
+     * Temporary folder that is used as root directory.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final BlockingQueue<List<ReportUnit>> changedReports = new LinkedBlockingQueue<>();
+
+    private Path rootDirectory;
+
+    private ReportDirectoryWatcher watcher;
+
+    /**
+     * Create an empty month directory and start watching the root directory.
+     */
+    @Before
+    public void setUp() throws IOException, ParseException {
+        rootDirectory = temporaryFolder.getRoot().toPath();
+        Files.createDirectories(rootDirectory.resolve("2013").resolve("Jul"));
+        watcher = new ReportDirectoryWatcher(rootDirectory, new SimpleDateFormat("dd/MM/yyyy").parse("01/01/2013"),
+                                             new ReportReader(new MetricsParser()), new ReportChangeListener() {
+            @Override
+            public void reportsChanged(final List<ReportUnit> reportUnits) {
+                changedReports.add(new ArrayList<>(reportUnits));
+            }
+        });
+        assertTrue(watcher.start(System.currentTimeMillis()));
+    }
+
+    /**
+     * Stop the watcher.
+     */
+    @After
+    public void tearDown() {
+        watcher.stop();
+        assertFalse(watcher.isRunning());
+    }
+
+    /**
+     * Test that a new msrun directory is read once its files are complete, and only then.
+     */
+    @Test
+    public void testNewMsrunDirectory() throws IOException, InterruptedException {
+        final Path msrunDirectory = Files.createDirectory(rootDirectory.resolve("2013").resolve("Jul")
+                                                                       .resolve("msrun_new"));
+        Files.write(msrunDirectory.resolve("msrun_new" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX),
+                    "\"rt\",\"ions\"\n300.0,1.0E9\n".getBytes("UTF-8"));
+        // The metrics.json file is still missing, so the report should not be read yet.
+        assertNull(changedReports.poll(3, TimeUnit.SECONDS));
+        Files.write(msrunDirectory.resolve(MsrunDirectory.METRICS_FILE_NAME), "{}".getBytes("UTF-8"));
+        final List<ReportUnit> reportUnits = changedReports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("The new report should be read.", reportUnits);
+        assertEquals(1, reportUnits.size());
+        assertEquals("msrun_new", reportUnits.get(0).getMsrunName());
+        assertFalse(reportUnits.get(0).getErrorFlag());
+    }
+
+    /**
+     * Test that other files written in an msrun directory (for example by the viewer itself) do not cause the report to
+     * be read again, while changes of the data files do.
+     */
+    @Test
+    public void testOtherFileInMsrunDirectory() throws IOException, InterruptedException {
+        final Path msrunDirectory = Files.createDirectory(rootDirectory.resolve("2013").resolve("Jul")
+                                                                       .resolve("msrun_other"));
+        Files.write(msrunDirectory.resolve("msrun_other" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX),
+                    "\"rt\",\"ions\"\n300.0,1.0E9\n".getBytes("UTF-8"));
+        Files.write(msrunDirectory.resolve(MsrunDirectory.METRICS_FILE_NAME), "{}".getBytes("UTF-8"));
+        assertNotNull("The new report should be read.", changedReports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Files.write(msrunDirectory.resolve("msrun_other_ticmatrix.bin.tmp"), new byte[]{1, 2, 3});
+        assertNull(changedReports.poll(4, TimeUnit.SECONDS));
+        Files.write(msrunDirectory.resolve(MsrunDirectory.METRICS_FILE_NAME), "{ }".getBytes("UTF-8"));
+        final List<ReportUnit> reportUnits = changedReports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("The modified report should be read.", reportUnits);
+        assertEquals("msrun_other", reportUnits.get(0).getMsrunName());
+    }
+
+    /**
+     * Test that msrun directories in a new month directory are found.
+     */
+    @Test
+    public void testNewMonthDirectory() throws IOException, InterruptedException {
+        final Path msrunDirectory = Files.createDirectories(rootDirectory.resolve("2013").resolve("Aug")
+                                                                         .resolve("msrun_aug"));
+        Files.write(msrunDirectory.resolve("msrun_aug" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX),
+                    "\"rt\",\"ions\"\n300.0,1.0E9\n".getBytes("UTF-8"));
+        Files.write(msrunDirectory.resolve(MsrunDirectory.METRICS_FILE_NAME), "{}".getBytes("UTF-8"));
+        final List<ReportUnit> reportUnits = changedReports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("The new report should be read.", reportUnits);
+        assertEquals("msrun_aug", reportUnits.get(0).getMsrunName());
+    }
+}
@@ -0,0 +1,127 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static nl.ctmm.trait.proteomics.qcviewer.gui.GuiTestUtils.createReportUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>ReportFilter</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportFilterTest {
+    private static final List<String> METRIC_KEYS = Arrays.asList("chrom:c-4a", "generic:f_size", "ion:is-2",
+                                                                  "generic:date");
+
+    private final ReportSortIndex reportSortIndex = new ReportSortIndex();
+
+    /**
+     * Initialize a sort index with five reports.
+     */
+    @Before
+    public void setUp() {
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        reportUnits.add(createReportUnit(1, "chrom:c-4a", "25.5", "generic:f_size", "600", "ion:is-2", "400",
+                                         "generic:date", "2013/Jul/07 - 10:00"));
+        reportUnits.add(createReportUnit(2, "chrom:c-4a", "20.5", "generic:f_size", "900", "ion:is-2", "N/A",
+                                         "generic:date", "2013/Jul/08 - 10:00"));
+        reportUnits.add(createReportUnit(3, "chrom:c-4a", "N/A", "generic:f_size", "500", "ion:is-2", "N/A",
+                                         "generic:date", "2013/Jun/30 - 10:00"));
+        reportUnits.add(createReportUnit(4, "chrom:c-4a", "30", "generic:f_size", "950", "ion:is-2", "410",
+                                         "generic:date", "N/A"));
+        reportUnits.add(createReportUnit(5, "chrom:c-4a", "21", "generic:f_size", "499.9", "ion:is-2", "N/A",
+                                         "generic:date", "2013/Jul/01 - 00:00"));
+        reportSortIndex.addReportUnits(reportUnits);
+    }
+
+    /**
+     * Test the example query: comparison, between and missing.
+     */
+    @Test
+    public void testExampleQuery() throws ParseException {
+        assertEquals(Arrays.asList(2), evaluate("chrom:c-4a > 20 AND generic:f_size BETWEEN 500 AND 900 "
+                                                + "AND missing(ion:is-2)"));
+    }
+
+    /**
+     * Test the comparison operators, including reports with missing values.
+     */
+    @Test
+    public void testComparisons() throws ParseException {
+        assertEquals(Arrays.asList(2, 4, 5), evaluate("chrom:c-4a>=20 and not chrom:c-4a BETWEEN 25 AND 26"));
+        assertEquals(Arrays.asList(2, 5), evaluate("chrom:c-4a < 25"));
+        assertEquals(Arrays.asList(2), evaluate("chrom:c-4a = 20.5"));
+        assertEquals(Arrays.asList(1, 4, 5), evaluate("chrom:c-4a != 20.5"));
+        assertEquals(Arrays.asList(1, 2, 3, 5), evaluate("generic:f_size <= 900"));
+        assertEquals(Arrays.asList(1, 4), evaluate("present(ion:is-2)"));
+        assertEquals(Arrays.asList(2, 3, 4, 5), evaluate("missing(chrom:c-4a) OR (generic:f_size > 900 OR ion:is-2 < 0) "
+                                                      + "OR chrom:c-4a BETWEEN 20.5 AND 21"));
+        assertEquals(Arrays.asList(1, 2, 5), evaluate("generic:date >= \"2013/Jul/01 - 00:00\""));
+    }
+
+    /**
+     * Test that invalid queries are rejected with the position of the error.
+     */
+    @Test
+    public void testInvalidQueries() {
+        checkInvalidQuery("chrom:c-4a >", 12);
+        checkInvalidQuery("chrom:c-4a ~ 20", 11);
+        checkInvalidQuery("chrom:c-4a > x", 13);
+        checkInvalidQuery("(chrom:c-4a > 20", 16);
+        checkInvalidQuery("chrom:c-4a BETWEEN 1 OR 2", 21);
+        checkInvalidQuery("generic:date > \"2013", 15);
+        checkInvalidQuery("chrom:c-4a > 20 20", 16);
+        checkInvalidQuery("chrom:c4a > 20", 0);
+        checkInvalidQuery("chrom:c-4a > 20 OR missing(chrom:c4a)", 27);
+        checkInvalidQuery("generic:f_size > 500 AND ion:is2 BETWEEN 1 AND 2", 25);
+    }
+
+    /**
+     * Test that the report number and the maximum intensity can be used next to the metrics.
+     */
+    @Test
+    public void testSpecialKeys() throws ParseException {
+        assertEquals(Arrays.asList(1, 2), evaluate("No. <= 2"));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), evaluate("maxIntensity >= 0 OR missing(generic:maxIntensity)"));
+    }
+
+    /**
+     * Evaluate a query.
+     *
+     * @param query the query.
+     * @return the report numbers of the matching reports.
+     * @throws ParseException if the query is invalid.
+     */
+    private List<Integer> evaluate(final String query) throws ParseException {
+        final BitSet matches = ReportFilter.parse(query, METRIC_KEYS).evaluate(reportSortIndex);
+        final List<Integer> reportNumbers = new ArrayList<>();
+        for (int index = matches.nextSetBit(0); index >= 0; index = matches.nextSetBit(index + 1)) {
+            reportNumbers.add(index + 1);
+        }
+        return reportNumbers;
+    }
+
+    /**
+     * Check that a query is invalid.
+     *
+     * @param query the query.
+     * @param errorOffset the expected position of the error.
+     */
+    private void checkInvalidQuery(final String query, final int errorOffset) {
+        try {
+            ReportFilter.parse(query, METRIC_KEYS);
+            fail("Query should be invalid: " + query);
+        } catch (final ParseException e) {
+            assertEquals(query, errorOffset, e.getErrorOffset());
+        }
+    }
+}
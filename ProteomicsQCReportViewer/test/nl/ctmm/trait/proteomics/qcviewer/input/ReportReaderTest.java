@@ -1,13 +1,28 @@
 package nl.ctmm.trait.proteomics.qcviewer.input;
 
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Unit tests for the <code>ReportReader</code> class.
@@ -17,6 +32,12 @@ import org.junit.Test;
 public class ReportReaderTest {
     // TODO: code coverage: Cobertura? CodeCover? [Freek]
 
+    /**
+     * Temporary folder for a copy of the test data.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private ReportReader reportReader;
 
     /**
@@ -57,6 +78,194 @@ public class ReportReaderTest {
         assertEquals("N/A", reportUnit2.getRuntime());
     }
 
+    /**
+     * Test whether the <code>retrieveReports</code> method returns the reports (which are read in parallel) sorted on
+     * msrun name and numbered in that order.
+     */
+    @Test
+    public void testRetrieveReportsDeterministicOrder() throws ParseException {
+        final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        final Date fromDate = sdf.parse("01/07/2013");
+        final Date tillDate = sdf.parse("31/07/2013");
+        final List<ReportUnit> reports = reportReader.retrieveReports("QCReports", fromDate, tillDate);
+        final String[] expectedNames = {
+            "simulated_tic_130707_a", "simulated_tic_130707_b", "simulated_tic_130707_c", "simulated_tic_130707_d"
+        };
+        assertEquals(expectedNames.length, reports.size());
+        for (int reportIndex = 0; reportIndex < expectedNames.length; reportIndex++) {
+            assertEquals(expectedNames[reportIndex], reports.get(reportIndex).getMsrunName());
+            assertEquals(reportIndex + 1, reports.get(reportIndex).getReportNum());
+        }
+    }
+
+    /**
+     * Test whether the <code>retrieveReports</code> method with a listener passes all reports in batches, newest first,
+     * and stops passing batches when it is cancelled.
+     */
+    @Test
+    public void testRetrieveReportsInBatches() throws ParseException {
+        final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        final Date fromDate = sdf.parse("01/07/2013");
+        final Date tillDate = sdf.parse("31/07/2013");
+        final List<ReportUnit> reports = new ArrayList<>();
+        final int reportCount = reportReader.retrieveReports("QCReports", fromDate, tillDate, new ReportChangeListener() {
+            @Override
+            public void reportsChanged(final List<ReportUnit> reportUnits) {
+                assertFalse(reportUnits.isEmpty());
+                reports.addAll(reportUnits);
+            }
+        });
+        assertEquals(4, reportCount);
+        assertEquals(4, reports.size());
+        assertEquals("simulated_tic_130707_d", reports.get(0).getMsrunName());
+        assertEquals("simulated_tic_130707_a", reports.get(3).getMsrunName());
+        final ReportReader cancelledReader = new ReportReader(new MetricsParser());
+        cancelledReader.cancel();
+        reports.clear();
+        assertEquals(0, cancelledReader.retrieveReports("QCReports", fromDate, tillDate, new ReportChangeListener() {
+            @Override
+            public void reportsChanged(final List<ReportUnit> reportUnits) {
+                reports.addAll(reportUnits);
+            }
+        }));
+        assertTrue(cancelledReader.isCancelled());
+        assertTrue(reports.isEmpty());
+    }
+
+    /**
+     * Test that the TIC series are not kept in memory by <code>retrieveReports</code>, while the TIC summaries are
+     * available right away.
+     */
+    @Test
+    public void testRetrieveReportsLazyTicSeries() throws ParseException {
+        final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        final List<ReportUnit> reports = reportReader.retrieveReports("QCReports", sdf.parse("01/07/2013"),
+                                                                      sdf.parse("31/07/2013"));
+        final ReportUnit reportUnit = reports.get(0);
+        assertTrue(reportUnit.isTicSeriesPending());
+        assertNotNull(reportUnit.getTicSummary());
+        final double maxIntensity = reportUnit.getMaxTicIntensity();
+        assertTrue(maxIntensity > 0);
+        assertTrue(reportUnit.isTicSeriesPending());
+        reportUnit.loadTicSeries();
+        assertFalse(reportUnit.isTicSeriesPending());
+        assertEquals(maxIntensity, reportUnit.getMaxTicIntensity(), 0.0);
+    }
+
+    /**
+     * Test that the reports are found again when they are retrieved a second time with the catalog and the TIC sidecar
+     * files, which are written during the first time but must not change the modification times of the msrun
+     * directories that are used for the date range.
+     */
+    @Test
+    public void testRetrieveReportsTwiceWithCatalog() throws IOException, ParseException {
+        final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        final String rootDirectoryName = copyTestData(sdf.parse("10/07/2013")).toString();
+        final Date fromDate = sdf.parse("01/07/2013");
+        final Date tillDate = sdf.parse("31/07/2013");
+        assertEquals(4, new ReportReader(new MetricsParser(), true).retrieveReports(rootDirectoryName, fromDate, tillDate)
+                .size());
+        assertEquals(4, new ReportReader(new MetricsParser(), true).retrieveReports(rootDirectoryName, fromDate, tillDate)
+                .size());
+    }
+
+    /**
+     * Test that the catalog entries of reports outside the date range are kept: after reading a date range, another
+     * date range and the first date range again, the reports of the first range are taken from the catalog.
+     */
+    @Test
+    public void testRetrieveReportsWithCatalogAfterOtherDateRange() throws IOException, ParseException {
+        final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        final Path rootDirectory = copyTestData(sdf.parse("03/07/2013"));
+        final Path monthDirectory = rootDirectory.resolve("2013").resolve("Jul");
+        final FileTime lateModified = FileTime.fromMillis(sdf.parse("25/07/2013").getTime());
+        Files.setLastModifiedTime(monthDirectory.resolve("simulated_tic_130707_c"), lateModified);
+        Files.setLastModifiedTime(monthDirectory.resolve("simulated_tic_130707_d"), lateModified);
+        final String rootDirectoryName = rootDirectory.toString();
+        final Date fromDateA = sdf.parse("01/07/2013");
+        final Date tillDateA = sdf.parse("05/07/2013");
+        final List<ReportUnit> reportsA = new ReportReader(new MetricsParser(), true).retrieveReports(rootDirectoryName,
+                                                                                                      fromDateA, tillDateA);
+        assertEquals(2, reportsA.size());
+        assertEquals(2, new ReportReader(new MetricsParser(), true).retrieveReports(rootDirectoryName,
+                                                                                    sdf.parse("20/07/2013"),
+                                                                                    sdf.parse("31/07/2013")).size());
+        // Overwrite the TIC matrix file of the first report with an unreadable file with the same size and modification
+        // time and remove the sidecar files, so the TIC summary can only come from the catalog.
+        final Path msrunDirectory = monthDirectory.resolve("simulated_tic_130707_a");
+        final Path ticMatrixFile = msrunDirectory.resolve("simulated_tic_130707_a" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX);
+        final FileTime ticMatrixModified = Files.getLastModifiedTime(ticMatrixFile);
+        final FileTime msrunModified = Files.getLastModifiedTime(msrunDirectory);
+        final byte[] unreadableContent = new byte[(int) Files.size(ticMatrixFile)];
+        Arrays.fill(unreadableContent, (byte) 'x');
+        Files.write(ticMatrixFile, unreadableContent);
+        Files.setLastModifiedTime(ticMatrixFile, ticMatrixModified);
+        Files.setLastModifiedTime(msrunDirectory, msrunModified);
+        deleteDirectory(rootDirectory.resolve(TicMatrixSidecar.CACHE_DIRECTORY_NAME));
+        final List<ReportUnit> reportsAgain = new ReportReader(new MetricsParser(), true)
+                .retrieveReports(rootDirectoryName, fromDateA, tillDateA);
+        assertEquals(2, reportsAgain.size());
+        assertEquals("simulated_tic_130707_a", reportsAgain.get(0).getMsrunName());
+        assertNotNull(reportsAgain.get(0).getTicSummary());
+        assertEquals(reportsA.get(0).getTicSummary().getPointCount(), reportsAgain.get(0).getTicSummary().getPointCount());
+    }
+
+    /**
+     * Copy the test data to the temporary folder and give all directories the same modification time.
+     *
+     * @param lastModified the modification time of the directories.
+     * @return the root directory of the copy.
+     */
+    private Path copyTestData(final Date lastModified) throws IOException {
+        final Path rootDirectory = temporaryFolder.getRoot().toPath();
+        final FileTime directoryModified = FileTime.fromMillis(lastModified.getTime());
+        final Path sourceDirectory = Paths.get("QCReports");
+        Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes)
+                    throws IOException {
+                Files.createDirectories(rootDirectory.resolve(sourceDirectory.relativize(directory).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                Files.copy(file, rootDirectory.resolve(sourceDirectory.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path directory, final IOException e) throws IOException {
+                Files.setLastModifiedTime(rootDirectory.resolve(sourceDirectory.relativize(directory).toString()),
+                                          directoryModified);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return rootDirectory;
+    }
+
+    /**
+     * Delete a directory and everything in it.
+     *
+     * @param directory the directory.
+     */
+    private void deleteDirectory(final Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path visitedDirectory, final IOException e)
+                    throws IOException {
+                Files.delete(visitedDirectory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
     /**
      * Test the <code>retrieveReports</code> method with a non existing directory.
      */
@@ -0,0 +1,170 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark that compares sorting reports on pre-parsed typed keys (<code>ReportUnit.sortReportUnits</code>) with a
+ * comparator that parses the metric strings for every comparison (the previous implementation). It generates a number
+ * of report units with random metrics values.
+ * <p/>
+ * Run it with the test classpath:
+ * <code>java nl.ctmm.trait.proteomics.qcviewer.input.ReportSortBenchmark [report count]</code>
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportSortBenchmark {
+    /**
+     * The default number of reports.
+     */
+    private static final int DEFAULT_REPORT_COUNT = 10000;
+
+    /**
+     * The number of times all sort keys are sorted per implementation; the first rounds warm up the JVM.
+     */
+    private static final int ROUND_COUNT = 5;
+
+    /**
+     * The sort keys that are benchmarked.
+     */
+    private static final String[] SORT_KEYS = {"generic:date", "generic:runtime", "generic:ms1_spectra", "chrom:c-4a"};
+
+    /**
+     * The month abbreviations used in the dates.
+     */
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov",
+                                            "Dec"};
+
+    /**
+     * Hidden constructor.
+     */
+    private ReportSortBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param arguments optionally the number of reports.
+     */
+    // CHECKSTYLE_OFF: UncommentedMain
+    public static void main(final String[] arguments) {
+        final int reportCount = arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_REPORT_COUNT;
+        final List<ReportUnit> reportUnits = createReportUnits(reportCount);
+        for (final String sortKey : SORT_KEYS) {
+            final List<ReportUnit> parsingSorted = new ArrayList<>(reportUnits);
+            Collections.sort(parsingSorted, getParsingComparator(sortKey));
+            if (!getSortKeys(parsingSorted, sortKey).equals(getSortKeys(ReportUnit.sortReportUnits(reportUnits,
+                                                                                                    sortKey, true),
+                                                                         sortKey))) {
+                System.out.println("Different order for " + sortKey);
+            }
+        }
+        for (int round = 1; round <= ROUND_COUNT; round++) {
+            long startTime = System.nanoTime();
+            for (final String sortKey : SORT_KEYS) {
+                Collections.sort(new ArrayList<>(reportUnits), getParsingComparator(sortKey));
+            }
+            final long parsingTime = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (final String sortKey : SORT_KEYS) {
+                ReportUnit.sortReportUnits(reportUnits, sortKey, true);
+            }
+            final long typedTime = System.nanoTime() - startTime;
+            System.out.println(String.format("Round %d, %d reports, %d sort keys: parsing %.1f ms, typed keys %.1f ms"
+                                             + " (%.1fx)", round, reportCount, SORT_KEYS.length, parsingTime / 1e6,
+                                             typedTime / 1e6, (double) parsingTime / typedTime));
+        }
+    }
+    // CHECKSTYLE_ON: UncommentedMain
+
+    /**
+     * Create report units with random metrics values.
+     *
+     * @param reportCount the number of report units.
+     * @return the report units.
+     */
+    private static List<ReportUnit> createReportUnits(final int reportCount) {
+        final Random random = new Random(1234);
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        for (int reportNumber = 1; reportNumber <= reportCount; reportNumber++) {
+            final Map<String, String> metricsValues = new HashMap<>();
+            metricsValues.put("generic:date", String.format("%d/%s/%02d - %02d:%02d", 2010 + random.nextInt(4),
+                                                            MONTHS[random.nextInt(MONTHS.length)],
+                                                            1 + random.nextInt(28), random.nextInt(24),
+                                                            random.nextInt(60)));
+            metricsValues.put("generic:runtime", String.format("%d:%02d:%02d", random.nextInt(3), random.nextInt(60),
+                                                               random.nextInt(60)));
+            metricsValues.put("generic:ms1_spectra", Integer.toString(random.nextInt(50000)));
+            metricsValues.put("chrom:c-4a", Double.toString(random.nextDouble() * 100));
+            final ReportUnit reportUnit = new ReportUnit("msrun" + reportNumber, reportNumber);
+            reportUnit.setMetricsValues(metricsValues);
+            reportUnits.add(reportUnit);
+        }
+        return reportUnits;
+    }
+
+    /**
+     * Get the sort keys of sorted report units, to check that both implementations result in the same order.
+     *
+     * @param reportUnits the sorted report units.
+     * @param sortKey the sort key.
+     * @return the sort keys.
+     */
+    private static List<Double> getSortKeys(final List<ReportUnit> reportUnits, final String sortKey) {
+        final List<Double> sortKeys = new ArrayList<>();
+        for (final ReportUnit reportUnit : reportUnits) {
+            sortKeys.add(reportUnit.getSortKey(sortKey));
+        }
+        return sortKeys;
+    }
+
+    /**
+     * Get a comparator that parses the metric strings for every comparison, like the previous implementation of
+     * <code>ReportUnit.getReportUnitComparator</code> (ascending order, durations as seconds).
+     *
+     * @param sortKey the sort key.
+     * @return the comparator.
+     */
+    private static Comparator<ReportUnit> getParsingComparator(final String sortKey) {
+        return new Comparator<ReportUnit>() {
+            @Override
+            public int compare(final ReportUnit reportUnit1, final ReportUnit reportUnit2) {
+                final String value1 = reportUnit1.getMetricsValueFromKey(sortKey);
+                final String value2 = reportUnit2.getMetricsValueFromKey(sortKey);
+                try {
+                    if ("generic:date".equals(sortKey)) {
+                        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MMM/dd - HH:mm", Locale.US);
+                        return dateFormat.parse(value1).compareTo(dateFormat.parse(value2));
+                    } else if ("generic:runtime".equals(sortKey)) {
+                        return Integer.compare(parseSeconds(value1), parseSeconds(value2));
+                    } else if ("generic:ms1_spectra".equals(sortKey)) {
+                        return Integer.compare(Integer.parseInt(value1), Integer.parseInt(value2));
+                    } else {
+                        return Double.compare(Double.parseDouble(value1), Double.parseDouble(value2));
+                    }
+                } catch (final ParseException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Parse a duration like "0:30:12".
+     *
+     * @param value the duration.
+     * @return the number of seconds.
+     */
+    private static int parseSeconds(final String value) {
+        final String[] parts = value.split(":");
+        return (Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1])) * 60 + Integer.parseInt(parts[2]);
+    }
+}
@@ -0,0 +1,97 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static nl.ctmm.trait.proteomics.qcviewer.gui.GuiTestUtils.createReportUnit;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>ReportSortIndex</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class ReportSortIndexTest {
+    private static final String SORT_KEY = "chrom:c-4a";
+    private static final String SECOND_SORT_KEY = "dyn:ds-1a";
+
+    private final Random random = new Random(1234);
+
+    /**
+     * Test that cached permutations, also after reports were added, give the same order as sorting from scratch.
+     */
+    @Test
+    public void testSortedReportUnits() {
+        final List<ReportUnit> reportUnits = createReportUnits(1, 50);
+        final ReportSortIndex reportSortIndex = new ReportSortIndex();
+        reportSortIndex.addReportUnits(reportUnits);
+        checkOrder(reportSortIndex, reportUnits);
+        final List<ReportUnit> newReportUnits = createReportUnits(51, 30);
+        reportUnits.addAll(newReportUnits);
+        reportSortIndex.addReportUnits(newReportUnits);
+        assertEquals(80, reportSortIndex.size());
+        checkOrder(reportSortIndex, reportUnits);
+        reportSortIndex.clear();
+        assertEquals(0, reportSortIndex.getSortedReportUnits(SORT_KEY, false).size());
+    }
+
+    /**
+     * Test sorting on two keys: the second key decides the order of reports with equal first keys, and reports that are
+     * equal for both keys keep their original order.
+     */
+    @Test
+    public void testMultipleSortCriteria() {
+        final ReportSortIndex reportSortIndex = new ReportSortIndex();
+        reportSortIndex.addReportUnits(Arrays.asList(createReportUnit(1, SORT_KEY, "2", SECOND_SORT_KEY, "0.5"),
+                                                     createReportUnit(2, SORT_KEY, "1", SECOND_SORT_KEY, "0.7"),
+                                                     createReportUnit(3, SORT_KEY, "2", SECOND_SORT_KEY, "0.9"),
+                                                     createReportUnit(4, SORT_KEY, "N/A", SECOND_SORT_KEY, "0.1"),
+                                                     createReportUnit(5, SORT_KEY, "2", SECOND_SORT_KEY, "0.5"),
+                                                     createReportUnit(6, SORT_KEY, "1", SECOND_SORT_KEY, "N/A")));
+        final List<SortCriterion> sortCriteria = SortCriterion.parseList(SORT_KEY + "@Des," + SECOND_SORT_KEY + "@Asc");
+        assertEquals(Arrays.asList(new SortCriterion(SORT_KEY, false), new SortCriterion(SECOND_SORT_KEY, true)),
+                     sortCriteria);
+        assertEquals(SORT_KEY + "@Des," + SECOND_SORT_KEY + "@Asc", SortCriterion.formatList(sortCriteria));
+        final List<Integer> reportNumbers = new ArrayList<>();
+        for (final ReportUnit reportUnit : reportSortIndex.getSortedReportUnits(sortCriteria)) {
+            reportNumbers.add(reportUnit.getReportNum());
+        }
+        assertEquals(Arrays.asList(1, 5, 3, 6, 2, 4), reportNumbers);
+        assertEquals(0, SortCriterion.parseList("generic:date,@Asc,x@Up").size());
+    }
+
+    /**
+     * Check that the sort index gives the same order as <code>ReportUnit.sortReportUnits</code>.
+     *
+     * @param reportSortIndex the sort index.
+     * @param reportUnits the report units in their original order.
+     */
+    private void checkOrder(final ReportSortIndex reportSortIndex, final List<ReportUnit> reportUnits) {
+        for (final String sortKey : new String[]{SORT_KEY, ReportUnit.REPORT_NUMBER_SORT_KEY}) {
+            for (final boolean ascending : new boolean[]{true, false}) {
+                assertEquals(ReportUnit.sortReportUnits(reportUnits, sortKey, ascending),
+                             reportSortIndex.getSortedReportUnits(sortKey, ascending));
+            }
+        }
+    }
+
+    /**
+     * Create report units with a few distinct values (so there are ties) and some missing values.
+     *
+     * @param firstReportNumber the report number of the first report unit.
+     * @param count the number of report units.
+     * @return the report units.
+     */
+    private List<ReportUnit> createReportUnits(final int firstReportNumber, final int count) {
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        for (int reportNumber = firstReportNumber; reportNumber < firstReportNumber + count; reportNumber++) {
+            final int value = random.nextInt(6);
+            reportUnits.add(createReportUnit(reportNumber, SORT_KEY, value == 0 ? "N/A" : Integer.toString(value)));
+        }
+        return reportUnits;
+    }
+}
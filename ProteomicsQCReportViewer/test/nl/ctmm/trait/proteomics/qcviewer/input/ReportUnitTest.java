@@ -1,10 +1,24 @@
 package nl.ctmm.trait.proteomics.qcviewer.input;
 
 import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import nl.ctmm.trait.proteomics.qcviewer.gui.ChartUnit;
 import nl.ctmm.trait.proteomics.qcviewer.utils.Utilities;
+import static nl.ctmm.trait.proteomics.qcviewer.gui.GuiTestUtils.createReportUnit;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -53,6 +67,18 @@ public class ReportUnitTest {
         assertEquals(1.0, reportUnit.getFileSize(), 0.0000001);
     }
 
+    /**
+     * Test that <code>setReportNum</code> also updates the report index and the chart title.
+     */
+    @Test
+    public void testSetReportNum() {
+        reportUnit.setReportNum(REPORT_NUMBER + 2);
+        assertEquals(REPORT_NUMBER + 2, reportUnit.getReportNum());
+        assertEquals(REPORT_NUMBER + 1, reportUnit.getReportIndex());
+        assertEquals(0, reportUnit.getChartUnit().getTicChart().getTitle().getText()
+                .indexOf("Index = " + (REPORT_NUMBER + 1) + " "));
+    }
+
     /**
      * Test <code>getFileSizeString</code>.
      */
@@ -63,5 +89,110 @@ public class ReportUnitTest {
         reportUnit.setFileSizeString("");
         assertNull(reportUnit.getFileSize());
     }
- 
+
+    /**
+     * Test sorting on typed keys: missing values first when ascending and last when descending, run times numerically
+     * and equal keys in their original order.
+     */
+    @Test
+    public void testSortReportUnits() {
+        final List<ReportUnit> reportUnits = new ArrayList<>();
+        reportUnits.add(createReportUnit(1, "generic:runtime", "9:05:00", "generic:date", "2013/Jul/07 - 10:00"));
+        reportUnits.add(createReportUnit(2, "generic:runtime", "N/A", "generic:date", "2013/Jul/06 - 10:00"));
+        reportUnits.add(createReportUnit(3, "generic:runtime", "10:00:00", "generic:date", "2013/Jul/07 - 10:00"));
+        reportUnits.add(createReportUnit(4, "generic:runtime", "0:30:12", "generic:date", "N/A"));
+        assertEquals(Arrays.asList(2, 4, 1, 3), getReportNumbers(ReportUnit.sortReportUnits(reportUnits,
+                                                                                              "generic:runtime", true)));
+        assertEquals(Arrays.asList(3, 1, 4, 2), getReportNumbers(ReportUnit.sortReportUnits(reportUnits,
+                                                                                              "generic:runtime", false)));
+        assertEquals(Arrays.asList(1, 3, 2, 4), getReportNumbers(ReportUnit.sortReportUnits(reportUnits,
+                                                                                              "generic:date", false)));
+        assertEquals(Arrays.asList(4, 3, 2, 1), getReportNumbers(ReportUnit.sortReportUnits(reportUnits,
+                                                                                              "No.", false)));
+        final List<ReportUnit> comparatorSorted = new ArrayList<>(reportUnits);
+        Collections.sort(comparatorSorted, ReportUnit.getReportUnitComparator("generic:date", true));
+        assertEquals(ReportUnit.sortReportUnits(reportUnits, "generic:date", true), comparatorSorted);
+    }
+
+    /**
+     * Test that checking whether the TIC series is pending and getting the TIC summary do not wait while the TIC series
+     * is being loaded by another thread.
+     */
+    @Test(timeout = 10000)
+    public void testLoadTicSeriesWithoutLock() throws InterruptedException {
+        final CountDownLatch readStarted = new CountDownLatch(1);
+        final CountDownLatch readAllowed = new CountDownLatch(1);
+        final TicMatrixReader blockingReader = new TicMatrixReader() {
+            @Override
+            public TicMatrix readTicMatrix(final Path ticMatrixFile) {
+                readStarted.countDown();
+                try {
+                    readAllowed.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new TicMatrix(2, new float[]{300, 600}, new float[]{1.0E9f, 2.0E9f});
+            }
+        };
+        final TicSummary ticSummary = new TicSummary(2, 5.0, 10.0, 2.0E9);
+        reportUnit.setTicMatrixFile(Paths.get("msrun6_ticmatrix.csv"), ticSummary, blockingReader);
+        final Thread loadThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reportUnit.loadTicSeries();
+            }
+        });
+        loadThread.start();
+        assertTrue(readStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(reportUnit.isTicSeriesPending());
+        assertEquals(ticSummary, reportUnit.getTicSummary());
+        assertEquals(2.0E9, reportUnit.getMaxTicIntensity(), 0.0);
+        readAllowed.countDown();
+        loadThread.join();
+        assertFalse(reportUnit.isTicSeriesPending());
+    }
+
+    /**
+     * Test that a released TIC series is loaded again from the TIC matrix file into a new chart unit, while the TIC
+     * summary is kept.
+     */
+    @Test
+    public void testReleaseTicSeries() {
+        final int[] readCount = new int[1];
+        final TicMatrixReader countingReader = new TicMatrixReader() {
+            @Override
+            public TicMatrix readTicMatrix(final Path ticMatrixFile) {
+                readCount[0]++;
+                return new TicMatrix(2, new float[]{300, 600}, new float[]{1.0E9f, 2.0E9f});
+            }
+        };
+        final TicSummary ticSummary = new TicSummary(2, 5.0, 10.0, 2.0E9);
+        reportUnit.setTicMatrixFile(Paths.get("msrun6_ticmatrix.csv"), ticSummary, countingReader);
+        assertNull(reportUnit.releaseTicSeries());
+        final ChartUnit chartUnit = reportUnit.getChartUnit();
+        reportUnit.loadTicSeries();
+        assertFalse(reportUnit.isTicSeriesPending());
+        assertSame(chartUnit, reportUnit.releaseTicSeries());
+        assertTrue(reportUnit.isTicSeriesPending());
+        assertEquals(ticSummary, reportUnit.getTicSummary());
+        assertNull(reportUnit.releaseTicSeries());
+        assertNotSame(chartUnit, reportUnit.getChartUnit());
+        reportUnit.loadTicSeries();
+        assertEquals(2, readCount[0]);
+        assertFalse(reportUnit.isTicSeriesPending());
+    }
+
+    /**
+     * Get the report numbers of a list of report units.
+     *
+     * @param reportUnits the report units.
+     * @return the report numbers.
+     */
+    private List<Integer> getReportNumbers(final List<ReportUnit> reportUnits) {
+        final List<Integer> reportNumbers = new ArrayList<>();
+        for (final ReportUnit unit : reportUnits) {
+            reportNumbers.add(unit.getReportNum());
+        }
+        return reportNumbers;
+    }
 }
@@ -0,0 +1,149 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>TicMatrixReader</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicMatrixReaderTest {
+    /**
+     * The TIC matrix file from the test data that is used.
+     */
+    private static final Path TIC_MATRIX_FILE = Paths.get("QCReports", "2013", "Jul", "simulated_tic_130707_a",
+                                                          "simulated_tic_130707_a_ticmatrix.csv");
+
+    /**
+     * The number of bytes that reading a TIC matrix file may allocate besides the two float arrays.
+     */
+    private static final long MAX_OVERHEAD_BYTES = 16 * 1024;
+
+    private final TicMatrixReader ticMatrixReader = new TicMatrixReader();
+
+    /**
+     * Test that a single header line and three header lines are both skipped.
+     */
+    @Test
+    public void testHeaderLines() {
+        final TicMatrix oneHeader = parse("\"rt\",\"ions\"\n300.0,1.0E9\n360,2.5e9\n");
+        assertEquals(2, oneHeader.getPointCount());
+        assertEquals(5.0f, oneHeader.getRetentionTime(0), 0);
+        assertEquals(1.0e9f, oneHeader.getIntensity(0), 0);
+        assertEquals(6.0f, oneHeader.getRetentionTime(1), 0);
+        assertEquals(2.5e9f, oneHeader.getIntensity(1), 0);
+        final TicMatrix threeHeaders = parse("ms1Spectra,9239\n\"rt\",\"ions\"\nrt,tic\n300.0,1.0E9\n");
+        assertEquals(1, threeHeaders.getPointCount());
+        assertEquals(1.0e9f, threeHeaders.getIntensity(0), 0);
+    }
+
+    /**
+     * Test Windows line endings, blank lines, a missing line ending and invalid lines.
+     */
+    @Test
+    public void testLineEndingsAndInvalidLines() {
+        final TicMatrix ticMatrix = parse("\"rt\",\"ions\"\r\n-6.0,+1.5E-3\r\n\r\n120,abc\r\n  .6 , 42");
+        assertEquals(2, ticMatrix.getPointCount());
+        assertEquals(-0.1f, ticMatrix.getRetentionTime(0), 0);
+        assertEquals(1.5e-3f, ticMatrix.getIntensity(0), 0);
+        assertEquals(0.01f, ticMatrix.getRetentionTime(1), 1e-6);
+        assertEquals(42f, ticMatrix.getIntensity(1), 0);
+        assertEquals(0, parse("").getPointCount());
+        assertEquals(0, parse("\"rt\",\"ions\"\n").getPointCount());
+    }
+
+    /**
+     * Test that all points of a sample file are read with the same values as <code>Float.parseFloat</code> gives.
+     */
+    @Test
+    public void testSampleFile() throws IOException {
+        final TicMatrix ticMatrix = ticMatrixReader.parseTicMatrixFile(TIC_MATRIX_FILE);
+        int pointIndex = 0;
+        try (final BufferedReader reader = Files.newBufferedReader(TIC_MATRIX_FILE, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] values = line.split(",");
+                final float expectedRetentionTime = Float.parseFloat(values[0]) / 60;
+                final float expectedIntensity = Float.parseFloat(values[1]);
+                assertEquals(expectedRetentionTime, ticMatrix.getRetentionTime(pointIndex),
+                             Math.ulp(expectedRetentionTime));
+                assertEquals(expectedIntensity, ticMatrix.getIntensity(pointIndex), Math.ulp(expectedIntensity));
+                pointIndex++;
+            }
+        }
+        assertEquals(5000, pointIndex);
+        assertEquals(pointIndex, ticMatrix.getPointCount());
+        assertEquals(pointIndex, TicSummary.fromTicMatrix(ticMatrix).getPointCount());
+        assertSame(ticMatrix, ticMatrix.sortedByRetentionTime());
+    }
+
+    /**
+     * Test that reading a file allocates little more than the two float arrays, independent of the number of lines.
+     */
+    @Test
+    public void testAllocationPerFile() throws Exception {
+        final Method getAllocatedBytesMethod = getThreadAllocatedBytesMethod();
+        assumeTrue(getAllocatedBytesMethod != null);
+        final Object threadBean = ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        // Warm up so class loading and compilation are not measured.
+        for (int warmUpIndex = 0; warmUpIndex < 20; warmUpIndex++) {
+            ticMatrixReader.parseTicMatrixFile(TIC_MATRIX_FILE);
+        }
+        final long allocatedBefore = (Long) getAllocatedBytesMethod.invoke(threadBean, threadId);
+        final TicMatrix ticMatrix = ticMatrixReader.parseTicMatrixFile(TIC_MATRIX_FILE);
+        final long allocatedAfter = (Long) getAllocatedBytesMethod.invoke(threadBean, threadId);
+        final long arrayBytes = 2L * ticMatrix.getRetentionTimes().length * 4;
+        final long overhead = allocatedAfter - allocatedBefore - arrayBytes;
+        assertTrue("Reading " + ticMatrix.getPointCount() + " points allocated " + overhead + " bytes besides the arrays.",
+                   overhead < MAX_OVERHEAD_BYTES);
+    }
+
+    /**
+     * Parse the contents of a TIC matrix file.
+     *
+     * @param contents the contents.
+     * @return the TIC matrix.
+     */
+    private TicMatrix parse(final String contents) {
+        return ticMatrixReader.parseTicMatrix(ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)), "test");
+    }
+
+    /**
+     * Get the <code>getThreadAllocatedBytes(long)</code> method of the thread MX bean, which is not available on all
+     * Java virtual machines.
+     *
+     * @return the method or <code>null</code> if it is not supported.
+     */
+    private Method getThreadAllocatedBytesMethod() {
+        try {
+            final Class<?> threadBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (!threadBeanClass.isInstance(ManagementFactory.getThreadMXBean())) {
+                return null;
+            }
+            final Method isEnabledMethod = threadBeanClass.getMethod("isThreadAllocatedMemoryEnabled");
+            if (!(Boolean) isEnabledMethod.invoke(ManagementFactory.getThreadMXBean())) {
+                return null;
+            }
+            return threadBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package nl.ctmm.trait.proteomics.qcviewer.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>TicMatrixSidecar</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class TicMatrixSidecarTest {
+    /**
+     * Temporary folder for a copy of a TIC matrix file from the test data.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path rootDirectory;
+
+    private TicMatrixSidecar sidecar;
+
+    private Path ticMatrixFile;
+
+    private TicMatrix csvTicMatrix;
+
+    /**
+     * Copy a TIC matrix file from the test data to an msrun directory in a temporary root directory and parse it.
+     */
+    @Before
+    public void setUp() throws IOException {
+        rootDirectory = temporaryFolder.getRoot().toPath();
+        sidecar = new TicMatrixSidecar(rootDirectory);
+        final Path msrunDirectory = Files.createDirectories(rootDirectory.resolve("2013").resolve("Jul").resolve("msrun_a"));
+        ticMatrixFile = msrunDirectory.resolve("msrun_a" + MsrunDirectory.TIC_MATRIX_FILE_SUFFIX);
+        Files.copy(Paths.get("QCReports", "2013", "Jul", "simulated_tic_130707_a", "simulated_tic_130707_a_ticmatrix.csv"),
+                   ticMatrixFile);
+        csvTicMatrix = new TicMatrixReader().parseTicMatrixFile(ticMatrixFile);
+    }
+
+    /**
+     * Test that a sidecar file contains the same values as the csv file.
+     */
+    @Test
+    public void testWriteAndRead() {
+        assertNull(sidecar.read(ticMatrixFile));
+        assertTrue(sidecar.write(ticMatrixFile, csvTicMatrix));
+        assertEquals(rootDirectory.resolve(TicMatrixSidecar.CACHE_DIRECTORY_NAME).resolve("2013").resolve("Jul")
+                             .resolve("msrun_a").resolve("msrun_a" + TicMatrixSidecar.SIDECAR_FILE_SUFFIX),
+                     sidecar.getSidecarFile(ticMatrixFile));
+        assertTrue(Files.exists(sidecar.getSidecarFile(ticMatrixFile)));
+        final TicMatrix sidecarTicMatrix = sidecar.read(ticMatrixFile);
+        assertNotNull(sidecarTicMatrix);
+        assertEquals(csvTicMatrix.getPointCount(), sidecarTicMatrix.getPointCount());
+        assertArrayEquals(csvTicMatrix.getRetentionTimes(), sidecarTicMatrix.getRetentionTimes(), 0);
+        assertArrayEquals(csvTicMatrix.getIntensities(), sidecarTicMatrix.getIntensities(), 0);
+    }
+
+    /**
+     * Test that writing a sidecar file leaves the msrun directory alone, since its modification time is used to select
+     * the reports in a date range.
+     */
+    @Test
+    public void testWriteLeavesMsrunDirectoryUnchanged() throws IOException {
+        final Path msrunDirectory = ticMatrixFile.getParent();
+        final FileTime lastModified = FileTime.fromMillis(Files.getLastModifiedTime(msrunDirectory).toMillis() - 60000);
+        Files.setLastModifiedTime(msrunDirectory, lastModified);
+        assertTrue(sidecar.write(ticMatrixFile, csvTicMatrix));
+        assertEquals(lastModified, Files.getLastModifiedTime(msrunDirectory));
+        assertEquals(1, msrunDirectory.toFile().list().length);
+    }
+
+    /**
+     * Test that a sidecar file is ignored after the csv file has been modified.
+     */
+    @Test
+    public void testStaleSidecar() throws IOException {
+        assertTrue(sidecar.write(ticMatrixFile, csvTicMatrix));
+        Files.setLastModifiedTime(ticMatrixFile,
+                                  FileTime.fromMillis(Files.getLastModifiedTime(ticMatrixFile).toMillis() + 60000));
+        assertNull(sidecar.read(ticMatrixFile));
+    }
+
+    /**
+     * Test that a corrupt sidecar file is ignored and that the reader falls back to the csv file and repairs it.
+     */
+    @Test
+    public void testCorruptSidecar() throws IOException {
+        assertTrue(sidecar.write(ticMatrixFile, csvTicMatrix));
+        final Path sidecarFile = sidecar.getSidecarFile(ticMatrixFile);
+        try (final FileChannel channel = FileChannel.open(sidecarFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), 100);
+        }
+        assertNull(sidecar.read(ticMatrixFile));
+        assertEquals(csvTicMatrix.getPointCount(), new TicMatrixReader(rootDirectory, true).readTicMatrix(ticMatrixFile)
+                .getPointCount());
+        assertNotNull(sidecar.read(ticMatrixFile));
+    }
+
+    /**
+     * Test that the default reader does not write sidecar files.
+     */
+    @Test
+    public void testReaderWithoutSidecars() throws IOException {
+        assertEquals(csvTicMatrix.getPointCount(), new TicMatrixReader().readTicMatrix(ticMatrixFile).getPointCount());
+        assertFalse(Files.exists(sidecar.getSidecarFile(ticMatrixFile)));
+    }
+}
@@ -0,0 +1,109 @@
+package nl.ctmm.trait.proteomics.qcviewer.utils;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>SeriesDownsampler</code> class.
+ *
+ * @author <a href="mailto:freek.de.bruijn@nbic.nl">Freek de Bruijn</a>
+ */
+public class SeriesDownsamplerTest {
+    private static final int COLUMN_COUNT = 100;
+
+    /**
+     * Test that the displayed points for different zoom levels are at most one per column (plus the first, last and
+     * highest point and the points next to the visible range) and keep the peaks: the highest point of each column is
+     * shown in that column or in a neighbouring column.
+     */
+    @Test
+    public void testDownsample() {
+        final Random random = new Random(1234);
+        final int itemCount = 10000;
+        final float[] xValues = new float[itemCount];
+        final float[] yValues = new float[itemCount];
+        float maxY = 0;
+        for (int index = 0; index < itemCount; index++) {
+            xValues[index] = index / 100f;
+            yValues[index] = random.nextInt(1000) + (index % 997 == 0 ? 1e6f : 0);
+            maxY = Math.max(maxY, yValues[index]);
+        }
+        final SeriesDownsampler downsampler = new SeriesDownsampler(xValues, yValues, itemCount);
+        assertEquals(0.01, downsampler.getMinimumInterval(), 1e-5);
+        assertEquals(maxY, downsampler.getMaxY(), 0);
+        final double[][] ranges = {{0, 99.99}, {10, 60}, {20, 30}, {50, 51}, {90.5, 99.99}};
+        for (final double[] range : ranges) {
+            final int[] displayIndices = downsampler.downsample(range[0], range[1], COLUMN_COUNT);
+            assertTrue(displayIndices.length <= COLUMN_COUNT + 6);
+            assertEquals(0, displayIndices[0]);
+            assertEquals(itemCount - 1, displayIndices[displayIndices.length - 1]);
+            float displayedMaxY = 0;
+            for (int position = 0; position < displayIndices.length; position++) {
+                assertTrue(position == 0 || displayIndices[position] > displayIndices[position - 1]);
+                displayedMaxY = Math.max(displayedMaxY, yValues[displayIndices[position]]);
+            }
+            assertEquals(maxY, displayedMaxY, 0);
+            final double[] columnMaxima = getColumnMaxima(xValues, yValues, null, range[0], range[1]);
+            final double[] displayMaxima = getColumnMaxima(xValues, yValues, displayIndices, range[0], range[1]);
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                double shownMaximum = displayMaxima[column];
+                if (column > 0) {
+                    shownMaximum = Math.max(shownMaximum, displayMaxima[column - 1]);
+                }
+                if (column < COLUMN_COUNT - 1) {
+                    shownMaximum = Math.max(shownMaximum, displayMaxima[column + 1]);
+                }
+                assertTrue(shownMaximum >= columnMaxima[column]);
+            }
+        }
+        // Zoomed in far enough, all points in the visible range are shown.
+        int visibleCount = 0;
+        for (final int index : downsampler.downsample(50, 50.5, COLUMN_COUNT)) {
+            if (xValues[index] >= 50 && xValues[index] <= 50.5) {
+                visibleCount++;
+            }
+        }
+        assertEquals(51, visibleCount);
+    }
+
+    /**
+     * Test short series, which are shown completely.
+     */
+    @Test
+    public void testShortSeries() {
+        final SeriesDownsampler downsampler = new SeriesDownsampler(new float[]{1, 0}, new float[]{5, 0}, 1);
+        assertEquals(1, downsampler.downsample(0, 2, COLUMN_COUNT).length);
+        assertEquals(5, downsampler.getMaxY(), 0);
+        assertTrue(Double.isNaN(downsampler.getMinimumInterval()));
+        assertEquals(0, new SeriesDownsampler(new float[0], new float[0], 0).downsample(0, 1, COLUMN_COUNT).length);
+    }
+
+    /**
+     * Get the highest y value per column of the visible range.
+     *
+     * @param xValues the x values.
+     * @param yValues the y values.
+     * @param indices the indices of the points to use or <code>null</code> to use all points.
+     * @param lower the lower bound of the visible range.
+     * @param upper the upper bound of the visible range.
+     * @return the highest y value per column (zero for empty columns).
+     */
+    private double[] getColumnMaxima(final float[] xValues, final float[] yValues, final int[] indices,
+                                     final double lower, final double upper) {
+        final double[] columnMaxima = new double[COLUMN_COUNT];
+        final int count = indices != null ? indices.length : xValues.length;
+        for (int position = 0; position < count; position++) {
+            final int index = indices != null ? indices[position] : position;
+            final double x = xValues[index];
+            if (x >= lower && x <= upper) {
+                final int column = Math.min((int) ((x - lower) / (upper - lower) * COLUMN_COUNT), COLUMN_COUNT - 1);
+                columnMaxima[column] = Math.max(columnMaxima[column], yValues[index]);
+            }
+        }
+        return columnMaxima;
+    }
+}